@@ -22,4 +22,6 @@ dependencies {
 
     implementation(templateProject("core")) { isChanging = true }
     implementation(templateProject("jwt")) { isChanging = true }
+
+    testImplementation(tonyLibs.bundles.test)
 }
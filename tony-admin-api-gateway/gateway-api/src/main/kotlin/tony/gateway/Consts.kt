@@ -7,3 +7,14 @@ package tony.gateway
 
 const val USER_ID_HEADER_NAME = "X-User-Id"
 const val TOKEN_HEADER_NAME = "X-Access-Token"
+
+/**
+ * 网关验证 token 后写入的 exchange 属性
+ */
+const val USER_ID_ATTRIBUTE = "tony.gateway.userId"
+const val TENANT_ID_ATTRIBUTE = "tony.gateway.tenantId"
+
+/**
+ * 已签发的身份请求头, 由 [tony.gateway.filter.IdentityHeadersFilter] 写入下游请求
+ */
+const val IDENTITY_ATTRIBUTE = "tony.gateway.identity"
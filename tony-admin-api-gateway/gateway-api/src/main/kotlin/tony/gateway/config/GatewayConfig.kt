@@ -13,6 +13,7 @@ import org.springframework.context.annotation.Bean
 import org.springframework.context.annotation.Configuration
 import org.springframework.stereotype.Component
 import reactor.core.publisher.Mono
+import tony.core.utils.AntPathMatchIndex
 import tony.core.utils.antPathMatchAny
 import tony.gateway.filter.factory.RemoveResponseHeadersGatewayFilterFactory
 
@@ -53,15 +54,63 @@ class GatewayConfig {
 @NacosConfigurationProperties(dataId = "tony-gateway-routes-auth.yml")
 class GatewayRouteConfigProperties {
     var noLoginCheckUrls: List<String>? = null
+        set(value) {
+            field = value
+            noLoginCheckIndex = AntPathMatchIndex(value)
+        }
+
     var noPermissionCheckUrls: List<String>? = null
+        set(value) {
+            field = value
+            noPermissionCheckIndex = AntPathMatchIndex(value)
+        }
+
+    /**
+     * 配置刷新时重新编译
+     */
+    @Volatile
+    private var noLoginCheckIndex = AntPathMatchIndex(null)
+
+    @Volatile
+    private var noPermissionCheckIndex = AntPathMatchIndex(null)
 
     fun noLoginCheck(path: String?) =
-        path.antPathMatchAny(noLoginCheckUrls)
+        path.antPathMatchAny(noLoginCheckIndex)
 
     fun noPermissionCheck(path: String?) =
         if (noLoginCheck(path)) {
             true
         } else {
-            path.antPathMatchAny(noPermissionCheckUrls)
+            path.antPathMatchAny(noPermissionCheckIndex)
+        }
+
+    /**
+     * 一次判断路径需要的校验, 每个索引最多匹配一次
+     */
+    fun authCheck(path: String?) =
+        when {
+            path.antPathMatchAny(noLoginCheckIndex) -> AuthCheck.NONE
+            path.antPathMatchAny(noPermissionCheckIndex) -> AuthCheck.LOGIN
+            else -> AuthCheck.PERMISSION
         }
 }
+
+/**
+ * 路径需要的校验
+ */
+enum class AuthCheck {
+    /**
+     * 不校验
+     */
+    NONE,
+
+    /**
+     * 只校验登录
+     */
+    LOGIN,
+
+    /**
+     * 校验登录与权限
+     */
+    PERMISSION,
+}
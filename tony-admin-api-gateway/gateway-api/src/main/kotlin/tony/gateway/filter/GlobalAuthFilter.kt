@@ -0,0 +1,100 @@
+package tony.gateway.filter
+
+import com.auth0.jwt.exceptions.JWTVerificationException
+import org.springframework.cloud.gateway.filter.GatewayFilterChain
+import org.springframework.cloud.gateway.filter.GlobalFilter
+import org.springframework.core.Ordered
+import org.springframework.stereotype.Component
+import org.springframework.web.server.ServerWebExchange
+import reactor.core.publisher.Mono
+import tony.core.ApiProperty
+import tony.core.model.ApiResult
+import tony.core.utils.globalObjectMapper
+import tony.core.utils.ifNullOrBlank
+import tony.gateway.IDENTITY_ATTRIBUTE
+import tony.gateway.TENANT_ID_ATTRIBUTE
+import tony.gateway.TOKEN_HEADER_NAME
+import tony.gateway.USER_ID_ATTRIBUTE
+import tony.gateway.config.AuthCheck
+import tony.gateway.config.GatewayRouteConfigProperties
+import tony.gateway.permission.PermissionEngine
+import tony.gateway.utils.jsonBody
+import tony.jwt.GatewayIdentityCodec
+import tony.jwt.JwtToken
+
+/**
+ * 登录与权限校验.
+ *
+ * 路径只分类一次, 通过后把用户信息写入 exchange 属性, 由 [IdentityHeadersFilter] 转发时写入请求头.
+ *
+ * @author tangli
+ * @date 2025/08/13 10:00
+ */
+@Component
+class GlobalAuthFilter(
+    private val gatewayRouteConfigProperties: GatewayRouteConfigProperties,
+    private val permissionEngine: PermissionEngine,
+    /**
+     * 配置了 jwt.identity-secret 时, 向下游签发身份请求头, 下游不再重复验证 jwt
+     */
+    private val gatewayIdentityCodec: GatewayIdentityCodec?,
+) : GlobalFilter,
+    Ordered {
+    override fun filter(
+        exchange: ServerWebExchange,
+        chain: GatewayFilterChain,
+    ): Mono<Void> {
+        val request = exchange.request
+        val originalPath = request.uri.path
+        val authCheck = gatewayRouteConfigProperties.authCheck(originalPath)
+        if (authCheck == AuthCheck.NONE) {
+            return chain.filter(exchange)
+        }
+
+        val token =
+            try {
+                JwtToken.parse(request.headers.getFirst(TOKEN_HEADER_NAME).ifNullOrBlank())
+            } catch (e: JWTVerificationException) {
+                null
+            } ?: return exchange.response.jsonBody(unauthorizedBody)
+        val userId = token.getClaim("userId").asString()
+        val tenantId = token.getClaim("tenantId").asString().orEmpty()
+        if (userId != null) {
+            exchange.attributes[USER_ID_ATTRIBUTE] = userId
+            exchange.attributes[TENANT_ID_ATTRIBUTE] = tenantId
+            if (gatewayIdentityCodec != null) {
+                exchange.attributes[IDENTITY_ATTRIBUTE] =
+                    gatewayIdentityCodec.encode(userId, tenantId, token.expiresAtAsInstant)
+            }
+        }
+
+        if (authCheck == AuthCheck.LOGIN) {
+            return chain.filter(exchange)
+        }
+        if (userId == null) {
+            return exchange.response.jsonBody(forbiddenBody)
+        }
+        return permissionEngine
+            .isPermitted(tenantId, userId, request.method.name(), originalPath)
+            .flatMap { permitted ->
+                if (permitted) {
+                    chain.filter(exchange)
+                } else {
+                    exchange.response.jsonBody(forbiddenBody)
+                }
+            }
+    }
+
+    override fun getOrder(): Int =
+        10151
+
+    private companion object {
+        val unauthorizedBody: ByteArray by lazy(LazyThreadSafetyMode.PUBLICATION) {
+            globalObjectMapper.writeValueAsBytes(ApiResult(Unit, ApiProperty.unauthorizedCode, "请登录"))
+        }
+
+        val forbiddenBody: ByteArray by lazy(LazyThreadSafetyMode.PUBLICATION) {
+            globalObjectMapper.writeValueAsBytes(ApiResult(Unit, 40300, "未经许可的访问"))
+        }
+    }
+}
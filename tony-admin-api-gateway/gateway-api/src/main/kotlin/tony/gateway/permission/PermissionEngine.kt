@@ -0,0 +1,205 @@
+package tony.gateway.permission
+
+import com.github.benmanes.caffeine.cache.AsyncCache
+import com.github.benmanes.caffeine.cache.Caffeine
+import java.time.Duration
+import java.util.BitSet
+import java.util.concurrent.CompletableFuture
+import org.springframework.beans.factory.DisposableBean
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate
+import org.springframework.stereotype.Component
+import reactor.core.Disposable
+import reactor.core.publisher.Mono
+import reactor.util.retry.Retry
+import tony.core.PermissionKeys
+import tony.core.utils.getLogger
+
+/**
+ * 网关权限引擎.
+ *
+ * 受控接口编译为 [PermissionRouteTable], 角色/用户权限编译为 [BitSet], 校验时一次路由查找加一次位运算.
+ * 本地 Caffeine 为一级缓存, Redis 为二级缓存(由业务服务按 [PermissionKeys] 写入),
+ * 变更通过 [PermissionKeys.CHANGED_CHANNEL] 精确失效, 本地缓存过期时间作为通知丢失时的兜底.
+ * 校验全程非阻塞, 出错时拒绝访问.
+ *
+ * @author tangli
+ * @date 2025/08/12 10:00
+ */
+@Component
+class PermissionEngine(
+    private val redisTemplate: ReactiveStringRedisTemplate,
+    private val permissionProperties: PermissionProperties,
+) : DisposableBean {
+    private val logger = getLogger()
+
+    @Volatile
+    private var compiled: Mono<CompiledPermissions> = compile()
+
+    /**
+     * 最近一次编译结果, 角色/用户变更在此失效
+     */
+    @Volatile
+    private var current: CompiledPermissions? = null
+
+    private val userRoles: AsyncCache<String, Set<String>> = newCache()
+
+    private val subscription: Disposable =
+        redisTemplate
+            .listenToChannel(PermissionKeys.CHANGED_CHANNEL)
+            .map { it.message }
+            .doOnError { logger.warn("Permission channel disconnected: ${it.message}") }
+            .retryWhen(
+                Retry
+                    .backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                    .maxBackoff(Duration.ofMinutes(1))
+                    // 断开期间的通知已丢失, 全部重新加载
+                    .doAfterRetry { onChanged(PermissionKeys.ALL_CHANGED) }
+            ).subscribe(::onChanged) { logger.error(it.message, it) }
+
+    /**
+     * 用户是否可访问接口, 未受控的接口同样拒绝.
+     */
+    fun isPermitted(
+        tenantId: String,
+        userId: String,
+        method: String,
+        path: String,
+    ): Mono<Boolean> =
+        compiled
+            .flatMap { it.isPermitted(tenantId, userId, method.uppercase(), stripPrefix(path)) }
+            .onErrorResume {
+                logger.error("Permission check failed, deny $method $path: ${it.message}", it)
+                Mono.just(false)
+            }
+
+    override fun destroy() {
+        subscription.dispose()
+    }
+
+    private fun compile(): Mono<CompiledPermissions> =
+        redisTemplate
+            .opsForSet()
+            .members(PermissionKeys.ROUTES)
+            .collectList()
+            .map { CompiledPermissions(PermissionRouteTable(it)) }
+            .doOnNext { current = it }
+            .cache({ permissionProperties.cacheExpire }, { Duration.ZERO }, { Duration.ZERO })
+
+    private fun onChanged(message: String) {
+        when {
+            message == PermissionKeys.ROUTES_CHANGED -> {
+                compiled = compile()
+            }
+
+            message == PermissionKeys.ALL_CHANGED -> {
+                userRoles.synchronous().invalidateAll()
+                compiled = compile()
+            }
+
+            message.startsWith(PermissionKeys.ROLE_CHANGED_PREFIX) -> {
+                current?.invalidateRole(message.removePrefix(PermissionKeys.ROLE_CHANGED_PREFIX))
+            }
+
+            message.startsWith(PermissionKeys.USER_CHANGED_PREFIX) -> {
+                val key = message.removePrefix(PermissionKeys.USER_CHANGED_PREFIX)
+                userRoles.synchronous().invalidate(key)
+                current?.invalidateUser(key)
+            }
+
+            else -> {
+                logger.warn("Unknown permission change message: $message")
+            }
+        }
+    }
+
+    private fun stripPrefix(path: String): String {
+        var index = 0
+        repeat(permissionProperties.stripPrefix) {
+            index = path.indexOf('/', index + 1)
+            if (index < 0) {
+                return "/"
+            }
+        }
+        return path.substring(index)
+    }
+
+    private fun members(key: String): CompletableFuture<List<String>> =
+        redisTemplate
+            .opsForSet()
+            .members(key)
+            .collectList()
+            .toFuture()
+
+    private fun <V : Any> newCache(): AsyncCache<String, V> =
+        Caffeine
+            .newBuilder()
+            .maximumSize(permissionProperties.cacheMaximumSize)
+            .expireAfterWrite(permissionProperties.cacheExpire)
+            .buildAsync()
+
+    /**
+     * 基于同一张路由表编译的权限, 路由表变更时整体替换.
+     * 缓存 key 均为 `tenantId:roleId` / `tenantId:userId`.
+     */
+    private inner class CompiledPermissions(
+        private val routeTable: PermissionRouteTable,
+    ) {
+        private val roleBits: AsyncCache<String, BitSet> = newCache()
+
+        private val userBits: AsyncCache<String, BitSet> = newCache()
+
+        fun isPermitted(
+            tenantId: String,
+            userId: String,
+            method: String,
+            path: String,
+        ): Mono<Boolean> {
+            val index = routeTable.indexOf(method, path)
+            if (index < 0) {
+                return Mono.just(false)
+            }
+            return Mono
+                .fromFuture(
+                    { userBits.get("$tenantId:$userId") { _, _ -> loadUserBits(tenantId, userId) } },
+                    true
+                ).map { it.get(index) }
+        }
+
+        fun invalidateRole(key: String) {
+            roleBits.synchronous().invalidate(key)
+            // 不维护角色到用户的反向索引, 失效同租户下的用户
+            val tenantPrefix = "${key.substringBefore(':')}:"
+            userBits.asMap().keys.removeIf { it.startsWith(tenantPrefix) }
+        }
+
+        fun invalidateUser(key: String) {
+            userBits.synchronous().invalidate(key)
+        }
+
+        private fun loadUserBits(
+            tenantId: String,
+            userId: String,
+        ): CompletableFuture<BitSet> =
+            userRoles
+                .get("$tenantId:$userId") { _, _ ->
+                    members(PermissionKeys.userRoles(tenantId, userId)).thenApply { it.toSet() }
+                }.thenCompose { roleIds ->
+                    val futures = roleIds.map { roleBits(tenantId, it) }
+                    CompletableFuture
+                        .allOf(*futures.toTypedArray())
+                        .thenApply {
+                            BitSet(routeTable.size).apply {
+                                futures.forEach { or(it.join()) }
+                            }
+                        }
+                }
+
+        private fun roleBits(
+            tenantId: String,
+            roleId: String,
+        ): CompletableFuture<BitSet> =
+            roleBits.get("$tenantId:$roleId") { _, _ ->
+                members(PermissionKeys.roleModules(tenantId, roleId)).thenApply { routeTable.compile(it) }
+            }
+    }
+}
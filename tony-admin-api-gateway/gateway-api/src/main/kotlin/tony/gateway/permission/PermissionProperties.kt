@@ -0,0 +1,30 @@
+package tony.gateway.permission
+
+import java.time.Duration
+import org.springframework.boot.context.properties.ConfigurationProperties
+import org.springframework.stereotype.Component
+
+/**
+ * 权限引擎配置
+ *
+ * @author tangli
+ * @date 2025/08/12 10:00
+ */
+@Component
+@ConfigurationProperties(prefix = "tony.gateway.permission")
+class PermissionProperties {
+    /**
+     * 本地缓存的用户/角色数量上限
+     */
+    var cacheMaximumSize: Long = 10000
+
+    /**
+     * 本地缓存过期时间, 变更通知丢失时的兜底
+     */
+    var cacheExpire: Duration = Duration.ofMinutes(10)
+
+    /**
+     * 匹配前去掉的路径段数, 同 StripPrefix 过滤器
+     */
+    var stripPrefix: Int = 0
+}
@@ -0,0 +1,93 @@
+package tony.gateway.permission
+
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import java.util.BitSet
+import org.springframework.util.AntPathMatcher
+
+/**
+ * 编译后的路由表.
+ *
+ * 所有受控接口模块(`METHOD /path`, 路径可为 ant 模式)按字典序编号, 权限集合即以编号为下标的 [BitSet].
+ * 精确路径一次哈希查找; 模式路径逐个匹配, 多个模式匹配时取最具体的模式(同一模式优先指定了方法的), 结果按请求路径缓存.
+ *
+ * @author tangli
+ * @date 2025/08/12 10:00
+ */
+class PermissionRouteTable(
+    moduleIds: Collection<String>,
+) {
+    private val moduleIndex: Map<String, Int> =
+        moduleIds
+            .distinct()
+            .sorted()
+            .withIndex()
+            .associate { (index, moduleId) -> moduleId to index }
+
+    private val patternRoutes: List<PatternRoute> =
+        moduleIndex
+            .filterKeys { antPathMatcher.isPattern(it.substringAfter(' ')) }
+            .map { (moduleId, index) ->
+                PatternRoute(
+                    moduleId.substringBefore(' ', "").uppercase(),
+                    moduleId.substringAfter(' '),
+                    index
+                )
+            }
+
+    private val patternLookups: Cache<String, Int> =
+        Caffeine
+            .newBuilder()
+            .maximumSize(PATTERN_LOOKUP_CACHE_SIZE)
+            .build()
+
+    /**
+     * 受控接口数量.
+     */
+    val size: Int
+        get() = moduleIndex.size
+
+    /**
+     * 把模块id编译为权限集合, 不在路由表中的模块忽略.
+     */
+    fun compile(moduleIds: Collection<String>): BitSet =
+        BitSet(size).apply {
+            moduleIds.forEach { moduleId ->
+                moduleIndex[moduleId]?.let(::set)
+            }
+        }
+
+    /**
+     * 请求对应的接口编号, 不受控时返回 -1.
+     */
+    fun indexOf(
+        method: String,
+        path: String,
+    ): Int {
+        val moduleId = "$method $path"
+        moduleIndex[moduleId]?.let { return it }
+        if (patternRoutes.isEmpty()) {
+            return -1
+        }
+        return patternLookups.get(moduleId) {
+            patternRoutes
+                .filter { (it.method.isEmpty() || it.method == method) && antPathMatcher.match(it.pattern, path) }
+                .minWithOrNull(
+                    compareBy(antPathMatcher.getPatternComparator(path), PatternRoute::pattern)
+                        .thenBy { it.method.isEmpty() }
+                )?.index ?: -1
+        }
+    }
+
+    private data class PatternRoute(
+        val method: String,
+        val pattern: String,
+        val index: Int,
+    )
+
+    private companion object {
+        const val PATTERN_LOOKUP_CACHE_SIZE = 10_000L
+
+        val antPathMatcher = AntPathMatcher()
+    }
+}
@@ -19,3 +19,13 @@ fun ServerHttpResponse.jsonBody(obj: Any?): Mono<Void> =
             }
         )
     }
+
+/**
+ * 写入预先序列化的 json, 数组只被包装不被复制, 可在多个响应间共享
+ */
+fun ServerHttpResponse.jsonBody(bytes: ByteArray): Mono<Void> =
+    run {
+        headers.contentType = MediaType.APPLICATION_JSON
+        headers.contentLength = bytes.size.toLong()
+        writeWith(Mono.just(bufferFactory().wrap(bytes)))
+    }
@@ -0,0 +1,49 @@
+package tony.test.gateway
+
+import org.springframework.boot.web.reactive.context.AnnotationConfigReactiveWebApplicationContext
+import org.springframework.context.annotation.Configuration
+import org.springframework.core.env.MapPropertySource
+import tony.core.annotation.EnableTonyBoot
+import tony.jwt.GatewayIdentityCodec
+
+/**
+ * 测试用最小 Spring 容器.
+ *
+ * [tony.jwt.JwtToken] 通过 [tony.core.SpringContexts] 获取配置, 依赖它的测试在访问前调用 [start], 同一 JVM 只启动一次.
+ *
+ * @author tony
+ * @date 2025/08/13 10:00
+ */
+object TestGatewayContexts {
+    private val context by lazy {
+        AnnotationConfigReactiveWebApplicationContext().apply {
+            environment.propertySources.addFirst(
+                MapPropertySource(
+                    "test",
+                    mapOf(
+                        "jwt.secret" to "tony-gateway-test-secret",
+                        "jwt.identity-secret" to "tony-gateway-identity-secret"
+                    )
+                )
+            )
+            // jwt 自动配置类不公开, 按类名注册
+            register(TestConfig::class.java, Class.forName("tony.jwt.config.JwtConfig"))
+            refresh()
+            registerShutdownHook()
+        }
+    }
+
+    /**
+     * 与网关使用同一配置的身份编解码器.
+     */
+    val gatewayIdentityCodec: GatewayIdentityCodec
+        get() = context.getBean(GatewayIdentityCodec::class.java)
+
+    fun start() {
+        context
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @EnableTonyBoot
+    class TestConfig
+}
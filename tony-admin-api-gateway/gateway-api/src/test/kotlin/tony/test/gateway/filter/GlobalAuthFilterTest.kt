@@ -0,0 +1,172 @@
+package tony.test.gateway.filter
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNotNull
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertSame
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Nested
+import org.junit.jupiter.api.Test
+import org.mockito.Mockito
+import org.springframework.cloud.gateway.filter.GatewayFilterChain
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest
+import org.springframework.mock.web.server.MockServerWebExchange
+import org.springframework.web.server.ServerWebExchange
+import reactor.core.publisher.Mono
+import tony.core.ApiProperty
+import tony.core.utils.globalObjectMapper
+import tony.gateway.IDENTITY_ATTRIBUTE
+import tony.gateway.TENANT_ID_ATTRIBUTE
+import tony.gateway.TOKEN_HEADER_NAME
+import tony.gateway.USER_ID_ATTRIBUTE
+import tony.gateway.config.GatewayRouteConfigProperties
+import tony.gateway.filter.GlobalAuthFilter
+import tony.gateway.permission.PermissionEngine
+import tony.jwt.JwtToken
+import tony.test.gateway.TestGatewayContexts
+
+/**
+ * 登录与权限校验测试
+ *
+ * @author tony
+ * @date 2025/08/13 10:00
+ */
+@DisplayName("登录与权限校验测试")
+class GlobalAuthFilterTest {
+    private val permissionEngine = Mockito.mock(PermissionEngine::class.java)
+
+    private val filter =
+        GlobalAuthFilter(
+            GatewayRouteConfigProperties().apply {
+                noLoginCheckUrls = listOf("/open/**")
+                noPermissionCheckUrls = listOf("/login/**")
+            },
+            permissionEngine,
+            TestGatewayContexts.gatewayIdentityCodec
+        )
+
+    private val chain = RecordingChain()
+
+    @Nested
+    @DisplayName("未登录")
+    inner class Unauthorized {
+        @Test
+        @DisplayName("无需登录的路径直接放行")
+        fun testOpen() {
+            val exchange = exchange("/open/ping")
+            filter.filter(exchange, chain).block()
+            assertSame(exchange, chain.exchange)
+        }
+
+        @Test
+        @DisplayName("缺少 token 返回未登录响应体")
+        fun testMissingToken() {
+            val exchange = exchange("/login/profile")
+            filter.filter(exchange, chain).block()
+            assertBody(exchange, ApiProperty.unauthorizedCode, "请登录")
+        }
+
+        @Test
+        @DisplayName("token 无效返回未登录响应体")
+        fun testInvalidToken() {
+            val exchange = exchange("/login/profile", "invalid")
+            filter.filter(exchange, chain).block()
+            assertBody(exchange, ApiProperty.unauthorizedCode, "请登录")
+        }
+    }
+
+    @Nested
+    @DisplayName("已登录")
+    inner class Authorized {
+        @Test
+        @DisplayName("只需登录的路径放行, 写入用户属性与签发的身份")
+        fun testLogin() {
+            val exchange = exchange("/login/profile", JwtToken.gen("userId" to "u1", "tenantId" to "t1"))
+            filter.filter(exchange, chain).block()
+            assertSame(exchange, chain.exchange)
+            assertEquals("u1", exchange.getAttribute<String>(USER_ID_ATTRIBUTE))
+            assertEquals("t1", exchange.getAttribute<String>(TENANT_ID_ATTRIBUTE))
+            val identity =
+                TestGatewayContexts.gatewayIdentityCodec.decode(exchange.getRequiredAttribute(IDENTITY_ATTRIBUTE))
+            assertNotNull(identity)
+            assertEquals("u1", identity?.userId)
+            assertEquals("t1", identity?.tenantId)
+        }
+
+        @Test
+        @DisplayName("有权限时放行")
+        fun testPermitted() {
+            Mockito
+                .`when`(permissionEngine.isPermitted("t1", "u1", "GET", "/api/orders"))
+                .thenReturn(Mono.just(true))
+            val exchange = exchange("/api/orders", JwtToken.gen("userId" to "u1", "tenantId" to "t1"))
+            filter.filter(exchange, chain).block()
+            assertSame(exchange, chain.exchange)
+        }
+
+        @Test
+        @DisplayName("无权限时返回拒绝访问响应体")
+        fun testForbidden() {
+            Mockito
+                .`when`(permissionEngine.isPermitted("t1", "u1", "GET", "/api/orders"))
+                .thenReturn(Mono.just(false))
+            val exchange = exchange("/api/orders", JwtToken.gen("userId" to "u1", "tenantId" to "t1"))
+            filter.filter(exchange, chain).block()
+            assertBody(exchange, 40300, "未经许可的访问")
+        }
+
+        @Test
+        @DisplayName("token 中没有用户时返回拒绝访问响应体, 不查询权限")
+        fun testNoUser() {
+            val exchange = exchange("/api/orders", JwtToken.gen("tenantId" to "t1"))
+            filter.filter(exchange, chain).block()
+            assertBody(exchange, 40300, "未经许可的访问")
+            Mockito.verifyNoInteractions(permissionEngine)
+        }
+    }
+
+    private fun assertBody(
+        exchange: MockServerWebExchange,
+        code: Int,
+        message: String,
+    ) {
+        assertNull(chain.exchange)
+        val body = globalObjectMapper.readTree(exchange.response.bodyAsString.block())
+        assertEquals(code, body["code"].asInt())
+        assertEquals(message, body["message"].asText())
+        assertEquals("application/json", exchange.response.headers.contentType?.toString())
+    }
+
+    private fun exchange(
+        path: String,
+        token: String? = null,
+    ): MockServerWebExchange =
+        MockServerWebExchange.from(
+            MockServerHttpRequest.get(path).apply {
+                if (token != null) {
+                    header(TOKEN_HEADER_NAME, token)
+                }
+            }
+        )
+
+    /**
+     * 记录放行的 exchange.
+     */
+    private class RecordingChain : GatewayFilterChain {
+        var exchange: ServerWebExchange? = null
+
+        override fun filter(exchange: ServerWebExchange): Mono<Void> {
+            this.exchange = exchange
+            return Mono.empty()
+        }
+    }
+
+    companion object {
+        @JvmStatic
+        @BeforeAll
+        fun startContext() {
+            TestGatewayContexts.start()
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package tony.test.gateway.filter
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertSame
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest
+import org.springframework.mock.web.server.MockServerWebExchange
+import tony.core.IDENTITY_HEADER_NAME
+import tony.gateway.IDENTITY_ATTRIBUTE
+import tony.gateway.USER_ID_ATTRIBUTE
+import tony.gateway.USER_ID_HEADER_NAME
+import tony.gateway.filter.IdentityHeadersFilter
+
+/**
+ * 转发请求头测试
+ *
+ * @author tony
+ * @date 2025/08/13 10:00
+ */
+@DisplayName("转发请求头测试")
+class IdentityHeadersFilterTest {
+    private val filter = IdentityHeadersFilter()
+
+    @Test
+    @DisplayName("未登录且无身份请求头时原样返回")
+    fun testUnchanged() {
+        val exchange = exchange()
+        val headers = exchange.request.headers
+        assertSame(headers, filter.filter(headers, exchange))
+    }
+
+    @Test
+    @DisplayName("移除客户端传入的身份请求头, 不修改原始请求头")
+    fun testStripClientIdentity() {
+        val exchange = exchange("forged")
+        val headers = filter.filter(exchange.request.headers, exchange)
+        assertFalse(headers.containsKey(IDENTITY_HEADER_NAME))
+        assertNull(headers.getFirst(USER_ID_HEADER_NAME))
+        assertEquals("application/json", headers.getFirst("Accept"))
+        assertEquals("forged", exchange.request.headers.getFirst(IDENTITY_HEADER_NAME))
+    }
+
+    @Test
+    @DisplayName("已登录时写入用户与签发的身份, 覆盖客户端传入的值")
+    fun testIdentityHeaders() {
+        val exchange = exchange("forged")
+        exchange.attributes[USER_ID_ATTRIBUTE] = "u1"
+        exchange.attributes[IDENTITY_ATTRIBUTE] = "signed"
+        val headers = filter.filter(exchange.request.headers, exchange)
+        assertEquals("u1", headers.getFirst(USER_ID_HEADER_NAME))
+        assertEquals(listOf("signed"), headers[IDENTITY_HEADER_NAME])
+    }
+
+    @Test
+    @DisplayName("未配置身份密钥时只写入用户")
+    fun testUserOnly() {
+        val exchange = exchange()
+        exchange.attributes[USER_ID_ATTRIBUTE] = "u1"
+        val headers = filter.filter(exchange.request.headers, exchange)
+        assertEquals("u1", headers.getFirst(USER_ID_HEADER_NAME))
+        assertFalse(headers.containsKey(IDENTITY_HEADER_NAME))
+    }
+
+    @Test
+    @DisplayName("只处理转发请求头")
+    fun testSupports() {
+        assertTrue(filter.supports(HttpHeadersFilter.Type.REQUEST))
+        assertFalse(filter.supports(HttpHeadersFilter.Type.RESPONSE))
+    }
+
+    private fun exchange(identity: String? = null): MockServerWebExchange =
+        MockServerWebExchange.from(
+            MockServerHttpRequest.get("/api/orders").header("Accept", "application/json").apply {
+                if (identity != null) {
+                    header(IDENTITY_HEADER_NAME, identity)
+                }
+            }
+        )
+}
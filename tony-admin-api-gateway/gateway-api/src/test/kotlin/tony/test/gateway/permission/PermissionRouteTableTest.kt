@@ -0,0 +1,55 @@
+package tony.test.gateway.permission
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import tony.gateway.permission.PermissionRouteTable
+
+/**
+ * 路由表测试
+ *
+ * @author tony
+ * @date 2025/08/12 10:00
+ */
+@DisplayName("路由表测试")
+class PermissionRouteTableTest {
+    @Test
+    @DisplayName("精确路径优先于模式")
+    fun testExact() {
+        val table = PermissionRouteTable(listOf("GET /api/orders/**", "GET /api/orders/list"))
+        assertEquals(exactIndex(table, "GET /api/orders/list"), table.indexOf("GET", "/api/orders/list"))
+        assertEquals(-1, table.indexOf("POST", "/api/orders/list"))
+    }
+
+    @Test
+    @DisplayName("多个模式重叠时取最具体的模式, 与字典序无关")
+    fun testMostSpecificPattern() {
+        val table =
+            PermissionRouteTable(
+                listOf("GET /api/**", "GET /api/orders/*", "GET /api/orders/{id}/items", " /api/orders/*")
+            )
+        val orders = exactIndex(table, "GET /api/orders/*")
+        assertEquals(orders, table.indexOf("GET", "/api/orders/1"))
+        assertEquals(exactIndex(table, "GET /api/orders/{id}/items"), table.indexOf("GET", "/api/orders/1/items"))
+        assertEquals(exactIndex(table, "GET /api/**"), table.indexOf("GET", "/api/users/1"))
+        assertEquals(exactIndex(table, " /api/orders/*"), table.indexOf("DELETE", "/api/orders/1"))
+        assertEquals(-1, table.indexOf("GET", "/other"))
+    }
+
+    @Test
+    @DisplayName("只授权宽泛模式时不可访问更具体的受控接口")
+    fun testPermissionOnBroadPattern() {
+        val table = PermissionRouteTable(listOf("GET /api/**", "GET /api/orders/*"))
+        val permissions = table.compile(listOf("GET /api/**"))
+        assertTrue(permissions.get(table.indexOf("GET", "/api/users/1")))
+        assertFalse(permissions.get(table.indexOf("GET", "/api/orders/1")))
+    }
+
+    private fun exactIndex(
+        table: PermissionRouteTable,
+        moduleId: String,
+    ): Int =
+        table.compile(listOf(moduleId)).nextSetBit(0)
+}
@@ -36,6 +36,8 @@ public const val TRACE_ID_HEADER_NAME: String = "X-B3-Trace-Id"
 
 public const val TOKEN_HEADER_NAME: String = "X-Access-Token"
 
+public const val IDENTITY_HEADER_NAME: String = "X-Gateway-Identity"
+
 public const val ERROR_CODE_HEADER_NAME: String = "X-Error-Code"
 
 public const val ENCRYPTED_HEADER_NAME: String = "X-Encrypted"
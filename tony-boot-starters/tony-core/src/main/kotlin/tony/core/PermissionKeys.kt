@@ -0,0 +1,98 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.core
+
+/**
+ * 权限数据在 Redis 中的约定, 由业务服务写入, 网关只读.
+ *
+ * - [ROUTES]: 受控接口集合, 元素为模块id `METHOD /path`
+ * - [userRoles]: 用户角色id集合
+ * - [roleModules]: 角色接口模块id集合
+ * - [CHANGED_CHANNEL]: 变更通知, 消息为 [ROUTES_CHANGED], [roleChanged], [userChanged] 或 [ALL_CHANGED]
+ *
+ * @author tangli
+ * @date 2025/08/12 10:00
+ */
+public object PermissionKeys {
+    public const val ROUTES: String = "tony:permission:routes"
+    public const val CHANGED_CHANNEL: String = "tony:permission:changed"
+
+    public const val ROUTES_CHANGED: String = "routes"
+    public const val ALL_CHANGED: String = "*"
+    public const val ROLE_CHANGED_PREFIX: String = "role:"
+    public const val USER_CHANGED_PREFIX: String = "user:"
+
+    /**
+     * 用户角色id集合的 key.
+     * @param [tenantId] 租户id
+     * @param [userId] 用户id
+     * @return [String]
+     */
+    @JvmStatic
+    public fun userRoles(
+        tenantId: String,
+        userId: String,
+    ): String =
+        "tony:permission:user-roles:$tenantId:$userId"
+
+    /**
+     * 角色接口模块id集合的 key.
+     * @param [tenantId] 租户id
+     * @param [roleId] 角色id
+     * @return [String]
+     */
+    @JvmStatic
+    public fun roleModules(
+        tenantId: String,
+        roleId: String,
+    ): String =
+        "tony:permission:role-modules:$tenantId:$roleId"
+
+    /**
+     * 角色权限变更消息.
+     * @param [tenantId] 租户id
+     * @param [roleId] 角色id
+     * @return [String]
+     */
+    @JvmStatic
+    public fun roleChanged(
+        tenantId: String,
+        roleId: String,
+    ): String =
+        "$ROLE_CHANGED_PREFIX$tenantId:$roleId"
+
+    /**
+     * 用户角色变更消息.
+     * @param [tenantId] 租户id
+     * @param [userId] 用户id
+     * @return [String]
+     */
+    @JvmStatic
+    public fun userChanged(
+        tenantId: String,
+        userId: String,
+    ): String =
+        "$USER_CHANGED_PREFIX$tenantId:$userId"
+}
@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.core.utils
+
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+import org.springframework.util.AntPathMatcher
+
+/**
+ * 预编译的 ant 路径匹配索引.
+ *
+ * 按模式开头的字面量路径段建前缀树, 通配段 (`*`, `?`, `**`, `{var}`) 及之后的部分仍交给 [AntPathMatcher].
+ * 匹配时沿路径段下行, 只对经过节点上挂的模式调用 [AntPathMatcher.match], 不再逐个遍历所有模式.
+ * 结果按路径缓存, 分段 LRU 淘汰.
+ *
+ * 匹配结果与 [antPathMatchAny] 一致.
+ *
+ * @author tangli
+ * @date 2025/08/01 10:00
+ */
+public class AntPathMatchIndex
+    @JvmOverloads
+    constructor(
+        patterns: Collection<String>?,
+        /**
+         * 结果缓存条数, 0 不缓存.
+         */
+        cacheSize: Int = DEFAULT_CACHE_SIZE,
+    ) {
+        /**
+         * 全部模式.
+         */
+        public val patterns: List<String> = patterns?.distinct().orEmpty()
+
+        private val root = Node()
+
+        private val cache: Array<LruCache>? =
+            if (cacheSize > 0) {
+                val segmentCapacity = (cacheSize + CACHE_SEGMENTS - 1) / CACHE_SEGMENTS
+                Array(CACHE_SEGMENTS) { LruCache(segmentCapacity) }
+            } else {
+                null
+            }
+
+        init {
+            this.patterns.forEach { pattern ->
+                var node = root
+                for (segment in segments(pattern)) {
+                    if (!isLiteral(segment)) {
+                        break
+                    }
+                    node = node.children.getOrPut(segment) { Node() }
+                }
+                node.patterns.add(pattern)
+            }
+        }
+
+        /**
+         * 是否匹配任一模式.
+         * @param [path] 路径, 为 null 时按空字符串匹配
+         */
+        public fun matches(path: CharSequence?): Boolean {
+            if (patterns.isEmpty()) {
+                return false
+            }
+            val pathStr = path.ifNullOrBlank()
+            val cache = cache ?: return match(pathStr)
+            val segment = cache[(pathStr.hashCode() and Int.MAX_VALUE) % CACHE_SEGMENTS]
+            return segment.get(pathStr) ?: match(pathStr).also { segment.put(pathStr, it) }
+        }
+
+        private fun match(path: String): Boolean {
+            var node: Node? = root
+            val segments = segments(path).iterator()
+            while (node != null) {
+                if (node.patterns.any { antPathMatcher.match(it, path) }) {
+                    return true
+                }
+                node = if (segments.hasNext()) node.children[segments.next()] else null
+            }
+            return false
+        }
+
+        override fun toString(): String =
+            "AntPathMatchIndex$patterns"
+
+        private class Node {
+            val children = HashMap<String, Node>()
+            val patterns = ArrayList<String>()
+        }
+
+        /**
+         * 单段 LRU, 读写都在段锁内.
+         * 使用 [ReentrantLock] 而不是 synchronized, 虚拟线程竞争时不会占住载体线程.
+         */
+        private class LruCache(
+            private val capacity: Int,
+        ) {
+            private val lock = ReentrantLock()
+
+            private val map =
+                object : LinkedHashMap<String, Boolean>(capacity, 0.75f, true) {
+                    override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Boolean>?): Boolean =
+                        size > capacity
+                }
+
+            fun get(key: String): Boolean? =
+                lock.withLock { map[key] }
+
+            fun put(
+                key: String,
+                value: Boolean,
+            ) {
+                lock.withLock { map[key] = value }
+            }
+        }
+
+        public companion object {
+            /**
+             * 默认结果缓存条数.
+             */
+            public const val DEFAULT_CACHE_SIZE: Int = 1024
+
+            private const val CACHE_SEGMENTS = 16
+
+            private val antPathMatcher = AntPathMatcher()
+
+            /**
+             * 与 [AntPathMatcher] 一致: 按 `/` 切分, 忽略空段, 不去空白.
+             */
+            private fun segments(path: String): Sequence<String> =
+                path
+                    .splitToSequence('/')
+                    .filter { it.isNotEmpty() }
+
+            private fun isLiteral(segment: String): Boolean =
+                segment.none { it == '*' || it == '?' || it == '{' }
+        }
+    }
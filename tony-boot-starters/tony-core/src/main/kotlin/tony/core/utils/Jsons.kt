@@ -34,6 +34,7 @@ package tony.core.utils
  */
 import com.fasterxml.jackson.core.JsonFactory
 import com.fasterxml.jackson.core.JsonParseException
+import com.fasterxml.jackson.core.JsonParser
 import com.fasterxml.jackson.core.JsonToken
 import com.fasterxml.jackson.core.type.TypeReference
 import com.fasterxml.jackson.databind.JavaType
@@ -249,28 +250,45 @@ private val jsonFactory = JsonFactory()
  * @date 2023/09/13 19:22
  */
 @Throws(IOException::class)
-public fun CharSequence.getFromRootAsString(field: String): String? {
-    jsonFactory.createParser(this.toString()).use {
-        while (
-            try {
-                it.nextToken()
-            } catch (_: JsonParseException) {
-                return null
-            } != null
+public fun CharSequence.getFromRootAsString(field: String): String? =
+    jsonFactory
+        .createParser(this.toString())
+        .use { it.getFromRootAsString(field) }
+
+/**
+ * 流式获取Json 根节点的数据, 不需要先转为字符串.
+ * @receiver [ByteArray]
+ * @param [field] 字段
+ * @return [String]?
+ * @throws [IOException]
+ * @author tangli
+ * @date 2025/08/03 10:00
+ */
+@Throws(IOException::class)
+public fun ByteArray.getFromRootAsString(field: String): String? =
+    jsonFactory
+        .createParser(this)
+        .use { it.getFromRootAsString(field) }
+
+private fun JsonParser.getFromRootAsString(field: String): String? {
+    while (
+        try {
+            nextToken()
+        } catch (_: JsonParseException) {
+            return null
+        } != null
+    ) {
+        if (currentToken == JsonToken.FIELD_NAME &&
+            currentName() == field &&
+            parsingContext
+                .parent
+                .inRoot()
         ) {
-            if (it.currentToken == JsonToken.FIELD_NAME &&
-                it.currentName() == field &&
-                it
-                    .parsingContext
-                    .parent
-                    .inRoot()
-            ) {
-                val token = it.nextToken()
-                return if (token in valueJsonToken) {
-                    it.text
-                } else {
-                    null
-                }
+            val token = nextToken()
+            return if (token in valueJsonToken) {
+                text
+            } else {
+                null
             }
         }
     }
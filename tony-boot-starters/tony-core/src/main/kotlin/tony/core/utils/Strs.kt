@@ -276,6 +276,17 @@ private val antPathMatcher = AntPathMatcher()
 public fun CharSequence?.antPathMatchAny(patterns: Collection<String>?): Boolean =
     patterns?.any { antPathMatcher.match(it, ifNullOrBlank()) } == true
 
+/**
+ * 字符串 ant 匹配, 使用预编译索引
+ * @param [index] 预编译索引
+ * @return [Boolean]
+ * @author tangli
+ * @date 2025/08/01 10:00
+ * @see AntPathMatchIndex.matches
+ */
+public fun CharSequence?.antPathMatchAny(index: AntPathMatchIndex): Boolean =
+    index.matches(this)
+
 private val camelRegex = "(?<=[a-zA-Z])[A-Z]".toRegex()
 private val snakeRegex = "_[a-zA-Z]".toRegex()
 
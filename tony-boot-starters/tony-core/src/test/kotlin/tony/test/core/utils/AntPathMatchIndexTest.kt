@@ -0,0 +1,139 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.test.core.utils
+
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.springframework.util.AntPathMatcher
+import tony.core.utils.AntPathMatchIndex
+import tony.core.utils.antPathMatchAny
+
+/**
+ * AntPathMatchIndex 测试
+ * @author tony
+ * @date 2025/08/01 10:00
+ */
+@DisplayName("AntPathMatchIndex测试")
+class AntPathMatchIndexTest {
+    private val patterns =
+        listOf(
+            "/actuator/**",
+            "/error",
+            "/swagger-resources/**",
+            "/v3/api-docs/**",
+            "/api/*/detail",
+            "/api/user/{id}/info",
+            "/static/**/*.js",
+            "/file?.txt",
+            "/**/health",
+            "/exact/path"
+        )
+
+    private val paths =
+        listOf(
+            "",
+            "/",
+            "/actuator",
+            "/actuator/health/liveness",
+            "/error",
+            "/error/",
+            "/errors",
+            "/api/order/detail",
+            "/api/order/list",
+            "/api/user/1/info",
+            "/api/user/1/info/more",
+            "/static/a/b/c.js",
+            "/static/a/b/c.css",
+            "/file1.txt",
+            "/file12.txt",
+            "/any/deep/health",
+            "/exact/path",
+            "//exact//path",
+            "/exact/path/",
+            "exact/path"
+        )
+
+    @Test
+    @DisplayName("AntPathMatchIndex:与AntPathMatcher结果一致")
+    fun testSameAsAntPathMatcher() {
+        val antPathMatcher = AntPathMatcher()
+        val index = AntPathMatchIndex(patterns)
+        paths.forEach { path ->
+            val expected = patterns.any { antPathMatcher.match(it, path) }
+            assertEquals(expected, index.matches(path), path)
+            // 走缓存
+            assertEquals(expected, index.matches(path), path)
+            assertEquals(expected, path.antPathMatchAny(patterns), path)
+        }
+    }
+
+    @Test
+    @DisplayName("AntPathMatchIndex:虚拟线程并发读写缓存, 结果一致")
+    fun testConcurrentVirtualThreads() {
+        val antPathMatcher = AntPathMatcher()
+        val expected = paths.associateWith { path -> patterns.any { antPathMatcher.match(it, path) } }
+        // 缓存容量小于路径数, 并发读写的同时不断淘汰
+        val index = AntPathMatchIndex(patterns, 4)
+        val mismatches = AtomicInteger()
+        Executors.newVirtualThreadPerTaskExecutor().use { executor ->
+            repeat(2000) { i ->
+                executor.submit {
+                    val path = paths[i % paths.size]
+                    if (index.matches(path) != expected.getValue(path)) {
+                        mismatches.incrementAndGet()
+                    }
+                }
+            }
+        }
+        assertEquals(0, mismatches.get())
+    }
+
+    @Test
+    @DisplayName("AntPathMatchIndex:不缓存")
+    fun testWithoutCache() {
+        val index = AntPathMatchIndex(patterns, 0)
+        assertTrue(index.matches("/api/order/detail"))
+        assertFalse(index.matches("/api/order/list"))
+    }
+
+    @Test
+    @DisplayName("AntPathMatchIndex:空模式")
+    fun testEmptyPatterns() {
+        assertFalse(AntPathMatchIndex(null).matches("/api"))
+        assertFalse(AntPathMatchIndex(listOf()).matches(null))
+    }
+
+    @Test
+    @DisplayName("AntPathMatchIndex:null路径")
+    fun testNullPath() {
+        val nullPath: String? = null
+        assertFalse(nullPath.antPathMatchAny(AntPathMatchIndex(listOf("/api/**"))))
+    }
+}
@@ -53,6 +53,43 @@ public annotation class RedisCacheable(
      * 多久过期, 默认-3, 到今天结束
      */
     val expire: Long = TODAY_END,
+    /**
+     * 本地(L1)缓存多久过期, 单位秒, 默认0, 不使用本地缓存.
+     *
+     * 需开启 redis.local-cache.enabled, 且不会超过 [expire].
+     */
+    val localExpire: Long = 0L,
+    /**
+     * 跨节点加载租约, 单位秒, 默认0, 不使用.
+     *
+     * 未命中时只有取得租约的节点执行方法, 其他节点由租约释放通知唤醒后重查缓存, 超过租约时间后自行执行.
+     * 同一进程内的并发未命中始终只执行一次.
+     */
+    val loadLease: Long = 0L,
+    /**
+     * 同一进程内等待进行中加载的最长时间, 单位秒, 默认10, 小于等于0时一直等待.
+     *
+     * 超时后不再等待, 自行执行方法. 加载中的方法在同一线程再次调用自身(同一 key)时不等待, 直接执行.
+     */
+    val loadWait: Long = 10L,
+    /**
+     * 过期时间随机抖动上限, 单位秒, 默认0, 不抖动.
+     *
+     * 写入时在过期时间上随机增加 0 到该值秒, 避免同时写入的缓存同时过期.
+     */
+    val expireJitter: Long = 0L,
+    /**
+     * 提前刷新系数(XFetch beta), 默认0, 不提前刷新. 一般取1.0, 越大越早刷新.
+     *
+     * 命中时按 加载耗时 * beta * -ln(random) >= 剩余时间 的概率触发后台刷新, 本次仍返回缓存值.
+     */
+    val earlyRefreshBeta: Double = 0.0,
+    /**
+     * 过期后仍可返回旧值的时间, 单位秒, 默认0, 不返回旧值.
+     *
+     * 过期后该时间内命中时返回旧值并触发后台刷新.
+     */
+    val staleWhileRevalidate: Long = 0L,
 ) {
     public companion object {
         public const val TODAY_END: Long = -3L
@@ -2,6 +2,7 @@ dependencies {
     api(projects.tonyCore)
     api(tonyLibs.javaJwt)
 
+    implementation(tonyLibs.caffeine)
     implementation(tonyLibs.springBootAutoconfigure)
     implementation(tonyLibs.annotationApi)
 }
@@ -0,0 +1,145 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.jwt
+
+import java.security.MessageDigest
+import java.time.Duration
+import java.time.Instant
+import java.util.Base64
+import java.util.concurrent.ArrayBlockingQueue
+import javax.crypto.Mac
+import javax.crypto.spec.SecretKeySpec
+
+/**
+ * 网关身份.
+ *
+ * 网关验证 jwt 后签发, 通过 [tony.core.IDENTITY_HEADER_NAME] 请求头传给下游服务.
+ * @param [userId] 用户id
+ * @param [tenantId] 租户id
+ * @param [expiresAt] 过期时间, epoch 秒
+ * @author tangli
+ * @date 2025/08/11 10:00
+ */
+public data class GatewayIdentity(
+    val userId: String,
+    val tenantId: String,
+    val expiresAt: Long,
+)
+
+/**
+ * 网关身份编解码.
+ *
+ * 格式: `base64url(userId).base64url(tenantId).过期时间.base64url(HMAC-SHA256)`,
+ * 下游服务只需一次 HMAC 校验即可取得用户标识, 不再重复验证 jwt.
+ *
+ * 网关与下游服务共享 [secret], 下游服务必须只能经由网关访问, 且网关需丢弃客户端传入的同名请求头.
+ * @param [secret] HMAC 密钥
+ * @param [ttl] 签发的身份有效期, 不超过 jwt 的过期时间
+ * @author tangli
+ * @date 2025/08/11 10:00
+ */
+public class GatewayIdentityCodec(
+    secret: String,
+    private val ttl: Duration,
+) {
+    private val key = SecretKeySpec(secret.toByteArray(Charsets.UTF_8), MAC_ALGORITHM)
+
+    private val macs = ArrayBlockingQueue<Mac>(Runtime.getRuntime().availableProcessors() * 2)
+
+    /**
+     * 签发身份.
+     * @param [userId] 用户id
+     * @param [tenantId] 租户id
+     * @param [tokenExpiresAt] jwt 过期时间
+     * @return [String]
+     */
+    public fun encode(
+        userId: String,
+        tenantId: String,
+        tokenExpiresAt: Instant?,
+    ): String {
+        val expiresAt =
+            Instant
+                .now()
+                .plus(ttl)
+                .let { if (tokenExpiresAt != null && tokenExpiresAt < it) tokenExpiresAt else it }
+                .epochSecond
+        val payload = "${base64(userId)}.${base64(tenantId)}.$expiresAt"
+        return "$payload.${encoder.encodeToString(mac(payload))}"
+    }
+
+    /**
+     * 校验并解析身份.
+     * @param [value] 请求头值
+     * @return 格式错误, 签名不符或已过期时返回 null
+     */
+    public fun decode(value: String): GatewayIdentity? {
+        val macIndex = value.lastIndexOf('.')
+        if (macIndex < 0) {
+            return null
+        }
+        val payload = value.substring(0, macIndex)
+        val parts = payload.split('.')
+        if (parts.size != 3) {
+            return null
+        }
+        return try {
+            val expiresAt = parts[2].toLong()
+            if (expiresAt <= Instant.now().epochSecond ||
+                !MessageDigest.isEqual(mac(payload), decoder.decode(value.substring(macIndex + 1)))
+            ) {
+                null
+            } else {
+                GatewayIdentity(string(parts[0]), string(parts[1]), expiresAt)
+            }
+        } catch (_: IllegalArgumentException) {
+            null
+        }
+    }
+
+    private fun mac(payload: String): ByteArray {
+        val mac =
+            macs.poll() ?: Mac.getInstance(MAC_ALGORITHM).apply { init(key) }
+        try {
+            return mac.doFinal(payload.toByteArray(Charsets.UTF_8))
+        } finally {
+            macs.offer(mac)
+        }
+    }
+
+    private companion object {
+        private const val MAC_ALGORITHM = "HmacSHA256"
+
+        private val encoder = Base64.getUrlEncoder().withoutPadding()
+
+        private val decoder = Base64.getUrlDecoder()
+
+        private fun base64(value: String): String =
+            encoder.encodeToString(value.toByteArray(Charsets.UTF_8))
+
+        private fun string(value: String): String =
+            String(decoder.decode(value), Charsets.UTF_8)
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.jwt
+
+import com.auth0.jwt.algorithms.Algorithm
+import com.auth0.jwt.interfaces.ECDSAKeyProvider
+import com.auth0.jwt.interfaces.RSAKeyProvider
+import com.fasterxml.jackson.databind.JsonNode
+import java.math.BigInteger
+import java.net.URI
+import java.net.http.HttpClient
+import java.net.http.HttpRequest
+import java.net.http.HttpResponse
+import java.security.AlgorithmParameters
+import java.security.KeyFactory
+import java.security.PrivateKey
+import java.security.PublicKey
+import java.security.interfaces.ECPrivateKey
+import java.security.interfaces.ECPublicKey
+import java.security.interfaces.RSAPrivateKey
+import java.security.interfaces.RSAPublicKey
+import java.security.spec.ECGenParameterSpec
+import java.security.spec.ECParameterSpec
+import java.security.spec.ECPoint
+import java.security.spec.ECPublicKeySpec
+import java.security.spec.PKCS8EncodedKeySpec
+import java.security.spec.RSAPublicKeySpec
+import java.security.spec.X509EncodedKeySpec
+import java.time.Duration
+import java.util.Base64
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import org.springframework.core.io.DefaultResourceLoader
+import tony.core.utils.getLogger
+import tony.core.utils.jsonNode
+import tony.jwt.config.JwtAlgorithm
+import tony.jwt.config.JwtProperties
+
+/**
+ * jwt 密钥环.
+ *
+ * HS256 使用共享密钥; RS256/ES256 使用私钥签名, 按 jwt 头部 kid 查找公钥验签,
+ * 公钥来自 [JwtProperties.publicKeys] 与 [JwtProperties.jwksUri], 解析后按 kid 缓存.
+ *
+ * 配置了 JWKS 地址时, 启动时加载一次, 之后定时刷新(间隔为 0 时不定时刷新); 遇到未知 kid 时提前刷新(最短间隔 30 秒).
+ * 刷新失败时保留原有公钥, 因此可同时保留新旧多个公钥, 平滑轮换.
+ *
+ * @author tangli
+ * @date 2025/08/10 10:00
+ */
+internal class JwtKeyRing(
+    private val jwtProperties: JwtProperties,
+) : AutoCloseable {
+    private val logger = getLogger()
+
+    private val configuredKeys: Map<String, PublicKey> =
+        jwtProperties
+            .publicKeys
+            .mapValues { (_, value) -> readPublicKey(jwtProperties.algorithm, value) }
+
+    @Volatile
+    private var keys: Map<String, PublicKey> = configuredKeys
+
+    private val signingPrivateKey: PrivateKey? =
+        jwtProperties
+            .privateKey
+            .takeIf { it.isNotBlank() }
+            ?.let { readPrivateKey(jwtProperties.algorithm, it) }
+
+    private val signingKeyId: String? =
+        jwtProperties
+            .keyId
+            .ifBlank { null }
+
+    private val refreshExecutor: ScheduledExecutorService? =
+        if (jwtProperties.algorithm != JwtAlgorithm.HS256 && jwtProperties.jwksUri.isNotBlank()) {
+            Executors.newSingleThreadScheduledExecutor(
+                Thread
+                    .ofPlatform()
+                    .daemon()
+                    .name("jwt-jwks-refresh")
+                    .factory()
+            )
+        } else {
+            null
+        }
+
+    private val refreshRequested = AtomicBoolean(false)
+
+    @Volatile
+    private var lastRefreshNanos: Long = 0
+
+    private val httpClient by lazy(LazyThreadSafetyMode.PUBLICATION) {
+        HttpClient
+            .newBuilder()
+            .connectTimeout(HTTP_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build()
+    }
+
+    init {
+        require(!jwtProperties.jwksRefreshInterval.isNegative) { "jwksRefreshInterval must not be negative" }
+        refreshExecutor?.let {
+            refresh()
+            val interval = jwtProperties.jwksRefreshInterval.toMillis()
+            if (interval > 0) {
+                it.scheduleWithFixedDelay(::refresh, interval, interval, TimeUnit.MILLISECONDS)
+            }
+        }
+    }
+
+    /**
+     * 签名/验签算法.
+     */
+    val algorithm: Algorithm by lazy(LazyThreadSafetyMode.PUBLICATION) {
+        when (jwtProperties.algorithm) {
+            JwtAlgorithm.HS256 -> {
+                Algorithm.HMAC256(jwtProperties.secret)
+            }
+
+            JwtAlgorithm.RS256 -> {
+                Algorithm.RSA256(
+                    object : RSAKeyProvider {
+                        override fun getPublicKeyById(keyId: String?): RSAPublicKey? =
+                            publicKey(keyId) as? RSAPublicKey
+
+                        override fun getPrivateKey(): RSAPrivateKey? =
+                            signingPrivateKey as? RSAPrivateKey
+
+                        override fun getPrivateKeyId(): String? =
+                            signingKeyId
+                    }
+                )
+            }
+
+            JwtAlgorithm.ES256 -> {
+                Algorithm.ECDSA256(
+                    object : ECDSAKeyProvider {
+                        override fun getPublicKeyById(keyId: String?): ECPublicKey? =
+                            publicKey(keyId) as? ECPublicKey
+
+                        override fun getPrivateKey(): ECPrivateKey? =
+                            signingPrivateKey as? ECPrivateKey
+
+                        override fun getPrivateKeyId(): String? =
+                            signingKeyId
+                    }
+                )
+            }
+        }
+    }
+
+    /**
+     * 按 kid 查找公钥, 没有 kid 时使用签名 kid 对应的公钥, 或唯一的公钥.
+     * @param [keyId] kid
+     * @return [PublicKey]
+     */
+    fun publicKey(keyId: String?): PublicKey? {
+        val current = keys
+        val key =
+            if (keyId == null) {
+                signingKeyId?.let(current::get) ?: current.values.singleOrNull()
+            } else {
+                current[keyId]
+            }
+        if (key == null) {
+            requestRefresh()
+        }
+        return key
+    }
+
+    override fun close() {
+        refreshExecutor?.shutdownNow()
+    }
+
+    private fun requestRefresh() {
+        val executor = refreshExecutor ?: return
+        if (System.nanoTime() - lastRefreshNanos < MIN_REFRESH_INTERVAL_NANOS ||
+            !refreshRequested.compareAndSet(false, true)
+        ) {
+            return
+        }
+        executor.execute {
+            try {
+                refresh()
+            } finally {
+                refreshRequested.set(false)
+            }
+        }
+    }
+
+    private fun refresh() {
+        val jwksUri = jwtProperties.jwksUri
+        try {
+            val jwksKeys = parseJwks(loadJwks(jwksUri).jsonNode(), jwtProperties.algorithm)
+            val previousKeyIds = keys.keys
+            keys = jwksKeys + configuredKeys
+            if (keys.keys != previousKeyIds) {
+                logger.info("Jwks($jwksUri) loaded, key ids: ${keys.keys}")
+            }
+        } catch (e: Exception) {
+            logger.warn("Jwks($jwksUri) load failed, keep key ids: ${keys.keys}. ${e.message}", e)
+        } finally {
+            lastRefreshNanos = System.nanoTime()
+        }
+    }
+
+    private fun loadJwks(location: String): ByteArray {
+        if (!location.startsWith("http://") && !location.startsWith("https://")) {
+            return readResource(location)
+        }
+        val response =
+            httpClient.send(
+                HttpRequest
+                    .newBuilder(URI.create(location))
+                    .timeout(HTTP_TIMEOUT)
+                    .GET()
+                    .build(),
+                HttpResponse.BodyHandlers.ofByteArray()
+            )
+        check(response.statusCode() == 200) {
+            "Unexpected status ${response.statusCode()}"
+        }
+        return response.body()
+    }
+
+    private companion object {
+        private val HTTP_TIMEOUT = Duration.ofSeconds(5)
+        private val MIN_REFRESH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30)
+        private const val PEM_PREFIX = "-----BEGIN"
+
+        private val P256: ECParameterSpec by lazy(LazyThreadSafetyMode.PUBLICATION) {
+            AlgorithmParameters
+                .getInstance("EC")
+                .apply { init(ECGenParameterSpec("secp256r1")) }
+                .getParameterSpec(ECParameterSpec::class.java)
+        }
+
+        private val JwtAlgorithm.keyType: String
+            get() =
+                when (this) {
+                    JwtAlgorithm.RS256 -> "RSA"
+                    JwtAlgorithm.ES256 -> "EC"
+                    JwtAlgorithm.HS256 -> error("HS256 uses a shared secret")
+                }
+
+        private fun readResource(location: String): ByteArray =
+            DefaultResourceLoader()
+                .getResource(location)
+                .inputStream
+                .use { it.readBytes() }
+
+        private fun readPem(value: String): ByteArray {
+            val pem =
+                if (value.trimStart().startsWith(PEM_PREFIX)) {
+                    value
+                } else {
+                    String(readResource(value), Charsets.UTF_8)
+                }
+            return Base64
+                .getMimeDecoder()
+                .decode(
+                    pem
+                        .lineSequence()
+                        .filterNot { it.startsWith("-----") }
+                        .joinToString("")
+                )
+        }
+
+        fun readPublicKey(
+            algorithm: JwtAlgorithm,
+            value: String,
+        ): PublicKey =
+            KeyFactory
+                .getInstance(algorithm.keyType)
+                .generatePublic(X509EncodedKeySpec(readPem(value)))
+
+        fun readPrivateKey(
+            algorithm: JwtAlgorithm,
+            value: String,
+        ): PrivateKey =
+            KeyFactory
+                .getInstance(algorithm.keyType)
+                .generatePrivate(PKCS8EncodedKeySpec(readPem(value)))
+
+        /**
+         * 解析 JWKS, 只保留与当前算法匹配的签名公钥.
+         */
+        fun parseJwks(
+            jwks: JsonNode,
+            algorithm: JwtAlgorithm,
+        ): Map<String, PublicKey> =
+            jwks
+                .path("keys")
+                .mapNotNull { jwk ->
+                    val keyId = jwk.path("kid").textValue() ?: return@mapNotNull null
+                    if (jwk.path("use").textValue()?.let { it != "sig" } == true ||
+                        jwk.path("alg").textValue()?.let { it != algorithm.name } == true
+                    ) {
+                        return@mapNotNull null
+                    }
+                    parseJwk(jwk, algorithm)?.let { keyId to it }
+                }.toMap()
+
+        private fun parseJwk(
+            jwk: JsonNode,
+            algorithm: JwtAlgorithm,
+        ): PublicKey? =
+            when {
+                algorithm == JwtAlgorithm.RS256 && jwk.path("kty").textValue() == "RSA" -> {
+                    KeyFactory
+                        .getInstance("RSA")
+                        .generatePublic(RSAPublicKeySpec(jwk.base64UrlInteger("n"), jwk.base64UrlInteger("e")))
+                }
+
+                algorithm == JwtAlgorithm.ES256 &&
+                    jwk.path("kty").textValue() == "EC" &&
+                    jwk.path("crv").textValue() == "P-256" -> {
+                    KeyFactory
+                        .getInstance("EC")
+                        .generatePublic(
+                            ECPublicKeySpec(ECPoint(jwk.base64UrlInteger("x"), jwk.base64UrlInteger("y")), P256)
+                        )
+                }
+
+                else -> {
+                    null
+                }
+            }
+
+        private fun JsonNode.base64UrlInteger(field: String): BigInteger =
+            BigInteger(1, Base64.getUrlDecoder().decode(path(field).asText()))
+    }
+}
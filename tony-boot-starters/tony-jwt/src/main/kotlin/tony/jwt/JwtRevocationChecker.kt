@@ -22,19 +22,24 @@
  * SOFTWARE.
  */
 
-package tony.redis.serializer.wrapper
+package tony.jwt
+
+import com.auth0.jwt.interfaces.DecodedJWT
 
 /**
- * Redis protoStuff 序列化, 反序列化对象包装.
+ * jwt 吊销检查.
  *
- * 有 [tony.redis.RedisValues.increment]和 [tony.redis.RedisValues.get] [tony.redis.RedisValues.set] 需求的[Long], [Double] 类型不建议使用!
- * 因为 [tony.redis.RedisValues.increment]不会走 [org.springframework.data.redis.serializer.RedisSerializer.serialize].
+ * 注册为 Bean 后, [JwtToken.parse] 每次解析都会调用(包括命中验签缓存时), 已吊销的 token 视为验证失败.
+ * 每个请求都会调用, 实现应足够快, 如查询本地或 Redis 中的吊销列表.
  *
- * 但经过特殊处理, 所有 [Number] 类型都直接原生处理, 没走 [tony.redis.serializer.ProtostuffSerializer.serialize].
  * @author tangli
- * @date 2023/05/24 19:12
+ * @date 2025/08/09 10:00
  */
-internal class ProtoWrapper
-    internal constructor(
-        var data: Any? = null,
-    )
+public fun interface JwtRevocationChecker {
+    /**
+     * 是否已吊销.
+     * @param [decodedJwt] 验签通过的 jwt
+     * @return [Boolean]
+     */
+    public fun isRevoked(decodedJwt: DecodedJWT): Boolean
+}
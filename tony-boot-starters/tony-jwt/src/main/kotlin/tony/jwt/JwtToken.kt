@@ -25,23 +25,27 @@
 package tony.jwt
 
 import com.auth0.jwt.JWT
-import com.auth0.jwt.algorithms.Algorithm
+import com.auth0.jwt.JWTVerifier
+import com.auth0.jwt.exceptions.JWTVerificationException
 import com.auth0.jwt.interfaces.DecodedJWT
 import java.time.LocalDateTime
 import java.util.Date
 import tony.core.SpringContexts
+import tony.core.utils.sha256
 import tony.core.utils.toDate
 import tony.jwt.config.JwtProperties
 
 /**
  * jwt 单例类.
+ *
+ * 签名算法由 [JwtProperties.algorithm] 决定, RS256/ES256 的密钥由 [JwtKeyRing] 管理.
  * @author tangli
  * @date 2023/05/25 19:56
  */
 public data object JwtToken {
     @JvmStatic
     private val algorithm by lazy(LazyThreadSafetyMode.PUBLICATION) {
-        Algorithm.HMAC256(jwtProperties.secret)
+        jwtKeyRing.algorithm
     }
 
     @JvmStatic
@@ -49,8 +53,30 @@ public data object JwtToken {
         jwtProperties.expiredMinutes
     }
 
+    /**
+     * 验证器线程安全, 全局复用.
+     */
+    @JvmStatic
+    private val verifier: JWTVerifier by lazy(LazyThreadSafetyMode.PUBLICATION) {
+        JWT
+            .require(algorithm)
+            .build()
+    }
+
+    @JvmStatic
+    private val tokenCache: JwtTokenCache? by lazy(LazyThreadSafetyMode.PUBLICATION) {
+        jwtProperties
+            .cacheMaximumSize
+            .takeIf { it > 0 }
+            ?.let(::JwtTokenCache)
+    }
+
     private val jwtProperties: JwtProperties by SpringContexts.getBeanByLazy()
 
+    private val jwtKeyRing: JwtKeyRing by SpringContexts.getBeanByLazy()
+
+    private val revocationCheckers: List<JwtRevocationChecker> by SpringContexts.getBeanListByLazy()
+
     /**
      * 生成 jwt.
      * @param [params] claims 键值对.
@@ -73,17 +99,52 @@ public data object JwtToken {
 
     /**
      * 解析jwt.
+     *
+     * 验签通过的结果按 token 缓存至 exp, 重复解析同一 token 只需一次哈希查找;
+     * [JwtRevocationChecker] 每次解析都会调用, 包括命中缓存时.
      * @param [jwt] jwt
      * @return [DecodedJWT]
      * @author tangli
      * @date 2023/09/28 19:50
      */
     @JvmStatic
-    public fun parse(jwt: String): DecodedJWT =
-        JWT
-            .require(algorithm)
-            .build()
-            .verify(jwt)
+    public fun parse(jwt: String): DecodedJWT {
+        val cache = tokenCache
+        val decodedJwt =
+            if (cache == null) {
+                verifier.verify(jwt)
+            } else {
+                val tokenHash = jwt.sha256()
+                cache.get(tokenHash) ?: verifier.verify(jwt).also { cache.put(tokenHash, it) }
+            }
+        if (revocationCheckers.any { it.isRevoked(decodedJwt) }) {
+            throw JWTVerificationException("The Token has been revoked.")
+        }
+        return decodedJwt
+    }
+
+    /**
+     * 删除本节点该 jwt 的验签缓存.
+     *
+     * 只释放缓存, 不会拒绝该 token; 拒绝已吊销的 token 由 [JwtRevocationChecker] 负责, 多节点无需逐个通知.
+     * @param [jwt] jwt
+     * @author tangli
+     * @date 2025/08/09 10:00
+     */
+    @JvmStatic
+    public fun revoke(jwt: String) {
+        tokenCache?.invalidate(jwt.sha256())
+    }
+
+    /**
+     * 清空本节点的验签缓存, 如密钥轮换后.
+     * @author tangli
+     * @date 2025/08/09 10:00
+     */
+    @JvmStatic
+    public fun revokeAll() {
+        tokenCache?.invalidateAll()
+    }
 
     @JvmStatic
     private fun getExpireAt() =
@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.jwt
+
+import com.auth0.jwt.interfaces.DecodedJWT
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import com.github.benmanes.caffeine.cache.Expiry
+import java.util.concurrent.TimeUnit
+
+/**
+ * 已验证 jwt 缓存.
+ *
+ * 以 token 的 sha256 为键, 缓存验签通过的 [DecodedJWT], 命中时不再解码与验签.
+ * 按条目数量淘汰, 每个条目在 token 的 exp 时刻过期, 没有 exp 的 token 只按数量淘汰.
+ *
+ * @param [maximumSize] 最大条目数
+ * @author tangli
+ * @date 2025/08/09 10:00
+ */
+internal class JwtTokenCache(
+    maximumSize: Long,
+) {
+    private val cache: Cache<String, DecodedJWT> =
+        Caffeine
+            .newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfter(DecodedJwtExpiry)
+            .build()
+
+    fun get(tokenHash: String): DecodedJWT? =
+        cache.getIfPresent(tokenHash)
+
+    fun put(
+        tokenHash: String,
+        decodedJwt: DecodedJWT,
+    ) {
+        cache.put(tokenHash, decodedJwt)
+    }
+
+    fun invalidate(tokenHash: String) {
+        cache.invalidate(tokenHash)
+    }
+
+    fun invalidateAll() {
+        cache.invalidateAll()
+    }
+
+    private object DecodedJwtExpiry : Expiry<String, DecodedJWT> {
+        override fun expireAfterCreate(
+            key: String,
+            value: DecodedJWT,
+            currentTime: Long,
+        ): Long {
+            val expiresAt = value.expiresAtAsInstant ?: return Long.MAX_VALUE
+            return TimeUnit.MILLISECONDS.toNanos(expiresAt.toEpochMilli() - System.currentTimeMillis())
+        }
+
+        override fun expireAfterUpdate(
+            key: String,
+            value: DecodedJWT,
+            currentTime: Long,
+            currentDuration: Long,
+        ): Long =
+            expireAfterCreate(key, value, currentTime)
+
+        override fun expireAfterRead(
+            key: String,
+            value: DecodedJWT,
+            currentTime: Long,
+            currentDuration: Long,
+        ): Long =
+            currentDuration
+    }
+}
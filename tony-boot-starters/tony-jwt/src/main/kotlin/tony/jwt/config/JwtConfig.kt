@@ -24,11 +24,16 @@
 
 package tony.jwt.config
 
+import java.time.Duration
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication
 import org.springframework.boot.context.properties.ConfigurationProperties
 import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.boot.context.properties.bind.DefaultValue
+import org.springframework.context.annotation.Bean
 import org.springframework.context.annotation.Configuration
+import tony.jwt.GatewayIdentityCodec
+import tony.jwt.JwtKeyRing
 
 /**
  * JwtConfig
@@ -38,7 +43,16 @@ import org.springframework.context.annotation.Configuration
 @ConditionalOnWebApplication
 @EnableConfigurationProperties(JwtProperties::class)
 @Configuration(proxyBeanMethods = false)
-private class JwtConfig
+private class JwtConfig {
+    @Bean(destroyMethod = "close")
+    private fun jwtKeyRing(jwtProperties: JwtProperties): JwtKeyRing =
+        JwtKeyRing(jwtProperties)
+
+    @ConditionalOnExpression($$"'${jwt.identity-secret:}' != ''")
+    @Bean
+    private fun gatewayIdentityCodec(jwtProperties: JwtProperties): GatewayIdentityCodec =
+        GatewayIdentityCodec(jwtProperties.identitySecret, jwtProperties.identityTtl)
+}
 
 /**
  * JwtProperties
@@ -54,4 +68,81 @@ public data class JwtProperties(
      */
     @DefaultValue("525600")
     val expiredMinutes: Long,
-)
+    /**
+     * 已验证 jwt 缓存最大条目数, 0 表示不缓存.
+     */
+    @DefaultValue("10000")
+    val cacheMaximumSize: Long = 10000,
+    /**
+     * 签名算法, HS256 使用 [secret].
+     */
+    @DefaultValue("HS256")
+    val algorithm: JwtAlgorithm = JwtAlgorithm.HS256,
+    /**
+     * RS256/ES256 签名使用的密钥 id, 写入 jwt 头部 kid.
+     */
+    @DefaultValue("")
+    val keyId: String = "",
+    /**
+     * RS256/ES256 签名私钥, PKCS#8 PEM 内容或资源路径(classpath:/file:), 只验签的服务不需要配置.
+     */
+    @DefaultValue("")
+    val privateKey: String = "",
+    /**
+     * RS256/ES256 验签公钥, kid 与 X.509 PEM 内容或资源路径(classpath:/file:)的映射, 可同时配置多个用于轮换.
+     */
+    @DefaultValue
+    val publicKeys: Map<String, String> = emptyMap(),
+    /**
+     * JWKS 公钥集地址, 支持 http(s)/classpath:/file:, 与 [publicKeys] 合并使用.
+     */
+    @DefaultValue("")
+    val jwksUri: String = "",
+    /**
+     * JWKS 定时刷新间隔, 0 表示只在启动时与遇到未知 kid 时刷新.
+     */
+    @DefaultValue("5m")
+    val jwksRefreshInterval: Duration = Duration.ofMinutes(5),
+    /**
+     * 网关身份请求头 HMAC 密钥, 网关与下游服务一致, 为空时不签发也不校验.
+     */
+    @DefaultValue("")
+    val identitySecret: String = "",
+    /**
+     * 网关签发的身份有效期.
+     */
+    @DefaultValue("60s")
+    val identityTtl: Duration = Duration.ofSeconds(60),
+) {
+    /**
+     * 是否已配置验签密钥.
+     */
+    public val keyConfigured: Boolean
+        get() =
+            when (algorithm) {
+                JwtAlgorithm.HS256 -> secret.isNotBlank()
+                else -> publicKeys.isNotEmpty() || jwksUri.isNotBlank()
+            }
+}
+
+/**
+ * jwt 签名算法.
+ * @author tangli
+ * @date 2025/08/10 10:00
+ */
+public enum class JwtAlgorithm {
+    /**
+     * HMAC SHA-256, 签名与验签共用密钥.
+     */
+    HS256,
+
+    /**
+     * RSA SHA-256, 私钥签名, 公钥验签.
+     */
+    RS256,
+
+    /**
+     * ECDSA P-256 SHA-256, 私钥签名, 公钥验签.
+     */
+    ES256,
+}
@@ -0,0 +1,81 @@
+package tony.test.jwt
+
+import java.time.Duration
+import java.time.Instant
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNotNull
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Nested
+import org.junit.jupiter.api.Test
+import tony.jwt.GatewayIdentityCodec
+
+/**
+ * 网关身份编解码测试
+ *
+ * @author tony
+ * @date 2025/08/11 10:00
+ */
+@DisplayName("网关身份编解码测试")
+class GatewayIdentityCodecTest {
+    private val codec = GatewayIdentityCodec("tony-identity-secret", Duration.ofSeconds(60))
+
+    @Nested
+    @DisplayName("编解码")
+    inner class RoundTrip {
+        @Test
+        @DisplayName("签发后可解析出用户与租户")
+        fun testRoundTrip() {
+            val identity = codec.decode(codec.encode("用户.1", "tenant-1", null))
+            assertNotNull(identity)
+            assertEquals("用户.1", identity!!.userId)
+            assertEquals("tenant-1", identity.tenantId)
+        }
+
+        @Test
+        @DisplayName("有效期不超过 jwt 的过期时间")
+        fun testTokenExpiresAt() {
+            val tokenExpiresAt = Instant.now().plusSeconds(10)
+            val identity = codec.decode(codec.encode("1", "", tokenExpiresAt))
+            assertEquals(tokenExpiresAt.epochSecond, identity?.expiresAt)
+            assertEquals("", identity?.tenantId)
+        }
+    }
+
+    @Nested
+    @DisplayName("校验失败")
+    inner class Rejected {
+        @Test
+        @DisplayName("密钥不同")
+        fun testSecretMismatch() {
+            val value = GatewayIdentityCodec("other-secret", Duration.ofSeconds(60)).encode("1", "tenant-1", null)
+            assertNull(codec.decode(value))
+        }
+
+        @Test
+        @DisplayName("内容被篡改")
+        fun testTampered() {
+            val value = codec.encode("1", "tenant-1", null)
+            val parts = value.split('.').toMutableList()
+            parts[0] = codec.encode("2", "tenant-1", null).substringBefore('.')
+            assertNull(codec.decode(parts.joinToString(".")))
+        }
+
+        @Test
+        @DisplayName("已过期")
+        fun testExpired() {
+            assertNull(codec.decode(codec.encode("1", "tenant-1", Instant.now().minusSeconds(1))))
+            val expired = GatewayIdentityCodec("tony-identity-secret", Duration.ZERO)
+            assertNull(codec.decode(expired.encode("1", "tenant-1", null)))
+        }
+
+        @Test
+        @DisplayName("格式错误")
+        fun testMalformed() {
+            listOf("", "abc", "a.b.c", "a.b.notANumber.d", "a.b.c.d.e", "***.***.9999999999.***").forEach {
+                assertNull(codec.decode(it), it)
+            }
+            assertEquals(4, codec.encode("1", "tenant-1", null).split('.').size)
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package tony.test.jwt
+
+import com.auth0.jwt.JWT
+import com.auth0.jwt.exceptions.SignatureVerificationException
+import java.math.BigInteger
+import java.nio.file.Files
+import java.nio.file.Path
+import java.security.KeyPair
+import java.security.KeyPairGenerator
+import java.security.interfaces.ECPublicKey
+import java.security.interfaces.RSAPublicKey
+import java.security.spec.ECGenParameterSpec
+import java.time.Duration
+import java.util.Base64
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNotNull
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Nested
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import tony.jwt.JwtKeyRing
+import tony.jwt.config.JwtAlgorithm
+import tony.jwt.config.JwtProperties
+
+/**
+ * JwtKeyRing 密钥环测试
+ *
+ * @author tony
+ * @date 2025/08/10 10:00
+ */
+@DisplayName("JwtKeyRing 密钥环测试")
+class JwtKeyRingTest {
+    @TempDir
+    lateinit var directory: Path
+
+    @Nested
+    @DisplayName("配置公钥")
+    inner class ConfiguredKeys {
+        @Test
+        @DisplayName("HS256 共享密钥签名与验签")
+        fun testHs256() {
+            JwtKeyRing(JwtProperties(secret = "tony-secret", expiredMinutes = 60)).use { ring ->
+                val token = JWT.create().withClaim("userId", "1").sign(ring.algorithm)
+                assertEquals("1", JWT.require(ring.algorithm).build().verify(token).getClaim("userId").asString())
+            }
+        }
+
+        @Test
+        @DisplayName("RS256 按 kid 验签, 新旧公钥可同时存在")
+        fun testRs256Rotation() {
+            val old = rsaKeyPair()
+            val new = rsaKeyPair()
+            val token =
+                JwtKeyRing(rsaProperties("2025-07", old)).use { signer ->
+                    JWT.create().withClaim("userId", "1").sign(signer.algorithm)
+                }
+            assertEquals("2025-07", JWT.decode(token).keyId)
+            val verifying =
+                JwtProperties(
+                    secret = "",
+                    expiredMinutes = 60,
+                    algorithm = JwtAlgorithm.RS256,
+                    publicKeys = mapOf("2025-07" to publicPem(old), "2025-08" to publicPem(new))
+                )
+            JwtKeyRing(verifying).use { verifier ->
+                assertEquals("1", JWT.require(verifier.algorithm).build().verify(token).getClaim("userId").asString())
+            }
+        }
+
+        @Test
+        @DisplayName("未知 kid 验签失败")
+        fun testUnknownKeyId() {
+            val token =
+                JwtKeyRing(rsaProperties("unknown", rsaKeyPair())).use { signer ->
+                    JWT.create().sign(signer.algorithm)
+                }
+            JwtKeyRing(rsaProperties("2025-08", rsaKeyPair())).use { verifier ->
+                assertNull(verifier.publicKey("unknown"))
+                assertThrows(SignatureVerificationException::class.java) {
+                    JWT.require(verifier.algorithm).build().verify(token)
+                }
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("JWKS")
+    inner class Jwks {
+        @Test
+        @DisplayName("从文件加载 RS256 公钥, 忽略非签名用途与其他算法的公钥")
+        fun testRsaJwks() {
+            val keyPair = rsaKeyPair()
+            val publicKey = keyPair.public as RSAPublicKey
+            val jwks =
+                """
+                {"keys":[
+                  {"kid":"rsa-1","kty":"RSA","use":"sig","alg":"RS256","n":"${base64Url(publicKey.modulus)}","e":"${base64Url(publicKey.publicExponent)}"},
+                  {"kid":"rsa-enc","kty":"RSA","use":"enc","n":"${base64Url(publicKey.modulus)}","e":"${base64Url(publicKey.publicExponent)}"},
+                  {"kid":"rsa-es","kty":"RSA","alg":"ES256","n":"${base64Url(publicKey.modulus)}","e":"${base64Url(publicKey.publicExponent)}"}
+                ]}
+                """.trimIndent()
+            val token =
+                JwtKeyRing(rsaProperties("rsa-1", keyPair)).use { signer ->
+                    JWT.create().withClaim("userId", "2").sign(signer.algorithm)
+                }
+            JwtKeyRing(jwksProperties(JwtAlgorithm.RS256, jwks, Duration.ZERO)).use { verifier ->
+                assertNotNull(verifier.publicKey("rsa-1"))
+                assertNull(verifier.publicKey("rsa-enc"))
+                assertNull(verifier.publicKey("rsa-es"))
+                assertEquals("2", JWT.require(verifier.algorithm).build().verify(token).getClaim("userId").asString())
+            }
+        }
+
+        @Test
+        @DisplayName("从文件加载 ES256 公钥")
+        fun testEcJwks() {
+            val keyPair =
+                KeyPairGenerator
+                    .getInstance("EC")
+                    .apply { initialize(ECGenParameterSpec("secp256r1")) }
+                    .generateKeyPair()
+            val point = (keyPair.public as ECPublicKey).w
+            val jwks =
+                """
+                {"keys":[{"kid":"ec-1","kty":"EC","crv":"P-256","x":"${base64Url(point.affineX)}","y":"${base64Url(point.affineY)}"}]}
+                """.trimIndent()
+            val signing =
+                JwtProperties(
+                    secret = "",
+                    expiredMinutes = 60,
+                    algorithm = JwtAlgorithm.ES256,
+                    keyId = "ec-1",
+                    privateKey = privatePem(keyPair),
+                    publicKeys = mapOf("ec-1" to publicPem(keyPair))
+                )
+            val token = JwtKeyRing(signing).use { JWT.create().sign(it.algorithm) }
+            JwtKeyRing(jwksProperties(JwtAlgorithm.ES256, jwks, Duration.ofMinutes(5))).use { verifier ->
+                assertEquals("ec-1", JWT.require(verifier.algorithm).build().verify(token).keyId)
+            }
+        }
+
+        @Test
+        @DisplayName("刷新间隔不能为负数")
+        fun testNegativeRefreshInterval() {
+            assertThrows(IllegalArgumentException::class.java) {
+                JwtKeyRing(jwksProperties(JwtAlgorithm.RS256, """{"keys":[]}""", Duration.ofSeconds(-1)))
+            }
+        }
+    }
+
+    private fun jwksProperties(
+        algorithm: JwtAlgorithm,
+        jwks: String,
+        refreshInterval: Duration,
+    ): JwtProperties {
+        val file = directory.resolve("jwks-${System.nanoTime()}.json")
+        Files.writeString(file, jwks)
+        return JwtProperties(
+            secret = "",
+            expiredMinutes = 60,
+            algorithm = algorithm,
+            jwksUri = file.toUri().toString(),
+            jwksRefreshInterval = refreshInterval
+        )
+    }
+
+    private fun rsaProperties(
+        keyId: String,
+        keyPair: KeyPair,
+    ): JwtProperties =
+        JwtProperties(
+            secret = "",
+            expiredMinutes = 60,
+            algorithm = JwtAlgorithm.RS256,
+            keyId = keyId,
+            privateKey = privatePem(keyPair),
+            publicKeys = mapOf(keyId to publicPem(keyPair))
+        )
+
+    private fun rsaKeyPair(): KeyPair =
+        KeyPairGenerator
+            .getInstance("RSA")
+            .apply { initialize(2048) }
+            .generateKeyPair()
+
+    private fun publicPem(keyPair: KeyPair): String =
+        pem("PUBLIC KEY", keyPair.public.encoded)
+
+    private fun privatePem(keyPair: KeyPair): String =
+        pem("PRIVATE KEY", keyPair.private.encoded)
+
+    private fun pem(
+        type: String,
+        encoded: ByteArray,
+    ): String =
+        "-----BEGIN $type-----\n${Base64.getMimeEncoder().encodeToString(encoded)}\n-----END $type-----"
+
+    private fun base64Url(value: BigInteger): String {
+        val bytes = value.toByteArray().let { if (it[0] == 0.toByte()) it.copyOfRange(1, it.size) else it }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes)
+    }
+
+    companion object {
+        @JvmStatic
+        @BeforeAll
+        fun startContext() {
+            TestJwtContexts.start()
+        }
+    }
+}
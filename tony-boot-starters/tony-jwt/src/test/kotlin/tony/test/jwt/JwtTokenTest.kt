@@ -0,0 +1,75 @@
+package tony.test.jwt
+
+import com.auth0.jwt.exceptions.JWTVerificationException
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNotSame
+import org.junit.jupiter.api.Assertions.assertSame
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Nested
+import org.junit.jupiter.api.Test
+import tony.jwt.JwtToken
+
+/**
+ * JwtToken 解析与吊销测试
+ *
+ * @author tony
+ * @date 2025/08/09 10:00
+ */
+@DisplayName("JwtToken 解析与吊销测试")
+class JwtTokenTest {
+
+    @Nested
+    @DisplayName("验签缓存")
+    inner class Cache {
+        @Test
+        @DisplayName("重复解析命中缓存")
+        fun testCacheHit() {
+            val token = JwtToken.gen("userId" to "cache-hit")
+            val first = JwtToken.parse(token)
+            assertEquals("cache-hit", first.getClaim("userId").asString())
+            assertSame(first, JwtToken.parse(token))
+        }
+
+        @Test
+        @DisplayName("删除缓存后重新验签")
+        fun testRevokeCacheEntry() {
+            val token = JwtToken.gen("userId" to "cache-evict")
+            val first = JwtToken.parse(token)
+            JwtToken.revoke(token)
+            assertNotSame(first, JwtToken.parse(token))
+        }
+    }
+
+    @Nested
+    @DisplayName("吊销检查")
+    inner class Revocation {
+        @Test
+        @DisplayName("未命中缓存时拒绝已吊销的 token")
+        fun testRevokedOnMiss() {
+            val token = JwtToken.gen("userId" to "revoked-miss")
+            TestJwtContexts.revokedUserIds.add("revoked-miss")
+            assertThrows(JWTVerificationException::class.java) { JwtToken.parse(token) }
+        }
+
+        @Test
+        @DisplayName("命中缓存时也拒绝已吊销的 token")
+        fun testRevokedOnHit() {
+            val token = JwtToken.gen("userId" to "revoked-hit")
+            JwtToken.parse(token)
+            TestJwtContexts.revokedUserIds.add("revoked-hit")
+            assertThrows(JWTVerificationException::class.java) { JwtToken.parse(token) }
+            TestJwtContexts.revokedUserIds.remove("revoked-hit")
+            assertEquals("revoked-hit", JwtToken.parse(token).getClaim("userId").asString())
+        }
+    }
+
+    companion object {
+        @JvmStatic
+        @BeforeAll
+        fun startContext() {
+            TestJwtContexts.start()
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package tony.test.jwt
+
+import com.auth0.jwt.interfaces.DecodedJWT
+import java.util.concurrent.ConcurrentHashMap
+import org.springframework.context.annotation.AnnotationConfigApplicationContext
+import org.springframework.context.annotation.Bean
+import org.springframework.context.annotation.Configuration
+import tony.core.annotation.EnableTonyBoot
+import tony.jwt.JwtKeyRing
+import tony.jwt.JwtRevocationChecker
+import tony.jwt.config.JwtProperties
+
+/**
+ * 测试用最小 Spring 容器.
+ *
+ * [tony.jwt.JwtToken] 通过 [tony.core.SpringContexts] 获取配置, 依赖它的测试在访问前调用 [start], 同一 JVM 只启动一次.
+ *
+ * @author tony
+ * @date 2025/08/09 10:00
+ */
+object TestJwtContexts {
+    /**
+     * 已吊销的 userId.
+     */
+    val revokedUserIds: MutableSet<String> = ConcurrentHashMap.newKeySet()
+
+    private val context by lazy {
+        AnnotationConfigApplicationContext(TestConfig::class.java).apply {
+            registerShutdownHook()
+        }
+    }
+
+    fun start() {
+        context
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @EnableTonyBoot
+    class TestConfig {
+        @Bean
+        fun jwtProperties(): JwtProperties =
+            JwtProperties(
+                secret = "tony-jwt-test-secret",
+                expiredMinutes = 60,
+                cacheMaximumSize = 100
+            )
+
+        @Bean(destroyMethod = "close")
+        internal fun jwtKeyRing(jwtProperties: JwtProperties): JwtKeyRing =
+            JwtKeyRing(jwtProperties)
+
+        @Bean
+        fun jwtRevocationChecker(): JwtRevocationChecker =
+            JwtRevocationChecker { decodedJwt: DecodedJWT ->
+                decodedJwt.getClaim("userId").asString() in revokedUserIds
+            }
+    }
+}
@@ -4,13 +4,20 @@ dependencies {
     implementation(tonyLibs.springBootStarterDataRedis)
     implementation(tonyLibs.springBootStarterAop)
     implementation(tonyLibs.springBootStarterJson)
-//    compileOnly("io.protostuff:protostuff-core:1.8.0")
-//    compileOnly("io.protostuff:protostuff-runtime:1.8.0")
+    implementation(tonyLibs.caffeine)
+    compileOnly(tonyLibs.protostuffCore)
+    compileOnly(tonyLibs.protostuffRuntime)
+    compileOnly(tonyLibs.lz4Java)
+    compileOnly(tonyLibs.zstdJni)
 
     testApi(tonyLibs.springBootStarterDataRedis)
     testApi(tonyLibs.springBootStarterAop)
-//    testImplementation("io.protostuff:protostuff-core:1.8.0")
-//    testImplementation("io.protostuff:protostuff-runtime:1.8.0")
+    testImplementation(tonyLibs.protostuffCore)
+    testImplementation(tonyLibs.protostuffRuntime)
+    testImplementation(tonyLibs.lz4Java)
+    testImplementation(tonyLibs.zstdJni)
 //    testImplementation(tonyLibs.furyCore)
     testImplementation(tonyLibs.embeddedRedis)
+    testImplementation(tonyLibs.jmhCore)
+    kaptTest(tonyLibs.jmhGeneratorAnnprocess)
 }
@@ -0,0 +1,210 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.redis
+
+import java.util.Spliterator
+import java.util.Spliterators
+import java.util.concurrent.TimeUnit
+import java.util.stream.Stream
+import java.util.stream.StreamSupport
+import org.springframework.data.redis.connection.ClusterSlotHashUtil
+import org.springframework.data.redis.connection.RedisClusterConnection
+import org.springframework.data.redis.connection.RedisConnection
+import org.springframework.data.redis.core.Cursor
+import org.springframework.data.redis.core.RedisConnectionUtils
+import org.springframework.data.redis.core.ScanOptions
+
+/**
+ * 客户端游标遍历 key.
+ *
+ * 集群模式下依次遍历每个主节点. SCAN 可能返回重复的 key, 遍历期间新增或删除的 key 可能遗漏.
+ *
+ * @param [pattern] 可ant匹配
+ * @param [count] SCAN 每次遍历的 key 数量
+ * @return 需要关闭的 [Stream]
+ * @author tangli
+ * @date 2025/07/28 10:00
+ */
+@JvmSynthetic
+internal fun scanKeys(
+    pattern: String,
+    count: Long,
+): Stream<String> {
+    val iterator = KeyScanIterator(pattern, count)
+    return StreamSupport
+        .stream(
+            Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED or Spliterator.NONNULL),
+            false
+        ).onClose(iterator::close)
+}
+
+/**
+ * 按 [pattern] 游标遍历并以 UNLINK 分批删除.
+ *
+ * 每批 key 在单机模式下为一条 UNLINK; 集群模式下按 slot 分组, 以管道发送.
+ *
+ * @param [pattern] 可ant匹配
+ * @param [batchSize] 每批 UNLINK 的 key 数量
+ * @param [count] SCAN 每次遍历的 key 数量
+ * @param [maxKeysPerSecond] 每秒最多删除的 key 数量, 小于等于 0 时不限速
+ * @return 实际删除的 key 数量
+ * @author tangli
+ * @date 2025/07/28 10:00
+ */
+@JvmSynthetic
+internal fun unlinkKeys(
+    pattern: String,
+    batchSize: Int,
+    count: Long,
+    maxKeysPerSecond: Int,
+): Long {
+    val batchIntervalNanos =
+        if (maxKeysPerSecond > 0) {
+            TimeUnit.SECONDS.toNanos(1) * batchSize / maxKeysPerSecond
+        } else {
+            0L
+        }
+    var total = 0L
+    var nextBatchNanos = System.nanoTime()
+    scanKeys(pattern, count).use { keys ->
+        val batch = ArrayList<String>(batchSize)
+        val flush = {
+            if (batchIntervalNanos > 0) {
+                val waitNanos = nextBatchNanos - System.nanoTime()
+                if (waitNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos)
+                }
+                nextBatchNanos = maxOf(nextBatchNanos, System.nanoTime()) + batchIntervalNanos
+            }
+            total += unlink(batch)
+            batch.clear()
+        }
+        keys.forEach {
+            batch.add(it)
+            if (batch.size >= batchSize) {
+                flush()
+            }
+        }
+        if (batch.isNotEmpty()) {
+            flush()
+        }
+    }
+    return total
+}
+
+private fun unlink(keys: List<String>): Long =
+    redisTemplate.execute { connection ->
+        if (connection is RedisClusterConnection) {
+            connection.openPipeline()
+            keys
+                .groupBy { ClusterSlotHashUtil.calculateSlot(it) }
+                .values
+                .forEach { slotKeys ->
+                    connection.keyCommands().unlink(*slotKeys.toKeyBytes())
+                }
+            connection
+                .closePipeline()
+                .sumOf { (it as? Long) ?: 0L }
+        } else {
+            connection.keyCommands().unlink(*keys.toKeyBytes()) ?: 0L
+        }
+    } ?: 0L
+
+private fun List<String>.toKeyBytes(): Array<ByteArray> =
+    Array(size) { this[it].toByteArray(Charsets.UTF_8) }
+
+/**
+ * 按节点依次打开游标, 关闭时释放游标与连接.
+ */
+internal class KeyScanIterator(
+    pattern: String,
+    count: Long,
+) : Iterator<String>,
+    AutoCloseable {
+    private val connectionFactory = redisTemplate.requiredConnectionFactory
+
+    private val connection: RedisConnection = RedisConnectionUtils.getConnection(connectionFactory)
+
+    private val options =
+        ScanOptions
+            .scanOptions()
+            .match(pattern)
+            .count(count)
+            .build()
+
+    private val cursors: Iterator<() -> Cursor<ByteArray>> =
+        when (connection) {
+            is RedisClusterConnection -> {
+                connection
+                    .clusterGetNodes()
+                    .filter { it.isMaster }
+                    .map { node -> { connection.scan(node, options) } }
+                    .iterator()
+            }
+
+            else -> {
+                listOf({ connection.keyCommands().scan(options) }).iterator()
+            }
+        }
+
+    private var cursor: Cursor<ByteArray>? = null
+
+    private var closed = false
+
+    override fun hasNext(): Boolean {
+        if (closed) {
+            return false
+        }
+        while (cursor?.hasNext() != true) {
+            cursor?.close()
+            if (!cursors.hasNext()) {
+                cursor = null
+                return false
+            }
+            cursor = cursors.next().invoke()
+        }
+        return true
+    }
+
+    override fun next(): String {
+        // hasNext 可能切换到下一个游标, 之后再取当前游标
+        if (!hasNext()) {
+            throw NoSuchElementException()
+        }
+        return String(cursor!!.next(), Charsets.UTF_8)
+    }
+
+    override fun close() {
+        if (closed) {
+            return
+        }
+        closed = true
+        try {
+            cursor?.close()
+        } finally {
+            RedisConnectionUtils.releaseConnection(connection, connectionFactory)
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.redis
+
+import com.fasterxml.jackson.core.type.TypeReference
+import com.fasterxml.jackson.databind.JavaType
+import reactor.core.publisher.Flux
+import reactor.core.publisher.Mono
+import tony.core.utils.toJavaType
+
+/**
+ * 响应式 redis list 操作单例.
+ *
+ * 与 [RedisLists] 的序列化、类型转换规则一致, 可混用. 需要 [java.util.concurrent.CompletionStage] 时使用 [Mono.toFuture].
+ *
+ * @author tangli
+ * @date 2025/07/29 10:00
+ */
+public data object ReactiveRedisLists {
+    private val listOps by lazy(LazyThreadSafetyMode.PUBLICATION) {
+        reactiveRedisTemplate.opsForList()
+    }
+
+    /**
+     * @see [RedisLists.leftPush]
+     */
+    @JvmStatic
+    public fun <T : Any> leftPush(
+        key: String,
+        value: T,
+    ): Mono<Long> =
+        listOps.leftPush(key, value.toTemplateBytes())
+
+    /**
+     * @see [RedisLists.leftPushAll]
+     */
+    @JvmStatic
+    public fun <T : Any> leftPushAll(
+        key: String,
+        values: Collection<T>,
+    ): Mono<Long> =
+        listOps.leftPushAll(key, values.map { it.toTemplateBytes() })
+
+    /**
+     * @see [RedisLists.rightPush]
+     */
+    @JvmStatic
+    public fun <T : Any> rightPush(
+        key: String,
+        value: T,
+    ): Mono<Long> =
+        listOps.rightPush(key, value.toTemplateBytes())
+
+    /**
+     * @see [RedisLists.rightPushAll]
+     */
+    @JvmStatic
+    public fun <T : Any> rightPushAll(
+        key: String,
+        values: Collection<T>,
+    ): Mono<Long> =
+        listOps.rightPushAll(key, values.map { it.toTemplateBytes() })
+
+    /**
+     * @see [RedisLists.leftPop]
+     */
+    @JvmStatic
+    public fun <T : Any> leftPop(
+        key: String,
+        type: Class<T>,
+    ): Mono<T> =
+        leftPop(key, type.toJavaType())
+
+    /**
+     * @see [RedisLists.leftPop]
+     */
+    @JvmStatic
+    public fun <T : Any> leftPop(
+        key: String,
+        type: JavaType,
+    ): Mono<T> =
+        listOps
+            .leftPop(key)
+            .mapNotNull { it.fromTemplateBytes<T>(type) }
+
+    /**
+     * @see [RedisLists.leftPop]
+     */
+    public inline fun <reified T : Any> leftPop(key: String): Mono<T> =
+        leftPop(key, (object : TypeReference<T>() {}).type.toJavaType())
+
+    /**
+     * @see [RedisLists.rightPop]
+     */
+    @JvmStatic
+    public fun <T : Any> rightPop(
+        key: String,
+        type: Class<T>,
+    ): Mono<T> =
+        rightPop(key, type.toJavaType())
+
+    /**
+     * @see [RedisLists.rightPop]
+     */
+    @JvmStatic
+    public fun <T : Any> rightPop(
+        key: String,
+        type: JavaType,
+    ): Mono<T> =
+        listOps
+            .rightPop(key)
+            .mapNotNull { it.fromTemplateBytes<T>(type) }
+
+    /**
+     * @see [RedisLists.rightPop]
+     */
+    public inline fun <reified T : Any> rightPop(key: String): Mono<T> =
+        rightPop(key, (object : TypeReference<T>() {}).type.toJavaType())
+
+    /**
+     * @see [RedisLists.index]
+     */
+    @JvmStatic
+    public fun <T : Any> index(
+        key: String,
+        index: Long,
+        type: Class<T>,
+    ): Mono<T> =
+        listOps
+            .index(key, index)
+            .mapNotNull { it.fromTemplateBytes<T>(type.toJavaType()) }
+
+    /**
+     * @see [RedisLists.range]
+     */
+    @JvmStatic
+    public fun <T : Any> range(
+        key: String,
+        start: Long,
+        end: Long,
+        type: Class<T>,
+    ): Flux<T> =
+        listOps
+            .range(key, start, end)
+            .mapNotNull { it.fromTemplateBytes<T>(type.toJavaType()) }
+
+    /**
+     * @see [RedisLists.size]
+     */
+    @JvmStatic
+    public fun size(key: String): Mono<Long> =
+        listOps.size(key)
+
+    /**
+     * @see [RedisLists.trim]
+     */
+    @JvmStatic
+    public fun trim(
+        key: String,
+        start: Long,
+        end: Long,
+    ): Mono<Boolean> =
+        listOps.trim(key, start, end)
+}
@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.redis
+
+import java.nio.ByteBuffer
+import java.util.concurrent.TimeUnit
+import reactor.core.publisher.Mono
+
+/**
+ * 响应式 Redis 操作聚合类单例.
+ *
+ * 基于 [org.springframework.data.redis.core.ReactiveRedisTemplate], 不阻塞调用线程, 可在 WebFlux 的事件循环中使用.
+ * 序列化、类型转换规则与 [RedisManager] 一致, 读写的数据可互通. 仅支持 Lettuce 连接.
+ *
+ * @author tangli
+ * @date 2025/07/29 10:00
+ */
+public data object ReactiveRedisManager {
+    @JvmField
+    public val values: ReactiveRedisValues = ReactiveRedisValues
+
+    @JvmField
+    public val maps: ReactiveRedisMaps = ReactiveRedisMaps
+
+    @JvmField
+    public val lists: ReactiveRedisLists = ReactiveRedisLists
+
+    /**
+     * @see [RedisManager.hasKey]
+     */
+    @JvmStatic
+    public fun hasKey(key: String): Mono<Boolean> =
+        reactiveRedisTemplate.hasKey(key)
+
+    /**
+     * @see [RedisManager.delete]
+     */
+    @JvmStatic
+    public fun delete(vararg keys: String): Mono<Long> =
+        reactiveRedisTemplate.delete(*keys)
+
+    /**
+     * @see [RedisManager.expire]
+     */
+    @JvmStatic
+    @JvmOverloads
+    public fun expire(
+        key: String,
+        timeout: Long,
+        timeUnit: TimeUnit = TimeUnit.SECONDS,
+    ): Mono<Boolean> =
+        reactiveRedisTemplate.expire(key, timeout.toDuration(timeUnit))
+
+    /**
+     * @see [RedisManager.getExpire]
+     * @return key 不存在时为 -2, 未设置过期时为 -1
+     */
+    @JvmStatic
+    @JvmOverloads
+    public fun getExpire(
+        key: String,
+        timeUnit: TimeUnit = TimeUnit.SECONDS,
+    ): Mono<Long> =
+        reactiveRedisTemplate
+            .execute { connection ->
+                connection
+                    .keyCommands()
+                    .pTtl(ByteBuffer.wrap(key.toByteArray(Charsets.UTF_8)))
+            }.next()
+            .map { if (it < 0) it else timeUnit.convert(it, TimeUnit.MILLISECONDS) }
+}
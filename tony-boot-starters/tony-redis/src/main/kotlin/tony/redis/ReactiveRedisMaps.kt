@@ -0,0 +1,200 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.redis
+
+import com.fasterxml.jackson.core.type.TypeReference
+import com.fasterxml.jackson.databind.JavaType
+import java.util.concurrent.TimeUnit
+import reactor.core.publisher.Mono
+import tony.core.utils.toJavaType
+
+/**
+ * 响应式 redis hash 操作单例.
+ *
+ * 与 [RedisMaps] 的序列化、类型转换规则一致, 可混用. 需要 [java.util.concurrent.CompletionStage] 时使用 [Mono.toFuture].
+ *
+ * @author tangli
+ * @date 2025/07/29 10:00
+ */
+public data object ReactiveRedisMaps {
+    private val hashOps by lazy(LazyThreadSafetyMode.PUBLICATION) {
+        reactiveRedisTemplate.opsForHash<String, ByteArray>()
+    }
+
+    private val anyType: JavaType by lazy(LazyThreadSafetyMode.PUBLICATION) {
+        Any::class.java.toJavaType()
+    }
+
+    /**
+     * @see [RedisMaps.hasKey]
+     */
+    @JvmStatic
+    public fun hasKey(
+        key: String,
+        hashKey: String,
+    ): Mono<Boolean> =
+        hashOps.hasKey(key, hashKey)
+
+    /**
+     * @see [RedisMaps.delete]
+     */
+    @JvmStatic
+    public fun delete(
+        key: String,
+        vararg hashKeys: String,
+    ): Mono<Long> =
+        hashOps.remove(key, *hashKeys)
+
+    /**
+     * @see [RedisMaps.increment]
+     */
+    @JvmStatic
+    @JvmOverloads
+    public fun increment(
+        key: String,
+        hashKey: String,
+        delta: Long = 1L,
+    ): Mono<Long> =
+        hashOps.increment(key, hashKey, delta)
+
+    /**
+     * @see [RedisMaps.increment]
+     */
+    @JvmStatic
+    public fun increment(
+        key: String,
+        hashKey: String,
+        delta: Double,
+    ): Mono<Double> =
+        hashOps.increment(key, hashKey, delta)
+
+    /**
+     * @see [RedisMaps.put]
+     */
+    @JvmStatic
+    public fun <T : Any> put(
+        key: String,
+        hashKey: String,
+        value: T,
+    ): Mono<Boolean> =
+        hashOps.put(key, hashKey, value.toTemplateBytes())
+
+    /**
+     * @see [RedisMaps.putIfAbsent]
+     */
+    @JvmStatic
+    public fun <T : Any> putIfAbsent(
+        key: String,
+        hashKey: String,
+        value: T,
+    ): Mono<Boolean> =
+        hashOps.putIfAbsent(key, hashKey, value.toTemplateBytes())
+
+    /**
+     * @see [RedisMaps.putAll]
+     */
+    @JvmStatic
+    @JvmOverloads
+    public fun putAll(
+        key: String,
+        map: Map<String, Any>,
+        timeout: Long = 0,
+        timeUnit: TimeUnit = TimeUnit.SECONDS,
+    ): Mono<Boolean> {
+        val putAll = hashOps.putAll(key, map.mapValues { it.value.toTemplateBytes() })
+        return if (timeout == 0L) {
+            putAll
+        } else {
+            putAll.flatMap { reactiveRedisTemplate.expire(key, timeout.toDuration(timeUnit)) }
+        }
+    }
+
+    /**
+     * @see [RedisMaps.get]
+     */
+    @JvmStatic
+    public fun <T : Any> get(
+        key: String,
+        hashKey: String,
+        type: Class<T>,
+    ): Mono<T> =
+        get(key, hashKey, type.toJavaType())
+
+    /**
+     * @see [RedisMaps.get]
+     */
+    @JvmStatic
+    public fun <T : Any> get(
+        key: String,
+        hashKey: String,
+        type: TypeReference<T>,
+    ): Mono<T> =
+        get(key, hashKey, type.type.toJavaType())
+
+    /**
+     * @see [RedisMaps.get]
+     */
+    @JvmStatic
+    public fun <T : Any> get(
+        key: String,
+        hashKey: String,
+        type: JavaType,
+    ): Mono<T> =
+        hashOps
+            .get(key, hashKey)
+            .mapNotNull { it.fromTemplateBytes<T>(type) }
+
+    /**
+     * @see [RedisMaps.get]
+     */
+    public inline fun <reified T : Any> get(
+        key: String,
+        hashKey: String,
+    ): Mono<T> =
+        get(key, hashKey, object : TypeReference<T>() {})
+
+    /**
+     * @see [RedisMaps.multiGet]
+     * @return 不存在的字段对应位置为 null
+     */
+    @JvmStatic
+    public fun <T : Any> multiGet(
+        key: String,
+        hashKeys: Collection<String>,
+        type: Class<T>,
+    ): Mono<List<T?>> =
+        hashOps
+            .multiGet(key, hashKeys)
+            .map { values -> values.map { it.fromTemplateBytes<T>(type.toJavaType()) } }
+
+    /**
+     * @see [RedisMaps.entries]
+     */
+    @JvmStatic
+    public fun entries(key: String): Mono<Map<String, Any?>> =
+        hashOps
+            .entries(key)
+            .collectMap({ it.key }, { it.value.fromTemplateBytes<Any>(anyType) })
+}
@@ -0,0 +1,215 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.redis
+
+import com.fasterxml.jackson.core.type.TypeReference
+import com.fasterxml.jackson.databind.JavaType
+import java.time.Duration
+import java.util.concurrent.TimeUnit
+import reactor.core.publisher.Mono
+import tony.core.utils.toJavaType
+
+/**
+ * 响应式 redis value 操作单例.
+ *
+ * 与 [RedisValues] 的序列化、类型转换规则一致, 可混用. 需要 [java.util.concurrent.CompletionStage] 时使用 [Mono.toFuture].
+ *
+ * @author tangli
+ * @date 2025/07/29 10:00
+ */
+public data object ReactiveRedisValues {
+    private val valueOps by lazy(LazyThreadSafetyMode.PUBLICATION) {
+        reactiveRedisTemplate.opsForValue()
+    }
+
+    /**
+     * @see [RedisValues.set]
+     */
+    @JvmStatic
+    @JvmOverloads
+    public fun <T : Any> set(
+        key: String,
+        value: T,
+        timeout: Long = 0,
+        timeUnit: TimeUnit = TimeUnit.SECONDS,
+    ): Mono<Boolean> =
+        if (timeout == 0L) {
+            valueOps.set(key, value.toValueBytes())
+        } else {
+            valueOps.set(key, value.toValueBytes(), timeout.toDuration(timeUnit))
+        }
+
+    /**
+     * @see [RedisValues.setIfAbsent]
+     */
+    @JvmStatic
+    @JvmOverloads
+    public fun <T : Any> setIfAbsent(
+        key: String,
+        value: T,
+        timeout: Long = 0,
+        timeUnit: TimeUnit = TimeUnit.SECONDS,
+    ): Mono<Boolean> =
+        if (timeout == 0L) {
+            valueOps.setIfAbsent(key, value.toValueBytes())
+        } else {
+            valueOps.setIfAbsent(key, value.toValueBytes(), timeout.toDuration(timeUnit))
+        }
+
+    /**
+     * @see [RedisValues.setIfPresent]
+     */
+    @JvmStatic
+    @JvmOverloads
+    public fun <T : Any> setIfPresent(
+        key: String,
+        value: T,
+        timeout: Long = 0,
+        timeUnit: TimeUnit = TimeUnit.SECONDS,
+    ): Mono<Boolean> =
+        if (timeout == 0L) {
+            valueOps.setIfPresent(key, value.toValueBytes())
+        } else {
+            valueOps.setIfPresent(key, value.toValueBytes(), timeout.toDuration(timeUnit))
+        }
+
+    /**
+     * 同 RedisTemplate.boundValueOps.increment.
+     *
+     * @param key
+     * @param delta
+     */
+    @JvmStatic
+    @JvmOverloads
+    public fun increment(
+        key: String,
+        delta: Long = 1L,
+    ): Mono<Long> =
+        valueOps.increment(key, delta)
+
+    /**
+     * 同 RedisTemplate.boundValueOps.increment.
+     *
+     * @param key
+     * @param delta
+     */
+    @JvmStatic
+    public fun increment(
+        key: String,
+        delta: Double,
+    ): Mono<Double> =
+        valueOps.increment(key, delta)
+
+    /**
+     * @see [RedisValues.get]
+     */
+    @JvmStatic
+    public fun <T : Any> get(
+        key: String,
+        type: Class<T>,
+    ): Mono<T> =
+        get(key, type.toJavaType())
+
+    /**
+     * @see [RedisValues.get]
+     */
+    @JvmStatic
+    public fun <T : Any> get(
+        key: String,
+        type: TypeReference<T>,
+    ): Mono<T> =
+        get(key, type.type.toJavaType())
+
+    /**
+     * @see [RedisValues.get]
+     */
+    @JvmStatic
+    public fun <T : Any> get(
+        key: String,
+        type: JavaType,
+    ): Mono<T> =
+        valueOps
+            .get(key)
+            .mapNotNull { it.fromValueBytes<T>(type) }
+
+    /**
+     * @see [RedisValues.get]
+     */
+    public inline fun <reified T : Any> get(key: String): Mono<T> =
+        get(key, object : TypeReference<T>() {})
+
+    /**
+     * @see [RedisValues.getAndSet]
+     */
+    @JvmStatic
+    public fun <T : Any> getAndSet(
+        key: String,
+        value: T,
+        type: Class<T>,
+    ): Mono<T> =
+        valueOps
+            .getAndSet(key, value.toValueBytes())
+            .mapNotNull { it.fromValueBytes<T>(type.toJavaType()) }
+
+    /**
+     * @see [RedisValues.getAndDelete]
+     */
+    @JvmStatic
+    public fun <T : Any> getAndDelete(
+        key: String,
+        type: Class<T>,
+    ): Mono<T> =
+        valueOps
+            .getAndDelete(key)
+            .mapNotNull { it.fromValueBytes<T>(type.toJavaType()) }
+
+    /**
+     * @see [RedisValues.multiGet]
+     * @return 不存在的 key 对应位置为 null
+     */
+    @JvmStatic
+    public fun <T : Any> multiGet(
+        keys: Collection<String>,
+        type: Class<T>,
+    ): Mono<List<T?>> =
+        multiGet(keys, type.toJavaType())
+
+    /**
+     * @see [RedisValues.multiGet]
+     * @return 不存在的 key 对应位置为 null
+     */
+    @JvmStatic
+    public fun <T : Any> multiGet(
+        keys: Collection<String>,
+        type: JavaType,
+    ): Mono<List<T?>> =
+        valueOps
+            .multiGet(keys)
+            .map { values -> values.map { it.fromValueBytes<T>(type) } }
+}
+
+@JvmSynthetic
+internal fun Long.toDuration(timeUnit: TimeUnit): Duration =
+    Duration.ofMillis(timeUnit.toMillis(this))
@@ -31,16 +31,27 @@ package tony.redis
  * @author tangli
  * @date 2023/09/28 19:56
  */
+import com.fasterxml.jackson.databind.JavaType
+import java.nio.charset.StandardCharsets
 import org.springframework.core.io.ClassPathResource
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory
 import org.springframework.data.redis.core.HashOperations
 import org.springframework.data.redis.core.ListOperations
+import org.springframework.data.redis.core.ReactiveRedisTemplate
+import org.springframework.data.redis.core.RedisCallback
 import org.springframework.data.redis.core.RedisTemplate
 import org.springframework.data.redis.core.ValueOperations
 import org.springframework.data.redis.core.script.RedisScript
+import org.springframework.data.redis.serializer.RedisSerializationContext
+import org.springframework.data.redis.serializer.RedisSerializer
+import org.springframework.data.redis.serializer.StringRedisSerializer
 import tony.core.SpringContexts
 import tony.core.exception.ApiException
+import tony.core.utils.asToNotNull
 import tony.core.utils.toNumber
+import tony.redis.lock.RedisLockSupport
 import tony.redis.service.RedisService
+import tony.redis.service.impl.JacksonRedisService
 
 @get:JvmSynthetic
 internal val redisTemplate: RedisTemplate<String, Any> by SpringContexts.getBeanByLazy("redisTemplate")
@@ -51,6 +62,12 @@ internal val redisTemplate: RedisTemplate<String, Any> by SpringContexts.getBean
 @get:JvmSynthetic
 public val redisService: RedisService by SpringContexts.getBeanByLazy()
 
+/**
+ * 分布式锁支持
+ */
+@get:JvmSynthetic
+internal val redisLockSupport: RedisLockSupport by SpringContexts.getBeanByLazy()
+
 /**
  * 值运算
  */
@@ -59,6 +76,38 @@ internal val valueOp: ValueOperations<String, Any> by lazy(LazyThreadSafetyMode.
     redisTemplate.opsForValue()
 }
 
+/**
+ * 原始字节值运算, 值不经过 [redisTemplate] 的序列化, 与 [redisTemplate] 共用连接.
+ */
+@get:JvmSynthetic
+internal val rawValueOp: ValueOperations<String, ByteArray> by lazy(LazyThreadSafetyMode.PUBLICATION) {
+    RedisTemplate<String, ByteArray>()
+        .apply {
+            connectionFactory = redisTemplate.requiredConnectionFactory
+            keySerializer = StringRedisSerializer.UTF_8
+            valueSerializer = RedisSerializer.byteArray()
+            afterPropertiesSet()
+        }.opsForValue()
+}
+
+/**
+ * 响应式原始字节模板, 值的序列化与 [redisTemplate] 一致, 由调用方完成. 仅支持 Lettuce 连接.
+ */
+@get:JvmSynthetic
+internal val reactiveRedisTemplate: ReactiveRedisTemplate<String, ByteArray> by lazy(LazyThreadSafetyMode.PUBLICATION) {
+    val connectionFactory =
+        redisTemplate.requiredConnectionFactory as? ReactiveRedisConnectionFactory
+            ?: throw ApiException("Reactive redis operations require a lettuce connection factory.")
+    ReactiveRedisTemplate(
+        connectionFactory,
+        RedisSerializationContext
+            .newSerializationContext<String, ByteArray>(RedisSerializer.byteArray())
+            .key(StringRedisSerializer.UTF_8)
+            .hashKey(StringRedisSerializer.UTF_8)
+            .build()
+    )
+}
+
 /**
  * 列表操作
  */
@@ -83,12 +132,39 @@ internal val lockScript: RedisScript<Long> =
     RedisScript.of(ClassPathResource("META-INF/scripts/lockKey.lua"), Long::class.java)
 
 /**
- * 批量删除脚本
- * @date redis 3.2+
+ * 可重入锁加锁脚本
+ */
+@get:JvmSynthetic
+internal val lockAcquireScript: RedisScript<Long> =
+    RedisScript.of(ClassPathResource("META-INF/scripts/lockAcquire.lua"), Long::class.java)
+
+/**
+ * 可重入锁解锁脚本
+ */
+@get:JvmSynthetic
+internal val lockReleaseScript: RedisScript<Long> =
+    RedisScript.of(ClassPathResource("META-INF/scripts/lockRelease.lua"), Long::class.java)
+
+/**
+ * 可重入锁续期脚本
+ */
+@get:JvmSynthetic
+internal val lockRenewScript: RedisScript<Long> =
+    RedisScript.of(ClassPathResource("META-INF/scripts/lockRenew.lua"), Long::class.java)
+
+/**
+ * 租约获取脚本
+ */
+@get:JvmSynthetic
+internal val leaseAcquireScript: RedisScript<Long> =
+    RedisScript.of(ClassPathResource("META-INF/scripts/leaseAcquire.lua"), Long::class.java)
+
+/**
+ * 租约释放脚本
  */
 @get:JvmSynthetic
-internal val deleteKeyByPatternScript: RedisScript<Long?> =
-    RedisScript.of(ClassPathResource("META-INF/scripts/deleteByKeyPatterns.lua"), Long::class.java)
+internal val leaseReleaseScript: RedisScript<Long> =
+    RedisScript.of(ClassPathResource("META-INF/scripts/leaseRelease.lua"), Long::class.java)
 
 @JvmSynthetic
 internal fun <R : Number> Any?.toNum(type: Class<in R>): R? =
@@ -98,3 +174,62 @@ internal fun <R : Number> Any?.toNum(type: Class<in R>): R? =
         null -> null
         else -> throw ApiException("Not support ${this::class.java}")
     }
+
+/**
+ * 按 [RedisValues] 的方式序列化值.
+ */
+@JvmSynthetic
+internal fun Any.toValueBytes(): ByteArray =
+    when (val service = redisService) {
+        is JacksonRedisService -> with(service) { this@toValueBytes.toJsonBytes() }
+        else -> toTemplateBytes()
+    }
+
+/**
+ * 按 [RedisValues] 的方式反序列化值.
+ */
+@JvmSynthetic
+internal fun <T : Any> ByteArray?.fromValueBytes(type: JavaType): T? =
+    when (val service = redisService) {
+        is JacksonRedisService -> with(service) { this@fromValueBytes.readJson(type) }
+        else -> with(service) { templateSerializer.deserialize(this@fromValueBytes).outputTransformTo(type) }
+    }
+
+/**
+ * 一次往返获取值及其剩余毫秒数, 值按 [RedisValues] 的方式反序列化.
+ * @return 值与剩余毫秒数, 不存在时为 -2, 永不过期时为 -1
+ */
+@JvmSynthetic
+internal fun valueWithTtl(
+    key: String,
+    type: JavaType,
+): Pair<Any?, Long> {
+    val keyBytes = key.toByteArray(StandardCharsets.UTF_8)
+    val results =
+        redisTemplate.executePipelined(
+            RedisCallback<Any?> { connection ->
+                connection.stringCommands().get(keyBytes)
+                connection.keyCommands().pTtl(keyBytes)
+                null
+            },
+            RedisSerializer.byteArray()
+        )
+    return (results[0] as ByteArray?).fromValueBytes<Any>(type) to ((results[1] as Long?) ?: -2L)
+}
+
+/**
+ * 按 [RedisMaps]、[RedisLists] 的方式序列化值.
+ */
+@JvmSynthetic
+internal fun Any.toTemplateBytes(): ByteArray =
+    templateSerializer.serialize(with(redisService) { this@toTemplateBytes.inputTransformTo() }) ?: ByteArray(0)
+
+/**
+ * 按 [RedisMaps]、[RedisLists] 的方式反序列化值.
+ */
+@JvmSynthetic
+internal fun <T : Any> ByteArray?.fromTemplateBytes(type: JavaType): T? =
+    with(redisService) { templateSerializer.deserialize(this@fromTemplateBytes).outputTransformTo(type) }
+
+private val templateSerializer: RedisSerializer<Any>
+    get() = redisTemplate.valueSerializer.asToNotNull()
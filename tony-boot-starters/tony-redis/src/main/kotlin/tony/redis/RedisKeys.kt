@@ -33,7 +33,8 @@ import tony.core.SpringContexts.Env
  * @date 2023/09/28 19:56
  */
 public data object RedisKeys {
-    private val keyPrefix: String by Env.getPropertyByLazy("cache.key-prefix", "")
+    @get:JvmSynthetic
+    internal val keyPrefix: String by Env.getPropertyByLazy("cache.key-prefix", "")
 
     /**
      * 生成redis 缓存键名.
@@ -27,6 +27,7 @@ package tony.redis
 import java.util.Collections
 import java.util.Date
 import java.util.concurrent.TimeUnit
+import java.util.stream.Stream
 import org.slf4j.LoggerFactory
 import org.springframework.data.redis.core.RedisConnectionUtils
 import org.springframework.data.redis.core.RedisTemplate
@@ -39,6 +40,7 @@ import tony.core.utils.asToNotNull
 import tony.core.utils.isStringLikeType
 import tony.core.utils.trimQuotes
 import tony.redis.RedisManager.keys
+import tony.redis.lock.RedisLock
 
 /**
  * Redis 操作聚合类单例.
@@ -88,6 +90,36 @@ public data object RedisManager {
         }
     }
 
+    /**
+     * Redis 管道批量操作.
+     *
+     * 在 [block] 中排队的命令按 [chunkSize] 分段, 每段一次往返. 单条命令的结果可通过其返回的 future 获取.
+     * 分段内有命令失败时该分段的结果均为异常, 其它分段不受影响.
+     *
+     * ## 注: 在 [block] 中只能通过 [RedisPipeline] 排队命令, 其它 redis 操作不会进入管道.
+     *
+     * @param [chunkSize] 每段命令数, 默认 [DEFAULT_PIPELINE_CHUNK_SIZE]
+     * @param [block] 排队命令
+     * @return 按排队顺序的结果, 失败的分段对应位置为异常
+     * @see RedisPipeline
+     * @author tangli
+     * @date 2025/07/26 10:00
+     */
+    @JvmStatic
+    @JvmOverloads
+    public fun pipeline(
+        chunkSize: Int = DEFAULT_PIPELINE_CHUNK_SIZE,
+        block: RedisPipeline.() -> Unit,
+    ): List<Any?> =
+        RedisPipeline()
+            .apply(block)
+            .execute(chunkSize)
+
+    /**
+     * 管道默认分段大小.
+     */
+    public const val DEFAULT_PIPELINE_CHUNK_SIZE: Int = 1000
+
     /**
      * 同 [RedisTemplate.hasKey]
      *
@@ -98,8 +130,25 @@ public data object RedisManager {
     public fun hasKey(key: String): Boolean =
         redisTemplate.hasKey(key)
 
+    /**
+     * 获取可重入分布式锁.
+     *
+     * @param [name] 锁名, 即 redis key
+     * @return [RedisLock]
+     * @see RedisLock
+     * @author tangli
+     * @date 2025/07/27 10:00
+     */
+    @JvmStatic
+    public fun getLock(name: String): RedisLock {
+        if (name.isBlank()) throw ApiException("lock name must not be blank.")
+        return RedisLock(name, redisLockSupport)
+    }
+
     /**
      * Redis 分布式锁简单实现.
+     *
+     * 无持有者、不可重入、不续期, 需要这些能力时使用 [getLock].
      * @param [key] 钥匙
      * @param [timeout] 超时
      * @return [Boolean]
@@ -153,6 +202,8 @@ public data object RedisManager {
     /**
      * redis 分布式锁简单实现，支持自旋等待，采用指数退避策略。
      *
+     * 竞争激烈时轮询开销较大, 可使用 [getLock] 获取由解锁通知唤醒的锁.
+     *
      * @param key 锁key
      * @param timeout 锁过期时间（秒）
      * @param waitTimeout 最大自旋等待时间（毫秒）
@@ -234,10 +285,13 @@ public data object RedisManager {
     /**
      * redis 根据 [keyPatterns] 批量删除，支持参数化 batchSize 和 count.
      *
+     * 客户端 SCAN 遍历, UNLINK 分批删除, 不会长时间阻塞 redis.
+     *
      * @param keyPatterns 可ant匹配
-     * @param batchSize 每次批量 DEL 的 key 数量，默认 100
+     * @param batchSize 每次批量 UNLINK 的 key 数量，默认 100
      * @param count SCAN 每次遍历的 key 数量，默认 1000
      * @return 实际删除的 key 数量
+     * @see unlinkByKeyPattern
      */
     @JvmStatic
     @JvmOverloads
@@ -251,10 +305,13 @@ public data object RedisManager {
     /**
      * redis 根据 [keyPatterns] 批量删除，支持参数化 batchSize 和 count.
      *
+     * 客户端 SCAN 遍历, UNLINK 分批删除, 不会长时间阻塞 redis.
+     *
      * @param keyPatterns 可ant匹配
-     * @param batchSize 每次批量 DEL 的 key 数量，默认 100
+     * @param batchSize 每次批量 UNLINK 的 key 数量，默认 100
      * @param count SCAN 每次遍历的 key 数量，默认 1000
      * @return 实际删除的 key 数量
+     * @see unlinkByKeyPattern
      */
     @JvmStatic
     @JvmOverloads
@@ -265,11 +322,56 @@ public data object RedisManager {
     ): Long {
         if (keyPatterns.isEmpty()) throw ApiException("keyPatterns must not be empty.")
         if (keyPatterns.any { it.isBlank() }) throw ApiException("keyPattern must not be blank.")
-        val args = listOf(batchSize, count)
+        return keyPatterns.sumOf { unlinkByKeyPattern(it, batchSize, count.toLong()) }
+    }
 
-        @Suppress("RedundantNullableReturnType")
-        val result: Long? = redisTemplate.execute(deleteKeyByPatternScript, keyPatterns.toList(), *args.toTypedArray())
-        return result ?: 0L
+    /**
+     * redis 根据 [keyPattern] 流式删除.
+     *
+     * 客户端 SCAN 遍历(集群模式下遍历每个主节点), 每 [batchSize] 个 key 一次 UNLINK, 可按 [maxKeysPerSecond] 限速.
+     *
+     * @param keyPattern 可ant匹配
+     * @param batchSize 每次批量 UNLINK 的 key 数量，默认 500
+     * @param count SCAN 每次遍历的 key 数量，默认 1000
+     * @param maxKeysPerSecond 每秒最多删除的 key 数量, 默认 0 不限速
+     * @return 实际删除的 key 数量
+     * @author tangli
+     * @date 2025/07/28 10:00
+     */
+    @JvmStatic
+    @JvmOverloads
+    public fun unlinkByKeyPattern(
+        keyPattern: String,
+        batchSize: Int = 500,
+        count: Long = 1000,
+        maxKeysPerSecond: Int = 0,
+    ): Long {
+        if (keyPattern.isBlank()) throw ApiException("keyPattern must not be blank.")
+        if (batchSize <= 0) throw ApiException("batchSize must greater than 0")
+        return unlinkKeys(keyPattern, batchSize, count, maxKeysPerSecond)
+    }
+
+    /**
+     * 客户端 SCAN 遍历匹配 [keyPattern] 的 key, 不会像 KEYS 一样阻塞 redis.
+     *
+     * 集群模式下依次遍历每个主节点. 可能返回重复的 key.
+     *
+     * ## 注: 返回的 [Stream] 持有连接与游标, 使用后必须关闭.
+     *
+     * @param keyPattern 可ant匹配
+     * @param count SCAN 每次遍历的 key 数量，默认 1000
+     * @return [Stream]<[String]>
+     * @author tangli
+     * @date 2025/07/28 10:00
+     */
+    @JvmStatic
+    @JvmOverloads
+    public fun scan(
+        keyPattern: String,
+        count: Long = 1000,
+    ): Stream<String> {
+        if (keyPattern.isBlank()) throw ApiException("keyPattern must not be blank.")
+        return scanKeys(keyPattern, count)
     }
 
     /**
@@ -309,6 +411,8 @@ public data object RedisManager {
     /**
      * Find all keys matching the given pattern.
      *
+     * 基于 [scan], 不使用阻塞的 KEYS 命令.
+     *
      * @param keys  must not be null.
      * @return null when used in pipeline / transaction.
      */
@@ -318,13 +422,17 @@ public data object RedisManager {
     /**
      * Find all keys matching the given pattern.
      *
+     * 基于 [scan], 不使用阻塞的 KEYS 命令.
+     *
      * @param keys must not be null.
      * @return null when used in pipeline / transaction.
      */
     @Suppress("MemberVisibilityCanBePrivate")
     public fun keys(keys: Collection<String>): Collection<String> =
         keys.fold(HashSet()) { set, key ->
-            set.addAll(redisTemplate.keys(key))
+            scan(key).use { stream ->
+                stream.forEach(set::add)
+            }
             set
         }
 }
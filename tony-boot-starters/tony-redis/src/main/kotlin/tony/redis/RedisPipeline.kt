@@ -0,0 +1,384 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.redis
+
+import com.fasterxml.jackson.core.type.TypeReference
+import com.fasterxml.jackson.databind.JavaType
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.TimeUnit
+import org.springframework.data.redis.connection.RedisConnection
+import org.springframework.data.redis.connection.RedisPipelineException
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption
+import org.springframework.data.redis.core.RedisCallback
+import org.springframework.data.redis.core.types.Expiration
+import org.springframework.data.redis.serializer.RedisSerializer
+import tony.core.exception.ApiException
+import tony.core.utils.asTo
+import tony.core.utils.toJavaType
+
+/**
+ * Redis 管道批量操作.
+ *
+ * 命令先在本地排队, 由 [RedisManager.pipeline] 统一通过 [org.springframework.data.redis.core.RedisTemplate.executePipelined]
+ * 发送, 超过 chunkSize 的批次自动分段, 每段一次往返.
+ *
+ * 每个命令返回一个 [CompletableFuture], 所在分段执行完成后才会完成.
+ * 分段内有命令失败时, 客户端拿不到该分段其它命令的结果(命令已发送执行), 该分段的 future 均异常完成, 其它分段不受影响;
+ * 连接异常等其它错误会使当前及之后分段的 future 均异常完成, 并向上抛出.
+ *
+ * 值的序列化与 [RedisValues]、[RedisMaps]、[RedisLists] 一致, 可与其混用.
+ *
+ * ## 注: 实例非线程安全, 仅在 [RedisManager.pipeline] 的回调中使用.
+ *
+ * @author tangli
+ * @date 2025/07/26 10:00
+ */
+public class RedisPipeline internal constructor() {
+    private val commands = ArrayList<PipelineCommand<*>>()
+
+    /**
+     * 已排队的命令数.
+     */
+    public val size: Int
+        get() = commands.size
+
+    /**
+     * 设置值, [timeout] 大于 0 时同时设置过期时间.
+     *
+     * @param key 键
+     * @param value 值
+     * @param timeout 过期时间, 0 表示不过期
+     * @param timeUnit 默认为秒 [TimeUnit.SECONDS]
+     * @return 是否设置成功
+     */
+    @JvmOverloads
+    public fun <T : Any> set(
+        key: String,
+        value: T,
+        timeout: Long = 0,
+        timeUnit: TimeUnit = TimeUnit.SECONDS,
+    ): CompletableFuture<Boolean> =
+        setValue(key, value, timeout, timeUnit, SetOption.upsert())
+
+    /**
+     * 键不存在时设置值, [timeout] 大于 0 时同时设置过期时间.
+     *
+     * @param key 键
+     * @param value 值
+     * @param timeout 过期时间, 0 表示不过期
+     * @param timeUnit 默认为秒 [TimeUnit.SECONDS]
+     * @return 是否设置成功
+     */
+    @JvmOverloads
+    public fun <T : Any> setIfAbsent(
+        key: String,
+        value: T,
+        timeout: Long = 0,
+        timeUnit: TimeUnit = TimeUnit.SECONDS,
+    ): CompletableFuture<Boolean> =
+        setValue(key, value, timeout, timeUnit, SetOption.ifAbsent())
+
+    /**
+     * 获取值.
+     *
+     * @param key 键
+     * @param type 值类型
+     * @return 值
+     */
+    public fun <T : Any> get(
+        key: String,
+        type: Class<T>,
+    ): CompletableFuture<T?> =
+        get(key, type.toJavaType())
+
+    /**
+     * 获取值.
+     *
+     * @param key 键
+     * @param type 值类型
+     * @return 值
+     */
+    public fun <T : Any> get(
+        key: String,
+        type: TypeReference<T>,
+    ): CompletableFuture<T?> =
+        get(key, type.type.toJavaType())
+
+    /**
+     * 获取值.
+     *
+     * @param key 键
+     * @param type 值类型
+     * @return 值
+     */
+    public fun <T : Any> get(
+        key: String,
+        type: JavaType,
+    ): CompletableFuture<T?> =
+        enqueue({ it.stringCommands().get(key.toKeyBytes()) }) {
+            it.asTo<ByteArray>().fromValueBytes(type)
+        }
+
+    /**
+     * 获取值.
+     *
+     * @param key 键
+     * @return 值
+     */
+    public inline fun <reified T : Any> get(key: String): CompletableFuture<T?> =
+        get(key, (object : TypeReference<T>() {}))
+
+    /**
+     * 自增.
+     *
+     * @param key 键
+     * @param delta 增量
+     * @return 自增后的值
+     */
+    @JvmOverloads
+    public fun increment(
+        key: String,
+        delta: Long = 1L,
+    ): CompletableFuture<Long> =
+        enqueue({ it.stringCommands().incrBy(key.toKeyBytes(), delta) }) {
+            it.asTo<Long>() ?: 0L
+        }
+
+    /**
+     * 设置过期时间.
+     *
+     * @param key 键
+     * @param timeout 过期时间
+     * @param timeUnit 默认为秒 [TimeUnit.SECONDS]
+     * @return 键存在并设置成功时为 true
+     */
+    @JvmOverloads
+    public fun expire(
+        key: String,
+        timeout: Long,
+        timeUnit: TimeUnit = TimeUnit.SECONDS,
+    ): CompletableFuture<Boolean> =
+        enqueue({ it.keyCommands().pExpire(key.toKeyBytes(), timeUnit.toMillis(timeout)) }) {
+            true == it
+        }
+
+    /**
+     * 删除键.
+     *
+     * @param keys 键
+     * @return 删除的数量
+     */
+    public fun delete(vararg keys: String): CompletableFuture<Long> =
+        enqueue({ connection -> connection.keyCommands().del(*keys.map { it.toKeyBytes() }.toTypedArray()) }) {
+            it.asTo<Long>() ?: 0L
+        }
+
+    /**
+     * 哈希字段自增.
+     *
+     * @param key 键
+     * @param hashKey 哈希字段
+     * @param delta 增量
+     * @return 自增后的值
+     */
+    @JvmOverloads
+    public fun hashIncrement(
+        key: String,
+        hashKey: String,
+        delta: Long = 1L,
+    ): CompletableFuture<Long> =
+        enqueue({ it.hashCommands().hIncrBy(key.toKeyBytes(), hashKey.toKeyBytes(), delta) }) {
+            it.asTo<Long>() ?: 0L
+        }
+
+    /**
+     * 设置哈希字段.
+     *
+     * @param key 键
+     * @param hashKey 哈希字段
+     * @param value 值
+     * @return 是否为新字段
+     */
+    public fun <T : Any> hashPut(
+        key: String,
+        hashKey: String,
+        value: T,
+    ): CompletableFuture<Boolean> =
+        enqueue({ it.hashCommands().hSet(key.toKeyBytes(), hashKey.toKeyBytes(), value.toTemplateBytes()) }) {
+            true == it
+        }
+
+    /**
+     * 获取哈希字段.
+     *
+     * @param key 键
+     * @param hashKey 哈希字段
+     * @param type 值类型
+     * @return 值
+     */
+    public fun <T : Any> hashGet(
+        key: String,
+        hashKey: String,
+        type: Class<T>,
+    ): CompletableFuture<T?> =
+        enqueue({ it.hashCommands().hGet(key.toKeyBytes(), hashKey.toKeyBytes()) }) {
+            it.asTo<ByteArray>().fromTemplateBytes(type.toJavaType())
+        }
+
+    /**
+     * 从左侧插入列表.
+     *
+     * @param key 键
+     * @param values 值
+     * @return 插入后的列表长度
+     */
+    public fun leftPush(
+        key: String,
+        vararg values: Any,
+    ): CompletableFuture<Long> =
+        enqueue({ connection ->
+            connection.listCommands().lPush(key.toKeyBytes(), *values.map { it.toTemplateBytes() }.toTypedArray())
+        }) {
+            it.asTo<Long>() ?: 0L
+        }
+
+    /**
+     * 从右侧插入列表.
+     *
+     * @param key 键
+     * @param values 值
+     * @return 插入后的列表长度
+     */
+    public fun rightPush(
+        key: String,
+        vararg values: Any,
+    ): CompletableFuture<Long> =
+        enqueue({ connection ->
+            connection.listCommands().rPush(key.toKeyBytes(), *values.map { it.toTemplateBytes() }.toTypedArray())
+        }) {
+            it.asTo<Long>() ?: 0L
+        }
+
+    private fun <T : Any> setValue(
+        key: String,
+        value: T,
+        timeout: Long,
+        timeUnit: TimeUnit,
+        option: SetOption,
+    ): CompletableFuture<Boolean> {
+        val expiration =
+            if (timeout > 0L) {
+                Expiration.from(timeout, timeUnit)
+            } else {
+                Expiration.persistent()
+            }
+        return enqueue({ it.stringCommands().set(key.toKeyBytes(), value.toValueBytes(), expiration, option) }) {
+            true == it
+        }
+    }
+
+    private fun <T> enqueue(
+        command: (RedisConnection) -> Unit,
+        decoder: (Any?) -> T,
+    ): CompletableFuture<T> =
+        PipelineCommand(command, decoder)
+            .also { commands.add(it) }
+            .future
+
+    /**
+     * 分段执行已排队的命令.
+     *
+     * @param chunkSize 每段命令数
+     * @return 按排队顺序的结果, 失败的命令对应位置为异常
+     */
+    @JvmSynthetic
+    internal fun execute(chunkSize: Int): List<Any?> {
+        if (chunkSize <= 0) {
+            throw ApiException("chunkSize must be positive.")
+        }
+        val results = ArrayList<Any?>(commands.size)
+        commands
+            .chunked(chunkSize)
+            .forEachIndexed { chunkIndex, chunk ->
+                try {
+                    results.addAll(executeChunk(chunk))
+                } catch (e: Throwable) {
+                    commands
+                        .subList(chunkIndex * chunkSize, commands.size)
+                        .forEach { it.complete(e) }
+                    throw e
+                }
+            }
+        return results
+    }
+
+    private fun executeChunk(chunk: List<PipelineCommand<*>>): List<Any?> {
+        val rawResults =
+            try {
+                redisTemplate.executePipelined(
+                    RedisCallback<Any?> { connection ->
+                        chunk.forEach { it.command(connection) }
+                        null
+                    },
+                    RedisSerializer.byteArray()
+                )
+            } catch (e: RedisPipelineException) {
+                // lettuce 遇到失败命令时不返回其它命令的结果
+                e.pipelineResult.takeIf { it.size == chunk.size } ?: List(chunk.size) { e }
+            }
+        return chunk.mapIndexed { index, command ->
+            command.complete(rawResults[index])
+        }
+    }
+}
+
+/**
+ * 排队的管道命令.
+ *
+ * @author tangli
+ * @date 2025/07/26 10:00
+ */
+private class PipelineCommand<T>(
+    val command: (RedisConnection) -> Unit,
+    private val decoder: (Any?) -> T,
+) {
+    val future = CompletableFuture<T>()
+
+    fun complete(rawResult: Any?): Any? {
+        if (rawResult is Throwable) {
+            future.completeExceptionally(rawResult)
+            return rawResult
+        }
+        return try {
+            decoder(rawResult).also { future.complete(it) }
+        } catch (e: Exception) {
+            future.completeExceptionally(e)
+            e
+        }
+    }
+}
+
+private fun String.toKeyBytes(): ByteArray =
+    toByteArray(Charsets.UTF_8)
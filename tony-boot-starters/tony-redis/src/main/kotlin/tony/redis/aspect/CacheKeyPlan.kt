@@ -0,0 +1,264 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.redis.aspect
+
+import java.lang.invoke.MethodHandle
+import java.lang.invoke.MethodHandles
+import java.lang.invoke.MethodType
+import java.lang.reflect.Modifier
+import java.util.concurrent.ConcurrentHashMap
+import org.springframework.expression.EvaluationException
+import org.springframework.expression.Expression
+import org.springframework.expression.spel.SpelCompilerMode
+import org.springframework.expression.spel.SpelParserConfiguration
+import org.springframework.expression.spel.standard.SpelExpressionParser
+
+/**
+ * 缓存 key 生成计划.
+ *
+ * 每个方法只构建一次:
+ * - 表达式中的参数名预先映射为参数下标, 不再每次构建参数 Map.
+ * - 简单属性路径(如 user.id)通过缓存的 [MethodHandle] 取值, 取不到时回退到 SpEL.
+ * - 其余表达式只解析一次, 以 [SpelCompilerMode.IMMEDIATE] 编译, 编译执行失败时回退到解释执行.
+ * - key 模板预先按 `%s` 拆分, 用预分配容量的 [StringBuilder] 拼接, 含其他格式符时回退到 [String.format].
+ *
+ * 生成结果与 [tony.redis.RedisKeys.genKey] 一致.
+ *
+ * @param [keyPrefix] key 前缀
+ * @param [template] key 模板
+ * @param [expressions] 表达式
+ * @param [paramsNames] 方法参数名
+ * @author tangli
+ * @date 2025/07/24 15:00
+ */
+internal class CacheKeyPlan(
+    keyPrefix: String,
+    private val template: String,
+    expressions: Array<String>,
+    paramsNames: Array<String>,
+) {
+    private val prefix = if (keyPrefix.isBlank()) "" else "$keyPrefix:"
+
+    private val literals: Array<String>? = splitTemplate(template)
+
+    private val valueResolvers: Array<ValueResolver> =
+        if (paramsNames.isEmpty()) {
+            emptyArray()
+        } else {
+            Array(expressions.size) { index ->
+                valueResolver(expressions[index], paramsNames)
+            }
+        }
+
+    private val capacity =
+        prefix.length + (literals?.sumOf { it.length } ?: template.length) + 16 * valueResolvers.size
+
+    /**
+     * 生成缓存 key.
+     * @param [arguments] 方法实际参数
+     * @return [String]
+     * @throws EvaluationException 表达式执行失败
+     */
+    fun cacheKey(arguments: Array<Any?>): String {
+        val values = Array(valueResolvers.size) { valueResolvers[it].resolve(arguments) }
+        val literals = literals
+        if (literals == null || literals.size - 1 > values.size) {
+            return prefix + String.format(template, *values)
+        }
+        val builder =
+            StringBuilder(capacity)
+                .append(prefix)
+                .append(literals[0])
+        for (index in 1 until literals.size) {
+            builder
+                .append(values[index - 1])
+                .append(literals[index])
+        }
+        return builder.toString()
+    }
+
+    private fun interface ValueResolver {
+        fun resolve(arguments: Array<Any?>): Any?
+    }
+
+    /**
+     * SpEL 表达式取值, 根对象为参数值.
+     */
+    private class SpelValueResolver(
+        private val paramIndex: Int,
+        private val expressionString: String,
+    ) : ValueResolver {
+        private val compiledExpression: Expression = compiledParser.parseExpression(expressionString)
+
+        private val interpretedExpression: Expression by lazy(LazyThreadSafetyMode.PUBLICATION) {
+            interpretedParser.parseExpression(expressionString)
+        }
+
+        override fun resolve(arguments: Array<Any?>): Any? {
+            val root = arguments.getOrNull(paramIndex)
+            return try {
+                compiledExpression.getValue(root)
+            } catch (_: EvaluationException) {
+                interpretedExpression.getValue(root)
+            }
+        }
+    }
+
+    /**
+     * 简单属性路径取值, 根对象为参数值.
+     */
+    private class PropertyPathResolver(
+        private val paramIndex: Int,
+        private val propertyNames: List<String>,
+        private val fallback: ValueResolver,
+    ) : ValueResolver {
+        override fun resolve(arguments: Array<Any?>): Any? {
+            var value = arguments.getOrNull(paramIndex)
+            for (propertyName in propertyNames) {
+                val target = value ?: return fallback.resolve(arguments)
+                val accessor = accessor(target.javaClass, propertyName) ?: return fallback.resolve(arguments)
+                value = accessor.invoke(target)
+            }
+            return value
+        }
+    }
+
+    private class Accessor(
+        val handle: MethodHandle?,
+    )
+
+    private companion object {
+        private val compiledParser =
+            SpelExpressionParser(
+                SpelParserConfiguration(SpelCompilerMode.IMMEDIATE, CacheKeyPlan::class.java.classLoader)
+            )
+
+        private val interpretedParser = SpelExpressionParser()
+
+        private val simplePropertyPathRegex = Regex("[A-Za-z_$][\\w$]*(\\.[A-Za-z_$][\\w$]*)*")
+
+        private val accessorType = MethodType.methodType(Any::class.java, Any::class.java)
+
+        private val accessors =
+            object : ClassValue<ConcurrentHashMap<String, Accessor>>() {
+                override fun computeValue(type: Class<*>): ConcurrentHashMap<String, Accessor> =
+                    ConcurrentHashMap()
+            }
+
+        private fun valueResolver(
+            expression: String,
+            paramsNames: Array<String>,
+        ): ValueResolver {
+            val paramName = expression.substringBefore(".")
+            val paramIndex = paramsNames.indexOf(paramName)
+            if (paramName == expression) {
+                return ValueResolver { arguments -> arguments.getOrNull(paramIndex) }
+            }
+            val realExpression = expression.substringAfter(".")
+            val spelValueResolver = SpelValueResolver(paramIndex, realExpression)
+            return if (simplePropertyPathRegex.matches(realExpression)) {
+                PropertyPathResolver(paramIndex, realExpression.split("."), spelValueResolver)
+            } else {
+                spelValueResolver
+            }
+        }
+
+        /**
+         * 按 `%s` 拆分模板, 含其他格式符时返回 null.
+         */
+        private fun splitTemplate(template: String): Array<String>? {
+            val literals = mutableListOf<String>()
+            val current = StringBuilder()
+            var index = 0
+            while (index < template.length) {
+                val char = template[index]
+                if (char != '%') {
+                    current.append(char)
+                    index++
+                    continue
+                }
+                when (template.getOrNull(index + 1)) {
+                    's' -> {
+                        literals.add(current.toString())
+                        current.setLength(0)
+                    }
+
+                    '%' -> {
+                        current.append('%')
+                    }
+
+                    else -> {
+                        return null
+                    }
+                }
+                index += 2
+            }
+            literals.add(current.toString())
+            return literals.toTypedArray()
+        }
+
+        private fun accessor(
+            type: Class<*>,
+            propertyName: String,
+        ): MethodHandle? =
+            accessors
+                .get(type)
+                .computeIfAbsent(propertyName) { Accessor(findAccessor(type, it)) }
+                .handle
+
+        /**
+         * 按 getter、boolean getter、公共字段的顺序查找属性访问方法.
+         */
+        private fun findAccessor(
+            type: Class<*>,
+            propertyName: String,
+        ): MethodHandle? {
+            val capitalized = propertyName.replaceFirstChar { it.uppercaseChar() }
+            val lookup = MethodHandles.publicLookup()
+            return try {
+                val method =
+                    type.methods.firstOrNull {
+                        it.parameterCount == 0 &&
+                            !Modifier.isStatic(it.modifiers) &&
+                            (
+                                it.name == "get$capitalized" ||
+                                    (it.name == "is$capitalized" && it.returnType == Boolean::class.javaPrimitiveType)
+                            )
+                    }
+                val field =
+                    type.fields.firstOrNull {
+                        it.name == propertyName && !Modifier.isStatic(it.modifiers)
+                    }
+                when {
+                    method != null -> lookup.unreflect(method).asType(accessorType)
+                    field != null -> lookup.unreflectGetter(field).asType(accessorType)
+                    else -> null
+                }
+            } catch (_: IllegalAccessException) {
+                null
+            }
+        }
+    }
+}
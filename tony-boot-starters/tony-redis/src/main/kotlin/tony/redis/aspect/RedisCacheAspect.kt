@@ -25,6 +25,17 @@
 package tony.redis.aspect
 
 import com.fasterxml.jackson.databind.JavaType
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import java.lang.reflect.Method
+import java.util.UUID
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+import kotlin.math.ln
 import org.aspectj.lang.JoinPoint
 import org.aspectj.lang.ProceedingJoinPoint
 import org.aspectj.lang.annotation.After
@@ -33,36 +44,36 @@ import org.aspectj.lang.annotation.Aspect
 import org.aspectj.lang.reflect.MethodSignature
 import org.slf4j.Logger
 import org.springframework.expression.EvaluationException
-import org.springframework.expression.spel.standard.SpelExpressionParser
-import org.springframework.expression.spel.support.StandardEvaluationContext
 import tony.annotation.redis.RedisCacheEvict
 import tony.annotation.redis.RedisCacheable
 import tony.core.PROJECT_GROUP
+import tony.core.SpringContexts
 import tony.core.exception.ApiException
 import tony.core.utils.asToNotNull
 import tony.core.utils.getLogger
-import tony.core.utils.isBooleanType
 import tony.core.utils.isDateTimeLikeType
-import tony.core.utils.isNumberType
-import tony.core.utils.isStringLikeType
-import tony.core.utils.jsonToObj
-import tony.core.utils.rawClass
 import tony.core.utils.secondOfTodayRest
 import tony.core.utils.toJavaType
 import tony.redis.RedisKeys
 import tony.redis.RedisManager
-import tony.redis.toNum
+import tony.redis.cache.RedisCacheMetrics
+import tony.redis.cache.RedisCacheRefresher
+import tony.redis.cache.RedisLocalCache
+import tony.redis.redisLockSupport
+import tony.redis.valueWithTtl
 
 /**
  * 默认 Redis 缓存切面实现。
  *
  * 通过 AOP 拦截 @RedisCacheable/@RedisCacheEvict 注解，实现方法级别的 Redis 缓存和自动过期。
  * 支持 SpEL 表达式动态生成缓存 key，支持多种序列化方式（Jackson/Protostuff等）。
+ * 开启 redis.local-cache.enabled 后, 可通过 [RedisCacheable.localExpire] 在 Redis 之前加一层本地缓存。
+ * 支持过期时间抖动、概率提前刷新与过期后返回旧值(后台刷新), 后台刷新时方法在刷新线程中执行, 取不到请求/事务等线程上下文。
  *
  * 注意事项：
  * - 不支持缓存返回类型为日期时间类（如 LocalDateTime、Date 等）的方法。
  * - 若缓存 key 生成表达式或参数异常，会抛出 ApiException。
- * - 建议业务方法幂等，避免缓存击穿带来的并发问题。
+ * - 同一进程内同一 key 的并发未命中只执行一次方法，其余调用等待其结果；跨节点可通过 [RedisCacheable.loadLease] 合并。
  *
  * @author tangli
  * @date 2023/09/28 19:55
@@ -72,13 +83,52 @@ public abstract class RedisCacheAspect {
     private val logger: Logger = getLogger()
 
     /**
-     * SpEL 表达式解析器。
+     * 各方法 @RedisCacheable 的缓存 key 生成计划。
      */
-    private val expressionParser = SpelExpressionParser()
+    private val cacheablePlans = ConcurrentHashMap<Method, CacheKeyPlan>()
+
+    /**
+     * 各方法 @RedisCacheEvict 的缓存 key 生成计划。
+     */
+    private val evictPlans = ConcurrentHashMap<Method, List<CacheKeyPlan>>()
+
+    /**
+     * 进行中的加载, 按缓存 key 合并并发未命中。
+     */
+    private val inFlightLoads = ConcurrentHashMap<String, InFlightLoad>()
+
+    /**
+     * 各缓存 key 最近一次加载耗时(毫秒), 用于提前刷新; 有界, 淘汰后该 key 下次加载前不提前刷新。
+     */
+    private val loadMillis: Cache<String, Long> =
+        Caffeine
+            .newBuilder()
+            .maximumSize(LOAD_MILLIS_MAXIMUM_SIZE)
+            .build()
+
+    /**
+     * 后台刷新, 未注册时不刷新。
+     */
+    private val cacheRefresher: RedisCacheRefresher? by lazy(LazyThreadSafetyMode.PUBLICATION) {
+        SpringContexts
+            .getBeanProvider(RedisCacheRefresher::class.java)
+            .ifAvailable
+    }
+
+    /**
+     * 本地(L1)缓存, 未开启时为 null。
+     */
+    private val localCache: RedisLocalCache? by lazy(LazyThreadSafetyMode.PUBLICATION) {
+        SpringContexts
+            .getBeanProvider(RedisLocalCache::class.java)
+            .ifAvailable
+    }
 
     /**
      * 执行缓存删除（@RedisCacheEvict）。
      *
+     * 开启本地缓存时, 同时通知所有节点删除本地条目。
+     *
      * @param joinPoint AOP 连接点，代表被拦截的方法调用
      * @throws ApiException 表达式解析或 key 生成异常时抛出
      * @author tangli
@@ -91,21 +141,30 @@ public abstract class RedisCacheAspect {
     public fun doCacheEvict(joinPoint: JoinPoint) {
         val arguments = joinPoint.args
         val methodSignature = joinPoint.signature.asToNotNull<MethodSignature>()
-        val paramsNames = methodSignature.parameterNames
-        val annotations =
-            methodSignature
-                .method
-                .getAnnotationsByType(RedisCacheEvict::class.java)
-        annotations.forEach { annotation ->
-            val cacheKey = cacheKey(arguments, paramsNames, annotation.expressions, annotation.cacheKey)
+        val plans =
+            evictPlans.computeIfAbsent(methodSignature.method) { method ->
+                method
+                    .getAnnotationsByType(RedisCacheEvict::class.java)
+                    .map { annotation ->
+                        CacheKeyPlan(
+                            RedisKeys.keyPrefix,
+                            annotation.cacheKey,
+                            annotation.expressions,
+                            methodSignature.parameterNames
+                        )
+                    }
+            }
+        plans.forEach { plan ->
+            val cacheKey = cacheKey(plan, arguments)
             RedisManager.delete(cacheKey)
+            localCache?.evict(cacheKey)
         }
     }
 
     /**
      * 方法缓存处理（@RedisCacheable）。
      *
-     * 先查 Redis 缓存，命中则直接返回，否则执行方法并写入缓存。
+     * 先查本地缓存(若开启)，再查 Redis 缓存，命中则直接返回，否则合并并发未命中后执行方法并写入缓存。
      *
      * @param joinPoint AOP 连接点，代表被拦截的方法调用
      * @param annotation RedisCacheable 注解实例
@@ -119,10 +178,17 @@ public abstract class RedisCacheAspect {
         joinPoint: ProceedingJoinPoint,
         annotation: RedisCacheable,
     ): Any? {
-        val arguments = joinPoint.args
         val methodSignature = joinPoint.signature.asToNotNull<MethodSignature>()
-        val paramsNames = methodSignature.parameterNames
-        val cacheKey = cacheKey(arguments, paramsNames, annotation.expressions, annotation.cacheKey)
+        val plan =
+            cacheablePlans.computeIfAbsent(methodSignature.method) {
+                CacheKeyPlan(
+                    RedisKeys.keyPrefix,
+                    annotation.cacheKey,
+                    annotation.expressions,
+                    methodSignature.parameterNames
+                )
+            }
+        val cacheKey = cacheKey(plan, joinPoint.args)
         val timeout = if (annotation.expire == RedisCacheable.TODAY_END) secondOfTodayRest() else annotation.expire
 
         val javaType =
@@ -135,144 +201,344 @@ public abstract class RedisCacheAspect {
             throw ApiException("Not support dateTimeLike type.")
         }
 
-        return getCachedValueByType(cacheKey, javaType)
-            ?: joinPoint
-                .proceed()
-                ?.also { result ->
-                    RedisManager
-                        .values
-                        .set(
-                            cacheKey,
-                            result,
-                            timeout
-                        )
+        val l1Cache = if (annotation.localExpire > 0) localCache else null
+        val localTimeout = if (timeout > 0) minOf(annotation.localExpire, timeout) else annotation.localExpire
+        l1Cache
+            ?.get(cacheKey)
+            ?.let { return it }
+
+        val redisTimeout = redisTimeout(timeout, annotation)
+        val refreshable =
+            (annotation.earlyRefreshBeta > 0 || annotation.staleWhileRevalidate > 0) && cacheRefresher != null
+        val cachedValue =
+            if (refreshable) {
+                // 值与剩余时间在一次往返内取回, 不为命中额外发送 PTTL
+                val (value, ttlMillis) = getCachedValueWithTtl(cacheKey, javaType)
+                if (value != null) {
+                    refreshIfNeeded(joinPoint, annotation, cacheKey, redisTimeout, ttlMillis) { result ->
+                        l1Cache?.put(cacheKey, result, localTimeout)
+                    }
                 }
+                value
+            } else {
+                getCachedValueByType(cacheKey, javaType)
+            }
+        return (
+            cachedValue
+                ?: singleFlightLoad(
+                    joinPoint,
+                    cacheKey,
+                    javaType,
+                    redisTimeout,
+                    annotation.loadLease,
+                    annotation.loadWait
+                )
+        )?.also { result ->
+            l1Cache?.put(cacheKey, result, localTimeout)
+        }
     }
 
     /**
-     * 解析 SpEL 表达式，获取参数值或对象属性值。
+     * 计算写入 redis 的过期秒数, 包含随机抖动与可返回旧值的时间。
      *
-     * @param expression SpEL 表达式，如 "user.id"
-     * @param paramMap 参数名到参数值的映射
-     * @return 表达式解析后的值
-     * @throws ApiException 表达式解析失败时抛出
+     * @param timeout 注解过期秒数, 小于等于0时原样返回
+     * @param annotation RedisCacheable 注解实例
+     * @return 写入 redis 的过期秒数
      */
-    private fun getValueFromParam(
-        expression: String,
-        paramMap: Map<String, Any?>,
+    private fun redisTimeout(
+        timeout: Long,
+        annotation: RedisCacheable,
+    ): Long {
+        if (timeout <= 0) {
+            return timeout
+        }
+        val jitter =
+            if (annotation.expireJitter > 0) {
+                ThreadLocalRandom.current().nextLong(annotation.expireJitter + 1)
+            } else {
+                0L
+            }
+        return timeout + jitter + annotation.staleWhileRevalidate.coerceAtLeast(0)
+    }
+
+    /**
+     * 命中时判断是否需要后台刷新。
+     *
+     * 已过期(处于可返回旧值的时间内)时必定刷新; 未过期时按 XFetch 概率提前刷新。
+     *
+     * @param joinPoint AOP 连接点
+     * @param annotation RedisCacheable 注解实例
+     * @param cacheKey 缓存 key
+     * @param redisTimeout 写入 redis 的过期秒数
+     * @param ttlMillis 缓存剩余毫秒数
+     * @param onRefreshed 刷新成功回调
+     */
+    private fun refreshIfNeeded(
+        joinPoint: ProceedingJoinPoint,
+        annotation: RedisCacheable,
+        cacheKey: String,
+        redisTimeout: Long,
+        ttlMillis: Long,
+        onRefreshed: (Any) -> Unit,
+    ) {
+        val cacheRefresher = cacheRefresher ?: return
+        if (ttlMillis <= 0) {
+            return
+        }
+        val remainingMillis = ttlMillis - TimeUnit.SECONDS.toMillis(annotation.staleWhileRevalidate.coerceAtLeast(0))
+        if (remainingMillis > 0) {
+            if (annotation.earlyRefreshBeta <= 0) {
+                return
+            }
+            val delta = loadMillis.getIfPresent(cacheKey) ?: return
+            val random = 1.0 - ThreadLocalRandom.current().nextDouble()
+            if (delta * annotation.earlyRefreshBeta * -ln(random) < remainingMillis) {
+                return
+            }
+        }
+        cacheRefresher.refresh(cacheKey) {
+            loadAndCache(joinPoint, cacheKey, redisTimeout)?.also(onRefreshed)
+        }
+    }
+
+    /**
+     * 合并同一 key 的并发未命中, 只有一个调用执行方法, 其余调用等待并共享其结果。
+     *
+     * 等待超过 [loadWait] 秒后自行执行; 加载线程重入同一 key 时直接执行, 不等待自己。
+     *
+     * @param joinPoint AOP 连接点
+     * @param cacheKey 缓存 key
+     * @param javaType 返回值类型
+     * @param timeout 缓存过期秒数
+     * @param loadLease 跨节点加载租约秒数, 小于等于0时不使用
+     * @param loadWait 等待进行中加载的秒数, 小于等于0时一直等待
+     * @return 方法执行结果
+     */
+    private fun singleFlightLoad(
+        joinPoint: ProceedingJoinPoint,
+        cacheKey: String,
+        javaType: JavaType,
+        timeout: Long,
+        loadLease: Long,
+        loadWait: Long,
     ): Any? {
-        val stringList = expression.split(".")
-        if (stringList.size < 2) {
-            return paramMap[expression]
+        val load = InFlightLoad(Thread.currentThread())
+        val inFlight = inFlightLoads.putIfAbsent(cacheKey, load)
+        if (inFlight != null) {
+            // 加载中的方法调用自身, 等待自己会死锁
+            if (inFlight.owner === Thread.currentThread()) {
+                return loadAndCache(joinPoint, cacheKey, timeout)
+            }
+            RedisCacheMetrics.recordCoalesced()
+            return awaitInFlight(inFlight, cacheKey, loadWait) {
+                loadAndCache(joinPoint, cacheKey, timeout)
+            }
         }
-        val paramName = stringList.first()
-        val realExpression =
-            stringList
-                .drop(1)
-                .joinToString(".")
-        return try {
-            expressionParser
-                .parseExpression(realExpression)
-                .getValue(StandardEvaluationContext(paramMap[paramName]))
-        } catch (e: EvaluationException) {
+        try {
+            val result =
+                if (loadLease > 0) {
+                    leaseLoad(joinPoint, cacheKey, javaType, timeout, loadLease)
+                } else {
+                    loadAndCache(joinPoint, cacheKey, timeout)
+                }
+            load.future.complete(result)
+            return result
+        } catch (e: Throwable) {
+            load.future.completeExceptionally(e)
+            throw e
+        } finally {
+            inFlightLoads.remove(cacheKey, load)
+        }
+    }
+
+    /**
+     * 等待进行中的加载, 超时或被中断时改为执行 [fallback]。
+     *
+     * @param inFlight 进行中的加载
+     * @param cacheKey 缓存 key
+     * @param loadWait 等待秒数, 小于等于0时一直等待
+     * @param fallback 自行加载
+     * @return 加载结果
+     */
+    private inline fun awaitInFlight(
+        inFlight: InFlightLoad,
+        cacheKey: String,
+        loadWait: Long,
+        fallback: () -> Any?,
+    ): Any? =
+        try {
+            if (loadWait > 0) {
+                inFlight.future.get(loadWait, TimeUnit.SECONDS)
+            } else {
+                inFlight.future.get()
+            }
+        } catch (e: ExecutionException) {
+            throw e.cause ?: e
+        } catch (_: TimeoutException) {
+            RedisCacheMetrics.recordCoalesceTimeout()
+            logger.warn("Load of $cacheKey not finished in ${loadWait}s, load directly.")
+            fallback()
+        } catch (e: InterruptedException) {
             logger.error(e.message, e)
-            throw ApiException(e.message, cause = e)
+            Thread.currentThread().interrupt()
+            fallback()
+        }
+
+    /**
+     * 通过 redis 租约合并跨节点的加载。
+     *
+     * 租约带随机令牌, 只释放自己持有的租约, 释放时发布通知唤醒其它节点的等待线程。
+     * 取得租约后先重查缓存, 等待期间持有者可能已写入; 仍未命中才执行方法并写入缓存。
+     * 等待超过租期仍未取得租约时不再等待, 直接执行。
+     *
+     * @param joinPoint AOP 连接点
+     * @param cacheKey 缓存 key
+     * @param javaType 返回值类型
+     * @param timeout 缓存过期秒数
+     * @param loadLease 租约秒数
+     * @return 方法执行结果或缓存值
+     */
+    private fun leaseLoad(
+        joinPoint: ProceedingJoinPoint,
+        cacheKey: String,
+        javaType: JavaType,
+        timeout: Long,
+        loadLease: Long,
+    ): Any? {
+        val leaseKey = "$cacheKey:load-lease"
+        val leaseMillis = TimeUnit.SECONDS.toMillis(loadLease)
+        val token = UUID.randomUUID().toString()
+        var acquired = redisLockSupport.acquireLease(leaseKey, token, leaseMillis, 0L)
+        if (!acquired) {
+            val start = System.nanoTime()
+            try {
+                acquired = redisLockSupport.acquireLease(leaseKey, token, leaseMillis, leaseMillis)
+            } catch (e: InterruptedException) {
+                logger.error(e.message, e)
+                Thread.currentThread().interrupt()
+            } finally {
+                RedisCacheMetrics.recordLeaseWait(System.nanoTime() - start)
+            }
+        }
+        try {
+            return getCachedValueByType(cacheKey, javaType)
+                ?: loadAndCache(joinPoint, cacheKey, timeout)
+        } finally {
+            if (acquired && !redisLockSupport.releaseLease(leaseKey, token)) {
+                logger.warn("Load lease $leaseKey expired before release.")
+            }
+        }
+    }
+
+    /**
+     * 执行方法并写入 redis 缓存。
+     *
+     * @param joinPoint AOP 连接点
+     * @param cacheKey 缓存 key
+     * @param timeout 缓存过期秒数
+     * @return 方法执行结果
+     */
+    private fun loadAndCache(
+        joinPoint: ProceedingJoinPoint,
+        cacheKey: String,
+        timeout: Long,
+    ): Any? {
+        val start = System.nanoTime()
+        val result = joinPoint.proceed()
+        loadMillis.put(cacheKey, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+        return result?.also {
+            RedisManager
+                .values
+                .set(
+                    cacheKey,
+                    it,
+                    timeout
+                )
         }
     }
 
     /**
      * 获取缓存中的值，并根据返回类型做类型转换。
      *
-     * 由子类实现，支持不同序列化方式。
+     * 编解码由当前的 RedisSerializer 决定, 子类可按序列化方式覆盖。
      *
      * @param cacheKey 缓存 key
      * @param javaType 返回值类型
      * @return 缓存中的值，若无则返回 null
      */
-    protected abstract fun getCachedValueByType(
+    protected open fun getCachedValueByType(
         cacheKey: String,
         javaType: JavaType,
-    ): Any?
+    ): Any? =
+        RedisManager
+            .values
+            .get<Any>(cacheKey, javaType)
 
     /**
-     * 生成实际的缓存 key。
+     * 获取缓存中的值及其剩余毫秒数, 用于判断是否需要刷新。
+     *
+     * 默认在一次往返内取回。
      *
-     * 支持 SpEL 表达式动态拼接参数，若无表达式则直接用模板 key。
+     * @param cacheKey 缓存 key
+     * @param javaType 返回值类型
+     * @return 缓存中的值(若无则为 null)与剩余毫秒数
+     */
+    protected open fun getCachedValueWithTtl(
+        cacheKey: String,
+        javaType: JavaType,
+    ): Pair<Any?, Long> =
+        valueWithTtl(cacheKey, javaType)
+
+    /**
+     * 生成实际的缓存 key。
      *
+     * @param plan 缓存 key 生成计划
      * @param arguments 方法实际参数
-     * @param paramsNames 方法参数名数组
-     * @param expressions 注解上的 SpEL 表达式数组
-     * @param cacheKey 缓存 key 模板
      * @return 最终缓存 key
+     * @throws ApiException 表达式解析失败时抛出
      */
     private fun cacheKey(
+        plan: CacheKeyPlan,
         arguments: Array<Any?>,
-        paramsNames: Array<String>,
-        expressions: Array<String>,
-        cacheKey: String,
-    ): String {
-        if (paramsNames.isEmpty() ||
-            expressions.isEmpty()
-        ) {
-            return RedisKeys.genKey(cacheKey)
+    ): String =
+        try {
+            plan.cacheKey(arguments)
+        } catch (e: EvaluationException) {
+            logger.error(e.message, e)
+            throw ApiException(e.message, cause = e)
         }
-        val paramMap =
-            paramsNames.foldIndexed<String, MutableMap<String, Any?>>(mutableMapOf()) { index, paramMap, paramName ->
-                paramMap[paramName] = arguments[index]
-                paramMap
-            }
-        val paramsValues =
-            expressions.foldIndexed<String, Array<Any?>>(
-                Array(expressions.size) {}
-            ) { index, paramsValues, expression ->
-                paramsValues.apply {
-                    this[index] = getValueFromParam(expression, paramMap)
-                }
-            }
-        return RedisKeys.genKey(cacheKey, *paramsValues)
-    }
 }
 
 /**
  * Jackson Redis 缓存切面实现。
  *
- * 支持字符串、数字、布尔、枚举、对象等多种类型的缓存序列化与反序列化。
+ * 支持字符串、数字、布尔、枚举、对象等多种类型的缓存序列化与反序列化, 直接按返回类型从缓存字节反序列化。
  *
  * @author tangli
  * @date 2023/09/28 19:55
  */
-internal class JacksonRedisCacheAspect : RedisCacheAspect() {
-    override fun getCachedValueByType(
-        cacheKey: String,
-        javaType: JavaType,
-    ): Any? =
-        RedisManager
-            .values
-            .get<String>(cacheKey)
-            ?.let { cachedValue ->
-                when {
-                    javaType.isStringLikeType() -> {
-                        cachedValue
-                    }
+internal class JacksonRedisCacheAspect : RedisCacheAspect()
 
-                    javaType.isNumberType() -> {
-                        cachedValue.toNum(javaType.rawClass())
-                    }
-
-                    javaType.isBooleanType() -> {
-                        cachedValue.toBooleanStrictOrNull()
-                    }
-
-                    javaType.isEnumImplType -> {
-                        javaType.rawClass.enumConstants.firstOrNull {
-                            cachedValue ==
-                                it.toString()
-                        }
-                    }
+/**
+ * Protostuff Redis 缓存切面实现。
+ *
+ * 缓存值反序列化后即为原类型, 数字类型按返回类型转换。
+ *
+ * @author tangli
+ * @date 2025/07/25 10:00
+ */
+internal class ProtostuffRedisCacheAspect : RedisCacheAspect()
 
-                    else -> {
-                        cachedValue.jsonToObj(javaType)
-                    }
-                }
-            }
+/**
+ * 进行中的加载, 记录加载线程以识别重入。
+ *
+ * @author tangli
+ * @date 2025/07/23 14:00
+ */
+private class InFlightLoad(
+    val owner: Thread,
+) {
+    val future = CompletableFuture<Any?>()
 }
+
+private const val LOAD_MILLIS_MAXIMUM_SIZE = 10_000L
@@ -0,0 +1,112 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.redis.cache
+
+import java.util.concurrent.atomic.LongAdder
+
+/**
+ * 注解缓存指标.
+ *
+ * 进程内累计值, 可自行注册到监控系统.
+ *
+ * @author tangli
+ * @date 2025/07/23 14:00
+ */
+public data object RedisCacheMetrics {
+    private val coalesced = LongAdder()
+    private val coalesceTimeouts = LongAdder()
+    private val leaseWaits = LongAdder()
+    private val leaseWaitNanos = LongAdder()
+    private val refreshes = LongAdder()
+    private val refreshRejects = LongAdder()
+
+    /**
+     * 缓存未命中时, 合并到进行中加载的调用次数.
+     */
+    @JvmStatic
+    public val coalescedCount: Long
+        get() = coalesced.sum()
+
+    /**
+     * 等待进行中加载超时, 转为自行执行方法的次数.
+     */
+    @JvmStatic
+    public val coalesceTimeoutCount: Long
+        get() = coalesceTimeouts.sum()
+
+    /**
+     * 因其他节点持有加载租约而等待的次数.
+     */
+    @JvmStatic
+    public val leaseWaitCount: Long
+        get() = leaseWaits.sum()
+
+    /**
+     * 等待加载租约的累计毫秒数.
+     */
+    @JvmStatic
+    public val leaseWaitMillis: Long
+        get() = leaseWaitNanos.sum() / 1_000_000
+
+    /**
+     * 后台刷新完成次数.
+     */
+    @JvmStatic
+    public val refreshCount: Long
+        get() = refreshes.sum()
+
+    /**
+     * 刷新线程池已满被丢弃的刷新次数.
+     */
+    @JvmStatic
+    public val refreshRejectedCount: Long
+        get() = refreshRejects.sum()
+
+    @JvmSynthetic
+    internal fun recordCoalesced() {
+        coalesced.increment()
+    }
+
+    @JvmSynthetic
+    internal fun recordCoalesceTimeout() {
+        coalesceTimeouts.increment()
+    }
+
+    @JvmSynthetic
+    internal fun recordLeaseWait(nanos: Long) {
+        leaseWaits.increment()
+        leaseWaitNanos.add(nanos)
+    }
+
+    @JvmSynthetic
+    internal fun recordRefresh() {
+        refreshes.increment()
+    }
+
+    @JvmSynthetic
+    internal fun recordRefreshRejected() {
+        refreshRejects.increment()
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.redis.cache
+
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import tony.core.utils.getLogger
+
+/**
+ * 注解缓存后台刷新.
+ *
+ * 有界线程池 + 有界队列, 同一 key 同时只有一个刷新任务, 队列满时直接丢弃, 由下次命中再尝试.
+ * 线程池在首次刷新时才创建, 未使用提前刷新/返回旧值的应用不会创建.
+ *
+ * @param [poolSize] 线程数
+ * @param [queueSize] 队列长度
+ * @author tangli
+ * @date 2025/07/24 10:00
+ */
+internal class RedisCacheRefresher(
+    poolSize: Int,
+    queueSize: Int,
+) : AutoCloseable {
+    private val logger = getLogger()
+
+    private val refreshingKeys: MutableSet<String> = ConcurrentHashMap.newKeySet()
+
+    private val threadNumber = AtomicInteger()
+
+    private val executorDelegate =
+        lazy {
+            ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                60L,
+                TimeUnit.SECONDS,
+                ArrayBlockingQueue(queueSize),
+                ThreadFactory { runnable ->
+                    Thread(runnable, "redis-cache-refresh-${threadNumber.incrementAndGet()}").apply {
+                        isDaemon = true
+                    }
+                }
+            ).apply {
+                allowCoreThreadTimeOut(true)
+            }
+        }
+
+    private val executor by executorDelegate
+
+    /**
+     * 提交刷新任务, 同一 key 已在刷新时忽略.
+     * @param [cacheKey] 缓存键
+     * @param [task] 刷新任务
+     */
+    fun refresh(
+        cacheKey: String,
+        task: () -> Unit,
+    ) {
+        if (!refreshingKeys.add(cacheKey)) {
+            return
+        }
+        try {
+            executor.execute {
+                try {
+                    task()
+                    RedisCacheMetrics.recordRefresh()
+                } catch (e: Throwable) {
+                    logger.warn("Refresh cache $cacheKey failed: ${e.message}", e)
+                } finally {
+                    refreshingKeys.remove(cacheKey)
+                }
+            }
+        } catch (_: RejectedExecutionException) {
+            refreshingKeys.remove(cacheKey)
+            RedisCacheMetrics.recordRefreshRejected()
+        }
+    }
+
+    override fun close() {
+        if (executorDelegate.isInitialized()) {
+            executor.shutdown()
+        }
+    }
+}
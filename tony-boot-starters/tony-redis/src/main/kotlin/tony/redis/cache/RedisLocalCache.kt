@@ -0,0 +1,149 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.redis.cache
+
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import com.github.benmanes.caffeine.cache.Expiry
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.TimeUnit
+import org.springframework.data.redis.connection.Message
+import org.springframework.data.redis.connection.MessageListener
+import org.springframework.data.redis.core.RedisCallback
+import tony.core.utils.getLogger
+import tony.redis.redisTemplate
+
+/**
+ * 注解缓存的本地(L1)缓存.
+ *
+ * 位于 Redis(L2) 之前, 缓存已反序列化的对象, 命中时不再访问 Redis, 也不再反序列化.
+ * 按条目数量淘汰, 每个条目的过期时间由 [tony.annotation.redis.RedisCacheable.localExpire] 决定.
+ *
+ * 任意节点删除缓存时, 通过 Redis 发布/订阅通知所有节点删除本地条目.
+ *
+ * 注意: 命中时返回的是同一个对象实例, 调用方不应修改返回值.
+ *
+ * @param [maximumSize] 最大条目数
+ * @param [channel] 失效通知频道
+ * @author tangli
+ * @date 2025/07/23 10:00
+ */
+internal class RedisLocalCache(
+    maximumSize: Long,
+    internal val channel: String,
+) : MessageListener {
+    private val logger = getLogger()
+
+    private val cache: Cache<String, LocalValue> =
+        Caffeine
+            .newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfter(LocalValueExpiry)
+            .build()
+
+    /**
+     * 获取本地缓存值.
+     * @param [cacheKey] 缓存键
+     * @return [Any]
+     */
+    fun get(cacheKey: String): Any? =
+        cache
+            .getIfPresent(cacheKey)
+            ?.value
+
+    /**
+     * 写入本地缓存.
+     * @param [cacheKey] 缓存键
+     * @param [value] 值
+     * @param [expire] 过期秒数, 小于等于0时不写入
+     */
+    fun put(
+        cacheKey: String,
+        value: Any,
+        expire: Long,
+    ) {
+        if (expire <= 0) {
+            return
+        }
+        cache.put(cacheKey, LocalValue(value, TimeUnit.SECONDS.toNanos(expire)))
+    }
+
+    /**
+     * 删除本节点条目, 并通知其他节点删除.
+     * @param [cacheKey] 缓存键
+     */
+    fun evict(cacheKey: String) {
+        cache.invalidate(cacheKey)
+        try {
+            redisTemplate.execute(
+                RedisCallback { connection ->
+                    connection.publish(
+                        channel.toByteArray(StandardCharsets.UTF_8),
+                        cacheKey.toByteArray(StandardCharsets.UTF_8)
+                    )
+                }
+            )
+        } catch (e: Exception) {
+            logger.warn("Publish local cache evict message of $cacheKey failed: ${e.message}", e)
+        }
+    }
+
+    override fun onMessage(
+        message: Message,
+        pattern: ByteArray?,
+    ) {
+        cache.invalidate(String(message.body, StandardCharsets.UTF_8))
+    }
+
+    private class LocalValue(
+        val value: Any,
+        val expireNanos: Long,
+    )
+
+    private object LocalValueExpiry : Expiry<String, LocalValue> {
+        override fun expireAfterCreate(
+            key: String,
+            value: LocalValue,
+            currentTime: Long,
+        ): Long =
+            value.expireNanos
+
+        override fun expireAfterUpdate(
+            key: String,
+            value: LocalValue,
+            currentTime: Long,
+            currentDuration: Long,
+        ): Long =
+            value.expireNanos
+
+        override fun expireAfterRead(
+            key: String,
+            value: LocalValue,
+            currentTime: Long,
+            currentDuration: Long,
+        ): Long =
+            currentDuration
+    }
+}
@@ -25,8 +25,11 @@
 package tony.redis.config
 
 import com.fasterxml.jackson.databind.ObjectMapper
+import java.time.Duration
 import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.ObjectProvider
 import org.springframework.boot.autoconfigure.AutoConfigureBefore
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty
 import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration
@@ -39,19 +42,29 @@ import org.springframework.context.annotation.Configuration
 import org.springframework.context.annotation.PropertySource
 import org.springframework.data.redis.connection.RedisConnectionFactory
 import org.springframework.data.redis.core.RedisTemplate
+import org.springframework.data.redis.listener.ChannelTopic
+import org.springframework.data.redis.listener.RedisMessageListenerContainer
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer
 import org.springframework.data.redis.serializer.RedisSerializer
 import org.springframework.data.redis.serializer.StringRedisSerializer
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder
+import org.springframework.util.unit.DataSize
 import tony.core.jackson.InjectableValueSupplier
 import tony.core.jackson.InjectableValuesBySupplier
 import tony.core.misc.YamlPropertySourceFactory
 import tony.core.utils.createObjectMapper
 import tony.redis.aspect.JacksonRedisCacheAspect
+import tony.redis.aspect.ProtostuffRedisCacheAspect
 import tony.redis.aspect.RedisCacheAspect
+import tony.redis.cache.RedisCacheRefresher
+import tony.redis.cache.RedisLocalCache
+import tony.redis.lock.RedisLockSupport
+import tony.redis.serializer.CompressionMode
+import tony.redis.serializer.ProtostuffSerializer
 import tony.redis.serializer.SerializerMode
 import tony.redis.service.RedisService
 import tony.redis.service.impl.JacksonRedisService
+import tony.redis.service.impl.ProtostuffRedisService
 
 /**
  * RedisCacheConfig
@@ -60,7 +73,13 @@ import tony.redis.service.impl.JacksonRedisService
  * @date 2023/05/25 19:31
  */
 @PropertySource("classpath:redis.config.yml", factory = YamlPropertySourceFactory::class)
-@EnableConfigurationProperties(RedisProperties::class)
+@EnableConfigurationProperties(
+    RedisProperties::class,
+    RedisLocalCacheProperties::class,
+    RedisCacheRefreshProperties::class,
+    RedisBinaryProperties::class,
+    RedisLockProperties::class
+)
 @AutoConfigureBefore(RedisAutoConfiguration::class)
 @Configuration(proxyBeanMethods = false)
 private class RedisConfig(
@@ -68,6 +87,43 @@ private class RedisConfig(
 ) {
     private val logger = LoggerFactory.getLogger(RedisConfig::class.java)
 
+    @ConditionalOnClass(name = [PROTOSTUFF_RUNTIME_SCHEMA])
+    @ConditionalOnMissingBean(RedisCacheAspect::class)
+    @ConditionalOnProperty(prefix = "redis", name = ["serializer-mode"], havingValue = "PROTOSTUFF")
+    @Bean
+    private fun protostuffRedisCacheAspect(): RedisCacheAspect {
+        logger.info("Annotation based redis cache with protostuff enabled")
+        return ProtostuffRedisCacheAspect()
+    }
+
+    @ConditionalOnClass(name = [PROTOSTUFF_RUNTIME_SCHEMA])
+    @ConditionalOnMissingBean(RedisSerializer::class)
+    @ConditionalOnProperty(prefix = "redis", name = ["serializer-mode"], havingValue = "PROTOSTUFF")
+    @Bean
+    private fun protostuffRedisSerializer(redisBinaryProperties: RedisBinaryProperties): RedisSerializer<Any?> {
+        logger.info(
+            "Redis serializer mode is ${SerializerMode.PROTOSTUFF}, " +
+                "compression ${redisBinaryProperties.compressionMode} " +
+                "threshold ${redisBinaryProperties.compressionThreshold}"
+        )
+        return ProtostuffSerializer(
+            redisBinaryProperties.compressionMode,
+            redisBinaryProperties.compressionThreshold,
+            redisBinaryProperties
+                .maxDecompressedSize
+                .toBytes()
+                .coerceIn(0, Int.MAX_VALUE.toLong())
+                .toInt()
+        )
+    }
+
+    @ConditionalOnClass(name = [PROTOSTUFF_RUNTIME_SCHEMA])
+    @ConditionalOnMissingBean(RedisService::class)
+    @ConditionalOnProperty(prefix = "redis", name = ["serializer-mode"], havingValue = "PROTOSTUFF")
+    @Bean
+    private fun protostuffRedisService(): RedisService =
+        ProtostuffRedisService()
+
     @ConditionalOnMissingBean(RedisCacheAspect::class)
     @ConditionalOnProperty(prefix = "redis", name = ["serializer-mode"], havingValue = "JACKSON", matchIfMissing = true)
     @Bean
@@ -76,6 +132,86 @@ private class RedisConfig(
         return JacksonRedisCacheAspect()
     }
 
+    @Bean
+    private fun redisCacheRefresher(redisCacheRefreshProperties: RedisCacheRefreshProperties): RedisCacheRefresher =
+        RedisCacheRefresher(redisCacheRefreshProperties.poolSize, redisCacheRefreshProperties.queueSize)
+
+    /**
+     * 本地缓存失效通知的监听容器, 解锁通知在首次等待时复用; 应用已定义监听容器时不创建.
+     */
+    @ConditionalOnMissingBean(RedisMessageListenerContainer::class)
+    @ConditionalOnProperty(prefix = "redis.local-cache", name = ["enabled"], havingValue = "true")
+    @Bean
+    private fun redisMessageListenerContainer(
+        redisConnectionFactory: RedisConnectionFactory,
+    ): RedisMessageListenerContainer =
+        RedisMessageListenerContainer().apply {
+            setConnectionFactory(redisConnectionFactory)
+        }
+
+    @ConditionalOnProperty(prefix = "redis.local-cache", name = ["enabled"], havingValue = "true")
+    @Bean
+    private fun redisLocalCache(
+        redisLocalCacheProperties: RedisLocalCacheProperties,
+        redisMessageListenerContainer: RedisMessageListenerContainer,
+    ): RedisLocalCache {
+        logger.info("Redis local cache enabled, maximum size ${redisLocalCacheProperties.maximumSize}")
+        val channel =
+            if (redisProperties.keyPrefix.isBlank()) {
+                redisLocalCacheProperties.channel
+            } else {
+                "${redisProperties.keyPrefix}:${redisLocalCacheProperties.channel}"
+            }
+        return RedisLocalCache(redisLocalCacheProperties.maximumSize, channel).also {
+            redisMessageListenerContainer.addMessageListener(it, ChannelTopic(it.channel))
+        }
+    }
+
+    @Bean
+    private fun redisLockSupport(
+        redisLockProperties: RedisLockProperties,
+        redisConnectionFactory: RedisConnectionFactory,
+        redisMessageListenerContainer: ObjectProvider<RedisMessageListenerContainer>,
+    ): RedisLockSupport {
+        val channel =
+            if (redisProperties.keyPrefix.isBlank()) {
+                redisLockProperties.channel
+            } else {
+                "${redisProperties.keyPrefix}:${redisLockProperties.channel}"
+            }
+        // 首次等待时才订阅, 订阅成功后由容器回调 onChannelSubscribed 标记, 不在此处假定已订阅
+        val subscriber: ((RedisLockSupport) -> AutoCloseable?)? =
+            if (redisLockProperties.subscribe) {
+                { support -> subscribeUnlock(support, redisConnectionFactory, redisMessageListenerContainer.ifUnique) }
+            } else {
+                null
+            }
+        return RedisLockSupport(channel, redisLockProperties.watchdogLease.toMillis(), subscriber)
+    }
+
+    /**
+     * 订阅解锁通知. 有唯一的监听容器时复用, 否则创建锁专用的监听容器, 随锁关闭.
+     */
+    private fun subscribeUnlock(
+        support: RedisLockSupport,
+        redisConnectionFactory: RedisConnectionFactory,
+        sharedContainer: RedisMessageListenerContainer?,
+    ): AutoCloseable? {
+        val topic = ChannelTopic(support.channel)
+        if (sharedContainer != null) {
+            sharedContainer.addMessageListener(support, topic)
+            return null
+        }
+        val container =
+            RedisMessageListenerContainer().apply {
+                setConnectionFactory(redisConnectionFactory)
+                addMessageListener(support, topic)
+                afterPropertiesSet()
+                start()
+            }
+        return AutoCloseable(container::destroy)
+    }
+
     @ConditionalOnMissingBean(Jackson2ObjectMapperBuilder::class)
     @ConditionalOnProperty(prefix = "redis", name = ["serializer-mode"], havingValue = "JACKSON", matchIfMissing = true)
     @Bean
@@ -114,8 +250,12 @@ private class RedisConfig(
 
     @ConditionalOnMissingBean(RedisService::class)
     @Bean
-    private fun jacksonRedisService(): RedisService =
-        JacksonRedisService()
+    private fun jacksonRedisService(objectMapper: ObjectMapper): RedisService {
+        if (redisProperties.rawJson) {
+            logger.info("Redis jackson values are written as raw json")
+        }
+        return JacksonRedisService(objectMapper, redisProperties.rawJson)
+    }
 
     @Bean("redisTemplate")
     private fun redisTemplate(
@@ -133,6 +273,8 @@ private class RedisConfig(
         }
 }
 
+private const val PROTOSTUFF_RUNTIME_SCHEMA = "io.protostuff.runtime.RuntimeSchema"
+
 /**
  * RedisCacheProperties
  *
@@ -148,4 +290,104 @@ private data class RedisProperties(
      */
     @DefaultValue("JACKSON")
     val serializerMode: SerializerMode,
+    /**
+     * JACKSON 模式下是否直接写入 JSON(不二次编码), 旧版本节点无法读取, 需全部节点升级后再开启
+     */
+    @DefaultValue("false")
+    val rawJson: Boolean,
+)
+
+/**
+ * Redis 注解缓存的本地(L1)缓存配置.
+ *
+ * @author tangli
+ * @date 2025/07/23 10:00
+ */
+@ConfigurationProperties(prefix = "redis.local-cache")
+private data class RedisLocalCacheProperties(
+    /**
+     * 是否启用
+     */
+    @DefaultValue("false")
+    val enabled: Boolean,
+    /**
+     * 最大条目数
+     */
+    @DefaultValue("10000")
+    val maximumSize: Long,
+    /**
+     * 失效通知频道, 会拼接 redis.key-prefix
+     */
+    @DefaultValue("local-cache:evict")
+    val channel: String,
+)
+
+/**
+ * Redis 注解缓存后台刷新配置.
+ *
+ * @author tangli
+ * @date 2025/07/24 10:00
+ */
+@ConfigurationProperties(prefix = "redis.cache-refresh")
+private data class RedisCacheRefreshProperties(
+    /**
+     * 刷新线程数
+     */
+    @DefaultValue("2")
+    val poolSize: Int,
+    /**
+     * 刷新队列长度, 满时丢弃
+     */
+    @DefaultValue("256")
+    val queueSize: Int,
+)
+
+/**
+ * Redis 二进制序列化配置.
+ *
+ * @author tangli
+ * @date 2025/07/25 10:00
+ */
+@ConfigurationProperties(prefix = "redis.binary")
+private data class RedisBinaryProperties(
+    /**
+     * 压缩方式
+     */
+    @DefaultValue("NONE")
+    val compressionMode: CompressionMode,
+    /**
+     * 压缩阈值, 序列化结果不小于该字节数时压缩
+     */
+    @DefaultValue("4096")
+    val compressionThreshold: Int,
+    /**
+     * 解压后最大长度, 头部记录的原始长度超过该值时拒绝解压
+     */
+    @DefaultValue("64MB")
+    val maxDecompressedSize: DataSize,
+)
+
+/**
+ * Redis 分布式锁配置.
+ *
+ * @author tangli
+ * @date 2025/07/27 10:00
+ */
+@ConfigurationProperties(prefix = "redis.lock")
+private data class RedisLockProperties(
+    /**
+     * 是否订阅解锁通知, 关闭时等待线程定时重试
+     */
+    @DefaultValue("true")
+    val subscribe: Boolean,
+    /**
+     * 解锁通知频道, 会拼接 redis.key-prefix
+     */
+    @DefaultValue("lock:unlock")
+    val channel: String,
+    /**
+     * 看门狗租期, 每 1/3 租期续期一次
+     */
+    @DefaultValue("30s")
+    val watchdogLease: Duration,
 )
@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.redis.lock
+
+import java.util.concurrent.TimeUnit
+import tony.core.exception.ApiException
+import tony.redis.redisTemplate
+
+/**
+ * Redis 可重入分布式锁.
+ *
+ * 通过 [tony.redis.RedisManager.getLock] 获取, 同一线程可重入, 解锁次数需与加锁次数一致.
+ *
+ * - 未指定租期时由看门狗自动续期, 适合执行时间不确定的长任务; 指定租期时到期自动释放, 不续期.
+ * - 等待中的线程由解锁通知唤醒, 不轮询.
+ * - 每次加锁(非重入)生成单调递增的 [fencingToken], 下游写入时可携带并拒绝更小的令牌, 防止锁过期后的旧持有者写入.
+ *
+ * ## 注: 集群模式下锁名与防护令牌计数器需落在同一 slot, 锁名中含 hash tag 时按其 hash tag 路由.
+ *
+ * @param [name] 锁名, 即 redis key
+ * @author tangli
+ * @date 2025/07/27 10:00
+ */
+public class RedisLock internal constructor(
+    public val name: String,
+    private val support: RedisLockSupport,
+) {
+    /**
+     * 尝试加锁, 不等待, 由看门狗续期.
+     * @return 是否加锁成功
+     */
+    public fun tryLock(): Boolean =
+        support.acquire(name, 0L, -1L)
+
+    /**
+     * 尝试加锁.
+     * @param [waitTime] 最长等待时间
+     * @param [leaseTime] 租期, 小于等于 0 时由看门狗续期
+     * @param [timeUnit] 时间单位, 默认毫秒
+     * @return 是否加锁成功
+     */
+    @Throws(InterruptedException::class)
+    @JvmOverloads
+    public fun tryLock(
+        waitTime: Long,
+        leaseTime: Long = -1L,
+        timeUnit: TimeUnit = TimeUnit.MILLISECONDS,
+    ): Boolean =
+        support.acquire(name, timeUnit.toMillis(waitTime), timeUnit.toMillis(leaseTime))
+
+    /**
+     * 加锁, 一直等待直到成功.
+     * @param [leaseTime] 租期, 小于等于 0 时由看门狗续期
+     * @param [timeUnit] 时间单位, 默认毫秒
+     */
+    @Throws(InterruptedException::class)
+    @JvmOverloads
+    public fun lock(
+        leaseTime: Long = -1L,
+        timeUnit: TimeUnit = TimeUnit.MILLISECONDS,
+    ) {
+        support.acquire(name, -1L, timeUnit.toMillis(leaseTime))
+    }
+
+    /**
+     * 解锁, 重入时只减少一次计数.
+     *
+     * 当前线程未持有或锁已过期时抛出 [ApiException].
+     */
+    public fun unlock() {
+        support.release(name)
+    }
+
+    /**
+     * 加锁后执行 [block], 结束后解锁.
+     * @param [waitTime] 最长等待时间
+     * @param [leaseTime] 租期, 小于等于 0 时由看门狗续期
+     * @param [timeUnit] 时间单位, 默认毫秒
+     * @param [block] 加锁成功后执行
+     * @return [block] 返回值
+     * @throws ApiException 等待超时
+     */
+    @Throws(InterruptedException::class)
+    @JvmOverloads
+    public fun <T> withLock(
+        waitTime: Long,
+        leaseTime: Long = -1L,
+        timeUnit: TimeUnit = TimeUnit.MILLISECONDS,
+        block: () -> T,
+    ): T {
+        if (!tryLock(waitTime, leaseTime, timeUnit)) {
+            throw ApiException("Acquire lock $name timeout.")
+        }
+        try {
+            return block()
+        } finally {
+            unlock()
+        }
+    }
+
+    /**
+     * 是否被任意持有者锁定.
+     */
+    public val isLocked: Boolean
+        get() = redisTemplate.hasKey(name)
+
+    /**
+     * 当前线程是否持有.
+     */
+    public val isHeldByCurrentThread: Boolean
+        get() = support.holdCount(name) > 0
+
+    /**
+     * 当前线程的重入次数, 未持有时为 0.
+     */
+    public val holdCount: Int
+        get() = support.holdCount(name)
+
+    /**
+     * 当前线程持有的防护令牌, 未持有时抛出 [ApiException].
+     */
+    public val fencingToken: Long
+        get() = support.fencingToken(name)
+}
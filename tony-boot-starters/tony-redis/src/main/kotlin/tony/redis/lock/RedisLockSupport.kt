@@ -0,0 +1,406 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.redis.lock
+
+import java.nio.charset.StandardCharsets
+import java.util.UUID
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.ScheduledThreadPoolExecutor
+import java.util.concurrent.Semaphore
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import org.springframework.data.redis.connection.Message
+import org.springframework.data.redis.connection.MessageListener
+import org.springframework.data.redis.connection.SubscriptionListener
+import org.springframework.data.redis.core.script.RedisScript
+import org.springframework.data.redis.serializer.RedisSerializer
+import org.springframework.data.redis.serializer.StringRedisSerializer
+import tony.core.exception.ApiException
+import tony.core.utils.asToNotNull
+import tony.core.utils.getLogger
+import tony.redis.leaseAcquireScript
+import tony.redis.leaseReleaseScript
+import tony.redis.lockAcquireScript
+import tony.redis.lockReleaseScript
+import tony.redis.lockRenewScript
+import tony.redis.redisTemplate
+
+/**
+ * Redis 可重入锁支持.
+ *
+ * - 持有者为 `实例ID:线程ID`, 锁为 hash 结构, 字段为持有者及其重入次数, 另存本次加锁的防护令牌.
+ * - 加锁、解锁、续期均为 Lua 脚本, 解锁只删除自己持有的锁.
+ * - 防护令牌由独立计数器自增生成, 单调递增, 不随锁过期.
+ * - 未指定租期时由看门狗每 1/3 租期续期一次, 直到完全释放.
+ * - 完全释放时在 [channel] 上发布锁名, 本节点的等待线程被唤醒后立即重试, 不再轮询.
+ * - 首次需要等待时才订阅解锁通知, 不使用锁的应用不占用订阅连接.
+ * - 以监听容器确认订阅成功为准, 订阅建立前(或断开后)等待线程退回短轮询.
+ * - 另提供按令牌持有的不可重入租约, 无防护令牌计数器, 供缓存加载等按 key 大量创建的场景使用, 释放时同样发布通知.
+ *
+ * @param [channel] 解锁通知频道
+ * @param [watchdogLeaseMillis] 看门狗租期(毫秒)
+ * @param [subscriber] 订阅解锁通知, 首次等待时调用, 返回关闭时需要释放的资源; 为 null 时不订阅
+ * @author tangli
+ * @date 2025/07/27 10:00
+ */
+internal class RedisLockSupport(
+    internal val channel: String,
+    internal val watchdogLeaseMillis: Long,
+    private val subscriber: ((RedisLockSupport) -> AutoCloseable?)? = null,
+) : MessageListener,
+    SubscriptionListener,
+    AutoCloseable {
+    private val logger = getLogger()
+
+    private val instanceId = UUID.randomUUID().toString()
+
+    private val holds = ConcurrentHashMap<HoldKey, Hold>()
+
+    private val waiters = ConcurrentHashMap<String, Waiter>()
+
+    /**
+     * 是否已订阅解锁通知, 由订阅回调维护, 未订阅时等待线程每 [UNSUBSCRIBED_WAIT_MILLIS] 毫秒重试一次.
+     */
+    @Volatile
+    internal var subscribed: Boolean = false
+        private set
+
+    private val subscribeRequested = AtomicBoolean()
+
+    @Volatile
+    private var subscription: AutoCloseable? = null
+
+    private val channelBytes = channel.toByteArray(StandardCharsets.UTF_8)
+
+    private val watchdog =
+        ScheduledThreadPoolExecutor(1) { runnable ->
+            Thread(runnable, "redis-lock-watchdog").apply {
+                isDaemon = true
+            }
+        }.apply {
+            removeOnCancelPolicy = true
+        }
+
+    /**
+     * 加锁.
+     * @param [name] 锁名
+     * @param [waitMillis] 最长等待毫秒数, 小于 0 时一直等待
+     * @param [leaseMillis] 租期毫秒数, 小于等于 0 时使用看门狗续期
+     * @return 是否加锁成功
+     */
+    @Throws(InterruptedException::class)
+    fun acquire(
+        name: String,
+        waitMillis: Long,
+        leaseMillis: Long,
+    ): Boolean =
+        await(name, waitMillis) {
+            tryAcquire(name, leaseMillis)
+        }
+
+    /**
+     * 获取租约.
+     * @param [name] 租约名
+     * @param [token] 持有令牌, 释放时校验
+     * @param [leaseMillis] 租期毫秒数
+     * @param [waitMillis] 最长等待毫秒数, 小于 0 时一直等待
+     * @return 是否取得租约
+     */
+    @Throws(InterruptedException::class)
+    fun acquireLease(
+        name: String,
+        token: String,
+        leaseMillis: Long,
+        waitMillis: Long,
+    ): Boolean =
+        await(name, waitMillis) {
+            execute(leaseAcquireScript, listOf(name), token, leaseMillis)
+        }
+
+    /**
+     * 释放租约, 只删除令牌一致的租约.
+     * @param [name] 租约名
+     * @param [token] 持有令牌
+     * @return 是否释放, 租约已过期或被他人持有时返回 false
+     */
+    fun releaseLease(
+        name: String,
+        token: String,
+    ): Boolean =
+        execute(leaseReleaseScript, listOf(name), token, channel) == 1L
+
+    /**
+     * 尝试 [attempt] 直到成功或超时, 失败时等待解锁通知.
+     * @param [attempt] 成功返回正数, 否则返回剩余毫秒数的相反数, 未知时返回 0
+     */
+    @Throws(InterruptedException::class)
+    private inline fun await(
+        name: String,
+        waitMillis: Long,
+        attempt: () -> Long,
+    ): Boolean {
+        if (attempt() > 0) {
+            return true
+        }
+        if (waitMillis == 0L) {
+            return false
+        }
+        val deadline =
+            if (waitMillis < 0) {
+                Long.MAX_VALUE
+            } else {
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis)
+            }
+        ensureSubscription()
+        val waiter = subscribe(name)
+        try {
+            while (true) {
+                val result = attempt()
+                if (result > 0) {
+                    return true
+                }
+                val remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())
+                if (remaining <= 0) {
+                    return false
+                }
+                val maxWait = if (subscribed && result < 0) -result else UNSUBSCRIBED_WAIT_MILLIS
+                waiter.semaphore.tryAcquire(minOf(remaining, maxWait), TimeUnit.MILLISECONDS)
+            }
+        } finally {
+            unsubscribe(name)
+        }
+    }
+
+    /**
+     * 尝试加锁一次.
+     * @return 加锁成功返回防护令牌, 否则返回锁剩余毫秒数的相反数
+     */
+    private fun tryAcquire(
+        name: String,
+        leaseMillis: Long,
+    ): Long =
+        execute(lockAcquireScript, listOf(name, fenceKey(name)), owner(), lease(leaseMillis))
+            .also { fence ->
+                if (fence > 0) {
+                    onAcquired(name, fence, leaseMillis)
+                }
+            }
+
+    /**
+     * 解锁, 重入时只减少一次计数.
+     * @param [name] 锁名
+     */
+    fun release(name: String) {
+        val holdKey = HoldKey(name, owner())
+        val hold = holds[holdKey] ?: throw ApiException("Lock $name is not held by current thread.")
+        when (execute(lockReleaseScript, listOf(name), owner(), hold.leaseMillis, channel)) {
+            0L -> {
+                hold.count--
+            }
+
+            1L -> {
+                removeHold(holdKey)
+            }
+
+            else -> {
+                removeHold(holdKey)
+                throw ApiException("Lock $name is not held by current thread, it may have expired.")
+            }
+        }
+    }
+
+    /**
+     * 当前线程持有的重入次数.
+     * @param [name] 锁名
+     */
+    fun holdCount(name: String): Int =
+        holds[HoldKey(name, owner())]?.count ?: 0
+
+    /**
+     * 当前线程持有的防护令牌.
+     * @param [name] 锁名
+     */
+    fun fencingToken(name: String): Long =
+        holds[HoldKey(name, owner())]?.fence ?: throw ApiException("Lock $name is not held by current thread.")
+
+    override fun onMessage(
+        message: Message,
+        pattern: ByteArray?,
+    ) {
+        waiters[String(message.body, StandardCharsets.UTF_8)]?.semaphore?.release()
+    }
+
+    override fun onChannelSubscribed(
+        channel: ByteArray,
+        count: Long,
+    ) {
+        if (channel.contentEquals(channelBytes)) {
+            subscribed = true
+        }
+    }
+
+    override fun onChannelUnsubscribed(
+        channel: ByteArray,
+        count: Long,
+    ) {
+        if (channel.contentEquals(channelBytes)) {
+            subscribed = false
+        }
+    }
+
+    override fun close() {
+        watchdog.shutdownNow()
+        subscription?.close()
+    }
+
+    /**
+     * 订阅解锁通知, 只订阅一次, 失败时下次等待再试.
+     */
+    @JvmSynthetic
+    internal fun ensureSubscription() {
+        if (subscriber == null || subscribeRequested.get() || !subscribeRequested.compareAndSet(false, true)) {
+            return
+        }
+        try {
+            subscription = subscriber.invoke(this)
+        } catch (e: RuntimeException) {
+            subscribeRequested.set(false)
+            logger.warn("Subscribe lock channel $channel failed, waiters fall back to polling", e)
+        }
+    }
+
+    private fun onAcquired(
+        name: String,
+        fence: Long,
+        leaseMillis: Long,
+    ) {
+        val holdKey = HoldKey(name, owner())
+        val hold =
+            holds
+                .compute(holdKey) { _, old ->
+                    if (old != null && old.fence == fence) {
+                        old.apply { count++ }
+                    } else {
+                        old?.renewal?.cancel(false)
+                        Hold(fence, lease(leaseMillis))
+                    }
+                }!!
+        if (leaseMillis <= 0 && hold.renewal == null) {
+            val period = hold.leaseMillis / 3
+            hold.renewal =
+                watchdog.scheduleAtFixedRate(
+                    { renew(holdKey, hold) },
+                    period,
+                    period,
+                    TimeUnit.MILLISECONDS
+                )
+        }
+    }
+
+    private fun renew(
+        holdKey: HoldKey,
+        hold: Hold,
+    ) {
+        try {
+            if (execute(lockRenewScript, listOf(holdKey.name), holdKey.owner, hold.leaseMillis) != 1L) {
+                logger.warn("Lock ${holdKey.name} is no longer held by ${holdKey.owner}, stop renewal.")
+                holds.remove(holdKey, hold)
+                hold.renewal?.cancel(false)
+            }
+        } catch (e: Exception) {
+            logger.warn("Renew lock ${holdKey.name} failed: ${e.message}", e)
+        }
+    }
+
+    private fun removeHold(holdKey: HoldKey) {
+        holds.remove(holdKey)?.renewal?.cancel(false)
+    }
+
+    private fun subscribe(name: String): Waiter =
+        waiters
+            .compute(name) { _, waiter ->
+                (waiter ?: Waiter()).apply { count++ }
+            }!!
+
+    private fun unsubscribe(name: String) {
+        waiters.computeIfPresent(name) { _, waiter ->
+            waiter.count--
+            if (waiter.count == 0) null else waiter
+        }
+    }
+
+    private fun owner(): String =
+        "$instanceId:${Thread.currentThread().threadId()}"
+
+    private fun lease(leaseMillis: Long): Long =
+        if (leaseMillis > 0) leaseMillis else watchdogLeaseMillis
+
+    private fun execute(
+        script: RedisScript<Long>,
+        keys: List<String>,
+        vararg args: Any,
+    ): Long =
+        redisTemplate.execute(
+            script,
+            StringRedisSerializer.UTF_8,
+            StringRedisSerializer.UTF_8.asToNotNull<RedisSerializer<Long>>(),
+            keys,
+            *args.map { it.toString() }.toTypedArray()
+        ) ?: 0L
+
+    private data class HoldKey(
+        val name: String,
+        val owner: String,
+    )
+
+    /**
+     * 本线程持有信息, 只由持有线程修改 [count].
+     */
+    private class Hold(
+        val fence: Long,
+        val leaseMillis: Long,
+    ) {
+        @Volatile
+        var count: Int = 1
+
+        @Volatile
+        var renewal: ScheduledFuture<*>? = null
+    }
+
+    private class Waiter {
+        val semaphore = Semaphore(0)
+
+        var count: Int = 0
+    }
+}
+
+/**
+ * 防护令牌计数器键, 与锁落在同一个 slot.
+ */
+private fun fenceKey(name: String): String =
+    if (name.contains('{')) "$name:fence" else "{$name}:fence"
+
+private const val UNSUBSCRIBED_WAIT_MILLIS = 100L
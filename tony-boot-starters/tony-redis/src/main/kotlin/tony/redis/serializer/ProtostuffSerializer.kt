@@ -0,0 +1,245 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.redis.serializer
+
+import com.github.luben.zstd.Zstd
+import io.protostuff.LinkedBuffer
+import io.protostuff.ProtostuffIOUtil
+import io.protostuff.Schema
+import io.protostuff.runtime.RuntimeSchema
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.ArrayBlockingQueue
+import net.jpountz.lz4.LZ4Factory
+import org.springframework.data.redis.serializer.RedisSerializer
+import org.springframework.data.redis.serializer.SerializationException
+import tony.core.utils.isNumberTypes
+import tony.core.utils.isStringLikeType
+
+/**
+ * Protostuff redis 序列化.
+ *
+ * 码流格式: `[版本 1字节][压缩方式 1字节][压缩时原始长度 4字节][protostuff 数据]`.
+ *
+ * - 数字与字符串直接按 UTF-8 写入, 不带头部, 保证 INCR 等命令与 lua 脚本可用. 读取时无头部的数据按字符串返回.
+ * - 对象包装为 [ProtoWrapper] 后序列化, 运行时类型由 protostuff 写入, schema 由 [RuntimeSchema] 缓存.
+ * - 序列化结果不小于 [compressionThreshold] 时按 [compressionMode] 压缩.
+ * - 解压按头部记录的原始长度分配缓冲区, 使用带边界检查的解压器, 长度不符或数据损坏时抛出 [SerializationException].
+ *   原始长度超过 [maxDecompressedSize] 时在分配前拒绝, 避免损坏或恶意的头部造成超大分配.
+ *
+ * @param [compressionMode] 压缩方式
+ * @param [compressionThreshold] 压缩阈值, 字节
+ * @param [maxDecompressedSize] 解压后最大长度, 字节
+ * @author tangli
+ * @date 2025/07/25 10:00
+ */
+internal class ProtostuffSerializer(
+    private val compressionMode: CompressionMode = CompressionMode.NONE,
+    private val compressionThreshold: Int = Int.MAX_VALUE,
+    private val maxDecompressedSize: Int = DEFAULT_MAX_DECOMPRESSED_SIZE,
+) : RedisSerializer<Any?> {
+    @Throws(SerializationException::class)
+    override fun serialize(value: Any?): ByteArray {
+        if (value == null) {
+            return emptyByteArray
+        }
+        val type = value::class.java
+        if (type.isNumberTypes() ||
+            (type.isStringLikeType() && !value.toString().startsWith(FORMAT_VERSION.toInt().toChar()))
+        ) {
+            return value
+                .toString()
+                .toByteArray(StandardCharsets.UTF_8)
+        }
+        val buffer = linkedBuffers.poll() ?: LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE)
+        val payload =
+            try {
+                ProtostuffIOUtil.toByteArray(ProtoWrapper(value), schema, buffer)
+            } catch (e: RuntimeException) {
+                throw SerializationException("Could not serialize ${type.name}", e)
+            } finally {
+                linkedBuffers.offer(buffer.clear())
+            }
+        if (compressionMode == CompressionMode.NONE || payload.size < compressionThreshold) {
+            return ByteArray(HEADER_SIZE + payload.size).also {
+                it[0] = FORMAT_VERSION
+                it[1] = CompressionMode.NONE.ordinal.toByte()
+                payload.copyInto(it, HEADER_SIZE)
+            }
+        }
+        val compressed = compress(payload)
+        return ByteArray(COMPRESSED_HEADER_SIZE + compressed.size).also {
+            it[0] = FORMAT_VERSION
+            it[1] = compressionMode.ordinal.toByte()
+            writeInt(it, HEADER_SIZE, payload.size)
+            compressed.copyInto(it, COMPRESSED_HEADER_SIZE)
+        }
+    }
+
+    @Throws(SerializationException::class)
+    override fun deserialize(bytes: ByteArray?): Any? {
+        if (bytes == null || bytes.isEmpty()) {
+            return null
+        }
+        if (bytes[0] != FORMAT_VERSION || bytes.size < HEADER_SIZE) {
+            return String(bytes, StandardCharsets.UTF_8)
+        }
+        val mode =
+            CompressionMode.entries.getOrNull(bytes[1].toInt())
+                ?: throw SerializationException("Unknown compression mode ${bytes[1]}")
+        val message = schema.newMessage()
+        try {
+            if (mode == CompressionMode.NONE) {
+                ProtostuffIOUtil.mergeFrom(bytes, HEADER_SIZE, bytes.size - HEADER_SIZE, message, schema)
+            } else {
+                if (bytes.size < COMPRESSED_HEADER_SIZE) {
+                    throw SerializationException("Truncated compressed payload")
+                }
+                val length = readInt(bytes, HEADER_SIZE)
+                if (length < 0 || length > maxDecompressedSize) {
+                    throw SerializationException(
+                        "Invalid decompressed length $length, maximum is $maxDecompressedSize"
+                    )
+                }
+                val payload = decompress(mode, bytes, length)
+                ProtostuffIOUtil.mergeFrom(payload, message, schema)
+            }
+        } catch (e: SerializationException) {
+            throw e
+        } catch (e: RuntimeException) {
+            throw SerializationException("Could not deserialize", e)
+        }
+        return message.data
+    }
+
+    private fun compress(payload: ByteArray): ByteArray =
+        when (compressionMode) {
+            CompressionMode.LZ4 -> Lz4Codec.compress(payload)
+            CompressionMode.ZSTD -> ZstdCodec.compress(payload)
+            CompressionMode.NONE -> payload
+        }
+
+    private fun decompress(
+        mode: CompressionMode,
+        bytes: ByteArray,
+        length: Int,
+    ): ByteArray =
+        when (mode) {
+            CompressionMode.LZ4 -> Lz4Codec.decompress(bytes, COMPRESSED_HEADER_SIZE, length)
+            CompressionMode.ZSTD -> ZstdCodec.decompress(bytes, COMPRESSED_HEADER_SIZE, length)
+            CompressionMode.NONE -> bytes
+        }
+
+    /**
+     * 对象包装, 使 protostuff 写入运行时类型.
+     */
+    private class ProtoWrapper(
+        @JvmField
+        var data: Any? = null,
+    )
+
+    private object Lz4Codec {
+        private val factory = LZ4Factory.fastestInstance()
+
+        fun compress(payload: ByteArray): ByteArray =
+            factory
+                .fastCompressor()
+                .compress(payload)
+
+        fun decompress(
+            bytes: ByteArray,
+            offset: Int,
+            length: Int,
+        ): ByteArray =
+            ByteArray(length).also {
+                val size =
+                    factory
+                        .safeDecompressor()
+                        .decompress(bytes, offset, bytes.size - offset, it, 0, length)
+                if (size != length) {
+                    throw SerializationException("Decompressed $size bytes, expected $length")
+                }
+            }
+    }
+
+    private object ZstdCodec {
+        fun compress(payload: ByteArray): ByteArray =
+            Zstd.compress(payload)
+
+        fun decompress(
+            bytes: ByteArray,
+            offset: Int,
+            length: Int,
+        ): ByteArray =
+            ByteArray(length).also {
+                val size = Zstd.decompressByteArray(it, 0, length, bytes, offset, bytes.size - offset)
+                if (Zstd.isError(size) || size != length.toLong()) {
+                    throw SerializationException("Decompressed $size bytes, expected $length")
+                }
+            }
+    }
+
+    internal companion object {
+        /**
+         * 默认解压后最大长度, 64MB.
+         */
+        internal const val DEFAULT_MAX_DECOMPRESSED_SIZE: Int = 64 * 1024 * 1024
+
+        /**
+         * 码流格式版本, 不可打印字符, 与直接写入的数字/字符串区分.
+         */
+        private const val FORMAT_VERSION: Byte = 1
+
+        private const val HEADER_SIZE = 2
+
+        private const val COMPRESSED_HEADER_SIZE = HEADER_SIZE + Int.SIZE_BYTES
+
+        private val emptyByteArray = ByteArray(0)
+
+        private val schema: Schema<ProtoWrapper> = RuntimeSchema.getSchema(ProtoWrapper::class.java)
+
+        /**
+         * 共享缓冲池, 不使用 ThreadLocal: 虚拟线程每个请求一个线程, ThreadLocal 缓冲区无法复用.
+         */
+        private val linkedBuffers = ArrayBlockingQueue<LinkedBuffer>(Runtime.getRuntime().availableProcessors() * 2)
+
+        private fun writeInt(
+            bytes: ByteArray,
+            offset: Int,
+            value: Int,
+        ) {
+            for (index in 0 until Int.SIZE_BYTES) {
+                bytes[offset + index] = (value ushr (24 - index * 8)).toByte()
+            }
+        }
+
+        private fun readInt(
+            bytes: ByteArray,
+            offset: Int,
+        ): Int =
+            (0 until Int.SIZE_BYTES).fold(0) { value, index ->
+                (value shl 8) or (bytes[offset + index].toInt() and 0xFF)
+            }
+    }
+}
@@ -36,3 +36,17 @@ public enum class SerializerMode {
     JACKSON,
     PROTOSTUFF,
 }
+
+/**
+ * redis 二进制序列化压缩方式
+ *
+ * LZ4 需要 lz4-java 依赖, ZSTD 需要 zstd-jni 依赖.
+ *
+ * @author tangli
+ * @date 2025/07/25 10:00
+ */
+public enum class CompressionMode {
+    NONE,
+    LZ4,
+    ZSTD,
+}
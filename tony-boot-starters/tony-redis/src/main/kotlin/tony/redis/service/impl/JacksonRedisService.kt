@@ -24,78 +24,350 @@
 
 package tony.redis.service.impl
 
+import com.fasterxml.jackson.core.type.TypeReference
+import com.fasterxml.jackson.databind.JavaType
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.ObjectReader
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
 import tony.core.enums.EnumValue
 import tony.core.enums.IntEnumCreator
 import tony.core.enums.IntEnumValue
 import tony.core.enums.StringEnumCreator
 import tony.core.enums.StringEnumValue
 import tony.core.utils.asTo
+import tony.core.utils.asToNotNull
 import tony.core.utils.isNumberTypes
 import tony.core.utils.isStringLikeType
 import tony.core.utils.isTypesOrSubTypesOf
-import tony.core.utils.jsonToObj
-import tony.core.utils.toJsonString
+import tony.core.utils.rawClass
+import tony.core.utils.toJavaType
 import tony.core.utils.trimQuotes
+import tony.redis.rawValueOp
 import tony.redis.serializer.SerializerMode
 import tony.redis.service.RedisService
 import tony.redis.toNum
+import tony.redis.toTemplateBytes
 
-internal class JacksonRedisService : RedisService {
+/**
+ * Jackson RedisService.
+ *
+ * 值(value)操作走原始字节, 读取时按类型缓存的 [ObjectReader] 直接从字节反序列化, 不经过中间字符串.
+ * 写入格式由 [rawJson] 决定:
+ * - 关闭(默认): 与早期版本一致, 对象先转为 JSON 字符串再由 redisTemplate 编码(二次编码), 新旧节点可混合部署.
+ * - 开启: value、map、list 操作均直接写入 JSON, 不再二次编码. 旧版本节点无法读取, 需全部节点升级后再开启.
+ *
+ * 两种格式均可读取: 目标为对象/集合类型而缓存值是 JSON 字符串时按二次编码值解出; 目标为 [Any] 时按 JSON 原样返回, 不做猜测.
+ *
+ * @param [objectMapper] 序列化使用的 [ObjectMapper], 与 redisTemplate 的序列化器一致
+ * @param [rawJson] 是否直接写入 JSON
+ * @author tangli
+ * @date 2023/09/13 19:44
+ */
+internal class JacksonRedisService(
+    private val objectMapper: ObjectMapper,
+    internal val rawJson: Boolean = false,
+) : RedisService {
     override val serializerMode: SerializerMode = SerializerMode.JACKSON
 
+    private val objectReaders = ConcurrentHashMap<JavaType, ObjectReader>()
+
+    private val stringType: JavaType = objectMapper.constructType(String::class.java)
+
+    override fun <T : Any> set(
+        key: String,
+        value: T,
+        timeout: Long,
+        timeUnit: TimeUnit,
+    ): Unit =
+        if (timeout == 0L) {
+            rawValueOp.set(key, value.toJsonBytes())
+        } else {
+            rawValueOp.set(key, value.toJsonBytes(), timeout, timeUnit)
+        }
+
+    override fun <T : Any> setIfAbsent(
+        key: String,
+        value: T,
+        timeout: Long,
+        timeUnit: TimeUnit,
+    ): Boolean? =
+        if (timeout == 0L) {
+            rawValueOp.setIfAbsent(key, value.toJsonBytes())
+        } else {
+            rawValueOp.setIfAbsent(key, value.toJsonBytes(), timeout, timeUnit)
+        }
+
+    override fun <T : Any> setIfPresent(
+        key: String,
+        value: T,
+        timeout: Long,
+        timeUnit: TimeUnit,
+    ): Boolean? =
+        if (timeout == 0L) {
+            rawValueOp.setIfPresent(key, value.toJsonBytes())
+        } else {
+            rawValueOp.setIfPresent(key, value.toJsonBytes(), timeout, timeUnit)
+        }
+
+    override fun <T : Any> getAndSet(
+        key: String,
+        value: T,
+        type: Class<T>,
+    ): T? =
+        rawValueOp
+            .getAndSet(key, value.toJsonBytes())
+            .readJson(type.toJavaType())
+
+    override fun <T : Any> getAndSet(
+        key: String,
+        value: T,
+        type: JavaType,
+    ): T? =
+        rawValueOp
+            .getAndSet(key, value.toJsonBytes())
+            .readJson(type)
+
+    override fun <T : Any> getAndSet(
+        key: String,
+        value: T,
+        type: TypeReference<T>,
+    ): T? =
+        rawValueOp
+            .getAndSet(key, value.toJsonBytes())
+            .readJson(type.type.toJavaType())
+
+    override fun <T : Any> getAndExpire(
+        key: String,
+        type: Class<T>,
+        timeout: Long,
+        timeUnit: TimeUnit,
+    ): T? =
+        rawValueOp
+            .getAndExpire(key, timeout, timeUnit)
+            .readJson(type.toJavaType())
+
+    override fun <T : Any> getAndExpire(
+        key: String,
+        type: JavaType,
+        timeout: Long,
+        timeUnit: TimeUnit,
+    ): T? =
+        rawValueOp
+            .getAndExpire(key, timeout, timeUnit)
+            .readJson(type)
+
+    override fun <T : Any> getAndExpire(
+        key: String,
+        type: TypeReference<T>,
+        timeout: Long,
+        timeUnit: TimeUnit,
+    ): T? =
+        rawValueOp
+            .getAndExpire(key, timeout, timeUnit)
+            .readJson(type.type.toJavaType())
+
+    override fun <T : Any> get(
+        key: String,
+        type: Class<T>,
+    ): T? =
+        rawValueOp
+            .get(key)
+            .readJson(type.toJavaType())
+
+    override fun <T : Any> get(
+        key: String,
+        type: JavaType,
+    ): T? =
+        rawValueOp
+            .get(key)
+            .readJson(type)
+
+    override fun <T : Any> get(
+        key: String,
+        type: TypeReference<T>,
+    ): T? =
+        rawValueOp
+            .get(key)
+            .readJson(type.type.toJavaType())
+
+    override fun <T> multiGet(
+        keys: Collection<String>,
+        type: Class<T>,
+    ): List<T> =
+        multiGetJson(keys, type.toJavaType())
+
+    override fun <T> multiGet(
+        keys: Collection<String>,
+        type: JavaType,
+    ): List<T> =
+        multiGetJson(keys, type)
+
+    override fun <T> multiGet(
+        keys: Collection<String>,
+        type: TypeReference<T>,
+    ): List<T> =
+        multiGetJson(keys, type.type.toJavaType())
+
+    private fun <T> multiGetJson(
+        keys: Collection<String>,
+        type: JavaType,
+    ): List<T> =
+        rawValueOp
+            .multiGet(keys)
+            ?.map { it.readJson<Any>(type) }
+            .asTo<List<T>>()
+            ?: listOf()
+
+    /**
+     * 按写入格式序列化为 UTF-8 JSON 字节.
+     */
+    @JvmSynthetic
+    internal fun Any.toJsonBytes(): ByteArray =
+        if (rawJson) {
+            objectMapper.writeValueAsBytes(this)
+        } else {
+            toTemplateBytes()
+        }
+
+    /**
+     * 按类型缓存的 [ObjectReader].
+     */
+    private fun objectReader(type: JavaType): ObjectReader =
+        objectReaders.computeIfAbsent(type) {
+            objectMapper.readerFor(it)
+        }
+
+    /**
+     * 从 UTF-8 JSON 字节反序列化.
+     *
+     * 数字、枚举兼容带引号与不带引号两种写法; 目标不是 [Any] 且以 `"{` 或 `"[` 开头的是二次编码的值, 先解出字符串再反序列化.
+     */
+    @JvmSynthetic
+    internal fun <T> ByteArray?.readJson(type: JavaType): T? {
+        if (this == null || isEmpty()) {
+            return null
+        }
+        val rawClass = type.rawClass<Any>()
+        return when {
+            rawClass.isNumberTypes() -> {
+                String(this, Charsets.UTF_8)
+                    .trimQuotes()
+                    .toNum(rawClass.asToNotNull<Class<Number>>())
+            }
+
+            rawClass.isStringLikeType() -> {
+                if (this[0] == QUOTE) {
+                    objectReader(stringType).readValue<String>(this)
+                } else {
+                    String(this, Charsets.UTF_8)
+                }
+            }
+
+            rawClass.isTypesOrSubTypesOf(StringEnumValue::class.java) -> {
+                StringEnumCreator
+                    .getCreator(rawClass)
+                    .create(String(this, Charsets.UTF_8).trimQuotes())
+            }
+
+            rawClass.isTypesOrSubTypesOf(IntEnumValue::class.java) -> {
+                IntEnumCreator
+                    .getCreator(rawClass)
+                    .create(
+                        String(this, Charsets.UTF_8)
+                            .trimQuotes()
+                            .toInt()
+                    )
+            }
+
+            rawClass != Any::class.java &&
+                size > 1 &&
+                this[0] == QUOTE &&
+                (this[1] == OBJECT_START || this[1] == ARRAY_START) -> {
+                objectReader(type).readValue<Any>(objectReader(stringType).readValue<String>(this))
+            }
+
+            else -> {
+                objectReader(type).readValue<Any>(this)
+            }
+        }.asTo()
+    }
+
     override fun Any.inputTransformTo(): Any =
-        if (this::class.java
+        if (rawJson ||
+            this::class.java
                 .isNumberTypes() ||
             this::class.java.isStringLikeType()
         ) {
             this
         } else {
-            this
-                .toJsonString()
+            objectMapper
+                .writeValueAsString(this)
                 .trimQuotes()
         }
 
     override fun <T : Any> Any?.outputTransformTo(type: Class<T>): T? =
-        jsonToObjWithTypeClass(type)
+        outputTransformTo(objectMapper.constructType(type))
 
-    private fun <T : Any> Any?.jsonToObjWithTypeClass(type: Class<T>): T? =
-        when {
+    override fun <T : Any> Any?.outputTransformTo(type: TypeReference<T>): T? =
+        outputTransformTo(objectMapper.constructType(type))
+
+    override fun <T : Any> Any?.outputTransformTo(type: JavaType): T? {
+        val rawClass = type.rawClass<Any>()
+        return when {
             this == null -> {
                 null
             }
 
-            type.isNumberTypes() -> {
-                toNum(type)
+            // list 逐个转换, 兼容二次编码的元素
+            this is List<*> && type.isCollectionLikeType && rawClass.isAssignableFrom(List::class.java) -> {
+                map { it.outputTransformTo<Any>(type.contentType) }
+            }
+
+            rawClass.isNumberTypes() -> {
+                toNum(rawClass.asToNotNull<Class<Number>>())
             }
 
-            type.isStringLikeType() -> {
+            rawClass.isStringLikeType() -> {
                 toString().trimQuotes()
             }
 
-            type == EnumValue::class.java && this is EnumValue<*> -> {
+            rawClass == EnumValue::class.java && this is EnumValue<*> -> {
                 this
             }
 
-            type.isTypesOrSubTypesOf(StringEnumValue::class.java) -> {
+            rawClass.isTypesOrSubTypesOf(StringEnumValue::class.java) -> {
                 StringEnumCreator
-                    .getCreator(type)
+                    .getCreator(rawClass)
                     .create(toString().trimQuotes())
             }
 
-            type.isTypesOrSubTypesOf(IntEnumValue::class.java) -> {
+            rawClass.isTypesOrSubTypesOf(IntEnumValue::class.java) -> {
                 IntEnumCreator
-                    .getCreator(type)
-                    .create(toString().toInt())
+                    .getCreator(rawClass)
+                    .create(toString().trimQuotes().toInt())
             }
 
-            this.isTypesOrSubTypesOf(type) -> {
+            // 直接写入的 JSON 由 redisTemplate 读出为 Map/List
+            this is Map<*, *> || this is Collection<*> -> {
+                if (!type.hasGenericTypes() && this.isTypesOrSubTypesOf(rawClass)) {
+                    this
+                } else {
+                    objectMapper.convertValue(this, type)
+                }
+            }
+
+            this.isTypesOrSubTypesOf(rawClass) -> {
                 this
             }
 
             else -> {
-                toString()
-                    .trimQuotes()
-                    .jsonToObj(type)
+                objectMapper.readValue(toString().trimQuotes(), type)
             }
         }.asTo()
+    }
 }
+
+private const val QUOTE = '"'.code.toByte()
+private const val OBJECT_START = '{'.code.toByte()
+private const val ARRAY_START = '['.code.toByte()
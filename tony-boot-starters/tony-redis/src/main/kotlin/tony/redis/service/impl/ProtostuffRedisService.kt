@@ -27,6 +27,14 @@ package tony.redis.service.impl
 import tony.redis.serializer.SerializerMode
 import tony.redis.service.RedisService
 
+/**
+ * Protostuff RedisService.
+ *
+ * 对象由 [tony.redis.serializer.ProtostuffSerializer] 直接序列化, 读取时已是原类型, 数字按字符串存储, 读取时转换.
+ *
+ * @author tangli
+ * @date 2025/07/25 10:00
+ */
 internal class ProtostuffRedisService : RedisService {
     override val serializerMode: SerializerMode = SerializerMode.PROTOSTUFF
 }
@@ -0,0 +1,10 @@
+-- KEYS[1] 租约; ARGV[1] 令牌, ARGV[2] 租期毫秒
+-- 取得租约返回 1, 否则返回租约剩余毫秒数的相反数
+if redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then
+    return 1
+end
+local ttl = redis.call('pttl', KEYS[1])
+if ttl < 0 then
+    return 0
+end
+return -ttl
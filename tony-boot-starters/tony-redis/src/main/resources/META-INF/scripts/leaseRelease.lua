@@ -0,0 +1,8 @@
+-- KEYS[1] 租约; ARGV[1] 令牌, ARGV[2] 释放通知频道
+-- 令牌一致时删除并通知返回 1, 否则返回 0
+if redis.call('get', KEYS[1]) == ARGV[1] then
+    redis.call('del', KEYS[1])
+    redis.call('publish', ARGV[2], KEYS[1])
+    return 1
+end
+return 0
@@ -0,0 +1,19 @@
+-- KEYS[1] 锁, KEYS[2] 防护令牌计数器; ARGV[1] 持有者, ARGV[2] 租期毫秒
+-- 加锁成功返回防护令牌(大于 0), 否则返回锁剩余毫秒数的相反数
+if redis.call('exists', KEYS[1]) == 0 then
+    local fence = redis.call('incr', KEYS[2])
+    redis.call('hset', KEYS[1], ARGV[1], 1)
+    redis.call('hset', KEYS[1], 'fence', fence)
+    redis.call('pexpire', KEYS[1], ARGV[2])
+    return fence
+end
+if redis.call('hexists', KEYS[1], ARGV[1]) == 1 then
+    redis.call('hincrby', KEYS[1], ARGV[1], 1)
+    redis.call('pexpire', KEYS[1], ARGV[2])
+    return tonumber(redis.call('hget', KEYS[1], 'fence'))
+end
+local ttl = redis.call('pttl', KEYS[1])
+if ttl < 0 then
+    return 0
+end
+return -ttl
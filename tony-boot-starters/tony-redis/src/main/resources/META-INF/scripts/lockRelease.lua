@@ -0,0 +1,12 @@
+-- KEYS[1] 锁; ARGV[1] 持有者, ARGV[2] 租期毫秒, ARGV[3] 解锁通知频道
+-- 非持有者返回 -1, 重入计数减一返回 0, 完全释放返回 1
+if redis.call('hexists', KEYS[1], ARGV[1]) == 0 then
+    return -1
+end
+if redis.call('hincrby', KEYS[1], ARGV[1], -1) > 0 then
+    redis.call('pexpire', KEYS[1], ARGV[2])
+    return 0
+end
+redis.call('del', KEYS[1])
+redis.call('publish', ARGV[3], KEYS[1])
+return 1
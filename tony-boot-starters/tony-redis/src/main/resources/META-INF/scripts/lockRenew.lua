@@ -0,0 +1,6 @@
+-- KEYS[1] 锁; ARGV[1] 持有者, ARGV[2] 租期毫秒
+if redis.call('hexists', KEYS[1], ARGV[1]) == 1 then
+    redis.call('pexpire', KEYS[1], ARGV[2])
+    return 1
+end
+return 0
@@ -0,0 +1,60 @@
+package tony.test.redis
+
+import java.util.concurrent.TimeUnit
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import tony.redis.ReactiveRedisManager
+import tony.redis.RedisManager
+
+/**
+ * ReactiveRedisManager 测试
+ *
+ * @author tony
+ * @date 2025/07/29 10:00
+ */
+@DisplayName("ReactiveRedisManager 响应式操作测试")
+class ReactiveRedisManagerTests : BaseRedisTest() {
+
+    @Test
+    @DisplayName("value 读写与同步 API 互通")
+    fun testValues() {
+        val key = generateTestKey("reactive-value")
+        val user = mapOf("name" to "tony", "age" to 18)
+        assertEquals(true, ReactiveRedisManager.values.set(key, user, 10).block())
+        assertEquals(user, RedisManager.values.get<Map<String, Any>>(key))
+        assertEquals(user, ReactiveRedisManager.values.get<Map<String, Any>>(key).block())
+        assertTrue(ReactiveRedisManager.getExpire(key).block()!! in 1..10)
+
+        val numberKey = generateTestKey("reactive-number")
+        RedisManager.values.set(numberKey, 1)
+        assertEquals(3L, ReactiveRedisManager.values.increment(numberKey, 2).block())
+        assertEquals(3, ReactiveRedisManager.values.get(numberKey, Int::class.java).block())
+
+        val missing = generateTestKey("reactive-missing")
+        assertNull(ReactiveRedisManager.values.get<String>(missing).block())
+        assertEquals(
+            listOf(3, null),
+            ReactiveRedisManager.values.multiGet(listOf(numberKey, missing), Int::class.java).block()
+        )
+    }
+
+    @Test
+    @DisplayName("hash 与 list 操作")
+    fun testMapsAndLists() {
+        val mapKey = generateTestKey("reactive-map")
+        ReactiveRedisManager.maps.putAll(mapKey, mapOf("a" to 1, "b" to "text"), 10, TimeUnit.SECONDS).block()
+        assertEquals(1, RedisManager.maps.get<Int>(mapKey, "a"))
+        assertEquals("text", ReactiveRedisManager.maps.get<String>(mapKey, "b").block())
+        assertEquals(3L, ReactiveRedisManager.maps.increment(mapKey, "a", 2).block())
+
+        val listKey = generateTestKey("reactive-list")
+        ReactiveRedisManager.lists.rightPushAll(listKey, listOf("x", "y", "z")).block()
+        assertEquals(3L, RedisManager.lists.size(listKey))
+        assertEquals(listOf("x", "y", "z"), ReactiveRedisManager.lists.range(listKey, 0, -1, String::class.java).collectList().block())
+        assertEquals("x", ReactiveRedisManager.lists.leftPop<String>(listKey).block())
+        assertEquals(1L, ReactiveRedisManager.delete(listKey).block())
+    }
+}
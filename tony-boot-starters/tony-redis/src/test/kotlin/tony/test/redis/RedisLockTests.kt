@@ -0,0 +1,152 @@
+package tony.test.redis
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.springframework.beans.factory.annotation.Autowired
+import tony.core.exception.ApiException
+import tony.redis.RedisManager
+import tony.redis.lock.RedisLockSupport
+
+/**
+ * RedisLock 测试
+ *
+ * @author tony
+ * @date 2025/07/27 10:00
+ */
+@DisplayName("RedisLock 可重入分布式锁测试")
+class RedisLockTests : BaseRedisTest() {
+
+    @Autowired
+    private lateinit var redisLockSupport: RedisLockSupport
+
+    @Test
+    @DisplayName("订阅回调后才标记已订阅")
+    fun testSubscribedByCallback() {
+        redisLockSupport.ensureSubscription()
+        val deadline = System.currentTimeMillis() + 5000
+        while (!redisLockSupport.subscribed && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50)
+        }
+        assertTrue(redisLockSupport.subscribed)
+        redisLockSupport.onChannelUnsubscribed(redisLockSupport.channel.toByteArray(), 0)
+        assertFalse(redisLockSupport.subscribed)
+        redisLockSupport.onChannelSubscribed("other".toByteArray(), 1)
+        assertFalse(redisLockSupport.subscribed)
+        redisLockSupport.onChannelSubscribed(redisLockSupport.channel.toByteArray(), 1)
+        assertTrue(redisLockSupport.subscribed)
+    }
+
+    @Test
+    @DisplayName("首次等待时才订阅, 且只订阅一次")
+    fun testSubscribeOnFirstWait() {
+        var subscribeCount = 0
+        RedisLockSupport("lock-subscribe-test", 30_000) {
+            subscribeCount++
+            null
+        }.use { support ->
+            val name = generateTestKey("lease-subscribe")
+            assertTrue(support.acquireLease(name, "a", 10_000, 0))
+            assertEquals(0, subscribeCount)
+            assertFalse(support.acquireLease(name, "b", 10_000, 50))
+            assertFalse(support.acquireLease(name, "b", 10_000, 50))
+            assertEquals(1, subscribeCount)
+            assertTrue(support.releaseLease(name, "a"))
+        }
+    }
+
+    @Test
+    @DisplayName("可重入与防护令牌")
+    fun testReentrantAndFencingToken() {
+        val lock = RedisManager.getLock(generateTestKey("lock-reentrant"))
+        assertTrue(lock.tryLock())
+        val token = lock.fencingToken
+        assertTrue(lock.tryLock())
+        assertEquals(2, lock.holdCount)
+        assertEquals(token, lock.fencingToken)
+
+        lock.unlock()
+        assertTrue(lock.isLocked)
+        lock.unlock()
+        assertFalse(lock.isLocked)
+        assertFalse(lock.isHeldByCurrentThread)
+
+        assertTrue(lock.tryLock())
+        assertTrue(lock.fencingToken > token)
+        lock.unlock()
+    }
+
+    @Test
+    @DisplayName("其它线程不能解锁, 也不能加锁")
+    fun testOtherThread() {
+        val lock = RedisManager.getLock(generateTestKey("lock-owner"))
+        assertTrue(lock.tryLock())
+        var acquired = true
+        var unlockError: Throwable? = null
+        Thread {
+            acquired = lock.tryLock()
+            unlockError = runCatching { lock.unlock() }.exceptionOrNull()
+        }.apply {
+            start()
+            join()
+        }
+        assertFalse(acquired)
+        assertTrue(unlockError is ApiException)
+        lock.unlock()
+        assertThrows(ApiException::class.java) { lock.unlock() }
+    }
+
+    @Test
+    @DisplayName("解锁通知唤醒等待线程")
+    fun testWaiterNotified() {
+        val lock = RedisManager.getLock(generateTestKey("lock-notify"))
+        assertTrue(lock.tryLock(0, 30, TimeUnit.SECONDS))
+        val waiting = CountDownLatch(1)
+        val waitedMillis = AtomicLong(-1)
+        val waiter =
+            Thread {
+                waiting.countDown()
+                val start = System.currentTimeMillis()
+                if (lock.tryLock(10, 0, TimeUnit.SECONDS)) {
+                    waitedMillis.set(System.currentTimeMillis() - start)
+                    lock.unlock()
+                }
+            }.apply { start() }
+        waiting.await()
+        Thread.sleep(300)
+        lock.unlock()
+        waiter.join()
+        // 锁租期 30 秒, 只能是被解锁通知唤醒
+        assertTrue(waitedMillis.get() in 0..5000)
+    }
+
+    @Test
+    @DisplayName("看门狗续期")
+    fun testWatchdogRenewal() {
+        val name = generateTestKey("lock-watchdog")
+        val lock = RedisManager.getLock(name)
+        assertTrue(lock.tryLock())
+        Thread.sleep(1500)
+        assertTrue(RedisManager.getExpire(name, TimeUnit.MILLISECONDS) > 0)
+        lock.unlock()
+        assertFalse(RedisManager.hasKey(name))
+    }
+
+    @Test
+    @DisplayName("租约只能由令牌一致的持有者释放")
+    fun testLeaseOwnership() {
+        val name = generateTestKey("lease-owner")
+        assertTrue(redisLockSupport.acquireLease(name, "a", 5000, 0))
+        assertFalse(redisLockSupport.acquireLease(name, "b", 5000, 0))
+        assertFalse(redisLockSupport.releaseLease(name, "b"))
+        assertTrue(RedisManager.hasKey(name))
+        assertTrue(redisLockSupport.releaseLease(name, "a"))
+        assertFalse(RedisManager.hasKey(name))
+    }
+}
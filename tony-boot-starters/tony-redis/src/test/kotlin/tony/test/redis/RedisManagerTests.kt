@@ -1,5 +1,6 @@
 package tony.test.redis
 
+import java.util.concurrent.CompletableFuture
 import org.junit.jupiter.api.Assertions.assertEquals
 import org.junit.jupiter.api.Assertions.assertFalse
 import org.junit.jupiter.api.Assertions.assertThrows
@@ -8,6 +9,7 @@ import org.junit.jupiter.api.DisplayName
 import org.junit.jupiter.api.Nested
 import org.junit.jupiter.api.Test
 import org.junit.jupiter.api.assertNull
+import tony.redis.KeyScanIterator
 import tony.redis.RedisManager
 import tony.redis.RedisManager.toRedisScript
 
@@ -167,6 +169,40 @@ class RedisManagerTests : BaseRedisTest() {
                 RedisManager.deleteByKeyPatterns("")
             }
         }
+
+        @Test
+        @DisplayName("scan 游标遍历")
+        fun testScan() {
+            val prefix = generateTestKey("scan")
+            (0 until 50).forEach { RedisManager.values.set("$prefix:$it", it) }
+            val keys = RedisManager.scan("$prefix:*", 10).use { it.toList() }.toSet()
+            assertEquals((0 until 50).map { "$prefix:$it" }.toSet(), keys)
+        }
+
+        @Test
+        @DisplayName("scan 游标不调用 hasNext 直接 next")
+        fun testScanNextWithoutHasNext() {
+            val prefix = generateTestKey("scan-next")
+            (0 until 25).forEach { RedisManager.values.set("$prefix:$it", it) }
+            KeyScanIterator("$prefix:*", 10).use { iterator ->
+                val keys = (0 until 25).map { iterator.next() }.toSet()
+                assertEquals((0 until 25).map { "$prefix:$it" }.toSet(), keys)
+                assertThrows(NoSuchElementException::class.java) { iterator.next() }
+            }
+        }
+
+        @Test
+        @DisplayName("unlinkByKeyPattern 分批限速删除")
+        fun testUnlinkByKeyPattern() {
+            val prefix = generateTestKey("unlink")
+            (0 until 30).forEach { RedisManager.values.set("$prefix:$it", it) }
+            val start = System.currentTimeMillis()
+            val delCount = RedisManager.unlinkByKeyPattern("$prefix:*", batchSize = 10, count = 10, maxKeysPerSecond = 50)
+            assertEquals(30, delCount)
+            // 每批 10 个, 每秒 50 个, 三批至少间隔 400 毫秒
+            assertTrue(System.currentTimeMillis() - start >= 400)
+            assertTrue(RedisManager.keys("$prefix:*").isEmpty())
+        }
     }
 
     @Nested
@@ -244,4 +280,97 @@ class RedisManagerTests : BaseRedisTest() {
             assertEquals(-1, RedisManager.getExpire(key)) // 未设置过期
         }
     }
+
+    @Nested
+    @DisplayName("管道批量操作")
+    inner class PipelineTests {
+        @Test
+        @DisplayName("pipeline 批量写入带过期时间并读取")
+        fun testPipelineSetAndGet() {
+            val keys = (0 until 25).map { generateTestKey("pipeline-set-$it") }
+            val results = RedisManager.pipeline(chunkSize = 10) {
+                keys.forEachIndexed { index, key ->
+                    set(key, index, 10)
+                }
+            }
+            assertEquals(25, results.size)
+            assertTrue(results.all { it == true })
+            keys.forEachIndexed { index, key ->
+                assertEquals(index, RedisManager.values.get<Int>(key))
+                assertTrue(RedisManager.getExpire(key) in 1..10)
+            }
+
+            val futures = mutableListOf<CompletableFuture<Int?>>()
+            RedisManager.pipeline(chunkSize = 7) {
+                keys.forEach { futures.add(get<Int>(it)) }
+            }
+            assertEquals((0 until 25).toList(), futures.map { it.join() })
+        }
+
+        @Test
+        @DisplayName("pipeline 计数器、哈希与列表")
+        fun testPipelineCounters() {
+            val counterKey = generateTestKey("pipeline-counter")
+            val hashKey = generateTestKey("pipeline-hash")
+            val listKey = generateTestKey("pipeline-list")
+            var counter: CompletableFuture<Long>? = null
+            RedisManager.pipeline {
+                repeat(5) {
+                    counter = increment(counterKey)
+                    hashIncrement(hashKey, "user-$it", 2)
+                    leftPush(listKey, "v$it")
+                }
+                expire(counterKey, 10)
+            }
+            assertEquals(5L, counter?.join())
+            assertEquals(2L, RedisManager.maps.get<Long>(hashKey, "user-3"))
+            assertEquals(5L, RedisManager.lists.size(listKey))
+            assertTrue(RedisManager.getExpire(counterKey) in 1..10)
+        }
+
+        @Test
+        @DisplayName("pipeline 命令失败只影响所在分段")
+        fun testPipelineCommandFailure() {
+            val key = generateTestKey("pipeline-fail")
+            val ok = generateTestKey("pipeline-ok")
+            RedisManager.values.set(key, "text")
+            var failed: CompletableFuture<Long>? = null
+            var sameChunk: CompletableFuture<Boolean>? = null
+            var nextChunk: CompletableFuture<Boolean>? = null
+            val results = RedisManager.pipeline(chunkSize = 2) {
+                failed = increment(key)
+                sameChunk = set(generateTestKey("pipeline-same"), "v")
+                nextChunk = set(ok, "v")
+            }
+            assertEquals(3, results.size)
+            assertTrue(results[0] is Throwable)
+            assertTrue(results[1] is Throwable)
+            assertTrue(failed?.isCompletedExceptionally == true)
+            assertTrue(sameChunk?.isCompletedExceptionally == true)
+            assertEquals(true, results[2])
+            assertEquals(true, nextChunk?.join())
+            assertEquals("v", RedisManager.values.get<String>(ok))
+        }
+
+        @Test
+        @DisplayName("pipeline 执行异常时剩余 future 均异常完成")
+        fun testPipelineExecutionFailure() {
+            val futures = mutableListOf<CompletableFuture<*>>()
+            assertThrows(Exception::class.java) {
+                RedisManager.pipeline(chunkSize = 1) {
+                    futures.add(set(generateTestKey("pipeline-before"), "v"))
+                    futures.add(set(generateTestKey("pipeline-bad"), UnserializableValue()))
+                    futures.add(set(generateTestKey("pipeline-after"), "v"))
+                }
+            }
+            assertEquals(true, futures[0].join())
+            assertTrue(futures[1].isCompletedExceptionally)
+            assertTrue(futures[2].isCompletedExceptionally)
+        }
+    }
+
+    class UnserializableValue {
+        val value: String
+            get() = throw IllegalStateException("unserializable")
+    }
 }
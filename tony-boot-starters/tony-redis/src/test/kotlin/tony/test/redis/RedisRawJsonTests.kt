@@ -0,0 +1,111 @@
+package tony.test.redis
+
+import com.fasterxml.jackson.core.type.TypeReference
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Nested
+import org.junit.jupiter.api.Test
+import org.springframework.beans.factory.annotation.Autowired
+import tony.redis.RedisManager
+import tony.redis.service.impl.JacksonRedisService
+import tony.test.redis.util.SimpleObj
+import tony.test.redis.util.TestIntEnum
+
+/**
+ * Jackson 直接写入 JSON 与旧格式兼容测试
+ *
+ * @author tony
+ * @date 2025/07/28 10:00
+ */
+@DisplayName("Jackson raw-json 兼容测试")
+class RedisRawJsonTests : BaseRedisTest() {
+
+    @Autowired
+    private lateinit var objectMapper: ObjectMapper
+
+    private lateinit var legacy: JacksonRedisService
+
+    private lateinit var raw: JacksonRedisService
+
+    @BeforeEach
+    fun initServices() {
+        legacy = JacksonRedisService(objectMapper)
+        raw = JacksonRedisService(objectMapper, true)
+    }
+
+    @Nested
+    @DisplayName("value 操作")
+    inner class ValueOperations {
+        @Test
+        @DisplayName("默认沿用二次编码格式")
+        fun testLegacyFormat() {
+            val key = generateTestKey("raw-json-legacy")
+            legacy.set(key, SimpleObj("tony", 18))
+            assertTrue(legacy.get(key, String::class.java)!!.startsWith("{"))
+            assertTrue(RedisManager.values.get<Any>(key) is String)
+            assertEquals(SimpleObj("tony", 18), raw.get(key, SimpleObj::class.java))
+        }
+
+        @Test
+        @DisplayName("开启后直接写入 JSON, 旧格式读取端可读")
+        fun testRawFormat() {
+            val key = generateTestKey("raw-json-value")
+            raw.set(key, SimpleObj("tony", 18))
+            assertEquals(mapOf("name" to "tony", "age" to 18), raw.get(key, Any::class.java))
+            assertEquals(SimpleObj("tony", 18), legacy.get(key, SimpleObj::class.java))
+            raw.set(key, TestIntEnum.ACTIVE)
+            assertEquals(TestIntEnum.ACTIVE, legacy.get(key, TestIntEnum::class.java))
+        }
+
+        @Test
+        @DisplayName("以 { 开头的字符串按 Any 读取时原样返回")
+        fun testBraceString() {
+            val key = generateTestKey("raw-json-brace")
+            legacy.set(key, "{not json")
+            assertEquals("{not json", legacy.get(key, Any::class.java))
+            raw.set(key, "[not json")
+            assertEquals("[not json", raw.get(key, Any::class.java))
+        }
+    }
+
+    @Nested
+    @DisplayName("map/list 操作")
+    inner class HashAndListOperations {
+        @Test
+        @DisplayName("开启后 map 值直接写入 JSON, 两种读取端均可读")
+        fun testRawHash() {
+            val key = generateTestKey("raw-json-hash")
+            val objs = listOf(SimpleObj("a", 1), SimpleObj("b", 2))
+            raw.put(key, "obj", SimpleObj("tony", 18))
+            raw.put(key, "list", objs)
+            assertTrue(RedisManager.maps.get(key, "obj", Any::class.java) is Map<*, *>)
+            assertEquals(SimpleObj("tony", 18), raw.get(key, "obj", SimpleObj::class.java))
+            assertEquals(SimpleObj("tony", 18), legacy.get(key, "obj", SimpleObj::class.java))
+            assertEquals(objs, raw.get(key, "list", object : TypeReference<List<SimpleObj>>() {}))
+        }
+
+        @Test
+        @DisplayName("旧格式 map 值可按泛型类型读取")
+        fun testLegacyHash() {
+            val key = generateTestKey("raw-json-legacy-hash")
+            val objs = listOf(SimpleObj("a", 1), SimpleObj("b", 2))
+            legacy.put(key, "list", objs)
+            assertTrue(RedisManager.maps.get(key, "list", Any::class.java) is String)
+            assertEquals(objs, raw.get(key, "list", object : TypeReference<List<SimpleObj>>() {}))
+        }
+
+        @Test
+        @DisplayName("开启后 list 元素直接写入 JSON")
+        fun testRawList() {
+            val key = generateTestKey("raw-json-list")
+            raw.rightPush(key, SimpleObj("a", 1))
+            legacy.rightPush(key, SimpleObj("b", 2))
+            assertEquals(SimpleObj("a", 1), raw.index(key, 0, SimpleObj::class.java))
+            assertEquals(SimpleObj("b", 2), raw.index(key, 1, SimpleObj::class.java))
+            assertEquals(SimpleObj("a", 1), legacy.index(key, 0, SimpleObj::class.java))
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package tony.test.redis.aspect
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import tony.redis.aspect.CacheKeyPlan
+
+/**
+ * CacheKeyPlan 缓存 key 生成测试
+ *
+ * 结果需与原 SpEL + String.format 实现一致
+ *
+ * @author tony
+ * @date 2025/07/24 15:00
+ */
+@DisplayName("CacheKeyPlan 缓存 key 生成测试")
+class CacheKeyPlanTests {
+    data class User(val id: Long, val name: String, val active: Boolean)
+    data class Order(val id: Long, val user: User?, val items: List<String>)
+
+    private val order = Order(1001L, User(99L, "张三", true), listOf("apple", "banana"))
+
+    @Test
+    @DisplayName("参数名与简单属性路径")
+    fun testSimplePath() {
+        val plan = CacheKeyPlan("", "order:%s:%s:%s", arrayOf("order.user.id", "order.user.name", "key"), arrayOf("order", "key"))
+        assertEquals("order:99:张三:k", plan.cacheKey(arrayOf(order, "k")))
+    }
+
+    @Test
+    @DisplayName("复杂表达式与前缀")
+    fun testComplexExpression() {
+        val plan = CacheKeyPlan("app", "order:%s:%s", arrayOf("order.items[0]", "order.user.active"), arrayOf("order"))
+        assertEquals("app:order:apple:true", plan.cacheKey(arrayOf(order)))
+    }
+
+    @Test
+    @DisplayName("无表达式、空值与格式符")
+    fun testTemplate() {
+        assertEquals("100%:fixed", CacheKeyPlan("", "100%%:fixed", emptyArray(), arrayOf("key")).cacheKey(arrayOf("k")))
+        assertEquals("key:null", CacheKeyPlan("", "key:%s", arrayOf("key"), arrayOf("key")).cacheKey(arrayOf(null)))
+        assertEquals("num:007", CacheKeyPlan("", "num:%03d", arrayOf("num"), arrayOf("num")).cacheKey(arrayOf(7)))
+    }
+}
@@ -1,5 +1,7 @@
 package tony.test.redis.aspect
 
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.context.annotation.Lazy
 import org.springframework.stereotype.Service
 import tony.annotation.redis.RedisCacheEvict
 import tony.annotation.redis.RedisCacheable
@@ -8,6 +10,7 @@ import tony.test.redis.util.TestIntEnum
 import tony.test.redis.util.TestStringEnum
 import java.math.BigDecimal
 import java.util.Date
+import java.util.concurrent.atomic.AtomicInteger
 
 /**
  * JacksonRedisCacheAspect 切面测试用 Service
@@ -23,6 +26,8 @@ class JacksonRedisCacheAspectService {
         const val cacheKeyTemplate = "cacheKeyPrefix:%s:%s"
     }
 
+    val slowLoadCount = AtomicInteger()
+
     @RedisCacheable(cacheKey = cacheKeyTemplate, expressions = ["key", "value"])
     fun cacheBoolean(key: String, value: Boolean?): Boolean? = value
 
@@ -63,6 +68,40 @@ class JacksonRedisCacheAspectService {
     @RedisCacheable(cacheKey = cacheKeyTemplate, expressions = ["key", "value"], expire = 1)
     fun cacheWithExpire(key: String, value: String?): String? = value
 
+    // 本地缓存
+    @RedisCacheable(cacheKey = "localCacheKeyPrefix:%s", expressions = ["key"], localExpire = 60)
+    fun cacheWithLocal(key: String, value: String?): String? = value
+
+    @RedisCacheEvict(cacheKey = "localCacheKeyPrefix:%s", expressions = ["key"])
+    fun evictLocal(key: String) {}
+
+    // 并发未命中合并
+    @RedisCacheable(cacheKey = "slowLoadKeyPrefix:%s", expressions = ["key"], loadLease = 5)
+    fun slowLoad(key: String): Int {
+        Thread.sleep(200)
+        return slowLoadCount.incrementAndGet()
+    }
+
+    @Autowired
+    @Lazy
+    private lateinit var self: JacksonRedisCacheAspectService
+
+    // 加载中调用自身, 同一 key 重入
+    @RedisCacheable(cacheKey = "reentrantKeyPrefix:%s", expressions = ["key"])
+    fun reentrantLoad(key: String, depth: Int): Int =
+        if (depth > 0) self.reentrantLoad(key, depth - 1) + 1 else 0
+
+    // 加载卡住时等待方超时后自行执行
+    @RedisCacheable(cacheKey = "hungLoadKeyPrefix:%s", expressions = ["key"], loadWait = 1)
+    fun hungLoad(key: String, sleepMillis: Long): Long {
+        Thread.sleep(sleepMillis)
+        return sleepMillis
+    }
+
+    // 过期后返回旧值并后台刷新
+    @RedisCacheable(cacheKey = "staleKeyPrefix:%s", expressions = ["key"], expire = 1, staleWhileRevalidate = 5)
+    fun cacheWithStale(key: String, value: String?): String? = value
+
     // 支持复杂表达式（对象属性、嵌套、拼接等）
     data class User(val id: Long, val name: String)
     data class Order(val id: Long, val user: User, val items: List<String>)
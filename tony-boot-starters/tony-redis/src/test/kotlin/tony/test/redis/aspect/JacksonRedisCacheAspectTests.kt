@@ -2,6 +2,7 @@ package tony.test.redis.aspect
 
 import jakarta.annotation.Resource
 import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
 import org.junit.jupiter.api.DisplayName
 import org.junit.jupiter.api.MethodOrderer
 import org.junit.jupiter.api.Order
@@ -12,12 +13,19 @@ import org.junit.jupiter.params.ParameterizedTest
 import org.junit.jupiter.params.provider.MethodSource
 import org.springframework.boot.test.context.SpringBootTest
 import tony.core.utils.asTo
+import tony.core.utils.toJavaType
 import tony.redis.RedisManager
+import tony.redis.cache.RedisCacheMetrics
+import tony.redis.redisLockSupport
+import tony.redis.valueWithTtl
 import tony.test.redis.TestRedisApplication
 import tony.test.redis.util.SimpleObj
 import tony.test.redis.util.TestIntEnum
 import tony.test.redis.util.TestStringEnum
 import java.math.BigDecimal
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
 
 /**
  * JacksonRedisCacheAspect 切面功能测试
@@ -148,4 +156,115 @@ class JacksonRedisCacheAspectTests {
         assertNull(RedisManager.values.get<String>(redisKey1))
         assertNull(RedisManager.values.get<String>(redisKey2))
     }
+
+    @Order(6)
+    @Test
+    @DisplayName("本地缓存命中与失效")
+    fun testLocalCache() {
+        val key = "localKey"
+        val redisKey = "localCacheKeyPrefix:$key"
+        assertEquals("v1", service.cacheWithLocal(key, "v1"))
+        // 删除 redis 缓存后仍命中本地缓存
+        RedisManager.delete(redisKey)
+        assertEquals("v1", service.cacheWithLocal(key, "v2"))
+        // Evict 同时删除本地缓存
+        service.evictLocal(key)
+        assertEquals("v3", service.cacheWithLocal(key, "v3"))
+        assertEquals("v3", RedisManager.values.get<String>(redisKey))
+    }
+
+    @Order(7)
+    @Test
+    @DisplayName("并发未命中只加载一次")
+    fun testSingleFlight() {
+        val key = "singleFlightKey"
+        RedisManager.delete("slowLoadKeyPrefix:$key")
+        val coalescedCount = RedisCacheMetrics.coalescedCount
+        val executor = Executors.newFixedThreadPool(8)
+        val results =
+            (1..8)
+                .map { executor.submit<Int> { service.slowLoad(key) } }
+                .map { it.get() }
+        executor.shutdown()
+        assertEquals(1, service.slowLoadCount.get())
+        assertEquals(setOf(1), results.toSet())
+        // 加载完成后才到达的调用直接命中缓存, 不计入合并
+        assertTrue(RedisCacheMetrics.coalescedCount - coalescedCount <= 7L)
+    }
+
+    @Order(8)
+    @Test
+    @DisplayName("过期后返回旧值并后台刷新")
+    fun testStaleWhileRevalidate() {
+        val key = "staleKey"
+        val redisKey = "staleKeyPrefix:$key"
+        RedisManager.delete(redisKey)
+        assertEquals("v1", service.cacheWithStale(key, "v1"))
+        Thread.sleep(1200)
+        // 已过期, 返回旧值, 后台刷新
+        assertEquals("v1", service.cacheWithStale(key, "v2"))
+        Thread.sleep(300)
+        assertEquals("v2", RedisManager.values.get<String>(redisKey))
+        assertEquals("v2", service.cacheWithStale(key, "v3"))
+    }
+
+    @Order(9)
+    @Test
+    @DisplayName("其它节点持有加载租约时等待其写入")
+    fun testLeaseWaitNotified() {
+        val key = "leaseKey"
+        val redisKey = "slowLoadKeyPrefix:$key"
+        val leaseKey = "$redisKey:load-lease"
+        RedisManager.delete(redisKey)
+        val loadCount = service.slowLoadCount.get()
+        // 模拟其它节点持有租约
+        assertTrue(redisLockSupport.acquireLease(leaseKey, "other-node", 5000, 0))
+        val result = CompletableFuture.supplyAsync { service.slowLoad(key) }
+        Thread.sleep(300)
+        RedisManager.values.set(redisKey, 100)
+        assertTrue(redisLockSupport.releaseLease(leaseKey, "other-node"))
+        // 租期 5 秒, 只能是被释放通知唤醒后重查缓存命中
+        assertEquals(100, result.get(2, TimeUnit.SECONDS))
+        assertEquals(loadCount, service.slowLoadCount.get())
+        assertEquals(false, RedisManager.hasKey(leaseKey))
+    }
+
+    @Order(10)
+    @Test
+    @DisplayName("一次往返取回缓存值与剩余时间")
+    fun testValueWithTtl() {
+        val redisKey = "ttlKeyPrefix:ttlKey"
+        RedisManager.values.set(redisKey, SimpleObj("tony", 18), 10)
+        val (value, ttlMillis) = valueWithTtl(redisKey, SimpleObj::class.java.toJavaType())
+        assertEquals(SimpleObj("tony", 18), value)
+        assertTrue(ttlMillis in 1..10_000)
+        RedisManager.delete(redisKey)
+        assertEquals(null to -2L, valueWithTtl(redisKey, SimpleObj::class.java.toJavaType()))
+    }
+
+    @Order(11)
+    @Test
+    @DisplayName("加载中同一线程重入同一 key 时直接执行, 不死锁")
+    fun testReentrantLoad() {
+        val key = "reentrantKey"
+        RedisManager.delete("reentrantKeyPrefix:$key")
+        val result = CompletableFuture.supplyAsync { service.reentrantLoad(key, 1) }
+        assertEquals(1, result.get(2, TimeUnit.SECONDS))
+    }
+
+    @Order(12)
+    @Test
+    @DisplayName("进行中的加载超时后自行执行")
+    fun testInFlightTimeout() {
+        val key = "hungKey"
+        RedisManager.delete("hungLoadKeyPrefix:$key")
+        val timeoutCount = RedisCacheMetrics.coalesceTimeoutCount
+        val hung = CompletableFuture.supplyAsync { service.hungLoad(key, 3000) }
+        Thread.sleep(200)
+        val start = System.currentTimeMillis()
+        assertEquals(0L, service.hungLoad(key, 0))
+        assertTrue(System.currentTimeMillis() - start < 2500)
+        assertEquals(timeoutCount + 1, RedisCacheMetrics.coalesceTimeoutCount)
+        assertEquals(3000L, hung.get(5, TimeUnit.SECONDS))
+    }
 }
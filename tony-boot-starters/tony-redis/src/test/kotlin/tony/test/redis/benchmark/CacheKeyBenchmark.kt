@@ -0,0 +1,80 @@
+package tony.test.redis.benchmark
+
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import org.openjdk.jmh.runner.Runner
+import org.openjdk.jmh.runner.options.OptionsBuilder
+import org.springframework.expression.spel.standard.SpelExpressionParser
+import org.springframework.expression.spel.support.StandardEvaluationContext
+import tony.redis.aspect.CacheKeyPlan
+import java.util.concurrent.TimeUnit
+
+/**
+ * 缓存 key 生成基准测试
+ *
+ * 对比原实现(每次 split + SpEL 解析 + String.format)与 CacheKeyPlan.
+ * 执行 main 方法运行.
+ *
+ * @author tony
+ * @date 2025/07/24 15:00
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class CacheKeyBenchmark {
+    data class User(val id: Long, val name: String)
+    data class Order(val id: Long, val user: User, val items: List<String>)
+
+    private val keyPrefix = "bench"
+    private val template = "order:%s:%s:%s"
+    private val expressions = arrayOf("order.user.id", "order.items[0]", "key")
+    private val paramsNames = arrayOf("order", "key")
+    private val arguments = arrayOf<Any?>(Order(1001L, User(99L, "tony"), listOf("apple", "banana")), "detail")
+
+    private val expressionParser = SpelExpressionParser()
+    private val plan = CacheKeyPlan(keyPrefix, template, expressions, paramsNames)
+
+    @Benchmark
+    fun legacy(): String {
+        val paramMap =
+            paramsNames.foldIndexed<String, MutableMap<String, Any?>>(mutableMapOf()) { index, paramMap, paramName ->
+                paramMap[paramName] = arguments[index]
+                paramMap
+            }
+        val paramsValues =
+            Array(expressions.size) { index ->
+                val expression = expressions[index]
+                val stringList = expression.split(".")
+                if (stringList.size < 2) {
+                    paramMap[expression]
+                } else {
+                    expressionParser
+                        .parseExpression(stringList.drop(1).joinToString("."))
+                        .getValue(StandardEvaluationContext(paramMap[stringList.first()]))
+                }
+            }
+        return "$keyPrefix:${String.format(template, *paramsValues)}"
+    }
+
+    @Benchmark
+    fun plan(): String =
+        plan.cacheKey(arguments)
+}
+
+fun main() {
+    Runner(
+        OptionsBuilder()
+            .include(CacheKeyBenchmark::class.java.simpleName)
+            .build()
+    ).run()
+}
@@ -0,0 +1,105 @@
+package tony.test.redis.benchmark
+
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import org.openjdk.jmh.runner.Runner
+import org.openjdk.jmh.runner.options.OptionsBuilder
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer
+import tony.core.utils.createObjectMapper
+import tony.core.utils.jsonToObj
+import tony.core.utils.toJsonString
+import tony.core.utils.trimQuotes
+import tony.redis.serializer.CompressionMode
+import tony.redis.serializer.ProtostuffSerializer
+import tony.test.redis.util.TestDataGenerator
+import java.util.concurrent.TimeUnit
+
+/**
+ * redis 序列化基准测试
+ *
+ * 对比当前 JSON 路径(toJsonString + GenericJackson2JsonRedisSerializer)与 ProtostuffSerializer,
+ * 载荷来自 TestDataGenerator. 执行 main 方法运行, 结果中同时输出序列化后字节数.
+ *
+ * @author tony
+ * @date 2025/07/25 10:00
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class SerializerBenchmark {
+    @Param("order", "objWithMap", "large")
+    lateinit var payloadName: String
+
+    private lateinit var payload: Any
+    private lateinit var jsonBytes: ByteArray
+    private lateinit var protostuffBytes: ByteArray
+    private lateinit var lz4Bytes: ByteArray
+
+    private val jsonSerializer = GenericJackson2JsonRedisSerializer(createObjectMapper())
+    private val protostuffSerializer = ProtostuffSerializer()
+    private val lz4Serializer = ProtostuffSerializer(CompressionMode.LZ4, 512)
+
+    @Setup
+    fun setup() {
+        payload =
+            when (payloadName) {
+                "order" -> TestDataGenerator.createTestOrder()
+                "objWithMap" -> TestDataGenerator.createObjWithMap()
+                else -> TestDataGenerator.createLargeObject()
+            }
+        jsonBytes = jsonSerialize()
+        protostuffBytes = protostuffSerialize()
+        lz4Bytes = lz4Serialize()
+        println(
+            "\n$payloadName size: json ${jsonBytes.size}, protostuff ${protostuffBytes.size}, lz4 ${lz4Bytes.size}"
+        )
+    }
+
+    @Benchmark
+    fun jsonSerialize(): ByteArray =
+        jsonSerializer.serialize(payload.toJsonString().trimQuotes())
+
+    @Benchmark
+    fun jsonDeserialize(): Any =
+        jsonSerializer
+            .deserialize(jsonBytes)
+            .toString()
+            .trimQuotes()
+            .jsonToObj(payload.javaClass)
+
+    @Benchmark
+    fun protostuffSerialize(): ByteArray =
+        protostuffSerializer.serialize(payload)
+
+    @Benchmark
+    fun protostuffDeserialize(): Any? =
+        protostuffSerializer.deserialize(protostuffBytes)
+
+    @Benchmark
+    fun lz4Serialize(): ByteArray =
+        lz4Serializer.serialize(payload)
+
+    @Benchmark
+    fun lz4Deserialize(): Any? =
+        lz4Serializer.deserialize(lz4Bytes)
+}
+
+fun main() {
+    Runner(
+        OptionsBuilder()
+            .include(SerializerBenchmark::class.java.simpleName)
+            .build()
+    ).run()
+}
@@ -0,0 +1,124 @@
+package tony.test.redis.serializer
+
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+import org.junit.jupiter.api.Assertions.assertArrayEquals
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.EnumSource
+import org.junit.jupiter.api.Test
+import org.springframework.data.redis.serializer.SerializationException
+import tony.redis.serializer.CompressionMode
+import tony.redis.serializer.ProtostuffSerializer
+import tony.test.redis.util.LargeTestObject
+import tony.test.redis.util.TestDataGenerator
+import tony.test.redis.util.TestIntEnum
+
+/**
+ * ProtostuffSerializer 序列化测试
+ *
+ * @author tony
+ * @date 2025/07/25 10:00
+ */
+@DisplayName("ProtostuffSerializer 序列化测试")
+class ProtostuffSerializerTests {
+
+    @Test
+    @DisplayName("数字与字符串直接写入")
+    fun testRawValues() {
+        val serializer = ProtostuffSerializer()
+        assertArrayEquals("123".toByteArray(), serializer.serialize(123L))
+        assertArrayEquals("hello".toByteArray(), serializer.serialize("hello"))
+        assertEquals("hello", serializer.deserialize(serializer.serialize("hello")))
+        assertEquals("\u0001hello", serializer.deserialize(serializer.serialize("\u0001hello")))
+        assertNull(serializer.deserialize(serializer.serialize(null)))
+    }
+
+    @Test
+    @DisplayName("对象、枚举与集合")
+    fun testObjects() {
+        val serializer = ProtostuffSerializer()
+        val order = TestDataGenerator.createTestOrder()
+        assertEquals(order, serializer.deserialize(serializer.serialize(order)))
+        assertEquals(TestIntEnum.ACTIVE, serializer.deserialize(serializer.serialize(TestIntEnum.ACTIVE)))
+        assertEquals(listOf(1, 2, 3), serializer.deserialize(serializer.serialize(listOf(1, 2, 3))))
+        assertEquals(true, serializer.deserialize(serializer.serialize(true)))
+    }
+
+    @Test
+    @DisplayName("虚拟线程并发序列化, 共享缓冲区不串用")
+    fun testConcurrentSerialize() {
+        val serializer = ProtostuffSerializer()
+        val failures = AtomicInteger()
+        Executors.newVirtualThreadPerTaskExecutor().use { executor ->
+            repeat(2000) { i ->
+                executor.submit {
+                    // 长度超过单个缓冲段, 覆盖缓冲区链
+                    val value = listOf(i, "v".repeat(i % 2048))
+                    if (serializer.deserialize(serializer.serialize(value)) != value) {
+                        failures.incrementAndGet()
+                    }
+                }
+            }
+        }
+        assertEquals(0, failures.get())
+    }
+
+    @ParameterizedTest
+    @EnumSource(CompressionMode::class)
+    @DisplayName("超过阈值时压缩")
+    fun testCompression(compressionMode: CompressionMode) {
+        val serializer = ProtostuffSerializer(compressionMode, 256)
+        val largeObject = TestDataGenerator.createLargeObject()
+        val bytes = serializer.serialize(largeObject)
+        assertEquals(compressionMode.ordinal.toByte(), bytes[1])
+        val result = serializer.deserialize(bytes) as LargeTestObject
+        assertEquals(largeObject.id, result.id)
+        assertArrayEquals(largeObject.data, result.data)
+        assertEquals(largeObject.metadata, result.metadata)
+        if (compressionMode != CompressionMode.NONE) {
+            assertTrue(bytes.size < ProtostuffSerializer().serialize(largeObject).size)
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = CompressionMode::class, names = ["LZ4", "ZSTD"])
+    @DisplayName("原始长度不符或数据截断时抛出异常")
+    fun testCorruptedCompression(compressionMode: CompressionMode) {
+        val serializer = ProtostuffSerializer(compressionMode, 256)
+        val bytes = serializer.serialize(TestDataGenerator.createLargeObject())
+        // 篡改头部记录的原始长度
+        val wrongLength = bytes.copyOf().also { it[5] = (it[5] + 1).toByte() }
+        assertThrows(SerializationException::class.java) { serializer.deserialize(wrongLength) }
+        val truncated = bytes.copyOf(bytes.size / 2)
+        assertThrows(SerializationException::class.java) { serializer.deserialize(truncated) }
+        assertThrows(SerializationException::class.java) { serializer.deserialize(bytes.copyOf(4)) }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = CompressionMode::class, names = ["LZ4", "ZSTD"])
+    @DisplayName("原始长度超过上限时分配前拒绝")
+    fun testDecompressedLengthLimit(compressionMode: CompressionMode) {
+        val bytes = ProtostuffSerializer(compressionMode, 256).serialize(TestDataGenerator.createLargeObject())
+        assertThrows(SerializationException::class.java) {
+            ProtostuffSerializer(compressionMode, 256, 1024).deserialize(bytes)
+        }
+        // 头部长度篡改为 Int.MAX_VALUE
+        val hostile =
+            bytes.copyOf().also {
+                it[2] = 0x7F
+                it[3] = -1
+                it[4] = -1
+                it[5] = -1
+            }
+        val exception =
+            assertThrows(SerializationException::class.java) {
+                ProtostuffSerializer(compressionMode, 256).deserialize(hostile)
+            }
+        assertTrue(exception.message!!.contains("maximum"))
+    }
+}
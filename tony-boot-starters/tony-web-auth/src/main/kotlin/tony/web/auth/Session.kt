@@ -31,14 +31,19 @@ package tony.web.auth
  */
 import com.auth0.jwt.exceptions.JWTVerificationException
 import com.auth0.jwt.interfaces.DecodedJWT
+import java.util.Optional
+import tony.core.IDENTITY_HEADER_NAME
 import tony.core.TOKEN_HEADER_NAME
 import tony.core.utils.getLogger
 import tony.core.utils.ifNullOrBlank
+import tony.jwt.GatewayIdentity
+import tony.jwt.GatewayIdentityCodec
 import tony.jwt.JwtToken
 import tony.web.WebContext
 import tony.web.WebContext.getOrPut
 import tony.web.WebSession
 import tony.web.exception.UnauthorizedException
+import tony.web.log.RequestTimings
 
 /**
  * noop session. 获取用户标识永远抛出异常.
@@ -73,11 +78,13 @@ internal class JwtWebSession : WebSession {
                         .request
                         .getHeader(TOKEN_HEADER_NAME)
                         .ifNullOrBlank()
-                try {
-                    JwtToken.parse(jwtTokenString)
-                } catch (e: JWTVerificationException) {
-                    logger.warn("Jwt Token($jwtTokenString) verify failed.")
-                    throw UnauthorizedException("请登录")
+                RequestTimings.span("jwt") {
+                    try {
+                        JwtToken.parse(jwtTokenString)
+                    } catch (e: JWTVerificationException) {
+                        logger.warn("Jwt Token($jwtTokenString) verify failed.")
+                        throw UnauthorizedException("请登录")
+                    }
                 }
             }
 
@@ -87,8 +94,15 @@ internal class JwtWebSession : WebSession {
                 logger.debug("init userId")
                 token.getClaim("userId")?.asString() ?: throw UnauthorizedException("请登录")
             }
+
+    /**
+     * 取 jwt 的 tenantId 声明, 与网关一致, 无该声明时为空字符串.
+     */
     override val tenantId: String
-        get() = TODO("Not yet implemented")
+        get() =
+            WebContext.current.getOrPut("tenantId") {
+                token.getClaim("tenantId")?.asString().orEmpty()
+            }
 
     override val unauthorizedException: UnauthorizedException?
         get() =
@@ -99,3 +113,55 @@ internal class JwtWebSession : WebSession {
                 e
             }
 }
+
+/**
+ * 网关身份 session.
+ *
+ * 优先使用网关签发的身份请求头 [IDENTITY_HEADER_NAME], 只需一次 HMAC 校验;
+ * 请求头不存在或校验失败时, 回退为完整的 jwt 验证.
+ *
+ * @author tangli
+ * @date 2025/08/11 10:00
+ */
+internal class GatewayIdentityWebSession(
+    private val gatewayIdentityCodec: GatewayIdentityCodec,
+) : WebSession {
+    private val logger = getLogger()
+
+    private val jwtWebSession = JwtWebSession()
+
+    private val identity: GatewayIdentity?
+        get() =
+            WebContext
+                .current
+                .getOrPut("gatewayIdentity") {
+                    Optional.ofNullable(
+                        WebContext
+                            .request
+                            .getHeader(IDENTITY_HEADER_NAME)
+                            ?.let { header ->
+                                RequestTimings.span("identity") {
+                                    gatewayIdentityCodec.decode(header).also {
+                                        if (it == null) {
+                                            logger.warn("Gateway identity($header) verify failed.")
+                                        }
+                                    }
+                                }
+                            }
+                    )
+                }.orElse(null)
+
+    override val userId: String
+        get() = identity?.userId ?: jwtWebSession.userId
+
+    override val tenantId: String
+        get() = identity?.tenantId ?: jwtWebSession.tenantId
+
+    override val unauthorizedException: UnauthorizedException?
+        get() =
+            if (identity != null) {
+                null
+            } else {
+                jwtWebSession.unauthorizedException
+            }
+}
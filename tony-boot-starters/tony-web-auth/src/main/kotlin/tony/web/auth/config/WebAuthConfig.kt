@@ -25,6 +25,7 @@
 package tony.web.auth.config
 
 import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.ObjectProvider
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication
 import org.springframework.boot.context.properties.ConfigurationProperties
@@ -36,9 +37,11 @@ import org.springframework.web.servlet.config.annotation.InterceptorRegistry
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer
 import tony.core.SpringContexts
 import tony.core.utils.getLogger
+import tony.jwt.GatewayIdentityCodec
 import tony.jwt.config.JwtProperties
 import tony.web.WebContext
 import tony.web.WebSession
+import tony.web.auth.GatewayIdentityWebSession
 import tony.web.auth.JwtWebSession
 import tony.web.auth.NoopWebSession
 import tony.web.auth.interceptor.DefaultLoginCheckInterceptor
@@ -66,14 +69,26 @@ private class WebAuthConfig(
 
     @ConditionalOnMissingBean(WebSession::class)
     @Bean
-    private fun webSession(): WebSession =
-        if (jwtProperties.secret.isNotBlank()) {
-            JwtWebSession().apply {
-                getLogger().info("Jwt auth is enabled")
+    private fun webSession(gatewayIdentityCodec: ObjectProvider<GatewayIdentityCodec>): WebSession {
+        val codec = gatewayIdentityCodec.ifAvailable
+        return when {
+            codec != null -> {
+                GatewayIdentityWebSession(codec).apply {
+                    getLogger().info("Gateway identity auth is enabled")
+                }
+            }
+
+            jwtProperties.keyConfigured -> {
+                JwtWebSession().apply {
+                    getLogger().info("Jwt auth is enabled")
+                }
+            }
+
+            else -> {
+                NoopWebSession()
             }
-        } else {
-            NoopWebSession()
         }
+    }
 
     override fun addInterceptors(registry: InterceptorRegistry) {
         logger.info("noLoginCheckUrl:${webAuthProperties.noLoginCheckUrl}")
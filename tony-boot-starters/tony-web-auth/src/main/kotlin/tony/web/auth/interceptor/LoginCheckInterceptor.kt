@@ -37,6 +37,7 @@ import tony.annotation.web.auth.NoLoginCheck
 import tony.core.utils.hasAnnotation
 import tony.web.WebContext
 import tony.web.auth.WebContextExtensions.webSession
+import tony.web.log.RequestTimings
 
 /**
  * 登录校验拦截器.
@@ -53,7 +54,11 @@ public interface LoginCheckInterceptor : HandlerInterceptor {
         if (handler !is HandlerMethod) return true
         if (handler.beanType.hasAnnotation(NoLoginCheck::class.java)) return true
         if (handler.method.hasAnnotation(NoLoginCheck::class.java)) return true
-        throw (WebContext.webSession.unauthorizedException ?: return true)
+        val unauthorizedException =
+            RequestTimings.span("login") {
+                WebContext.webSession.unauthorizedException
+            }
+        throw (unauthorizedException ?: return true)
     }
 }
 
@@ -32,6 +32,7 @@ package tony.web.crpto
 import java.io.ByteArrayInputStream
 import java.io.InputStream
 import java.lang.reflect.Type
+import java.util.concurrent.ConcurrentHashMap
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression
 import org.springframework.core.MethodParameter
 import org.springframework.core.PriorityOrdered
@@ -46,6 +47,12 @@ import tony.annotation.web.crypto.DecryptRequestBody
 import tony.core.crypto.CryptoProvider
 import tony.core.crypto.symmetric.decryptToBytes
 import tony.core.utils.getLogger
+import tony.web.log.RequestTimings
+
+/**
+ * 参数是否需要解密, 按方法参数缓存.
+ */
+private val decryptParameters = ConcurrentHashMap<MethodParameter, Boolean>()
 
 /**
  * 将请求体解密, 目前只支持 RequestBody
@@ -62,8 +69,10 @@ public interface DecryptRequestBodyAdvice :
         targetType: Type,
         converterType: Class<out HttpMessageConverter<*>>,
     ): Boolean =
-        methodParameter.hasMethodAnnotation(DecryptRequestBody::class.java) &&
-            methodParameter.hasParameterAnnotation(RequestBody::class.java)
+        decryptParameters.computeIfAbsent(methodParameter) {
+            it.hasMethodAnnotation(DecryptRequestBody::class.java) &&
+                it.hasParameterAnnotation(RequestBody::class.java)
+        }
 
     override fun beforeBodyRead(
         inputMessage: HttpInputMessage,
@@ -92,12 +101,14 @@ public interface DecryptRequestBodyAdvice :
                 .headers
                 .apply { contentType = MediaType.TEXT_PLAIN },
             ByteArrayInputStream(
-                bytes
-                    .decryptToBytes(
-                        cryptoProvider.algorithm,
-                        cryptoProvider.secret,
-                        cryptoProvider.encoding
-                    )
+                RequestTimings.span("decrypt") {
+                    bytes
+                        .decryptToBytes(
+                            cryptoProvider.algorithm,
+                            cryptoProvider.secret,
+                            cryptoProvider.encoding
+                        )
+                }
             )
         )
     }
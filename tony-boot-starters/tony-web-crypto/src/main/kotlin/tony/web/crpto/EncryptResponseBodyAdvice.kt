@@ -29,9 +29,12 @@ package tony.web.crpto
  * @author tangli
  * @date 2023/05/26 19:53
  */
+import java.lang.reflect.Executable
+import java.util.concurrent.ConcurrentHashMap
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression
 import org.springframework.core.MethodParameter
 import org.springframework.core.PriorityOrdered
+import org.springframework.core.annotation.AnnotatedElementUtils
 import org.springframework.http.MediaType
 import org.springframework.http.converter.HttpMessageConverter
 import org.springframework.http.converter.StringHttpMessageConverter
@@ -50,6 +53,12 @@ import tony.core.utils.isTypesOrSubTypesOf
 import tony.core.utils.toJsonString
 import tony.core.utils.trimQuotes
 import tony.web.WebContext
+import tony.web.log.RequestTimings
+
+/**
+ * 方法是否需要加密响应体, 按方法缓存.
+ */
+private val encryptMethods = ConcurrentHashMap<Executable, Boolean>()
 
 /**
  * 响应体加密
@@ -65,7 +74,9 @@ public interface EncryptResponseBodyAdvice :
         returnType: MethodParameter,
         converterType: Class<out HttpMessageConverter<*>>,
     ): Boolean =
-        returnType.hasMethodAnnotation(EncryptResponseBody::class.java) &&
+        encryptMethods.computeIfAbsent(returnType.executable) {
+            AnnotatedElementUtils.hasAnnotation(it, EncryptResponseBody::class.java)
+        } &&
             converterType.isTypesOrSubTypesOf(
                 StringHttpMessageConverter::class.java,
                 MappingJackson2HttpMessageConverter::class.java
@@ -80,6 +91,12 @@ public interface EncryptResponseBodyAdvice :
         response: ServerHttpResponse,
     ): Any? {
         WebContext.response?.addHeader(ENCRYPTED_HEADER_NAME, "true")
+        return RequestTimings.span("encrypt") {
+            encrypt(body)
+        }
+    }
+
+    private fun encrypt(body: Any?): Any? {
         if (body != null && body is ApiResultLike<*>) {
             return if (body.success) {
                 EncryptApiResult(
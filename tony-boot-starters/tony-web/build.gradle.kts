@@ -6,7 +6,10 @@ dependencies {
     }
     api(tonyLibs.springBootStarterUndertow)
     implementation(tonyLibs.springBootStarterValidation)
+    compileOnly(tonyLibs.micrometerCore)
 
     testImplementation(projects.tonyKnife4jApi)
     testImplementation(tonyLibs.knife4jOpenapi3Ui)
+    testImplementation(tonyLibs.jmhCore)
+    kaptTest(tonyLibs.jmhGeneratorAnnprocess)
 }
@@ -35,10 +35,10 @@ import org.springframework.web.context.request.RequestContextHolder
 import org.springframework.web.context.request.ServletRequestAttributes
 import org.springframework.web.context.request.ServletWebRequest
 import tony.core.SpringContexts
+import tony.core.utils.AntPathMatchIndex
 import tony.core.utils.asTo
 import tony.core.utils.asToDefault
 import tony.core.utils.asToNotNull
-import tony.core.utils.ifNull
 import tony.core.utils.sanitizedPath
 import tony.web.config.WebProperties
 
@@ -122,11 +122,9 @@ public data object WebContext {
     ): T =
         getAttribute(key, SCOPE_REQUEST)
             .asTo<T>()
-            .ifNull(
-                callback.get().apply {
-                    setAttribute(key, this, SCOPE_REQUEST)
-                }
-            )
+            ?: callback.get().apply {
+                setAttribute(key, this, SCOPE_REQUEST)
+            }
 
     /**
      * server.servlet.context-path
@@ -153,6 +151,11 @@ public data object WebContext {
         set
     }
 
+    @get:JvmSynthetic
+    internal val responseWrapExcludeIndex by lazy(LazyThreadSafetyMode.PUBLICATION) {
+        AntPathMatchIndex(responseWrapExcludePatterns)
+    }
+
     private const val SWAGGER_UI_PATH: String = "springdoc.swagger-ui.path"
     private const val SWAGGER_UI_PATH_VALUE: String = "/swagger-ui.html"
 
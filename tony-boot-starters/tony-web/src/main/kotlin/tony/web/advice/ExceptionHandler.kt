@@ -52,6 +52,7 @@ import tony.core.utils.asToDefault
 import tony.core.utils.getLogger
 import tony.core.utils.ifNullOrBlank
 import tony.web.WebContext
+import tony.web.log.TraceSampler
 
 /**
  * 全局异常处理
@@ -234,6 +235,6 @@ internal class ExceptionHandler : ErrorController {
         code: Int = ApiProperty.errorCode,
     ): ApiResult<*> {
         WebContext.response?.addHeader(ERROR_CODE_HEADER_NAME, code.toString())
-        return ApiResult(Unit, code, msg)
+        return ApiResult(Unit, code, msg).also { TraceSampler.promoteErrorBody(WebContext.request, it) }
     }
 }
@@ -0,0 +1,140 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.web.advice
+
+import jakarta.servlet.http.HttpServletRequest
+import jakarta.servlet.http.HttpServletResponse
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression
+import org.springframework.core.MethodParameter
+import org.springframework.core.PriorityOrdered
+import org.springframework.http.MediaType
+import org.springframework.http.converter.HttpMessageConverter
+import org.springframework.http.server.ServerHttpRequest
+import org.springframework.http.server.ServerHttpResponse
+import org.springframework.http.server.ServletServerHttpRequest
+import org.springframework.web.bind.annotation.RestControllerAdvice
+import org.springframework.web.servlet.HandlerInterceptor
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice
+import tony.web.advice.RequestTimingInterceptor.Companion.recordHandler
+import tony.web.log.RequestTiming
+import tony.web.log.RequestTimings
+
+/**
+ * 请求阶段耗时拦截器, 最后一个执行.
+ *
+ * 记录 pre (请求开始到进入处理器, 含过滤器与其他拦截器) 与 handler (处理器到写响应体前) 两个阶段.
+ *
+ * @author tangli
+ * @date 2025/08/02 10:00
+ */
+internal class RequestTimingInterceptor : HandlerInterceptor {
+    override fun preHandle(
+        request: HttpServletRequest,
+        response: HttpServletResponse,
+        handler: Any,
+    ): Boolean {
+        val timing = request.requestTiming ?: return true
+        val now = System.nanoTime()
+        timing.record(PRE, timing.startNanos, now)
+        request.setAttribute(HANDLER_START_ATTRIBUTE_NAME, now)
+        return true
+    }
+
+    override fun afterCompletion(
+        request: HttpServletRequest,
+        response: HttpServletResponse,
+        handler: Any,
+        ex: Exception?,
+    ) {
+        // 没有经过 ResponseBodyAdvice 的响应
+        request.recordHandler()
+    }
+
+    internal companion object {
+        private const val PRE = "pre"
+        private const val HANDLER = "handler"
+        private val HANDLER_START_ATTRIBUTE_NAME = "${RequestTimingInterceptor::class.java.name}.handlerStart"
+
+        private val HttpServletRequest.requestTiming: RequestTiming?
+            get() = getAttribute(RequestTimings.ATTRIBUTE_NAME) as? RequestTiming
+
+        /**
+         * 记录 handler 阶段, 只记录一次.
+         */
+        @JvmSynthetic
+        internal fun HttpServletRequest.recordHandler(): RequestTiming? {
+            val timing = requestTiming ?: return null
+            val handlerStart = getAttribute(HANDLER_START_ATTRIBUTE_NAME) as? Long ?: return timing
+            removeAttribute(HANDLER_START_ATTRIBUTE_NAME)
+            timing.record(HANDLER, handlerStart)
+            return timing
+        }
+    }
+}
+
+/**
+ * 写响应体前记录 handler 阶段, 并按需输出 Server-Timing 响应头.
+ *
+ * 顺序最高, 在包装、加密(PriorityOrdered)等其他 [ResponseBodyAdvice] 之前执行, handler 阶段不含这些耗时;
+ * 响应头只包含到 handler 为止的阶段, 加密与序列化在响应头写出之后, 只进入指标.
+ *
+ * @author tangli
+ * @date 2025/08/02 10:00
+ */
+@ConditionalOnExpression("false")
+@RestControllerAdvice
+internal class RequestTimingResponseBodyAdvice(
+    private val serverTimingEnabled: Boolean,
+) : ResponseBodyAdvice<Any?>,
+    PriorityOrdered {
+    override fun supports(
+        returnType: MethodParameter,
+        converterType: Class<out HttpMessageConverter<*>>,
+    ): Boolean =
+        true
+
+    override fun beforeBodyWrite(
+        body: Any?,
+        returnType: MethodParameter,
+        selectedContentType: MediaType,
+        selectedConverterType: Class<out HttpMessageConverter<*>>,
+        request: ServerHttpRequest,
+        response: ServerHttpResponse,
+    ): Any? {
+        val servletRequest = (request as? ServletServerHttpRequest)?.servletRequest ?: return body
+        val timing = servletRequest.recordHandler() ?: return body
+        if (serverTimingEnabled) {
+            response.headers.add(SERVER_TIMING, timing.toServerTiming())
+        }
+        return body
+    }
+
+    override fun getOrder(): Int =
+        PriorityOrdered.HIGHEST_PRECEDENCE
+
+    private companion object {
+        private const val SERVER_TIMING = "Server-Timing"
+    }
+}
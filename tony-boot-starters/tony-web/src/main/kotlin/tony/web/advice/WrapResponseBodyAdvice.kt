@@ -24,7 +24,11 @@
 
 package tony.web.advice
 
+import java.lang.reflect.Executable
+import java.lang.reflect.Modifier
 import java.util.Collections
+import java.util.concurrent.ConcurrentHashMap
+import java.util.stream.BaseStream
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression
 import org.springframework.core.MethodParameter
 import org.springframework.http.MediaType
@@ -41,10 +45,9 @@ import tony.core.model.ListResult
 import tony.core.utils.antPathMatchAny
 import tony.core.utils.asTo
 import tony.core.utils.getLogger
-import tony.core.utils.isArrayLikeType
 import tony.core.utils.isTypesOrSubTypesOf
 import tony.web.WebContext
-import tony.web.utils.url
+import tony.web.model.StreamingListResult
 
 /**
  * 响应包装, 将直接返回的类型包装为全局结构 [ApiResult].
@@ -61,6 +64,8 @@ internal class WrapResponseBodyAdvice : ResponseBodyAdvice<Any?> {
         logger.info("Response wrap is enabled")
     }
 
+    private val wrapPlans = ConcurrentHashMap<Executable, WrapPlan>()
+
     override fun beforeBodyWrite(
         body: Any?,
         returnType: MethodParameter,
@@ -69,24 +74,14 @@ internal class WrapResponseBodyAdvice : ResponseBodyAdvice<Any?> {
         request: ServerHttpRequest,
         response: ServerHttpResponse,
     ): ApiResult<*> =
-        when {
-            body == null -> {
-                ApiResult(Unit, ApiProperty.okCode)
-            }
-
-            !body::class.java
-                .isArrayLikeType() -> {
-                ApiResult(body, ApiProperty.okCode)
-            }
-
-            else -> {
-                if (body::class.java
-                        .isArray
-                ) {
-                    ApiResult(toListResult(body), ApiProperty.okCode)
-                } else {
-                    ApiResult(ListResult(body.asTo()), ApiProperty.okCode)
-                }
+        if (body == null) {
+            ApiResult(Unit, ApiProperty.okCode)
+        } else {
+            when (wrapPlan(returnType).bodyKind.resolve(body)) {
+                BodyKind.ARRAY -> ApiResult(toListResult(body), ApiProperty.okCode)
+                BodyKind.COLLECTION -> ApiResult(ListResult<Any?>(body.asTo()), ApiProperty.okCode)
+                BodyKind.STREAM -> ApiResult(toStreamingListResult(body), ApiProperty.okCode)
+                else -> ApiResult(body, ApiProperty.okCode)
             }
         }
 
@@ -94,17 +89,90 @@ internal class WrapResponseBodyAdvice : ResponseBodyAdvice<Any?> {
         returnType: MethodParameter,
         converterType: Class<out HttpMessageConverter<*>>,
     ) =
-        !WebContext
-            .request
-            .url
-            .path
-            .antPathMatchAny(WebContext.responseWrapExcludePatterns) &&
+        wrapPlan(returnType).supported &&
             converterType.isTypesOrSubTypesOf(MappingJackson2HttpMessageConverter::class.java) &&
-            !returnType
-                .parameterType
-                .isTypesOrSubTypesOf(notSupportResponseWrapClassCollection)
+            !WebContext
+                .request
+                .requestURI
+                .antPathMatchAny(WebContext.responseWrapExcludeIndex)
+
+    /**
+     * 处理方法的包装方式, 按方法缓存.
+     * 异步返回值等场景同一方法的实际返回类型可能不同, 与缓存不一致时重新计算.
+     */
+    @JvmSynthetic
+    internal fun wrapPlan(returnType: MethodParameter): WrapPlan {
+        val parameterType = returnType.parameterType
+        val executable = returnType.executable
+        val plan = wrapPlans[executable]
+        if (plan != null && plan.parameterType == parameterType) {
+            return plan
+        }
+        return WrapPlan(parameterType).also { wrapPlans.putIfAbsent(executable, it) }
+    }
+
+    /**
+     * 包装方式.
+     */
+    internal class WrapPlan(
+        val parameterType: Class<*>,
+    ) {
+        val supported: Boolean = !parameterType.isTypesOrSubTypesOf(notSupportResponseWrapClassCollection)
+
+        val bodyKind: BodyKind = BodyKind.of(parameterType)
+    }
+
+    /**
+     * 响应体类型, 声明类型无法确定时按运行时类型判断.
+     */
+    internal enum class BodyKind {
+        OBJECT,
+        ARRAY,
+        COLLECTION,
+        STREAM,
+        RUNTIME,
+        ;
+
+        fun resolve(body: Any): BodyKind =
+            if (this == RUNTIME) of(body::class.java) else this
+
+        companion object {
+            private val streamTypes =
+                arrayOf(
+                    Sequence::class.java,
+                    BaseStream::class.java,
+                    Iterator::class.java
+                )
+
+            @JvmStatic
+            fun of(type: Class<*>): BodyKind =
+                when {
+                    type.isArray -> ARRAY
+                    Collection::class.java.isAssignableFrom(type) -> COLLECTION
+                    streamTypes.any { it.isAssignableFrom(type) } || isCursor(type) -> STREAM
+                    Modifier.isFinal(type.modifiers) -> OBJECT
+                    else -> RUNTIME
+                }
+
+            /**
+             * 可关闭的 Iterable, 如数据库游标.
+             */
+            @JvmStatic
+            private fun isCursor(type: Class<*>): Boolean =
+                Iterable::class.java.isAssignableFrom(type) && AutoCloseable::class.java.isAssignableFrom(type)
+        }
+    }
 
     private companion object Utils {
+        @JvmStatic
+        private fun toStreamingListResult(body: Any): StreamingListResult<*> =
+            when (body) {
+                is Sequence<*> -> StreamingListResult.of(body)
+                is BaseStream<*, *> -> StreamingListResult.of(body)
+                is Iterator<*> -> StreamingListResult.of(body)
+                else -> StreamingListResult.of(body as Iterable<*>)
+            }
+
         @JvmStatic
         private fun toListResult(body: Any?) =
             when (body) {
@@ -31,18 +31,33 @@ package tony.web.config
  * @date 2023/05/25 19:35
  */
 import com.fasterxml.jackson.databind.ObjectMapper
+import io.micrometer.core.instrument.MeterRegistry
 import jakarta.servlet.http.HttpServletResponse
+import java.nio.file.Path
+import java.time.Duration
+import java.util.concurrent.Executors
 import org.springframework.beans.BeanUtils
+import org.springframework.beans.factory.DisposableBean
+import org.springframework.beans.factory.ObjectProvider
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication
 import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer
+import org.springframework.boot.autoconfigure.thread.Threading
 import org.springframework.boot.context.properties.ConfigurationProperties
 import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.boot.context.properties.bind.DefaultValue
+import org.springframework.boot.web.embedded.undertow.UndertowDeploymentInfoCustomizer
+import org.springframework.boot.web.embedded.undertow.UndertowServletWebServerFactory
+import org.springframework.boot.web.server.WebServerFactoryCustomizer
 import org.springframework.context.annotation.Bean
 import org.springframework.context.annotation.Configuration
 import org.springframework.context.annotation.PropertySource
+import org.springframework.core.Ordered
+import org.springframework.core.env.Environment
+import org.springframework.core.task.TaskDecorator
 import org.springframework.format.FormatterRegistry
 import org.springframework.http.HttpHeaders
 import org.springframework.http.converter.HttpMessageConverter
@@ -54,6 +69,7 @@ import org.springframework.web.cors.CorsConfiguration
 import org.springframework.web.cors.DefaultCorsProcessor
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource
 import org.springframework.web.filter.CorsFilter
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer
 import tony.core.jackson.InjectableValueSupplier
 import tony.core.jackson.InjectableValuesBySupplier
@@ -65,14 +81,29 @@ import tony.core.utils.createObjectMapper
 import tony.core.utils.getLogger
 import tony.core.utils.toJsonString
 import tony.web.advice.ExceptionHandler
+import tony.web.advice.RequestTimingInterceptor
+import tony.web.advice.RequestTimingResponseBodyAdvice
 import tony.web.advice.WrapResponseBodyAdvice
 import tony.web.converter.EnumIntValueConverterFactory
 import tony.web.converter.EnumStringValueConverterFactory
+import tony.web.converter.TimingMappingJackson2HttpMessageConverter
 import tony.web.filter.RequestReplaceToRepeatReadFilter
+import tony.web.filter.RequestTimingFilter
 import tony.web.filter.TraceIdFilter
 import tony.web.filter.TraceLogFilter
+import tony.web.log.AsyncTraceLogger
+import tony.web.log.DefaultTraceLogSink
 import tony.web.log.DefaultTraceLogger
+import tony.web.log.MicrometerRequestTimingListener
+import tony.web.log.RequestTimingListener
+import tony.web.log.SegmentFileTraceLogSink
+import tony.web.log.TraceLogFileFormat
+import tony.web.log.TraceLogOverflowPolicy
+import tony.web.log.TraceLogSink
 import tony.web.log.TraceLogger
+import tony.web.log.TraceSampler
+import tony.web.thread.VirtualThreadPinningMonitor
+import tony.web.thread.WebContextTaskDecorator
 
 /**
  * WebConfig
@@ -87,11 +118,20 @@ import tony.web.log.TraceLogger
             .SERVLET
 )
 @PropertySource("classpath:web.config.yml", factory = YamlPropertySourceFactory::class)
-@EnableConfigurationProperties(value = [WebProperties::class, TraceLogProperties::class, WebCorsProperties::class])
+@EnableConfigurationProperties(
+    value = [
+        WebProperties::class,
+        TraceLogProperties::class,
+        RequestTimingProperties::class,
+        WebCorsProperties::class,
+        VirtualThreadProperties::class
+    ]
+)
 @Configuration(proxyBeanMethods = false)
 private class WebConfig(
     private val webProperties: WebProperties,
     private val traceLogProperties: TraceLogProperties,
+    private val requestTimingProperties: RequestTimingProperties,
     private val webCorsProperties: WebCorsProperties,
 ) : WebMvcConfigurer {
     override fun addFormatters(registry: FormatterRegistry) {
@@ -99,6 +139,28 @@ private class WebConfig(
         registry.addConverterFactory(EnumStringValueConverterFactory())
     }
 
+    override fun addInterceptors(registry: InterceptorRegistry) {
+        if (requestTimingProperties.enabled) {
+            registry
+                .addInterceptor(RequestTimingInterceptor())
+                .order(Ordered.LOWEST_PRECEDENCE)
+        }
+    }
+
+    override fun extendMessageConverters(converters: MutableList<HttpMessageConverter<*>>) {
+        if (requestTimingProperties.enabled) {
+            converters.replaceAll { converter ->
+                if (converter is MappingJackson2HttpMessageConverter &&
+                    converter::class.java == MappingJackson2HttpMessageConverter::class.java
+                ) {
+                    TimingMappingJackson2HttpMessageConverter(converter.objectMapper)
+                } else {
+                    converter
+                }
+            }
+        }
+    }
+
     override fun configureMessageConverters(converters: MutableList<HttpMessageConverter<*>>) {
         if (webProperties.fillResponseNullValueEnabled) {
             converters
@@ -122,24 +184,71 @@ private class WebConfig(
 
     @ConditionalOnExpression($$"${web.log.trace.enabled:true}")
     @Bean
-    private fun requestReplaceToRepeatReadFilter() =
-        RequestReplaceToRepeatReadFilter(traceLogProperties.excludePatterns)
+    private fun traceSampler(): TraceSampler =
+        TraceSampler(
+            traceLogProperties.sampleRate,
+            traceLogProperties.samplePathRates,
+            traceLogProperties.alwaysTraceErrors,
+            traceLogProperties.alwaysTraceSlowerThan
+        )
+
+    @ConditionalOnExpression($$"${web.log.trace.enabled:true}")
+    @Bean
+    private fun requestReplaceToRepeatReadFilter(traceSampler: TraceSampler) =
+        RequestReplaceToRepeatReadFilter(
+            traceSampler,
+            traceLogProperties.excludePatterns,
+            traceLogProperties.requestBodyMaxSize.toBytes()
+        )
 
     @Bean
     private fun traceIdFilter() =
         TraceIdFilter()
 
+    @ConditionalOnMissingBean(TraceLogSink::class)
+    @ConditionalOnExpression($$"${web.log.trace.enabled:true}")
+    @Bean
+    private fun defaultTraceLogSink(): TraceLogSink =
+        if (traceLogProperties.fileEnabled) {
+            SegmentFileTraceLogSink(
+                Path.of(traceLogProperties.fileDirectory),
+                traceLogProperties.fileFormat,
+                traceLogProperties.fileSegmentSize.toBytes(),
+                traceLogProperties.fileMaxSegments,
+                traceLogProperties.fileFsyncInterval
+            )
+        } else {
+            DefaultTraceLogSink()
+        }
+
     @ConditionalOnMissingBean(TraceLogger::class)
     @ConditionalOnExpression($$"${web.log.trace.enabled:true}")
     @Bean
-    private fun defaultTraceLogger(): TraceLogger =
-        DefaultTraceLogger()
+    private fun defaultTraceLogger(
+        traceLogSink: TraceLogSink,
+        environment: Environment,
+    ): TraceLogger =
+        if (traceLogProperties.asyncEnabled) {
+            AsyncTraceLogger(
+                traceLogSink,
+                traceLogProperties.asyncBufferSize,
+                traceLogProperties.asyncWorkers,
+                traceLogProperties.asyncOverflowPolicy,
+                Threading.VIRTUAL.isActive(environment)
+            )
+        } else {
+            DefaultTraceLogger(traceLogSink)
+        }
 
     @ConditionalOnExpression($$"${web.log.trace.enabled:true}")
     @Bean
-    private fun traceLogFilter(traceLogger: TraceLogger): TraceLogFilter =
+    private fun traceLogFilter(
+        traceLogger: TraceLogger,
+        traceSampler: TraceSampler,
+    ): TraceLogFilter =
         TraceLogFilter(
             traceLogger,
+            traceSampler,
             traceLogProperties.excludePatterns,
             traceLogProperties.requestBodyMaxSize.toBytes(),
             traceLogProperties.responseBodyMaxSize.toBytes()
@@ -150,6 +259,20 @@ private class WebConfig(
     private fun wrapResponseBodyAdvice(): WrapResponseBodyAdvice =
         WrapResponseBodyAdvice()
 
+    @ConditionalOnExpression($$"${web.timing.enabled:false}")
+    @Bean
+    private fun requestTimingFilter(requestTimingListeners: List<RequestTimingListener>): RequestTimingFilter {
+        getLogger(RequestTimingFilter::class.java.name).info(
+            "Request timing is enabled. Server-Timing header is ${requestTimingProperties.serverTimingEnabled}"
+        )
+        return RequestTimingFilter(requestTimingListeners)
+    }
+
+    @ConditionalOnExpression($$"${web.timing.enabled:false}")
+    @Bean
+    private fun requestTimingResponseBodyAdvice(): RequestTimingResponseBodyAdvice =
+        RequestTimingResponseBodyAdvice(requestTimingProperties.serverTimingEnabled)
+
     @Bean
     private fun exceptionHandler() =
         ExceptionHandler()
@@ -201,8 +324,78 @@ private class WebConfig(
                             .associateBy { it.name }
                     )
             }
+
+    /**
+     * 请求阶段耗时指标, 依赖 micrometer-core.
+     */
+    @ConditionalOnClass(name = [METER_REGISTRY])
+    @ConditionalOnExpression($$"${web.timing.enabled:false}")
+    @Configuration(proxyBeanMethods = false)
+    private class RequestTimingMetricsConfig {
+        @Bean
+        private fun micrometerRequestTimingListener(
+            meterRegistryProvider: ObjectProvider<MeterRegistry>,
+        ): RequestTimingListener =
+            MicrometerRequestTimingListener(meterRegistryProvider)
+    }
+
+    /**
+     * 虚拟线程, spring.threads.virtual.enabled=true 时启用.
+     * Spring Boot 只为 Tomcat、Jetty 配置虚拟线程, Undertow 需要自行把 servlet 调用交给虚拟线程执行.
+     * Undertow 不会关闭外部传入的 executor, 容器销毁时在这里关闭.
+     */
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    @Configuration(proxyBeanMethods = false)
+    private class VirtualThreadConfig(
+        private val virtualThreadProperties: VirtualThreadProperties,
+    ) : DisposableBean {
+        private val undertowExecutor =
+            lazy {
+                Executors.newThreadPerTaskExecutor(
+                    Thread
+                        .ofVirtual()
+                        .name("undertow-virtual-", 1)
+                        .factory()
+                )
+            }
+
+        @Bean
+        private fun undertowVirtualThreadCustomizer(): WebServerFactoryCustomizer<UndertowServletWebServerFactory> =
+            WebServerFactoryCustomizer { factory ->
+                factory.addDeploymentInfoCustomizers(
+                    UndertowDeploymentInfoCustomizer { deploymentInfo ->
+                        deploymentInfo.executor = undertowExecutor.value
+                        deploymentInfo.asyncExecutor = undertowExecutor.value
+                    }
+                )
+            }
+
+        /**
+         * 虚拟线程下请求处理与异步任务都在虚拟线程中, 需要把 MDC 与请求属性带到异步任务.
+         */
+        @ConditionalOnMissingBean(TaskDecorator::class)
+        @Bean
+        private fun webContextTaskDecorator(): TaskDecorator =
+            WebContextTaskDecorator()
+
+        @ConditionalOnClass(name = [RECORDING_STREAM])
+        @ConditionalOnExpression($$"${web.virtual-thread.pinning-monitor-enabled:true}")
+        @Bean
+        private fun virtualThreadPinningMonitor(): VirtualThreadPinningMonitor =
+            VirtualThreadPinningMonitor(virtualThreadProperties.pinningThreshold)
+
+        override fun destroy() {
+            if (undertowExecutor.isInitialized()) {
+                undertowExecutor.value.shutdown()
+            }
+        }
+    }
 }
 
+private const val METER_REGISTRY = "io.micrometer.core.instrument.MeterRegistry"
+
+private const val RECORDING_STREAM = "jdk.jfr.consumer.RecordingStream"
+
 /**
  * WebProperties
  *
@@ -265,6 +458,127 @@ internal data class TraceLogProperties(
      */
     @DefaultValue("50KB")
     val responseBodyMaxSize: DataSize = DataSize.ofKilobytes(50),
+    /**
+     * 采样率, 0 到 1. 未命中采样的请求不截取请求体与响应体.
+     */
+    @DefaultValue("1.0")
+    val sampleRate: Double = 1.0,
+    /**
+     * 按路径覆盖采样率, key 为 url 模式, 多个匹配时取最具体的模式.
+     */
+    val samplePathRates: Map<String, Double> = mapOf(),
+    /**
+     * 未命中采样时, 是否仍记录错误请求(http 状态码 >= 400 或带有业务错误码).
+     */
+    @DefaultValue("true")
+    val alwaysTraceErrors: Boolean = true,
+    /**
+     * 未命中采样时, 超过该耗时的请求仍记录, 0 表示不启用.
+     */
+    @DefaultValue("0ms")
+    val alwaysTraceSlowerThan: Duration = Duration.ZERO,
+    /**
+     * 是否异步输出trace日志, 请求线程只捕获快照. 默认关闭, 开启后会常驻后台输出线程.
+     */
+    @DefaultValue("false")
+    val asyncEnabled: Boolean = false,
+    /**
+     * 异步缓冲区大小, 向上取整为2的幂.
+     */
+    @DefaultValue("8192")
+    val asyncBufferSize: Int = 8192,
+    /**
+     * 异步输出线程数.
+     */
+    @DefaultValue("1")
+    val asyncWorkers: Int = 1,
+    /**
+     * 异步缓冲区满时的处理策略.
+     */
+    @DefaultValue("DROP")
+    val asyncOverflowPolicy: TraceLogOverflowPolicy = TraceLogOverflowPolicy.DROP,
+    /**
+     * 是否输出到内存映射分段文件, 不经过 Logback.
+     */
+    @DefaultValue("false")
+    val fileEnabled: Boolean = false,
+    /**
+     * 分段文件目录.
+     */
+    @DefaultValue("logs/trace")
+    val fileDirectory: String = "logs/trace",
+    /**
+     * 分段文件记录格式.
+     */
+    @DefaultValue("JSON")
+    val fileFormat: TraceLogFileFormat = TraceLogFileFormat.JSON,
+    /**
+     * 单个分段文件大小, 1MB 到 1GB.
+     */
+    @DefaultValue("64MB")
+    val fileSegmentSize: DataSize = DataSize.ofMegabytes(64),
+    /**
+     * 保留分段文件数.
+     */
+    @DefaultValue("16")
+    val fileMaxSegments: Int = 16,
+    /**
+     * 分段文件刷盘间隔.
+     */
+    @DefaultValue("1s")
+    val fileFsyncInterval: Duration = Duration.ofSeconds(1),
+)
+
+/**
+ * 请求阶段耗时配置
+ *
+ * @author tangli
+ * @date 2025/08/02 10:00
+ */
+@ConditionalOnWebApplication(
+    type =
+        ConditionalOnWebApplication
+            .Type
+            .SERVLET
+)
+@ConfigurationProperties(prefix = "web.timing")
+internal data class RequestTimingProperties(
+    /**
+     * 是否记录请求阶段耗时, 默认关闭。
+     */
+    @DefaultValue("false")
+    val enabled: Boolean,
+    /**
+     * 是否输出 Server-Timing 响应头, 会向客户端暴露内部耗时, 默认关闭。
+     */
+    @DefaultValue("false")
+    val serverTimingEnabled: Boolean,
+)
+
+/**
+ * 虚拟线程配置, 需同时开启 spring.threads.virtual.enabled
+ *
+ * @author tangli
+ * @date 2025/08/08 10:00
+ */
+@ConditionalOnWebApplication(
+    type =
+        ConditionalOnWebApplication
+            .Type
+            .SERVLET
+)
+@ConfigurationProperties(prefix = "web.virtual-thread")
+internal data class VirtualThreadProperties(
+    /**
+     * 是否检测虚拟线程钉住(synchronized 块内阻塞等)。
+     */
+    @DefaultValue("true")
+    val pinningMonitorEnabled: Boolean,
+    /**
+     * 钉住超过该时长才记录。
+     */
+    @DefaultValue("20ms")
+    val pinningThreshold: Duration,
 )
 
 /**
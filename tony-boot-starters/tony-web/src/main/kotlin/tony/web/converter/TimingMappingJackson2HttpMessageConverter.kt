@@ -0,0 +1,55 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.web.converter
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import java.lang.reflect.Type
+import org.springframework.http.HttpOutputMessage
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter
+import tony.web.log.RequestTimings
+
+/**
+ * 记录 serialize 阶段耗时的 Jackson 消息转换器.
+ *
+ * @author tangli
+ * @date 2025/08/02 10:00
+ */
+internal class TimingMappingJackson2HttpMessageConverter(
+    objectMapper: ObjectMapper,
+) : MappingJackson2HttpMessageConverter(objectMapper) {
+    override fun writeInternal(
+        obj: Any,
+        type: Type?,
+        outputMessage: HttpOutputMessage,
+    ) {
+        RequestTimings.span(SERIALIZE) {
+            super.writeInternal(obj, type, outputMessage)
+        }
+    }
+
+    private companion object {
+        private const val SERIALIZE = "serialize"
+    }
+}
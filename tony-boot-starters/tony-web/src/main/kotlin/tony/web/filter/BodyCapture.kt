@@ -0,0 +1,351 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.web.filter
+
+import jakarta.servlet.ReadListener
+import jakarta.servlet.ServletInputStream
+import jakarta.servlet.ServletOutputStream
+import jakarta.servlet.WriteListener
+import jakarta.servlet.http.HttpServletResponse
+import jakarta.servlet.http.HttpServletResponseWrapper
+import java.io.ByteArrayInputStream
+import java.io.InputStream
+import java.io.OutputStreamWriter
+import java.io.PrintWriter
+import java.util.concurrent.ArrayBlockingQueue
+import org.springframework.web.util.ContentCachingResponseWrapper
+
+/**
+ * 请求体/响应体截取缓冲池.
+ *
+ * 缓冲区长度固定为截取上限, 在首次写入时借出, 请求结束后归还, 超出池容量的直接丢弃.
+ *
+ * @author tangli
+ * @date 2025/07/31 10:00
+ */
+internal class BodyCaptureBufferPool(
+    maxSize: Long,
+) {
+    val bufferSize: Int = maxSize.coerceIn(0, Int.MAX_VALUE.toLong() - 8).toInt()
+
+    private val buffers = ArrayBlockingQueue<ByteArray>(MAX_POOLED_BUFFERS)
+
+    fun acquire(): ByteArray =
+        buffers.poll() ?: ByteArray(bufferSize)
+
+    fun release(buffer: ByteArray) {
+        buffers.offer(buffer)
+    }
+
+    private companion object {
+        private const val MAX_POOLED_BUFFERS = 64
+    }
+}
+
+/**
+ * 流式截取.
+ *
+ * 只保留前 [BodyCaptureBufferPool.bufferSize] 个字节, 并记录流经的总长度. 非线程安全, 只在请求线程中使用.
+ *
+ * @author tangli
+ * @date 2025/07/31 10:00
+ */
+internal class BodyCapture(
+    private val pool: BodyCaptureBufferPool,
+) {
+    private var buffer: ByteArray? = null
+
+    private var capturedSize = 0
+
+    /**
+     * 流经的总字节数.
+     */
+    var totalSize: Long = 0L
+        private set
+
+    /**
+     * 是否完整截取.
+     */
+    val isComplete: Boolean
+        get() = capturedSize.toLong() == totalSize
+
+    fun write(b: Int) {
+        if (capturedSize < pool.bufferSize) {
+            buffer().also { it[capturedSize++] = b.toByte() }
+        }
+        totalSize++
+    }
+
+    fun write(
+        bytes: ByteArray,
+        offset: Int,
+        length: Int,
+    ) {
+        if (length <= 0) {
+            return
+        }
+        val copyLength = minOf(length, pool.bufferSize - capturedSize)
+        if (copyLength > 0) {
+            System.arraycopy(bytes, offset, buffer(), capturedSize, copyLength)
+            capturedSize += copyLength
+        }
+        totalSize += length
+    }
+
+    /**
+     * 已截取的内容副本.
+     */
+    fun toByteArray(): ByteArray =
+        buffer?.copyOf(capturedSize) ?: ByteArray(0)
+
+    /**
+     * 归还缓冲区, 之后不能再读取已截取内容.
+     */
+    fun release() {
+        buffer?.let(pool::release)
+        buffer = null
+        capturedSize = 0
+    }
+
+    private fun buffer(): ByteArray =
+        buffer ?: pool.acquire().also { buffer = it }
+}
+
+/**
+ * 截取请求体的输入流, 读取的数据原样返回.
+ *
+ * @author tangli
+ * @date 2025/07/31 10:00
+ */
+internal class BodyCaptureInputStream(
+    private val delegate: ServletInputStream,
+    private val capture: BodyCapture,
+) : ServletInputStream() {
+    override fun read(): Int =
+        delegate
+            .read()
+            .also {
+                if (it >= 0) {
+                    capture.write(it)
+                }
+            }
+
+    override fun read(
+        b: ByteArray,
+        off: Int,
+        len: Int,
+    ): Int =
+        delegate
+            .read(b, off, len)
+            .also {
+                if (it > 0) {
+                    capture.write(b, off, it)
+                }
+            }
+
+    override fun available(): Int =
+        delegate.available()
+
+    override fun close() =
+        delegate.close()
+
+    override fun isFinished(): Boolean =
+        delegate.isFinished
+
+    override fun isReady(): Boolean =
+        delegate.isReady
+
+    override fun setReadListener(readListener: ReadListener?) =
+        delegate.setReadListener(readListener)
+}
+
+/**
+ * 截取响应体的输出流, 写入的数据直接写到原响应.
+ *
+ * @author tangli
+ * @date 2025/07/31 10:00
+ */
+internal class BodyCaptureOutputStream(
+    private val delegate: ServletOutputStream,
+    private val capture: BodyCapture,
+) : ServletOutputStream() {
+    override fun write(b: Int) {
+        delegate.write(b)
+        capture.write(b)
+    }
+
+    override fun write(
+        b: ByteArray,
+        off: Int,
+        len: Int,
+    ) {
+        delegate.write(b, off, len)
+        capture.write(b, off, len)
+    }
+
+    override fun flush() =
+        delegate.flush()
+
+    override fun close() =
+        delegate.close()
+
+    override fun isReady(): Boolean =
+        delegate.isReady
+
+    override fun setWriteListener(writeListener: WriteListener?) =
+        delegate.setWriteListener(writeListener)
+}
+
+/**
+ * 截取响应体的响应包装器.
+ *
+ * 与 [org.springframework.web.util.ContentCachingResponseWrapper] 不同, 响应体直接写到原响应, 不在内存中缓存,
+ * 只保留前 n 个字节用于日志, 并记录响应体总长度.
+ *
+ * @author tangli
+ * @date 2025/07/31 10:00
+ */
+public class BodyCaptureResponseWrapper internal constructor(
+    response: HttpServletResponse,
+    pool: BodyCaptureBufferPool,
+) : HttpServletResponseWrapper(response) {
+    private val capture = BodyCapture(pool)
+
+    private var outputStream: ServletOutputStream? = null
+
+    private var writer: PrintWriter? = null
+
+    /**
+     * 已截取的响应体, 响应体超过截取上限时只有前一部分.
+     */
+    public val contentAsByteArray: ByteArray
+        get() = capture.toByteArray()
+
+    /**
+     * 响应体总长度.
+     */
+    public val contentSize: Long
+        get() = capture.totalSize
+
+    /**
+     * 响应体是否完整截取.
+     */
+    @get:JvmSynthetic
+    internal val isContentComplete: Boolean
+        get() = capture.isComplete
+
+    override fun getOutputStream(): ServletOutputStream =
+        outputStream ?: BodyCaptureOutputStream(super.getOutputStream(), capture).also { outputStream = it }
+
+    override fun getWriter(): PrintWriter =
+        writer ?: PrintWriter(OutputStreamWriter(getOutputStream(), characterEncoding)).also { writer = it }
+
+    override fun flushBuffer() {
+        writer?.flush()
+        super.flushBuffer()
+    }
+
+    /**
+     * 把 [getWriter] 中尚未写出的字符写到原响应.
+     */
+    @JvmSynthetic
+    internal fun flushWriter() {
+        writer?.flush()
+    }
+
+    /**
+     * 归还截取缓冲区.
+     */
+    @JvmSynthetic
+    internal fun release() {
+        capture.release()
+    }
+
+    /**
+     * 以 [ContentCachingResponseWrapper] 的形式查看已截取的响应体, 供旧签名的 [tony.web.log.TraceLogger] 使用.
+     */
+    @JvmSynthetic
+    internal fun toContentCachingResponse(): ContentCachingResponseWrapper =
+        CapturedContentResponseWrapper(this)
+
+    internal companion object {
+        /**
+         * 由 [ContentCachingResponseWrapper] 已缓存的响应体构造, 只截取不写出, 兼容旧的 [tony.web.log.TraceLogger] 调用.
+         * @param [response] 已缓存响应体的响应
+         * @param [maxSize] 截取上限
+         */
+        @JvmSynthetic
+        internal fun of(
+            response: ContentCachingResponseWrapper,
+            maxSize: Long,
+        ): BodyCaptureResponseWrapper =
+            of(response, BodyCaptureBufferPool(maxSize), response.contentAsByteArray)
+
+        /**
+         * 由已写出的响应构造, 只截取给定的响应体, 用于未包装的响应补记日志.
+         * @param [response] 响应
+         * @param [pool] 截取缓冲池
+         * @param [content] 响应体, 为 null 时不截取
+         */
+        @JvmSynthetic
+        internal fun of(
+            response: HttpServletResponse,
+            pool: BodyCaptureBufferPool,
+            content: ByteArray?,
+        ): BodyCaptureResponseWrapper =
+            BodyCaptureResponseWrapper(response, pool).also { wrapper ->
+                if (content != null) {
+                    wrapper.capture.write(content, 0, content.size)
+                }
+            }
+    }
+}
+
+/**
+ * 已截取响应体的 [ContentCachingResponseWrapper] 视图.
+ *
+ * 响应体已直接写到原响应, 这里只返回截取的内容, [copyBodyToResponse] 不再写出.
+ *
+ * @author tangli
+ * @date 2025/07/31 10:00
+ */
+private class CapturedContentResponseWrapper(
+    private val response: BodyCaptureResponseWrapper,
+) : ContentCachingResponseWrapper(response) {
+    override fun getContentAsByteArray(): ByteArray =
+        response.contentAsByteArray
+
+    override fun getContentInputStream(): InputStream =
+        ByteArrayInputStream(response.contentAsByteArray)
+
+    override fun getContentSize(): Int =
+        response.contentAsByteArray.size
+
+    override fun copyBodyToResponse() =
+        Unit
+
+    override fun copyBodyToResponse(complete: Boolean) =
+        Unit
+}
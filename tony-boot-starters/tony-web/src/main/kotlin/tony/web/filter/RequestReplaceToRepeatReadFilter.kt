@@ -45,11 +45,14 @@ import java.util.Collections
 import org.springframework.core.PriorityOrdered
 import org.springframework.http.HttpMethod
 import org.springframework.http.MediaType
+import org.springframework.util.unit.DataSize
 import org.springframework.web.filter.OncePerRequestFilter
+import tony.core.utils.AntPathMatchIndex
 import tony.core.utils.antPathMatchAny
 import tony.core.utils.sanitizedPath
 import tony.web.WebContext
-import tony.web.filter.RepeatReadRequestWrapper.Companion.toRepeatRead
+import tony.web.log.TraceSampleDecision
+import tony.web.log.TraceSampler
 import tony.web.utils.isCorsPreflightRequest
 
 /**
@@ -58,27 +61,47 @@ import tony.web.utils.isCorsPreflightRequest
  * @date 2023/09/13 19:47
  */
 internal class RequestReplaceToRepeatReadFilter(
+    /**
+     * 采样器, 只包装命中采样的请求
+     */
+    private val traceSampler: TraceSampler,
     /**
      * 请求日志排除url
      */
     traceLogExcludePatterns: List<String>,
+    /**
+     * 请求体截取长度
+     */
+    requestBodyMaxSize: Long,
 ) : OncePerRequestFilter(),
     PriorityOrdered {
     private val excludedUrls by lazy(LazyThreadSafetyMode.PUBLICATION) {
-        traceLogExcludePatterns
-            .map { sanitizedPath("${WebContext.contextPath}/$it") }
-            .plus(WebContext.excludePathPatterns(WebContext.contextPath))
+        AntPathMatchIndex(
+            traceLogExcludePatterns
+                .map { sanitizedPath("${WebContext.contextPath}/$it") }
+                .plus(WebContext.excludePathPatterns(WebContext.contextPath))
+        )
     }
 
+    private val captureBufferPool = BodyCaptureBufferPool(requestBodyMaxSize)
+
     override fun doFilterInternal(
         request: HttpServletRequest,
         response: HttpServletResponse,
         filterChain: FilterChain,
-    ) =
-        filterChain.doFilter(
-            request.toRepeatRead(),
-            response
-        )
+    ) {
+        // 未命中采样的请求只在结束后按状态与耗时补记, 不需要请求体
+        if (traceSampler.decide(request) != TraceSampleDecision.FULL) {
+            filterChain.doFilter(request, response)
+            return
+        }
+        val repeatReadRequest = RepeatReadRequestWrapper(request, captureBufferPool)
+        try {
+            filterChain.doFilter(repeatReadRequest, response)
+        } finally {
+            repeatReadRequest.release()
+        }
+    }
 
     override fun shouldNotFilter(request: HttpServletRequest) =
         request
@@ -87,11 +110,13 @@ internal class RequestReplaceToRepeatReadFilter(
             request.isCorsPreflightRequest
 
     override fun getOrder() =
-        PriorityOrdered.HIGHEST_PRECEDENCE + 1
+        PriorityOrdered.HIGHEST_PRECEDENCE + 2
 }
 
 /**
  * 可重复读请求包装器.
+ *
+ * 请求体默认边读边截取前 n 个字节, 不在内存中缓存; 调用 [contentAsByteArray] 时才完整缓存, 之后可重复读取.
  * @author tangli
  * @date 2023/09/28 19:03
  */
@@ -99,6 +124,7 @@ public class RepeatReadRequestWrapper
     @Throws(IOException::class)
     internal constructor(
         request: HttpServletRequest,
+        captureBufferPool: BodyCaptureBufferPool,
     ) : HttpServletRequestWrapper(request) {
         /**
          * Don't know why must do this can get parts in controller.
@@ -117,44 +143,111 @@ public class RepeatReadRequestWrapper
         override fun getParts(): MutableCollection<Part> =
             initializedParts
 
-        private val cachedContent =
-            if (!isFormPost()) {
-                request.inputStream.readBytes()
-            } else {
-                ByteArray(0)
-            }
+        private val capture = BodyCapture(captureBufferPool)
 
+        /**
+         * 完整缓存的请求体, 只在需要重复读取时才读取.
+         */
+        private var cachedContent: ByteArray? = null
+
+        private var captureInputStream: ServletInputStream? = null
+
+        /**
+         * 完整请求体, 只返回完整内容.
+         *
+         * 请求体尚未被读取时, 会完整读入内存, 之后 [getInputStream] 可重复读取;
+         * 请求体已读完且完整截取时, 返回截取的内容; 表单提交的请求体由容器解析, 返回空数组.
+         * @throws IllegalStateException 请求体已被读取, 但未读完或超过截取上限, 只有部分内容时
+         */
         public val contentAsByteArray: ByteArray
             get() {
-                return cachedContent.copyOf()
+                cachedContent?.let { return it.copyOf() }
+                if (isFormPost()) {
+                    return ByteArray(0)
+                }
+                val inputStream = captureInputStream ?: return cacheContent().copyOf()
+                check(inputStream.isFinished && capture.isComplete) {
+                    "Request body has been read, only a partial capture of ${capture.totalSize} bytes is available."
+                }
+                return capture.toByteArray()
             }
 
-        override fun getInputStream(): ServletInputStream =
-            object : ServletInputStream() {
-                private val byteArrayInputStream =
-                    ByteArrayInputStream(cachedContent)
+        /**
+         * 请求体长度, 只统计已读取部分.
+         */
+        @get:JvmSynthetic
+        internal val contentSize: Long
+            get() = capture.totalSize
 
-                override fun isReady() =
-                    true
+        /**
+         * 已截取的请求体, 不触发完整缓存.
+         */
+        @get:JvmSynthetic
+        internal val capturedContent: ByteArray
+            get() = capture.toByteArray()
 
-                override fun setReadListener(listener: ReadListener?) =
-                    Unit
+        /**
+         * 请求体是否完整截取.
+         */
+        @get:JvmSynthetic
+        internal val isContentComplete: Boolean
+            get() = capture.isComplete
 
-                override fun isFinished() =
-                    byteArrayInputStream.available() == 0
+        override fun getInputStream(): ServletInputStream {
+            val content = cachedContent
+            return when {
+                content != null -> ByteArrayServletInputStream(content)
+                isFormPost() -> super.getInputStream()
+                else -> captureInputStream()
+            }
+        }
 
-                override fun read() =
-                    byteArrayInputStream.read()
+        private fun captureInputStream(): ServletInputStream =
+            captureInputStream
+                ?: BodyCaptureInputStream(super.getInputStream(), capture)
+                    .also { captureInputStream = it }
 
-                override fun reset() =
-                    byteArrayInputStream.reset()
+        override fun getReader(): BufferedReader =
+            BufferedReader(InputStreamReader(inputStream, characterEncoding ?: StandardCharsets.UTF_8.name()))
 
-                override fun markSupported() =
-                    byteArrayInputStream.markSupported()
+        /**
+         * 请求体未被读取时, 读取请求体并截取前一部分用于日志, 只截取不缓存.
+         *
+         * 只处理声明了长度且不超过 [maxSize] 的请求, 在请求处理结束后调用, 不影响业务读取.
+         * @param [maxSize] 请求体最大长度
+         */
+        @JvmSynthetic
+        internal fun captureUnreadContent(maxSize: Long) {
+            if (captureInputStream != null ||
+                cachedContent != null ||
+                isFormPost() ||
+                contentLengthLong !in 1..maxSize
+            ) {
+                return
             }
+            val inputStream = captureInputStream()
+            val scratch = ByteArray(contentLengthLong.coerceAtMost(UNREAD_SCRATCH_SIZE).toInt())
+            while (inputStream.read(scratch, 0, scratch.size) >= 0) {
+                // 只为截取, 丢弃读出的内容
+            }
+        }
 
-        override fun getReader(): BufferedReader =
-            BufferedReader(InputStreamReader(ByteArrayInputStream(cachedContent), StandardCharsets.UTF_8))
+        /**
+         * 归还截取缓冲区.
+         */
+        @JvmSynthetic
+        internal fun release() {
+            capture.release()
+        }
+
+        private fun cacheContent(): ByteArray =
+            super
+                .getInputStream()
+                .readBytes()
+                .also {
+                    capture.write(it, 0, it.size)
+                    cachedContent = it
+                }
 
         private fun isFormPost() =
             contentType in formPostContentTypes &&
@@ -163,9 +256,15 @@ public class RepeatReadRequestWrapper
                     .matches(method)
 
         public companion object {
+            private val defaultCaptureBufferPool by lazy(LazyThreadSafetyMode.PUBLICATION) {
+                BodyCaptureBufferPool(DataSize.ofKilobytes(50).toBytes())
+            }
+
             @JvmStatic
             public fun HttpServletRequest.toRepeatRead(): RepeatReadRequestWrapper =
-                this as? RepeatReadRequestWrapper ?: RepeatReadRequestWrapper(this)
+                this as? RepeatReadRequestWrapper ?: RepeatReadRequestWrapper(this, defaultCaptureBufferPool)
+
+            private const val UNREAD_SCRATCH_SIZE = 8192L
 
             private val formPostContentTypes =
                 arrayOf(
@@ -174,3 +273,37 @@ public class RepeatReadRequestWrapper
                 )
         }
     }
+
+/**
+ * 基于字节数组的输入流.
+ *
+ * @author tangli
+ * @date 2025/07/31 10:00
+ */
+private class ByteArrayServletInputStream(
+    content: ByteArray,
+) : ServletInputStream() {
+    private val byteArrayInputStream = ByteArrayInputStream(content)
+
+    override fun isReady() =
+        true
+
+    override fun setReadListener(listener: ReadListener?) =
+        Unit
+
+    override fun isFinished() =
+        byteArrayInputStream.available() == 0
+
+    override fun read() =
+        byteArrayInputStream.read()
+
+    override fun read(
+        b: ByteArray,
+        off: Int,
+        len: Int,
+    ) =
+        byteArrayInputStream.read(b, off, len)
+
+    override fun available() =
+        byteArrayInputStream.available()
+}
@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.web.filter
+
+import jakarta.servlet.FilterChain
+import jakarta.servlet.http.HttpServletRequest
+import jakarta.servlet.http.HttpServletResponse
+import org.springframework.core.PriorityOrdered
+import org.springframework.web.filter.OncePerRequestFilter
+import tony.core.utils.getLogger
+import tony.web.log.RequestTiming
+import tony.web.log.RequestTimingListener
+import tony.web.log.RequestTimings
+
+/**
+ * 请求阶段耗时过滤器.
+ *
+ * 紧随 [TraceIdFilter] 创建 [RequestTiming], 请求结束时交给 [RequestTimingListener].
+ * @author tangli
+ * @date 2025/08/02 10:00
+ */
+internal class RequestTimingFilter(
+    private val listeners: List<RequestTimingListener>,
+) : OncePerRequestFilter(),
+    PriorityOrdered {
+    private val log = getLogger()
+
+    override fun doFilterInternal(
+        request: HttpServletRequest,
+        response: HttpServletResponse,
+        filterChain: FilterChain,
+    ) {
+        val timing = RequestTiming(System.nanoTime())
+        request.setAttribute(RequestTimings.ATTRIBUTE_NAME, timing)
+        try {
+            filterChain.doFilter(request, response)
+        } finally {
+            listeners.forEach {
+                try {
+                    it.onCompleted(request, timing)
+                } catch (e: Exception) {
+                    log.error("Request timing listener error", e)
+                }
+            }
+        }
+    }
+
+    override fun getOrder() =
+        PriorityOrdered.HIGHEST_PRECEDENCE + 1
+}
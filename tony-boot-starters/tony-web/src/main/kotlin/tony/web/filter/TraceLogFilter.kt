@@ -39,10 +39,11 @@ import org.slf4j.MDC
 import org.springframework.core.PriorityOrdered
 import org.springframework.util.unit.DataSize
 import org.springframework.web.filter.OncePerRequestFilter
-import org.springframework.web.util.ContentCachingResponseWrapper
 import tony.core.TRACE_ID_HEADER_NAME
+import tony.core.utils.AntPathMatchIndex
 import tony.core.utils.antPathMatchAny
 import tony.core.utils.getLogger
+import tony.core.utils.globalObjectMapper
 import tony.core.utils.mdcPutOrGetDefault
 import tony.core.utils.sanitizedPath
 import tony.core.utils.toInstant
@@ -50,6 +51,8 @@ import tony.core.utils.uuid
 import tony.web.WebContext
 import tony.web.filter.RepeatReadRequestWrapper.Companion.toRepeatRead
 import tony.web.log.TraceLogger
+import tony.web.log.TraceSampleDecision
+import tony.web.log.TraceSampler
 import tony.web.utils.isCorsPreflightRequest
 
 /**
@@ -59,6 +62,10 @@ import tony.web.utils.isCorsPreflightRequest
  */
 internal class TraceLogFilter(
     private val traceLogger: TraceLogger,
+    /**
+     * 采样器
+     */
+    private val traceSampler: TraceSampler,
     /**
      * 请求日志排除url
      */
@@ -86,11 +93,20 @@ internal class TraceLogFilter(
         }
     }
 
+    private val captureBufferPool = BodyCaptureBufferPool(responseBodyMaxSize)
+
+    /**
+     * 未经 [RequestReplaceToRepeatReadFilter] 包装的请求不截取请求体, 只记录长度以外的信息.
+     */
+    private val uncapturedBufferPool = BodyCaptureBufferPool(0)
+
     private val excludedUrls by lazy(LazyThreadSafetyMode.PUBLICATION) {
-        WebContext
-            .responseWrapExcludePatterns
-            .plus(traceLogExcludePatterns.map { sanitizedPath("${WebContext.contextPath}/$it") })
-            .plus(WebContext.excludePathPatterns(WebContext.contextPath))
+        AntPathMatchIndex(
+            WebContext
+                .responseWrapExcludePatterns
+                .plus(traceLogExcludePatterns.map { sanitizedPath("${WebContext.contextPath}/$it") })
+                .plus(WebContext.excludePathPatterns(WebContext.contextPath))
+        )
     }
 
     @Throws(IOException::class, ServletException::class)
@@ -103,43 +119,84 @@ internal class TraceLogFilter(
         if (shouldNotFilter(request)) {
             filterChain.doFilter(request, response)
         } else {
-            doFilterTrace(
-                request.toRepeatRead(),
-                ContentCachingResponseWrapper(response),
-                filterChain,
-                LocalDateTime.now()
-            )
+            when (traceSampler.decide(request)) {
+                TraceSampleDecision.FULL -> {
+                    doFilterTrace(
+                        request.toRepeatRead(),
+                        BodyCaptureResponseWrapper(response, captureBufferPool),
+                        filterChain,
+                        LocalDateTime.now()
+                    )
+                }
+
+                TraceSampleDecision.TAIL -> {
+                    doFilterTail(request, response, filterChain, LocalDateTime.now())
+                }
+
+                TraceSampleDecision.SKIP -> {
+                    filterChain.doFilter(request, response)
+                }
+            }
         }
 
     @Throws(IOException::class, ServletException::class)
     private fun doFilterTrace(
         request: RepeatReadRequestWrapper,
-        response: ContentCachingResponseWrapper,
+        response: BodyCaptureResponseWrapper,
         chain: FilterChain,
         startTime: LocalDateTime,
     ) =
         try {
             chain.doFilter(request, response)
         } finally {
-            val elapsedTime =
-                System.currentTimeMillis() -
-                    startTime
-                        .toInstant()
-                        .toEpochMilli()
-
-            log(request, response, elapsedTime)
-            // 确保只调用一次 copyBodyToResponse
-            response.copyBodyToResponse()
+            // 先把 writer 中缓冲的字符写出, 截取内容才完整
+            response.flushWriter()
+            log(request, response, elapsedTime(startTime))
+            response.release()
         }
 
+    /**
+     * 未命中采样: 请求与响应不包装, 结束后只按状态码、错误码响应头与耗时判断是否记录.
+     * 响应体只有异常处理登记的错误响应体, 见 [TraceSampler.promoteErrorBody].
+     */
+    @Throws(IOException::class, ServletException::class)
+    private fun doFilterTail(
+        request: HttpServletRequest,
+        response: HttpServletResponse,
+        chain: FilterChain,
+        startTime: LocalDateTime,
+    ) =
+        try {
+            chain.doFilter(request, response)
+        } finally {
+            val elapsedTime = elapsedTime(startTime)
+            if (traceSampler.shouldTraceTail(response, elapsedTime)) {
+                val errorBody =
+                    TraceSampler
+                        .errorBody(request)
+                        ?.let { runCatching { globalObjectMapper.writeValueAsBytes(it) }.getOrNull() }
+                val capturedResponse = BodyCaptureResponseWrapper.of(response, captureBufferPool, errorBody)
+                log(request, capturedResponse, elapsedTime)
+                capturedResponse.release()
+            }
+        }
+
+    private fun elapsedTime(startTime: LocalDateTime): Long =
+        System.currentTimeMillis() -
+            startTime
+                .toInstant()
+                .toEpochMilli()
+
     private fun log(
-        request: RepeatReadRequestWrapper,
-        response: ContentCachingResponseWrapper,
+        request: HttpServletRequest,
+        response: BodyCaptureResponseWrapper,
         elapsedTime: Long,
     ) =
         try {
+            // 业务未读取的请求体在此补读截取, 与读取过的请求体一样记录
+            (request as? RepeatReadRequestWrapper)?.captureUnreadContent(requestBodyMaxSize)
             traceLogger.traceLog(
-                request,
+                request as? RepeatReadRequestWrapper ?: RepeatReadRequestWrapper(request, uncapturedBufferPool),
                 response,
                 elapsedTime,
                 requestBodyMaxSize,
@@ -156,7 +213,7 @@ internal class TraceLogFilter(
             request.isCorsPreflightRequest
 
     override fun getOrder() =
-        PriorityOrdered.HIGHEST_PRECEDENCE + 2
+        PriorityOrdered.HIGHEST_PRECEDENCE + 3
 }
 
 /**
@@ -0,0 +1,320 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.web.log
+
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicIntegerArray
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+import java.util.concurrent.atomic.AtomicReferenceArray
+import java.util.concurrent.locks.LockSupport
+import org.slf4j.MDC
+import org.springframework.web.util.ContentCachingResponseWrapper
+import tony.core.TRACE_ID_HEADER_NAME
+import tony.core.utils.getLogger
+import tony.web.filter.BodyCaptureResponseWrapper
+import tony.web.filter.RepeatReadRequestWrapper
+
+/**
+ * 异步 trace 日志缓冲区满时的处理策略.
+ *
+ * @author tangli
+ * @date 2025/07/30 10:00
+ */
+public enum class TraceLogOverflowPolicy {
+    /**
+     * 丢弃新日志, 不阻塞请求线程.
+     */
+    DROP,
+
+    /**
+     * 请求线程等待缓冲区空位, 不丢日志.
+     */
+    BLOCK,
+}
+
+/**
+ * 异步 trace 日志.
+ *
+ * 请求线程只捕获 [TraceLogRecord] 快照并放入有界无锁环形缓冲区,
+ * 格式化、JSON 解析与输出由后台线程交给 [TraceLogSink] 完成.
+ *
+ * 后台线程空闲时挂起, 由入队的请求线程唤醒, 不轮询.
+ * 关闭后不再接收新日志入队, 改为在调用线程直接输出; 关闭时会等待后台线程输出完缓冲区中的日志.
+ *
+ * @author tangli
+ * @date 2025/07/30 10:00
+ */
+internal class AsyncTraceLogger(
+    private val sink: TraceLogSink,
+    bufferSize: Int,
+    workers: Int,
+    private val overflowPolicy: TraceLogOverflowPolicy,
+    /**
+     * 输出线程是否使用虚拟线程
+     */
+    virtualThreads: Boolean = false,
+) : TraceLogger,
+    AutoCloseable {
+    private val log = getLogger()
+
+    private val buffer = TraceLogRingBuffer(bufferSize)
+
+    @Volatile
+    private var running = true
+
+    /**
+     * 各后台线程是否已挂起等待唤醒, 1 为挂起.
+     */
+    private val idle: AtomicIntegerArray
+
+    private val threads: List<Thread>
+
+    init {
+        val threadBuilder =
+            if (virtualThreads) {
+                Thread.ofVirtual().name("trace-log-", 1)
+            } else {
+                Thread.ofPlatform().daemon().name("trace-log-", 1)
+            }
+        val workerCount = workers.coerceAtLeast(1)
+        idle = AtomicIntegerArray(workerCount)
+        threads = List(workerCount) { index -> threadBuilder.start { drain(index) } }
+        TraceLogMetrics.bindQueueDepth(buffer::size)
+        log.info(
+            "Async trace log is enabled. " +
+                "Buffer size is ${buffer.capacity}, workers is ${threads.size}, overflow policy is $overflowPolicy, " +
+                "virtual threads is $virtualThreads"
+        )
+    }
+
+    override fun traceLog(
+        request: RepeatReadRequestWrapper,
+        response: ContentCachingResponseWrapper,
+        elapsedTime: Long,
+        requestBodyMaxSize: Long,
+        responseBodyMaxSize: Long,
+    ) {
+        traceLog(
+            request,
+            BodyCaptureResponseWrapper.of(response, responseBodyMaxSize),
+            elapsedTime,
+            requestBodyMaxSize,
+            responseBodyMaxSize
+        )
+    }
+
+    override fun traceLog(
+        request: RepeatReadRequestWrapper,
+        response: BodyCaptureResponseWrapper,
+        elapsedTime: Long,
+        requestBodyMaxSize: Long,
+        responseBodyMaxSize: Long,
+    ) {
+        val record =
+            TraceLogRecord.capture(
+                request,
+                response,
+                System.currentTimeMillis() - elapsedTime,
+                elapsedTime,
+                requestBodyMaxSize,
+                responseBodyMaxSize
+            )
+        if (!running) {
+            sink.write(record)
+            return
+        }
+        if (buffer.offer(record)) {
+            signal()
+            return
+        }
+        when (overflowPolicy) {
+            TraceLogOverflowPolicy.DROP -> TraceLogMetrics.recordDropped()
+            TraceLogOverflowPolicy.BLOCK -> offerBlocking(record)
+        }
+    }
+
+    private fun offerBlocking(record: TraceLogRecord) {
+        TraceLogMetrics.recordBlocked()
+        while (!buffer.offer(record)) {
+            if (!running) {
+                sink.write(record)
+                return
+            }
+            LockSupport.parkNanos(BLOCK_PARK_NANOS)
+        }
+        signal()
+    }
+
+    /**
+     * 唤醒一个挂起的后台线程.
+     */
+    private fun signal() {
+        for (index in 0 until idle.length()) {
+            if (idle.compareAndSet(index, 1, 0)) {
+                LockSupport.unpark(threads[index])
+                return
+            }
+        }
+    }
+
+    private fun drain(index: Int) {
+        while (true) {
+            val record = buffer.poll()
+            if (record == null) {
+                if (!running) {
+                    return
+                }
+                idle.set(index, 1)
+                // 标记挂起后重查, 避免错过标记前入队的日志
+                if (buffer.size() == 0 && running) {
+                    LockSupport.park(this)
+                }
+                idle.set(index, 0)
+                continue
+            }
+            write(record)
+        }
+    }
+
+    private fun write(record: TraceLogRecord) {
+        val traceId = record.traceId
+        if (traceId != null) {
+            MDC.put(TRACE_ID_HEADER_NAME, traceId)
+        }
+        try {
+            sink.write(record)
+        } catch (e: Exception) {
+            TraceLogMetrics.recordFailed()
+            log.error("Trace log error", e)
+        } finally {
+            MDC.remove(TRACE_ID_HEADER_NAME)
+        }
+    }
+
+    override fun close() {
+        running = false
+        threads.forEach(LockSupport::unpark)
+        threads.forEach {
+            it.join(TimeUnit.SECONDS.toMillis(CLOSE_WAIT_SECONDS))
+        }
+        // 关闭过程中入队的日志
+        generateSequence { buffer.poll() }.forEach(::write)
+        TraceLogMetrics.bindQueueDepth { 0 }
+    }
+
+    private companion object {
+        private val BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50)
+        private const val CLOSE_WAIT_SECONDS = 5L
+    }
+}
+
+/**
+ * 有界多生产者多消费者环形缓冲区.
+ *
+ * 每个槽位带序号, 生产者与消费者分别以 CAS 推进写、读位置, 不加锁.
+ * 容量向上取整为 2 的幂.
+ *
+ * @author tangli
+ * @date 2025/07/30 10:00
+ */
+private class TraceLogRingBuffer(
+    bufferSize: Int,
+) {
+    val capacity: Int =
+        (bufferSize.coerceIn(2, 1 shl 30) - 1).takeHighestOneBit() shl 1
+
+    private val mask = capacity - 1L
+
+    private val records = AtomicReferenceArray<TraceLogRecord?>(capacity)
+
+    private val sequences =
+        AtomicLongArray(capacity).apply {
+            for (i in 0 until capacity) {
+                set(i, i.toLong())
+            }
+        }
+
+    private val writePosition = AtomicLong()
+
+    private val readPosition = AtomicLong()
+
+    fun size(): Int =
+        (writePosition.get() - readPosition.get())
+            .coerceIn(0, capacity.toLong())
+            .toInt()
+
+    fun offer(record: TraceLogRecord): Boolean {
+        var position = writePosition.get()
+        while (true) {
+            val index = (position and mask).toInt()
+            val diff = sequences.get(index) - position
+            when {
+                diff == 0L -> {
+                    if (writePosition.compareAndSet(position, position + 1)) {
+                        records.set(index, record)
+                        sequences.lazySet(index, position + 1)
+                        return true
+                    }
+                    position = writePosition.get()
+                }
+
+                diff < 0L -> {
+                    return false
+                }
+
+                else -> {
+                    position = writePosition.get()
+                }
+            }
+        }
+    }
+
+    fun poll(): TraceLogRecord? {
+        var position = readPosition.get()
+        while (true) {
+            val index = (position and mask).toInt()
+            val diff = sequences.get(index) - (position + 1)
+            when {
+                diff == 0L -> {
+                    if (readPosition.compareAndSet(position, position + 1)) {
+                        val record = records.getAndSet(index, null)
+                        sequences.lazySet(index, position + capacity)
+                        return record
+                    }
+                    position = readPosition.get()
+                }
+
+                diff < 0L -> {
+                    return null
+                }
+
+                else -> {
+                    position = readPosition.get()
+                }
+            }
+        }
+    }
+}
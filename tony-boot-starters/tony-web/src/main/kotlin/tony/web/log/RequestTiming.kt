@@ -0,0 +1,178 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.web.log
+
+import java.util.concurrent.TimeUnit
+import org.springframework.web.context.request.RequestAttributes.SCOPE_REQUEST
+import org.springframework.web.context.request.RequestContextHolder
+
+/**
+ * 请求阶段耗时.
+ *
+ * @author tangli
+ * @date 2025/08/02 10:00
+ */
+public class RequestSpan internal constructor(
+    /**
+     * 阶段名称, 须为 Server-Timing 允许的 token
+     */
+    public val name: String,
+    /**
+     * 相对请求开始的纳秒偏移
+     */
+    public val offsetNanos: Long,
+    /**
+     * 耗时(纳秒)
+     */
+    public val durationNanos: Long,
+) {
+    /**
+     * 耗时(毫秒, 保留三位小数)
+     */
+    public val durationMillis: Double
+        get() = TimeUnit.NANOSECONDS.toMicros(durationNanos) / 1000.0
+
+    override fun toString(): String =
+        "$name;dur=$durationMillis"
+}
+
+/**
+ * 单个请求的阶段耗时记录器.
+ *
+ * 由 [tony.web.filter.RequestTimingFilter] 在请求开始时创建, 以 [System.nanoTime] 记录各阶段耗时.
+ * 各阶段可以嵌套, 例如 controller 包含 jwt 解析.
+ *
+ * @author tangli
+ * @date 2025/08/02 10:00
+ */
+public class RequestTiming internal constructor(
+    /**
+     * 请求开始时的 [System.nanoTime]
+     */
+    public val startNanos: Long,
+) {
+    private val spanList = ArrayList<RequestSpan>(8)
+
+    /**
+     * 已记录的阶段.
+     */
+    public val spans: List<RequestSpan>
+        @Synchronized
+        get() = spanList.toList()
+
+    /**
+     * 从请求开始到现在的纳秒数.
+     */
+    public val elapsedNanos: Long
+        get() = System.nanoTime() - startNanos
+
+    /**
+     * 记录阶段.
+     * @param [name] 阶段名称
+     * @param [beginNanos] 阶段开始时的 [System.nanoTime]
+     * @param [endNanos] 阶段结束时的 [System.nanoTime]
+     */
+    @Synchronized
+    public fun record(
+        name: String,
+        beginNanos: Long,
+        endNanos: Long = System.nanoTime(),
+    ) {
+        spanList.add(RequestSpan(name, beginNanos - startNanos, endNanos - beginNanos))
+    }
+
+    /**
+     * Server-Timing 响应头的值.
+     * @param [totalName] 总耗时名称, 为 null 时不输出总耗时
+     */
+    public fun toServerTiming(totalName: String? = TOTAL): String {
+        val spans = spans
+        return buildString {
+            spans.forEach {
+                if (isNotEmpty()) {
+                    append(", ")
+                }
+                append(it)
+            }
+            if (totalName != null) {
+                if (isNotEmpty()) {
+                    append(", ")
+                }
+                append(RequestSpan(totalName, 0, elapsedNanos))
+            }
+        }
+    }
+
+    public companion object {
+        /**
+         * 总耗时阶段名称.
+         */
+        public const val TOTAL: String = "total"
+    }
+}
+
+/**
+ * 当前请求的阶段耗时.
+ *
+ * 未启用或不在请求线程中时什么也不做, 钩子可以放心调用.
+ *
+ * @author tangli
+ * @date 2025/08/02 10:00
+ */
+public data object RequestTimings {
+    @JvmSynthetic
+    internal val ATTRIBUTE_NAME: String = RequestTiming::class.java.name
+
+    /**
+     * 当前请求的记录器, 未启用时为 null.
+     */
+    @get:JvmName("current")
+    @JvmStatic
+    public val current: RequestTiming?
+        get() =
+            RequestContextHolder
+                .getRequestAttributes()
+                ?.getAttribute(ATTRIBUTE_NAME, SCOPE_REQUEST) as? RequestTiming
+
+    /**
+     * 记录代码块的耗时.
+     * @param [name] 阶段名称
+     * @param [block] 代码块
+     * @return [T]
+     */
+    @JvmStatic
+    public inline fun <T> span(
+        name: String,
+        block: () -> T,
+    ): T {
+        val timing = current ?: return block()
+        val beginNanos = System.nanoTime()
+        try {
+            return block()
+        } finally {
+            timing.record(name, beginNanos)
+        }
+    }
+}
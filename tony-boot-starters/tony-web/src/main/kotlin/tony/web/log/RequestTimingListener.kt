@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.web.log
+
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.Timer
+import jakarta.servlet.http.HttpServletRequest
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import org.springframework.beans.factory.ObjectProvider
+
+/**
+ * 请求阶段耗时监听器, 请求结束时调用.
+ *
+ * @author tangli
+ * @date 2025/08/02 10:00
+ */
+public fun interface RequestTimingListener {
+    /**
+     * 请求结束
+     * @param [request] 请求
+     * @param [timing] 阶段耗时
+     */
+    public fun onCompleted(
+        request: HttpServletRequest,
+        timing: RequestTiming,
+    )
+}
+
+/**
+ * 把阶段耗时记录到 Micrometer 计时器 `web.request.phase`, 以 phase 区分阶段.
+ *
+ * 容器中没有 [MeterRegistry] 时什么也不做.
+ *
+ * @author tangli
+ * @date 2025/08/02 10:00
+ */
+internal class MicrometerRequestTimingListener(
+    private val meterRegistryProvider: ObjectProvider<MeterRegistry>,
+) : RequestTimingListener {
+    private val meterRegistry by lazy(LazyThreadSafetyMode.PUBLICATION) {
+        meterRegistryProvider.getIfAvailable()
+    }
+
+    private val timers = ConcurrentHashMap<String, Timer>()
+
+    override fun onCompleted(
+        request: HttpServletRequest,
+        timing: RequestTiming,
+    ) {
+        val meterRegistry = meterRegistry ?: return
+        timing.spans.forEach { span ->
+            timers
+                .computeIfAbsent(span.name) { name ->
+                    Timer
+                        .builder(METER_NAME)
+                        .description("Web request phase duration")
+                        .tag("phase", name)
+                        .register(meterRegistry)
+                }.record(span.durationNanos, TimeUnit.NANOSECONDS)
+        }
+    }
+
+    private companion object {
+        private const val METER_NAME = "web.request.phase"
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.web.log
+
+import java.io.IOException
+import java.lang.invoke.MethodHandles
+import java.lang.invoke.VarHandle
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+import java.time.Duration
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.LockSupport
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+import tony.core.utils.getLogger
+
+/**
+ * 内存映射分段文件 trace 日志输出.
+ *
+ * 绕过 Logback, 把每条记录以 `int 长度 + 内容` 追加到内存映射的分段文件, 写满后滚动到新分段, 超过保留数量时删除最旧分段.
+ * 后台线程按 [fsyncInterval] 定期刷盘. 可用 [TraceLogSegmentReader] 跟踪或导出为 JSON Lines.
+ *
+ * 启动时删除上次遗留的临时文件, 并按 [maxSegments] 清理旧分段.
+ *
+ * 分段文件结构:
+ * - 文件头 16 字节: 魔数 `TLOG`、版本、格式、保留、创建时间;
+ * - 记录: `int 长度` + 内容, 按 4 字节对齐; 长度在内容写完后才发布, 读取方看到非 0 长度即可读取完整内容;
+ * - 长度为 [TraceLogSegment.END_OF_SEGMENT] 表示该分段已写完.
+ *
+ * @param [directory] 分段文件目录
+ * @param [format] 记录格式
+ * @param [segmentSize] 单个分段大小(字节), 1MB 到 1GB
+ * @param [maxSegments] 保留分段数
+ * @param [fsyncInterval] 刷盘间隔
+ * @author tangli
+ * @date 2025/08/04 10:00
+ */
+public class SegmentFileTraceLogSink
+    @JvmOverloads
+    constructor(
+        private val directory: Path,
+        private val format: TraceLogFileFormat = TraceLogFileFormat.JSON,
+        private val segmentSize: Long = 64L * 1024 * 1024,
+        private val maxSegments: Int = 16,
+        private val fsyncInterval: Duration = Duration.ofSeconds(1),
+    ) : TraceLogSink,
+        AutoCloseable {
+        private val log = getLogger()
+
+        private val lock = ReentrantLock()
+
+        private val output = TraceLogOutput(8 * 1024)
+
+        private val segments = ArrayDeque<Path>()
+
+        @Volatile
+        private var current: MappedByteBuffer
+
+        private var sequence: Long
+
+        @Volatile
+        private var dirty = false
+
+        @Volatile
+        private var closed = false
+
+        private val fsyncThread: Thread
+
+        init {
+            require(segmentSize in TraceLogSegment.MIN_SEGMENT_SIZE..TraceLogSegment.MAX_SEGMENT_SIZE) {
+                "segmentSize must be in [${TraceLogSegment.MIN_SEGMENT_SIZE}, ${TraceLogSegment.MAX_SEGMENT_SIZE}]"
+            }
+            require(maxSegments > 0) { "maxSegments must be positive" }
+            require(!fsyncInterval.isNegative && !fsyncInterval.isZero) { "fsyncInterval must be positive" }
+            Files.createDirectories(directory)
+            // 上次异常退出时可能遗留未改名的临时文件
+            TraceLogSegment.deleteTemporaryFiles(directory)
+            segments.addAll(TraceLogSegment.list(directory))
+            sequence = segments.lastOrNull()?.let(TraceLogSegment::sequence) ?: 0
+            current = newSegment()
+            trimSegments()
+            fsyncThread =
+                Thread(::fsyncLoop, "trace-log-fsync").apply {
+                    isDaemon = true
+                    start()
+                }
+        }
+
+        /**
+         * @throws [IllegalArgumentException] 单条记录超过分段容量
+         * @throws [IllegalStateException] 已关闭
+         */
+        override fun write(record: TraceLogRecord) {
+            lock.withLock {
+                check(!closed) { "SegmentFileTraceLogSink closed" }
+                output.reset()
+                TraceLogCodec.encode(record, format, output)
+                val length = output.size()
+                val frameSize = TraceLogSegment.frameSize(length)
+                require(frameSize <= segmentSize - TraceLogSegment.HEADER_SIZE) {
+                    "trace log record too large: $length bytes"
+                }
+                var buffer = current
+                if (buffer.remaining() < frameSize) {
+                    buffer = rotate(buffer)
+                }
+                val position = buffer.position()
+                buffer.put(position + Int.SIZE_BYTES, output.array, 0, length)
+                TraceLogSegment.publishLength(buffer, position, length)
+                buffer.position(position + frameSize)
+                dirty = true
+            }
+        }
+
+        /**
+         * 刷盘并停止后台线程, 之后写入会抛出异常.
+         */
+        override fun close() {
+            lock.withLock {
+                if (closed) {
+                    return
+                }
+                closed = true
+                current.force()
+            }
+            LockSupport.unpark(fsyncThread)
+            fsyncThread.join(TimeUnit.SECONDS.toMillis(5))
+        }
+
+        private fun rotate(buffer: MappedByteBuffer): MappedByteBuffer {
+            if (buffer.remaining() >= Int.SIZE_BYTES) {
+                TraceLogSegment.publishLength(buffer, buffer.position(), TraceLogSegment.END_OF_SEGMENT)
+            }
+            buffer.force()
+            return newSegment().also {
+                current = it
+                trimSegments()
+            }
+        }
+
+        private fun newSegment(): MappedByteBuffer {
+            sequence++
+            val path = directory.resolve(TraceLogSegment.fileName(sequence))
+            // 先以临时文件名写好文件头再改名, 读取方不会看到没有文件头的分段.
+            val tempPath = directory.resolve("${path.fileName}${TraceLogSegment.TEMP_SUFFIX}")
+            val buffer =
+                FileChannel
+                    .open(tempPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                    .use { it.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize) }
+            TraceLogSegment.writeHeader(buffer, format)
+            Files.move(tempPath, path, StandardCopyOption.ATOMIC_MOVE)
+            segments.addLast(path)
+            return buffer
+        }
+
+        private fun trimSegments() {
+            while (segments.size > maxSegments) {
+                val path = segments.removeFirst()
+                try {
+                    Files.deleteIfExists(path)
+                } catch (e: IOException) {
+                    log.warn("delete trace log segment $path failed", e)
+                }
+            }
+        }
+
+        private fun fsyncLoop() {
+            val intervalNanos = fsyncInterval.toNanos()
+            while (!closed) {
+                LockSupport.parkNanos(this, intervalNanos)
+                if (dirty) {
+                    dirty = false
+                    try {
+                        // 滚动时旧分段已刷盘, 这里只需刷当前分段.
+                        current.force()
+                    } catch (e: Exception) {
+                        log.warn("trace log fsync failed", e)
+                    }
+                }
+            }
+        }
+    }
+
+/**
+ * 分段文件结构常量与工具.
+ *
+ * @author tangli
+ * @date 2025/08/04 10:00
+ */
+internal object TraceLogSegment {
+    const val MAGIC: Int = 0x544C4F47
+    const val VERSION: Byte = 1
+    const val HEADER_SIZE: Int = 16
+    const val END_OF_SEGMENT: Int = -1
+    const val MIN_SEGMENT_SIZE: Long = 1024L * 1024
+    const val MAX_SEGMENT_SIZE: Long = 1024L * 1024 * 1024
+
+    const val TEMP_SUFFIX: String = ".tmp"
+
+    private const val FILE_PREFIX = "trace-"
+    private const val FILE_SUFFIX = ".seg"
+
+    private val LENGTH_HANDLE: VarHandle =
+        MethodHandles.byteBufferViewVarHandle(IntArray::class.java, ByteOrder.BIG_ENDIAN)
+
+    @JvmSynthetic
+    internal fun fileName(sequence: Long): String =
+        "$FILE_PREFIX${sequence.toString().padStart(16, '0')}$FILE_SUFFIX"
+
+    @JvmSynthetic
+    internal fun sequence(path: Path): Long =
+        path
+            .fileName
+            .toString()
+            .removePrefix(FILE_PREFIX)
+            .removeSuffix(FILE_SUFFIX)
+            .toLong()
+
+    /**
+     * 目录中的分段文件, 按序号升序.
+     */
+    @JvmSynthetic
+    internal fun list(directory: Path): List<Path> =
+        Files.list(directory).use { stream ->
+            stream
+                .filter {
+                    val name = it.fileName.toString()
+                    name.startsWith(FILE_PREFIX) &&
+                        name.endsWith(FILE_SUFFIX) &&
+                        name.removePrefix(FILE_PREFIX).removeSuffix(FILE_SUFFIX).toLongOrNull() != null
+                }.toList()
+                .sortedBy(::sequence)
+        }
+
+    /**
+     * 删除目录中未改名的临时分段文件.
+     */
+    @JvmSynthetic
+    internal fun deleteTemporaryFiles(directory: Path) {
+        Files.list(directory).use { stream ->
+            stream
+                .filter {
+                    val name = it.fileName.toString()
+                    name.startsWith(FILE_PREFIX) && name.endsWith("$FILE_SUFFIX$TEMP_SUFFIX")
+                }.forEach(Files::deleteIfExists)
+        }
+    }
+
+    /**
+     * 记录占用字节数, 含长度并按 4 字节对齐.
+     */
+    @JvmSynthetic
+    internal fun frameSize(length: Int): Int =
+        Int.SIZE_BYTES + ((length + 3) and 3.inv())
+
+    @JvmSynthetic
+    internal fun writeHeader(
+        buffer: MappedByteBuffer,
+        format: TraceLogFileFormat,
+    ) {
+        buffer
+            .putInt(MAGIC)
+            .put(VERSION)
+            .put(format.ordinal.toByte())
+            .putShort(0)
+            .putLong(System.currentTimeMillis())
+    }
+
+    /**
+     * 读取文件头中的记录格式.
+     * @throws [IllegalStateException] 不是 trace 日志分段文件
+     */
+    @JvmSynthetic
+    internal fun readFormat(buffer: ByteBuffer): TraceLogFileFormat {
+        check(buffer.getInt(0) == MAGIC) { "not a trace log segment" }
+        check(buffer.get(4) == VERSION) { "unsupported trace log segment version ${buffer.get(4)}" }
+        return TraceLogFileFormat.entries[buffer.get(5).toInt()]
+    }
+
+    @JvmSynthetic
+    internal fun publishLength(
+        buffer: MappedByteBuffer,
+        position: Int,
+        length: Int,
+    ) {
+        LENGTH_HANDLE.setRelease(buffer, position, length)
+    }
+
+    @JvmSynthetic
+    internal fun acquireLength(
+        buffer: ByteBuffer,
+        position: Int,
+    ): Int =
+        LENGTH_HANDLE.getAcquire(buffer, position) as Int
+}
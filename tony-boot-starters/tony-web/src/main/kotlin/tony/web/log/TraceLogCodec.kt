@@ -0,0 +1,323 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.web.log
+
+import com.fasterxml.jackson.core.JsonFactory
+import com.fasterxml.jackson.core.JsonGenerator
+import java.io.ByteArrayOutputStream
+import java.lang.invoke.MethodHandles
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+/**
+ * trace 日志文件记录格式.
+ *
+ * @author tangli
+ * @date 2025/08/04 10:00
+ */
+public enum class TraceLogFileFormat {
+    /**
+     * 每条记录为一个 JSON 对象, 可直接作为 JSON Lines 导出.
+     */
+    JSON,
+
+    /**
+     * 紧凑二进制, 保留原始字节, 导出时再转为 JSON.
+     */
+    BINARY,
+}
+
+/**
+ * trace 日志记录编解码.
+ *
+ * 二进制格式按 [TraceLogRecord] 字段顺序写入: 整数大端, 字符串与字节数组为 `int 长度 + 内容`, 长度 -1 表示 null.
+ *
+ * @author tangli
+ * @date 2025/08/04 10:00
+ */
+internal object TraceLogCodec {
+    private val jsonFactory = JsonFactory()
+
+    /**
+     * 按指定格式编码.
+     * @param [record] 日志快照
+     * @param [format] 格式
+     * @param [out] 输出缓冲区
+     */
+    @JvmSynthetic
+    internal fun encode(
+        record: TraceLogRecord,
+        format: TraceLogFileFormat,
+        out: TraceLogOutput,
+    ) {
+        when (format) {
+            TraceLogFileFormat.JSON -> writeJson(record, out)
+            TraceLogFileFormat.BINARY -> writeBinary(record, out)
+        }
+    }
+
+    /**
+     * 把一条记录转为 JSON.
+     * @param [payload] 记录内容
+     * @param [format] 记录格式
+     * @param [out] 输出缓冲区
+     */
+    @JvmSynthetic
+    internal fun toJson(
+        payload: ByteBuffer,
+        format: TraceLogFileFormat,
+        out: TraceLogOutput,
+    ) {
+        when (format) {
+            TraceLogFileFormat.JSON -> out.write(payload)
+            TraceLogFileFormat.BINARY -> writeJson(readBinary(payload), out)
+        }
+    }
+
+    private fun writeJson(
+        record: TraceLogRecord,
+        out: TraceLogOutput,
+    ) {
+        val requestText = TraceLogLineEncoder.isTextContentType(record.requestContentType)
+        val responseText = TraceLogLineEncoder.isTextContentType(record.responseContentType)
+        val resultCode = TraceLogLineEncoder.resultCode(record, responseText)
+        jsonFactory.createGenerator(out).use { generator ->
+            generator.writeStartObject()
+            generator.writeStringField("traceId", record.traceId)
+            generator.writeNumberField("startTime", record.startTime)
+            generator.writeNumberField("elapsedTime", record.elapsedTime)
+            generator.writeNumberField("resultCode", resultCode)
+            generator.writeStringField("resultStatus", TraceLogLineEncoder.resultStatus(resultCode))
+            generator.writeStringField("scheme", record.scheme)
+            generator.writeStringField("method", record.method)
+            generator.writeStringField("requestUrl", record.requestUrl)
+            generator.writeStringField("path", record.path)
+            generator.writeStringField("query", record.query)
+            generator.writeHeaders("requestHeaders", record.requestHeaders)
+            generator.writeHeaders("responseHeaders", record.responseHeaders)
+            generator.writeStringField("requestContentType", record.requestContentType)
+            generator.writeNumberField("requestBodySize", record.requestBodySize)
+            generator.writeBody("requestBody", record.requestBody, requestText)
+            generator.writeStringField("responseContentType", record.responseContentType)
+            generator.writeNumberField("responseBodySize", record.responseBodySize)
+            generator.writeBody("responseBody", record.responseBody, responseText)
+            generator.writeNumberField("status", record.status)
+            generator.writeStringField("remoteIp", record.remoteIp)
+            generator.writeArrayFieldStart("spans")
+            record.spans.forEach { span ->
+                generator.writeStartObject()
+                generator.writeStringField("name", span.name)
+                generator.writeNumberField("offsetNanos", span.offsetNanos)
+                generator.writeNumberField("durationNanos", span.durationNanos)
+                generator.writeEndObject()
+            }
+            generator.writeEndArray()
+            generator.writeEndObject()
+        }
+    }
+
+    /**
+     * 请求头按首次出现顺序输出, 同名多值输出为数组, 避免重复键.
+     */
+    private fun JsonGenerator.writeHeaders(
+        fieldName: String,
+        headers: List<Pair<String, String>>,
+    ) {
+        writeObjectFieldStart(fieldName)
+        headers
+            .groupBy({ it.first }, { it.second })
+            .forEach { (name, values) ->
+                if (values.size == 1) {
+                    writeStringField(name, values[0])
+                } else {
+                    writeArrayFieldStart(name)
+                    values.forEach(::writeString)
+                    writeEndArray()
+                }
+            }
+        writeEndObject()
+    }
+
+    /**
+     * 文本内容按 UTF-8 输出为字符串, 其他内容只保留长度与类型.
+     */
+    private fun JsonGenerator.writeBody(
+        fieldName: String,
+        body: ByteArray?,
+        text: Boolean,
+    ) {
+        if (body != null && text) {
+            writeStringField(fieldName, String(body, Charsets.UTF_8))
+        } else {
+            writeNullField(fieldName)
+        }
+    }
+
+    private fun writeBinary(
+        record: TraceLogRecord,
+        out: TraceLogOutput,
+    ) {
+        out.writeString(record.traceId)
+        out.writeLong(record.startTime)
+        out.writeLong(record.elapsedTime)
+        out.writeString(record.scheme)
+        out.writeString(record.method)
+        out.writeString(record.requestUrl)
+        out.writeString(record.path)
+        out.writeString(record.query)
+        out.writeHeaders(record.requestHeaders)
+        out.writeHeaders(record.responseHeaders)
+        out.writeString(record.requestContentType)
+        out.writeLong(record.requestBodySize)
+        out.writeByteArray(record.requestBody)
+        out.writeString(record.responseContentType)
+        out.writeLong(record.responseBodySize)
+        out.writeByteArray(record.responseBody)
+        out.writeInt(record.status)
+        out.writeString(record.remoteIp)
+        out.writeInt(record.spans.size)
+        record.spans.forEach { span ->
+            out.writeString(span.name)
+            out.writeLong(span.offsetNanos)
+            out.writeLong(span.durationNanos)
+        }
+    }
+
+    private fun TraceLogOutput.writeHeaders(headers: List<Pair<String, String>>) {
+        writeInt(headers.size)
+        headers.forEach { (name, value) ->
+            writeString(name)
+            writeString(value)
+        }
+    }
+
+    /**
+     * 解码二进制记录.
+     * @param [payload] 记录内容
+     */
+    @JvmSynthetic
+    internal fun readBinary(payload: ByteBuffer): TraceLogRecord =
+        TraceLogRecord(
+            traceId = payload.readString(),
+            startTime = payload.getLong(),
+            elapsedTime = payload.getLong(),
+            scheme = payload.readString().orEmpty(),
+            method = payload.readString().orEmpty(),
+            requestUrl = payload.readString().orEmpty(),
+            path = payload.readString().orEmpty(),
+            query = payload.readString(),
+            requestHeaders = payload.readHeaders(),
+            responseHeaders = payload.readHeaders(),
+            requestContentType = payload.readString(),
+            requestBodySize = payload.getLong(),
+            requestBody = payload.readBytes(),
+            responseContentType = payload.readString(),
+            responseBodySize = payload.getLong(),
+            responseBody = payload.readBytes(),
+            status = payload.getInt(),
+            remoteIp = payload.readString().orEmpty(),
+            spans =
+                List(payload.getInt()) {
+                    RequestSpan(payload.readString().orEmpty(), payload.getLong(), payload.getLong())
+                }
+        )
+
+    private fun ByteBuffer.readBytes(): ByteArray? {
+        val length = getInt()
+        if (length < 0) {
+            return null
+        }
+        return ByteArray(length).also { get(it) }
+    }
+
+    private fun ByteBuffer.readString(): String? =
+        readBytes()?.let { String(it, Charsets.UTF_8) }
+
+    private fun ByteBuffer.readHeaders(): List<Pair<String, String>> =
+        List(getInt()) {
+            readString().orEmpty() to readString().orEmpty()
+        }
+}
+
+/**
+ * 可复用的记录输出缓冲区.
+ *
+ * @author tangli
+ * @date 2025/08/04 10:00
+ */
+internal class TraceLogOutput(
+    initialCapacity: Int,
+) : ByteArrayOutputStream(initialCapacity) {
+    /**
+     * 内部数组, 有效内容为 `[0, size)`.
+     */
+    val array: ByteArray
+        get() = buf
+
+    fun write(buffer: ByteBuffer) {
+        val length = buffer.remaining()
+        ensureCapacity(count + length)
+        buffer.get(buf, count, length)
+        count += length
+    }
+
+    fun writeInt(value: Int) {
+        ensureCapacity(count + Int.SIZE_BYTES)
+        INT_HANDLE.set(buf, count, value)
+        count += Int.SIZE_BYTES
+    }
+
+    fun writeLong(value: Long) {
+        ensureCapacity(count + Long.SIZE_BYTES)
+        LONG_HANDLE.set(buf, count, value)
+        count += Long.SIZE_BYTES
+    }
+
+    fun writeByteArray(bytes: ByteArray?) {
+        if (bytes == null) {
+            writeInt(-1)
+            return
+        }
+        writeInt(bytes.size)
+        write(bytes, 0, bytes.size)
+    }
+
+    fun writeString(value: String?) {
+        writeByteArray(value?.toByteArray(Charsets.UTF_8))
+    }
+
+    private fun ensureCapacity(minCapacity: Int) {
+        if (minCapacity > buf.size) {
+            buf = buf.copyOf(maxOf(minCapacity, buf.size shl 1))
+        }
+    }
+
+    private companion object {
+        private val INT_HANDLE =
+            MethodHandles.byteArrayViewVarHandle(IntArray::class.java, ByteOrder.BIG_ENDIAN)
+        private val LONG_HANDLE =
+            MethodHandles.byteArrayViewVarHandle(LongArray::class.java, ByteOrder.BIG_ENDIAN)
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.web.log
+
+import java.nio.ByteBuffer
+import java.nio.CharBuffer
+import java.nio.charset.CharsetDecoder
+import java.nio.charset.CodingErrorAction
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.ConcurrentHashMap
+import org.springframework.http.HttpStatus
+import org.springframework.http.InvalidMediaTypeException
+import org.springframework.util.unit.DataSize
+import tony.core.ApiProperty
+import tony.core.utils.getFromRootAsString
+import tony.web.log.`#Const`.NULL
+import tony.web.utils.isTextMediaTypes
+import tony.web.utils.parseMediaType
+
+/**
+ * trace 日志行编码器.
+ *
+ * 直接把竖线分隔的日志写入复用的 [StringBuilder], 请求体按字符扫描去掉换行, 请求头按原顺序输出,
+ * Content-Type 是否为文本按类型缓存. 非线程安全, 通过 [encode] 从池中借用.
+ *
+ * @author tangli
+ * @date 2025/08/03 10:00
+ */
+internal class TraceLogLineEncoder {
+    private val builder = StringBuilder(INITIAL_CAPACITY)
+
+    private val decoder: CharsetDecoder =
+        Charsets
+            .UTF_8
+            .newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE)
+
+    private var charBuffer: CharBuffer = CharBuffer.allocate(INITIAL_CAPACITY)
+
+    fun encodeLine(record: TraceLogRecord): String {
+        val requestText = isTextContentType(record.requestContentType)
+        val responseText = isTextContentType(record.responseContentType)
+        val resultCode = resultCode(record, responseText)
+        builder.setLength(0)
+        builder
+            .append(record.elapsedTime)
+            .append('|')
+            .append(resultCode)
+            .append('|')
+            .append(resultStatus(resultCode))
+            .append('|')
+            .append(record.scheme)
+            .append('|')
+            .append(record.method)
+            .append('|')
+        appendOrigin(record.requestUrl)
+        builder
+            .append('|')
+            .append(record.path)
+            .append('|')
+            .append(record.query ?: NULL)
+            .append('|')
+        appendHeaders(record.requestHeaders)
+        builder.append('|')
+        appendHeaders(record.responseHeaders)
+        builder.append('|')
+        appendBody(record.requestBody, record.requestBodySize, record.requestContentType, requestText)
+        builder.append('|')
+        appendBody(record.responseBody, record.responseBodySize, record.responseContentType, responseText)
+        builder
+            .append('|')
+            .append(record.remoteIp)
+        val line = builder.toString()
+        if (builder.capacity() > MAX_RETAINED_CAPACITY) {
+            builder.setLength(0)
+            builder.trimToSize()
+            charBuffer = CharBuffer.allocate(INITIAL_CAPACITY)
+        }
+        return line
+    }
+
+    /**
+     * 协议://主机[:端口], 80、443 端口省略.
+     */
+    private fun appendOrigin(requestUrl: String) {
+        val schemeEnd = requestUrl.indexOf("://")
+        if (schemeEnd < 0) {
+            builder.append(requestUrl)
+            return
+        }
+        val authorityStart = schemeEnd + 3
+        val authorityEnd =
+            requestUrl
+                .indexOf('/', authorityStart)
+                .let { if (it < 0) requestUrl.length else it }
+        val portStart = requestUrl.lastIndexOf(':', authorityEnd - 1)
+        val hasPort = portStart > authorityStart && requestUrl.indexOf(']', portStart) < 0
+        val defaultPort =
+            hasPort &&
+                (
+                    requestUrl.regionMatches(portStart, ":80", 0, authorityEnd - portStart) ||
+                        requestUrl.regionMatches(portStart, ":443", 0, authorityEnd - portStart)
+                )
+        builder.append(requestUrl, 0, if (defaultPort) portStart else authorityEnd)
+    }
+
+    private fun appendHeaders(headers: List<Pair<String, String>>) {
+        headers.forEachIndexed { index, (name, value) ->
+            if (index > 0) {
+                builder.append(";;")
+            }
+            builder
+                .append(name)
+                .append(':')
+                .append(value)
+        }
+    }
+
+    private fun appendBody(
+        bytes: ByteArray?,
+        size: Long,
+        contentType: String?,
+        text: Boolean,
+    ) {
+        when {
+            !text -> builder.append('[').append(contentType).append(']')
+            bytes != null -> appendWithoutLineBreak(bytes)
+            size > 0 -> builder.append("[too long content, length = ").append(DataSize.ofBytes(size)).append(']')
+            else -> builder.append(NULL)
+        }
+    }
+
+    /**
+     * 按 UTF-8 解码到复用的字符缓冲区, 单次扫描去掉换行.
+     */
+    private fun appendWithoutLineBreak(bytes: ByteArray) {
+        if (charBuffer.capacity() < bytes.size) {
+            charBuffer = CharBuffer.allocate(bytes.size)
+        }
+        val chars = charBuffer
+        chars.clear()
+        decoder.reset()
+        decoder.decode(ByteBuffer.wrap(bytes), chars, true)
+        decoder.flush(chars)
+        chars.flip()
+        builder.ensureCapacity(builder.length + chars.limit())
+        for (i in 0 until chars.limit()) {
+            val c = chars.get(i)
+            if (c != '\n' && c != '\r') {
+                builder.append(c)
+            }
+        }
+    }
+
+    internal companion object {
+        private const val INITIAL_CAPACITY = 4096
+        private const val MAX_RETAINED_CAPACITY = 256 * 1024
+        private const val MAX_CACHED_CONTENT_TYPES = 256
+
+        private val encoders = ArrayBlockingQueue<TraceLogLineEncoder>(Runtime.getRuntime().availableProcessors() * 2)
+
+        private val textContentTypes = ConcurrentHashMap<String, Boolean>()
+
+        /**
+         * 编码一行 trace 日志.
+         * @param [record] 日志快照
+         */
+        @JvmSynthetic
+        internal fun encode(record: TraceLogRecord): String {
+            val encoder = encoders.poll() ?: TraceLogLineEncoder()
+            try {
+                return encoder.encodeLine(record)
+            } finally {
+                encoders.offer(encoder)
+            }
+        }
+
+        /**
+         * 是否文本类型, 按去掉参数后的类型缓存.
+         */
+        @JvmSynthetic
+        internal fun isTextContentType(contentType: String?): Boolean {
+            if (contentType.isNullOrBlank()) {
+                return false
+            }
+            val paramStart = contentType.indexOf(';')
+            val key = if (paramStart < 0) contentType else contentType.substring(0, paramStart)
+            textContentTypes[key]?.let { return it }
+            val text =
+                try {
+                    isTextMediaTypes(parseMediaType(contentType))
+                } catch (_: InvalidMediaTypeException) {
+                    false
+                }
+            if (textContentTypes.size >= MAX_CACHED_CONTENT_TYPES) {
+                textContentTypes.clear()
+            }
+            textContentTypes[key] = text
+            return text
+        }
+
+        /**
+         * 业务结果码, 优先取响应体根节点的 code, 否则按 http 状态推算.
+         */
+        @JvmSynthetic
+        internal fun resultCode(
+            record: TraceLogRecord,
+            responseText: Boolean,
+        ): Int {
+            val codeFromResponseDirectly =
+                if (responseText) {
+                    record
+                        .responseBody
+                        ?.getFromRootAsString("code")
+                        ?.toIntOrNull()
+                } else {
+                    null
+                }
+            return when {
+                codeFromResponseDirectly != null -> codeFromResponseDirectly
+                record.status in 100..399 -> ApiProperty.okCode
+                else -> record.status * 100
+            }
+        }
+
+        @JvmSynthetic
+        internal fun resultStatus(resultCode: Int): String =
+            when (resultCode) {
+                ApiProperty.okCode, HttpStatus.OK.value(), in 100 * 100..199 * 100 -> {
+                    HttpStatus.OK.name
+                }
+
+                ApiProperty.preconditionFailedCode -> {
+                    HttpStatus.PRECONDITION_FAILED.name
+                }
+
+                ApiProperty.badRequestCode, HttpStatus.BAD_REQUEST.value() -> {
+                    HttpStatus.BAD_REQUEST.name
+                }
+
+                ApiProperty.unauthorizedCode, HttpStatus.UNAUTHORIZED.value() -> {
+                    HttpStatus.UNAUTHORIZED.name
+                }
+
+                ApiProperty.notFoundCode, HttpStatus.NOT_FOUND.value(), in 404 * 100 until 405 * 100 -> {
+                    HttpStatus.NOT_FOUND
+                        .name
+                }
+
+                in 400 * 100..499 * 100, in 400..499 -> {
+                    HttpStatus.BAD_REQUEST.name
+                }
+
+                else -> {
+                    HttpStatus.INTERNAL_SERVER_ERROR.name
+                }
+            }
+    }
+}
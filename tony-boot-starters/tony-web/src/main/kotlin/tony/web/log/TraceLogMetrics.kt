@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.web.log
+
+import java.util.concurrent.atomic.LongAdder
+import java.util.function.IntSupplier
+
+/**
+ * 异步 trace 日志指标.
+ *
+ * 进程内累计值, 可自行注册到监控系统.
+ *
+ * @author tangli
+ * @date 2025/07/30 10:00
+ */
+public data object TraceLogMetrics {
+    private val dropped = LongAdder()
+    private val blocked = LongAdder()
+    private val failed = LongAdder()
+
+    @Volatile
+    private var depthSupplier: IntSupplier = IntSupplier { 0 }
+
+    /**
+     * 缓冲区中等待输出的日志条数.
+     */
+    @JvmStatic
+    public val queueDepth: Int
+        get() = depthSupplier.asInt
+
+    /**
+     * 缓冲区已满被丢弃的日志条数.
+     */
+    @JvmStatic
+    public val droppedCount: Long
+        get() = dropped.sum()
+
+    /**
+     * 缓冲区已满, 请求线程等待空位的次数.
+     */
+    @JvmStatic
+    public val blockedCount: Long
+        get() = blocked.sum()
+
+    /**
+     * 后台输出时抛出异常的日志条数.
+     */
+    @JvmStatic
+    public val failedCount: Long
+        get() = failed.sum()
+
+    @JvmSynthetic
+    internal fun bindQueueDepth(supplier: IntSupplier) {
+        depthSupplier = supplier
+    }
+
+    @JvmSynthetic
+    internal fun recordDropped() {
+        dropped.increment()
+    }
+
+    @JvmSynthetic
+    internal fun recordBlocked() {
+        blocked.increment()
+    }
+
+    @JvmSynthetic
+    internal fun recordFailed() {
+        failed.increment()
+    }
+}
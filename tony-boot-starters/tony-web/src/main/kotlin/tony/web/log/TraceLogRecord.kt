@@ -0,0 +1,194 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.web.log
+
+import jakarta.servlet.http.HttpServletRequest
+import jakarta.servlet.http.HttpServletResponse
+import org.slf4j.MDC
+import tony.core.TRACE_ID_HEADER_NAME
+import tony.web.WebContext
+import tony.web.filter.BodyCaptureResponseWrapper
+import tony.web.filter.RepeatReadRequestWrapper
+import tony.web.utils.remoteIp
+
+/**
+ * trace 日志快照.
+ *
+ * 在请求线程中捕获, 之后不可变, 可交给其他线程格式化与输出. 只保存原始数据, 不做字符串拼接与 JSON 解析.
+ *
+ * 请求体、响应体只取流经时截取的内容, 长度超过上限时只记录长度.
+ *
+ * @author tangli
+ * @date 2025/07/30 10:00
+ */
+public class TraceLogRecord internal constructor(
+    /**
+     * 全链路追踪ID
+     */
+    public val traceId: String?,
+    /**
+     * 请求开始时间(毫秒时间戳)
+     */
+    public val startTime: Long,
+    /**
+     * 执行时间(毫秒)
+     */
+    public val elapsedTime: Long,
+    /**
+     * 协议
+     */
+    public val scheme: String,
+    /**
+     * 请求方法
+     */
+    public val method: String,
+    /**
+     * 完整请求URL
+     */
+    public val requestUrl: String,
+    /**
+     * 去掉 contextPath 的请求路径
+     */
+    public val path: String,
+    /**
+     * 查询字符串
+     */
+    public val query: String?,
+    /**
+     * 请求头, 按到达顺序, 同名多值以逗号拼接
+     */
+    public val requestHeaders: List<Pair<String, String>>,
+    /**
+     * 响应头, 同名多值以逗号拼接
+     */
+    public val responseHeaders: List<Pair<String, String>>,
+    /**
+     * 请求 Content-Type
+     */
+    public val requestContentType: String?,
+    /**
+     * 请求体长度
+     */
+    public val requestBodySize: Long,
+    /**
+     * 请求体, 为空或超过上限时为 null
+     */
+    public val requestBody: ByteArray?,
+    /**
+     * 响应 Content-Type
+     */
+    public val responseContentType: String?,
+    /**
+     * 响应体长度
+     */
+    public val responseBodySize: Long,
+    /**
+     * 响应体, 为空或超过上限时为 null
+     */
+    public val responseBody: ByteArray?,
+    /**
+     * 响应状态码
+     */
+    public val status: Int,
+    /**
+     * 客户端IP
+     */
+    public val remoteIp: String,
+    /**
+     * 请求各阶段耗时, 未启用时为空
+     */
+    public val spans: List<RequestSpan>,
+) {
+    internal companion object {
+        /**
+         * 在请求线程中捕获快照.
+         * @param [request] 请求
+         * @param [response] 响应
+         * @param [startTime] 请求开始时间(毫秒时间戳)
+         * @param [elapsedTime] 执行时间(毫秒)
+         * @param [requestBodyMaxSize] 请求体最大长度
+         * @param [responseBodyMaxSize] 响应体最大长度
+         */
+        @JvmSynthetic
+        internal fun capture(
+            request: RepeatReadRequestWrapper,
+            response: BodyCaptureResponseWrapper,
+            startTime: Long,
+            elapsedTime: Long,
+            requestBodyMaxSize: Long,
+            responseBodyMaxSize: Long,
+        ): TraceLogRecord {
+            val requestBodySize = request.contentSize
+            val responseBodySize = response.contentSize
+            return TraceLogRecord(
+                traceId = MDC.get(TRACE_ID_HEADER_NAME),
+                startTime = startTime,
+                elapsedTime = elapsedTime,
+                scheme = request.scheme,
+                method = request.method,
+                requestUrl = request.requestURL.toString(),
+                path = request.requestURI.removePrefix(WebContext.contextPath),
+                query = request.queryString,
+                requestHeaders = request.headerPairs(),
+                responseHeaders = response.headerPairs(),
+                requestContentType = request.contentType,
+                requestBodySize = requestBodySize,
+                requestBody =
+                    if (requestBodySize in 1..requestBodyMaxSize && request.isContentComplete) {
+                        request.capturedContent
+                    } else {
+                        null
+                    },
+                responseContentType = response.contentType,
+                responseBodySize = responseBodySize,
+                responseBody =
+                    if (responseBodySize in 1..responseBodyMaxSize && response.isContentComplete) {
+                        response.contentAsByteArray
+                    } else {
+                        null
+                    },
+                status = response.status,
+                remoteIp = request.remoteIp,
+                spans = (request.getAttribute(RequestTimings.ATTRIBUTE_NAME) as? RequestTiming)?.spans.orEmpty()
+            )
+        }
+
+        private fun HttpServletRequest.headerPairs(): List<Pair<String, String>> =
+            headerNames
+                .asSequence()
+                .map { headerName ->
+                    headerName to
+                        getHeaders(headerName)
+                            .toList()
+                            .joinToString(",")
+                }.toList()
+
+        private fun HttpServletResponse.headerPairs(): List<Pair<String, String>> =
+            headerNames
+                .map { headerName ->
+                    headerName to getHeaders(headerName).joinToString(",")
+                }
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.web.log
+
+import java.io.BufferedOutputStream
+import java.io.OutputStream
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.time.Duration
+import java.util.concurrent.locks.LockSupport
+import java.util.function.BooleanSupplier
+
+/**
+ * trace 日志分段文件读取工具.
+ *
+ * 读取 [SegmentFileTraceLogSink] 写出的分段文件, 统一转为 JSON Lines 输出, 可在其他进程中运行.
+ *
+ * 命令行用法:
+ * - `export <directory> [file]`: 导出全部记录, 未指定文件时输出到标准输出;
+ * - `tail <directory> [--from-start]`: 持续跟踪新记录.
+ *
+ * @param [directory] 分段文件目录
+ * @author tangli
+ * @date 2025/08/04 10:00
+ */
+public class TraceLogSegmentReader(
+    private val directory: Path,
+) {
+    private val json = TraceLogOutput(8 * 1024)
+
+    /**
+     * 导出目录中全部已写入的记录.
+     * @param [output] 输出流, 每行一条 JSON, 不会关闭
+     * @return 导出条数
+     */
+    public fun export(output: OutputStream): Long {
+        var count = 0L
+        TraceLogSegment.list(directory).forEach { path ->
+            val cursor = SegmentCursor(path)
+            while (cursor.next(json)) {
+                output.writeLine(json)
+                count++
+            }
+        }
+        output.flush()
+        return count
+    }
+
+    /**
+     * 持续跟踪新记录, 分段滚动时自动切换到下一分段.
+     * @param [output] 输出流, 每行一条 JSON, 不会关闭
+     * @param [fromStart] 是否从最旧分段开始, 否则只输出之后写入的记录
+     * @param [pollInterval] 无新记录时的等待间隔
+     * @param [stop] 返回 true 时结束跟踪
+     */
+    @JvmOverloads
+    public fun tail(
+        output: OutputStream,
+        fromStart: Boolean = false,
+        pollInterval: Duration = Duration.ofMillis(200),
+        stop: BooleanSupplier = BooleanSupplier { false },
+    ) {
+        val pollNanos = pollInterval.toNanos()
+        var cursor: SegmentCursor? = null
+        while (!stop.asBoolean) {
+            if (cursor == null) {
+                val segments = TraceLogSegment.list(directory)
+                val path = if (fromStart) segments.firstOrNull() else segments.lastOrNull()
+                if (path == null) {
+                    LockSupport.parkNanos(pollNanos)
+                    continue
+                }
+                cursor = SegmentCursor(path)
+                if (!fromStart) {
+                    cursor.skipToEnd()
+                }
+            }
+            var read = false
+            while (cursor.next(json)) {
+                output.writeLine(json)
+                read = true
+            }
+            if (read) {
+                output.flush()
+                continue
+            }
+            val nextPath = nextSegment(cursor.sequence)
+            if (nextPath == null) {
+                LockSupport.parkNanos(pollNanos)
+                continue
+            }
+            // 写入方滚动前会写结束标记, 异常退出时没有, 以出现更新的分段为准; 切换前再读一次, 避免漏掉刚发布的记录.
+            while (cursor.next(json)) {
+                output.writeLine(json)
+            }
+            output.flush()
+            cursor = SegmentCursor(nextPath)
+        }
+        output.flush()
+    }
+
+    private fun nextSegment(sequence: Long): Path? =
+        TraceLogSegment
+            .list(directory)
+            .firstOrNull { TraceLogSegment.sequence(it) > sequence }
+
+    private fun OutputStream.writeLine(json: TraceLogOutput) {
+        write(json.array, 0, json.size())
+        write('\n'.code)
+    }
+
+    /**
+     * 单个分段的读取位置.
+     */
+    private class SegmentCursor(
+        path: Path,
+    ) {
+        val sequence: Long = TraceLogSegment.sequence(path)
+
+        private val buffer: ByteBuffer =
+            FileChannel
+                .open(path, StandardOpenOption.READ)
+                .use { it.map(FileChannel.MapMode.READ_ONLY, 0, it.size()) }
+
+        private val format = TraceLogSegment.readFormat(buffer)
+
+        private var position = TraceLogSegment.HEADER_SIZE
+
+        var ended: Boolean = false
+            private set
+
+        /**
+         * 读取下一条记录并转为 JSON.
+         * @return 没有已发布的记录时返回 false
+         */
+        fun next(json: TraceLogOutput): Boolean {
+            val length = nextLength() ?: return false
+            json.reset()
+            TraceLogCodec.toJson(buffer.slice(position + Int.SIZE_BYTES, length), format, json)
+            position += TraceLogSegment.frameSize(length)
+            return true
+        }
+
+        fun skipToEnd() {
+            while (true) {
+                val length = nextLength() ?: return
+                position += TraceLogSegment.frameSize(length)
+            }
+        }
+
+        private fun nextLength(): Int? {
+            if (ended) {
+                return null
+            }
+            if (position + Int.SIZE_BYTES > buffer.limit()) {
+                ended = true
+                return null
+            }
+            return when (val length = TraceLogSegment.acquireLength(buffer, position)) {
+                0 -> {
+                    null
+                }
+
+                TraceLogSegment.END_OF_SEGMENT -> {
+                    ended = true
+                    null
+                }
+
+                else -> {
+                    length
+                }
+            }
+        }
+    }
+
+    public companion object {
+        /**
+         * 命令行入口.
+         * @param [args] `export <directory> [file]` 或 `tail <directory> [--from-start]`
+         */
+        @JvmStatic
+        public fun main(args: Array<String>) {
+            val command = args.getOrNull(0)
+            val directory = args.getOrNull(1)
+            if (directory == null || command !in setOf("export", "tail")) {
+                System.err.println("usage: export <directory> [file] | tail <directory> [--from-start]")
+                return
+            }
+            val reader = TraceLogSegmentReader(Path.of(directory))
+            if (command == "export") {
+                val file = args.getOrNull(2)
+                if (file == null) {
+                    reader.export(BufferedOutputStream(System.out))
+                } else {
+                    BufferedOutputStream(Files.newOutputStream(Path.of(file))).use { reader.export(it) }
+                }
+            } else {
+                reader.tail(BufferedOutputStream(System.out), args.getOrNull(2) == "--from-start")
+            }
+        }
+    }
+}
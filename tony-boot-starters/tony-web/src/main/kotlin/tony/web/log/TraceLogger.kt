@@ -30,27 +30,13 @@ package tony.web.log
  * @author tangli
  * @date 2023/05/25 19:29
  */
-import jakarta.servlet.http.HttpServletResponse
 import org.slf4j.Logger
-import org.springframework.http.HttpStatus
-import org.springframework.util.unit.DataSize
 import org.springframework.web.util.ContentCachingResponseWrapper
-import tony.core.ApiProperty
-import tony.core.utils.getFromRootAsString
 import tony.core.utils.getLogger
-import tony.core.utils.removeLineBreak
-import tony.web.WebContext
+import tony.web.filter.BodyCaptureResponseWrapper
 import tony.web.filter.RepeatReadRequestWrapper
 import tony.web.log.`#Const`.NULL
 import tony.web.log.`#Const`.logger
-import tony.web.utils.headers
-import tony.web.utils.isTextMediaTypes
-import tony.web.utils.origin
-import tony.web.utils.parseMediaType
-import tony.web.utils.remoteIp
-import tony.web.utils.status1xxInformational
-import tony.web.utils.status2xxSuccessful
-import tony.web.utils.status3xxRedirection
 
 /**
  * trace日志记录接口.
@@ -76,6 +62,52 @@ public fun interface TraceLogger {
         requestBodyMaxSize: Long,
         responseBodyMaxSize: Long,
     )
+
+    /**
+     * trace跟踪日志, 响应体为流式截取.
+     *
+     * [tony.web.filter.TraceLogFilter] 调用此方法. 请求体与响应体为截取的前 n 个字节;
+     * 业务未读取的请求体在记录前补读截取(需声明长度且不超过上限).
+     * 默认把已截取的响应体以 [ContentCachingResponseWrapper] 的形式交给 [traceLog], 内置实现直接使用截取内容.
+     * @param [request] 请求
+     * @param [response] 响应
+     * @param [elapsedTime] 执行时间
+     * @param [requestBodyMaxSize] 请求正文最大尺寸
+     * @param [responseBodyMaxSize] 响应体最大尺寸
+     * @author tangli
+     * @date 2025/07/31 10:00
+     */
+    public fun traceLog(
+        request: RepeatReadRequestWrapper,
+        response: BodyCaptureResponseWrapper,
+        elapsedTime: Long,
+        requestBodyMaxSize: Long,
+        responseBodyMaxSize: Long,
+    ) {
+        traceLog(
+            request,
+            response.toContentCachingResponse(),
+            elapsedTime,
+            requestBodyMaxSize,
+            responseBodyMaxSize
+        )
+    }
+}
+
+/**
+ * trace日志输出.
+ *
+ * 接收请求线程捕获的 [TraceLogRecord] 并输出, 异步模式下在后台线程中调用, 不能访问请求与响应.
+ *
+ * @author tangli
+ * @date 2025/07/30 10:00
+ */
+public fun interface TraceLogSink {
+    /**
+     * 输出 trace 日志
+     * @param [record] 日志快照
+     */
+    public fun write(record: TraceLogRecord)
 }
 
 @Suppress("ClassName")
@@ -91,10 +123,14 @@ internal object `#Const` {
 /**
  * 请求日志记录默认实现
  *
+ * 在请求线程中捕获快照并直接交给 [TraceLogSink] 输出.
+ *
  * @author tangli
  * @date 2023/05/25 19:30
  */
-internal class DefaultTraceLogger : TraceLogger {
+internal class DefaultTraceLogger(
+    private val sink: TraceLogSink,
+) : TraceLogger {
     override fun traceLog(
         request: RepeatReadRequestWrapper,
         response: ContentCachingResponseWrapper,
@@ -102,124 +138,45 @@ internal class DefaultTraceLogger : TraceLogger {
         requestBodyMaxSize: Long,
         responseBodyMaxSize: Long,
     ) {
-        val requestBody =
-            body(
-                request.contentAsByteArray,
-                request.contentType,
-                requestBodyMaxSize
-            )
-        val responseBody =
-            body(
-                response.contentAsByteArray,
-                response.contentType,
+        traceLog(
+            request,
+            BodyCaptureResponseWrapper.of(response, responseBodyMaxSize),
+            elapsedTime,
+            requestBodyMaxSize,
+            responseBodyMaxSize
+        )
+    }
+
+    override fun traceLog(
+        request: RepeatReadRequestWrapper,
+        response: BodyCaptureResponseWrapper,
+        elapsedTime: Long,
+        requestBodyMaxSize: Long,
+        responseBodyMaxSize: Long,
+    ) {
+        sink.write(
+            TraceLogRecord.capture(
+                request,
+                response,
+                System.currentTimeMillis() - elapsedTime,
+                elapsedTime,
+                requestBodyMaxSize,
                 responseBodyMaxSize
             )
-        val resultCode = resultCode(responseBody, response)
-        val resultStatus = resultStatus(resultCode)
-        val protocol = request.scheme
-        val httpMethod = request.method
-        val origin = request.origin
-        val path =
-            request
-                .requestURI
-                .removePrefix(WebContext.contextPath)
-        val query = request.queryString ?: NULL
-        val requestHeaders =
-            request
-                .headers
-                .entries
-                .joinToString(";;") { "${it.key}:${it.value}" }
-        val responseHeaders =
-            response
-                .headers
-                .entries
-                .joinToString(";;") { "${it.key}:${it.value}" }
-        val remoteIp = request.remoteIp
-        val logMessage =
-            buildString {
-                append("$elapsedTime|")
-                append("$resultCode|")
-                append("$resultStatus|")
-                append("$protocol|")
-                append("$httpMethod|")
-                append("$origin|")
-                append("$path|")
-                append("$query|")
-                append("$requestHeaders|")
-                append("$responseHeaders|")
-                append("$requestBody|")
-                append("$responseBody|")
-                append(remoteIp)
-            }
-        logger.trace(logMessage)
+        )
     }
+}
 
-    private fun body(
-        contentByteArray: ByteArray,
-        contentType: String,
-        bodyMaxSize: Long,
-    ) =
-        if (!isTextMediaTypes(parseMediaType(contentType))) {
-            "[$contentType]"
-        } else {
-            contentByteArray.let { bytes ->
-                val size = bytes.size.toLong()
-                when {
-                    size in 1..bodyMaxSize -> String(bytes).removeLineBreak()
-                    size >= bodyMaxSize -> "[too long content, length = ${DataSize.ofBytes(size)}]"
-                    else -> NULL
-                }
-            }
-        }
-
-    private fun resultCode(
-        responseBody: String,
-        response: HttpServletResponse,
-    ): Int {
-        val codeFromResponseDirectly =
-            responseBody
-                .getFromRootAsString("code")
-                ?.toInt()
-        return when {
-            codeFromResponseDirectly != null -> codeFromResponseDirectly
-
-            response.status2xxSuccessful ||
-                response.status3xxRedirection ||
-                response.status1xxInformational -> ApiProperty.okCode
-
-            else -> response.status * 100
-        }
+/**
+ * trace日志输出默认实现
+ *
+ * 以竖线分隔的文本输出到 trace-logger.
+ *
+ * @author tangli
+ * @date 2025/07/30 10:00
+ */
+internal class DefaultTraceLogSink : TraceLogSink {
+    override fun write(record: TraceLogRecord) {
+        logger.trace(TraceLogLineEncoder.encode(record))
     }
-
-    private fun resultStatus(resultCode: Int): String =
-        when (resultCode) {
-            ApiProperty.okCode, HttpStatus.OK.value(), in 100 * 100..199 * 100 -> {
-                HttpStatus.OK.name
-            }
-
-            ApiProperty.preconditionFailedCode -> {
-                HttpStatus.PRECONDITION_FAILED.name
-            }
-
-            ApiProperty.badRequestCode, HttpStatus.BAD_REQUEST.value() -> {
-                HttpStatus.BAD_REQUEST.name
-            }
-
-            ApiProperty.unauthorizedCode, HttpStatus.UNAUTHORIZED.value() -> {
-                HttpStatus.UNAUTHORIZED.name
-            }
-
-            ApiProperty.notFoundCode, HttpStatus.NOT_FOUND.value(), in 404 * 100 until 405 * 100 -> {
-                HttpStatus.NOT_FOUND
-                    .name
-            }
-
-            in 400 * 100..499 * 100, in 400..499 -> {
-                HttpStatus.BAD_REQUEST.name
-            }
-
-            else -> {
-                HttpStatus.INTERNAL_SERVER_ERROR.name
-            }
-        }
 }
@@ -0,0 +1,182 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.web.log
+
+import jakarta.servlet.http.HttpServletRequest
+import jakarta.servlet.http.HttpServletResponse
+import java.time.Duration
+import java.util.concurrent.ThreadLocalRandom
+import org.springframework.util.AntPathMatcher
+import tony.core.ERROR_CODE_HEADER_NAME
+import tony.core.utils.AntPathMatchIndex
+import tony.core.utils.antPathMatchAny
+import tony.core.utils.sanitizedPath
+import tony.web.WebContext
+
+/**
+ * trace 日志采样结果.
+ *
+ * @author tangli
+ * @date 2025/08/05 10:00
+ */
+internal enum class TraceSampleDecision {
+    /**
+     * 命中采样, 完整截取请求体与响应体.
+     */
+    FULL,
+
+    /**
+     * 未命中采样, 请求与响应都不包装, 不截取请求体; 请求结束后满足错误、慢请求规则才记录, 只记录异常处理登记的错误响应体.
+     */
+    TAIL,
+
+    /**
+     * 不记录.
+     */
+    SKIP,
+}
+
+/**
+ * trace 日志采样器.
+ *
+ * 在请求开始时按采样率决定是否完整记录, 结果保存在请求属性中, 各过滤器共用同一结果.
+ * 未命中采样的请求不包装, 结束后满足 "错误" 或 "慢请求" 规则时仍以精简内容记录.
+ * 多个路径规则同时匹配时取最具体的规则, 与 Spring MVC 选择处理器的顺序一致.
+ *
+ * @author tangli
+ * @date 2025/08/05 10:00
+ */
+internal class TraceSampler(
+    /**
+     * 默认采样率, 0 到 1
+     */
+    private val sampleRate: Double,
+    /**
+     * 按路径覆盖的采样率, 多个匹配时取最具体的模式
+     */
+    samplePathRates: Map<String, Double>,
+    /**
+     * 是否总是记录错误请求
+     */
+    private val alwaysTraceErrors: Boolean,
+    /**
+     * 超过该耗时的请求总是记录, 0 表示不启用
+     */
+    alwaysTraceSlowerThan: Duration,
+) {
+    private val slowThresholdMillis = alwaysTraceSlowerThan.toMillis()
+
+    private val tailEnabled = alwaysTraceErrors || slowThresholdMillis > 0
+
+    private val pathRates by lazy(LazyThreadSafetyMode.PUBLICATION) {
+        samplePathRates.mapKeys { (pattern, _) ->
+            sanitizedPath("${WebContext.contextPath}/$pattern")
+        }
+    }
+
+    private val pathRateIndex by lazy(LazyThreadSafetyMode.PUBLICATION) {
+        AntPathMatchIndex(pathRates.keys)
+    }
+
+    /**
+     * 采样结果, 同一请求只决定一次.
+     * @param [request] 请求
+     */
+    fun decide(request: HttpServletRequest): TraceSampleDecision {
+        (request.getAttribute(ATTRIBUTE_NAME) as? TraceSampleDecision)?.let { return it }
+        val rate = pathRate(request.requestURI)
+        val decision =
+            when {
+                rate >= 1.0 || rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate -> TraceSampleDecision.FULL
+                tailEnabled -> TraceSampleDecision.TAIL
+                else -> TraceSampleDecision.SKIP
+            }
+        request.setAttribute(ATTRIBUTE_NAME, decision)
+        return decision
+    }
+
+    /**
+     * 未命中采样的请求是否需要记录.
+     * @param [response] 响应
+     * @param [elapsedTime] 执行时间(毫秒)
+     */
+    fun shouldTraceTail(
+        response: HttpServletResponse,
+        elapsedTime: Long,
+    ): Boolean =
+        (alwaysTraceErrors && isError(response)) ||
+            (slowThresholdMillis > 0 && elapsedTime >= slowThresholdMillis)
+
+    private fun pathRate(requestUri: String): Double {
+        if (pathRates.isEmpty() || !requestUri.antPathMatchAny(pathRateIndex)) {
+            return sampleRate
+        }
+        return pathRates
+            .keys
+            .filter { antPathMatcher.match(it, requestUri) }
+            .minWithOrNull(antPathMatcher.getPatternComparator(requestUri))
+            ?.let(pathRates::getValue)
+            ?: sampleRate
+    }
+
+    internal companion object {
+        private val ATTRIBUTE_NAME: String = TraceSampler::class.java.name
+
+        private val ERROR_BODY_ATTRIBUTE_NAME: String = "$ATTRIBUTE_NAME.errorBody"
+
+        private val antPathMatcher = AntPathMatcher()
+
+        /**
+         * 是否错误响应: http 状态码 >= 400 或带有业务错误码响应头.
+         * @param [response] 响应
+         */
+        @JvmSynthetic
+        internal fun isError(response: HttpServletResponse): Boolean =
+            response.status >= 400 || response.containsHeader(ERROR_CODE_HEADER_NAME)
+
+        /**
+         * 登记错误响应体. 未命中采样的响应不截取, 已知为错误时由异常处理登记, 结束后随日志记录.
+         * @param [request] 请求
+         * @param [body] 错误响应体
+         */
+        @JvmSynthetic
+        internal fun promoteErrorBody(
+            request: HttpServletRequest,
+            body: Any,
+        ) {
+            if (request.getAttribute(ATTRIBUTE_NAME) == TraceSampleDecision.TAIL) {
+                request.setAttribute(ERROR_BODY_ATTRIBUTE_NAME, body)
+            }
+        }
+
+        /**
+         * 已登记的错误响应体.
+         * @param [request] 请求
+         */
+        @JvmSynthetic
+        internal fun errorBody(request: HttpServletRequest): Any? =
+            request.getAttribute(ERROR_BODY_ATTRIBUTE_NAME)
+    }
+}
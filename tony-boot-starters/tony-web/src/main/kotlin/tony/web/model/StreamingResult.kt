@@ -0,0 +1,209 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.web.model
+
+import com.fasterxml.jackson.core.JsonGenerator
+import com.fasterxml.jackson.databind.SerializerProvider
+import com.fasterxml.jackson.databind.annotation.JsonSerialize
+import com.fasterxml.jackson.databind.ser.std.StdSerializer
+import java.util.stream.BaseStream
+
+/**
+ * 流式行数据.
+ *
+ * 行数据在序列化时逐条写入 [JsonGenerator], 直接写到响应输出流, 不在内存中物化, 内存占用与行数无关.
+ * 只能序列化一次, 序列化结束(包括异常)后关闭数据源.
+ *
+ * 响应头已提交后出现异常时, 无法再返回错误结构, 客户端会收到不完整的 JSON.
+ *
+ * @author tangli
+ * @date 2025/08/07 10:00
+ */
+@JsonSerialize(using = StreamingRowsSerializer::class)
+public sealed class StreamingRows<T>(
+    private val rows: Iterator<T>,
+    private val source: AutoCloseable?,
+) : AutoCloseable {
+    /**
+     * 行之外的字段, 写在行数据之前.
+     */
+    internal open fun writeFields(generator: JsonGenerator) =
+        Unit
+
+    @JvmSynthetic
+    internal fun writeRows(
+        generator: JsonGenerator,
+        provider: SerializerProvider,
+    ) {
+        generator.writeArrayFieldStart("rows")
+        while (rows.hasNext()) {
+            provider.defaultSerializeValue(rows.next(), generator)
+        }
+        generator.writeEndArray()
+    }
+
+    override fun close() {
+        source?.close()
+    }
+}
+
+/**
+ * 流式列表结果, 序列化结构与 [tony.core.model.ListResult] 一致.
+ *
+ * @author tangli
+ * @date 2025/08/07 10:00
+ */
+public class StreamingListResult<T> private constructor(
+    rows: Iterator<T>,
+    source: AutoCloseable?,
+) : StreamingRows<T>(rows, source) {
+    public companion object {
+        @JvmStatic
+        public fun <T> of(rows: Sequence<T>): StreamingListResult<T> =
+            StreamingListResult(rows.iterator(), null)
+
+        /**
+         * 序列化结束后关闭 [rows].
+         */
+        @JvmStatic
+        public fun <T> of(rows: BaseStream<T, *>): StreamingListResult<T> =
+            StreamingListResult(rows.iterator(), rows)
+
+        /**
+         * [rows] 实现 [AutoCloseable] 时(如数据库游标), 序列化结束后关闭.
+         */
+        @JvmStatic
+        public fun <T> of(rows: Iterable<T>): StreamingListResult<T> =
+            StreamingListResult(rows.iterator(), rows as? AutoCloseable)
+
+        /**
+         * [rows] 实现 [AutoCloseable] 时, 序列化结束后关闭.
+         */
+        @JvmStatic
+        public fun <T> of(rows: Iterator<T>): StreamingListResult<T> =
+            StreamingListResult(rows, rows as? AutoCloseable)
+    }
+}
+
+/**
+ * 流式分页结果, 序列化结构与 [tony.core.model.PageResult] 一致, 字段顺序为 page、size、total、pages、hasNext、rows.
+ *
+ * @author tangli
+ * @date 2025/08/07 10:00
+ */
+public class StreamingPageResult<T> private constructor(
+    rows: Iterator<T>,
+    source: AutoCloseable?,
+    /**
+     * 页码
+     */
+    public val page: Long,
+    /**
+     * 每页数量
+     */
+    public val size: Long,
+    /**
+     * 总数
+     */
+    public val total: Long,
+) : StreamingRows<T>(rows, source) {
+    /**
+     * 总页数, 与 [tony.core.model.PageResultLike.getPages] 一致.
+     */
+    public val pages: Long
+        get() = if (size > 0) Math.ceilDiv(total, size) else 0
+
+    /**
+     * 是否有下一页, 与 [tony.core.model.PageResultLike.getHasNext] 一致.
+     *
+     * 行数据写出前无法计数, 按 [total] 推算本页行数, 要求行数据与分页字段一致.
+     */
+    public val hasNext: Boolean
+        get() = (total - (page - 1) * size).coerceIn(0, size) < size
+
+    override fun writeFields(generator: JsonGenerator) {
+        generator.writeNumberField("page", page)
+        generator.writeNumberField("size", size)
+        generator.writeNumberField("total", total)
+        generator.writeNumberField("pages", pages)
+        generator.writeBooleanField("hasNext", hasNext)
+    }
+
+    public companion object {
+        @JvmStatic
+        public fun <T> of(
+            rows: Sequence<T>,
+            page: Long,
+            size: Long,
+            total: Long,
+        ): StreamingPageResult<T> =
+            StreamingPageResult(rows.iterator(), null, page, size, total)
+
+        /**
+         * 序列化结束后关闭 [rows].
+         */
+        @JvmStatic
+        public fun <T> of(
+            rows: BaseStream<T, *>,
+            page: Long,
+            size: Long,
+            total: Long,
+        ): StreamingPageResult<T> =
+            StreamingPageResult(rows.iterator(), rows, page, size, total)
+
+        /**
+         * [rows] 实现 [AutoCloseable] 时(如数据库游标), 序列化结束后关闭.
+         */
+        @JvmStatic
+        public fun <T> of(
+            rows: Iterable<T>,
+            page: Long,
+            size: Long,
+            total: Long,
+        ): StreamingPageResult<T> =
+            StreamingPageResult(rows.iterator(), rows as? AutoCloseable, page, size, total)
+    }
+}
+
+/**
+ * [StreamingRows] 序列化器.
+ *
+ * @author tangli
+ * @date 2025/08/07 10:00
+ */
+internal class StreamingRowsSerializer : StdSerializer<StreamingRows<*>>(StreamingRows::class.java) {
+    override fun serialize(
+        value: StreamingRows<*>,
+        generator: JsonGenerator,
+        provider: SerializerProvider,
+    ) {
+        value.use {
+            generator.writeStartObject(it)
+            it.writeFields(generator)
+            it.writeRows(generator, provider)
+            generator.writeEndObject()
+        }
+    }
+}
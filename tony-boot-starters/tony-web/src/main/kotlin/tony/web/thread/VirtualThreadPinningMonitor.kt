@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.web.thread
+
+import java.time.Duration
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.LongAdder
+import jdk.jfr.consumer.RecordedEvent
+import jdk.jfr.consumer.RecordingStream
+import tony.core.utils.getLogger
+
+/**
+ * 虚拟线程指标.
+ *
+ * 进程内累计值, 可自行注册到监控系统.
+ *
+ * @author tangli
+ * @date 2025/08/08 10:00
+ */
+public data object VirtualThreadMetrics {
+    private val pinned = LongAdder()
+    private val pinnedNanos = LongAdder()
+
+    /**
+     * 超过阈值的虚拟线程钉住(pinned)次数.
+     */
+    @JvmStatic
+    public val pinnedCount: Long
+        get() = pinned.sum()
+
+    /**
+     * 超过阈值的钉住累计毫秒数.
+     */
+    @JvmStatic
+    public val pinnedMillis: Long
+        get() = pinnedNanos.sum() / 1_000_000
+
+    @JvmSynthetic
+    internal fun recordPinned(nanos: Long) {
+        pinned.increment()
+        pinnedNanos.add(nanos)
+    }
+}
+
+/**
+ * 虚拟线程钉住检测.
+ *
+ * 通过 JFR 事件 `jdk.VirtualThreadPinned` 检测虚拟线程在 synchronized 块或本地方法中阻塞、占住载体线程的情况.
+ * 每个调用栈只输出一次告警日志, 次数与耗时计入 [VirtualThreadMetrics].
+ *
+ * @param [threshold] 钉住超过该时长才记录
+ * @author tangli
+ * @date 2025/08/08 10:00
+ */
+internal class VirtualThreadPinningMonitor(
+    threshold: Duration,
+) : AutoCloseable {
+    private val log = getLogger()
+
+    private val reportedStacks = ConcurrentHashMap.newKeySet<String>()
+
+    private val recordingStream =
+        RecordingStream().apply {
+            enable(PINNED_EVENT)
+                .withThreshold(threshold)
+                .withStackTrace()
+            onEvent(PINNED_EVENT, ::onPinned)
+            startAsync()
+        }
+
+    init {
+        log.info("Virtual thread pinning monitor is enabled, threshold is $threshold")
+    }
+
+    private fun onPinned(event: RecordedEvent) {
+        VirtualThreadMetrics.recordPinned(event.duration.toNanos())
+        val stack =
+            event
+                .stackTrace
+                ?.frames
+                .orEmpty()
+                .take(MAX_FRAMES)
+                .joinToString("\n\tat ", prefix = "\tat ") {
+                    "${it.method.type.name}.${it.method.name}(line: ${it.lineNumber})"
+                }
+        if (reportedStacks.size < MAX_REPORTED_STACKS && reportedStacks.add(stack)) {
+            log.warn("Virtual thread pinned for ${event.duration.toMillis()}ms\n$stack")
+        }
+    }
+
+    override fun close() {
+        recordingStream.close()
+    }
+
+    private companion object {
+        private const val PINNED_EVENT = "jdk.VirtualThreadPinned"
+        private const val MAX_FRAMES = 16
+        private const val MAX_REPORTED_STACKS = 256
+    }
+}
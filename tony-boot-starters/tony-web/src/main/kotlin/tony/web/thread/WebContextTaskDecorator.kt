@@ -0,0 +1,85 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023-present, tangli
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package tony.web.thread
+
+import java.util.concurrent.atomic.AtomicBoolean
+import org.slf4j.MDC
+import org.springframework.core.task.TaskDecorator
+import org.springframework.web.context.request.RequestAttributes
+import org.springframework.web.context.request.RequestAttributes.SCOPE_REQUEST
+import org.springframework.web.context.request.RequestContextHolder
+
+/**
+ * 异步任务上下文传递.
+ *
+ * 提交任务时捕获 MDC(含 traceId) 与当前请求属性, 在执行线程中恢复, 执行结束后还原执行线程原有的上下文.
+ * [tony.web.WebContext] 基于 [RequestContextHolder], 异步任务中需要借助此装饰器才能取到当前请求.
+ *
+ * 请求属性只在请求存活期间传递: 请求结束后才开始执行的任务不再设置请求属性, 只恢复 MDC.
+ * 任务执行中请求结束时, 请求属性随即失效, 不要在异步任务中长时间持有请求体、会话等内容.
+ *
+ * @author tangli
+ * @date 2025/08/08 10:00
+ */
+public class WebContextTaskDecorator : TaskDecorator {
+    override fun decorate(runnable: Runnable): Runnable {
+        val contextMap = MDC.getCopyOfContextMap()
+        val requestAttributes = RequestContextHolder.getRequestAttributes()
+        val requestActive = requestAttributes?.activeFlag()
+        if (contextMap == null && requestActive == null) {
+            return runnable
+        }
+        return Runnable {
+            val previousContextMap = MDC.getCopyOfContextMap()
+            val previousRequestAttributes = RequestContextHolder.getRequestAttributes()
+            contextMap?.let(MDC::setContextMap) ?: MDC.clear()
+            RequestContextHolder.setRequestAttributes(if (requestActive?.get() == true) requestAttributes else null)
+            try {
+                runnable.run()
+            } finally {
+                previousContextMap?.let(MDC::setContextMap) ?: MDC.clear()
+                RequestContextHolder.setRequestAttributes(previousRequestAttributes)
+            }
+        }
+    }
+
+    private companion object {
+        private val ACTIVE_ATTRIBUTE_NAME = "${WebContextTaskDecorator::class.java.name}.active"
+
+        /**
+         * 请求存活标记, 同一请求共用一个, 请求结束时置为 false; 请求已结束时返回 null.
+         */
+        private fun RequestAttributes.activeFlag(): AtomicBoolean? =
+            try {
+                getAttribute(ACTIVE_ATTRIBUTE_NAME, SCOPE_REQUEST) as? AtomicBoolean
+                    ?: AtomicBoolean(true).also { flag ->
+                        setAttribute(ACTIVE_ATTRIBUTE_NAME, flag, SCOPE_REQUEST)
+                        registerDestructionCallback(ACTIVE_ATTRIBUTE_NAME, { flag.set(false) }, SCOPE_REQUEST)
+                    }
+            } catch (_: IllegalStateException) {
+                null
+            }
+    }
+}
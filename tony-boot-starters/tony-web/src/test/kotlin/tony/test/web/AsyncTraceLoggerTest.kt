@@ -0,0 +1,174 @@
+package tony.test.web
+
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.parallel.Execution
+import org.junit.jupiter.api.parallel.ExecutionMode
+import org.springframework.mock.web.MockHttpServletRequest
+import org.springframework.mock.web.MockHttpServletResponse
+import org.springframework.web.util.ContentCachingResponseWrapper
+import tony.web.filter.RepeatReadRequestWrapper.Companion.toRepeatRead
+import tony.web.log.AsyncTraceLogger
+import tony.web.log.TraceLogMetrics
+import tony.web.log.TraceLogOverflowPolicy
+import tony.web.log.TraceLogRecord
+import tony.web.log.TraceLogSink
+
+/**
+ * 异步 trace 日志测试
+ *
+ * 缓冲区容量为 2, 单个后台线程卡在第一条日志上, 之后的两条填满缓冲区.
+ * [TraceLogMetrics] 为进程内累计值, 断言差值.
+ *
+ * @author tony
+ * @date 2025/07/30 10:00
+ */
+@DisplayName("异步 trace 日志测试")
+@Execution(ExecutionMode.SAME_THREAD)
+class AsyncTraceLoggerTest {
+    @Test
+    @DisplayName("DROP: 缓冲区满时丢弃并计数, 不阻塞请求线程")
+    fun testDrop() {
+        val sink = BlockingSink()
+        AsyncTraceLogger(sink, 2, 1, TraceLogOverflowPolicy.DROP).use { logger ->
+            val dropped = TraceLogMetrics.droppedCount
+            logger.fill(sink)
+            assertEquals(2, TraceLogMetrics.queueDepth)
+
+            repeat(3) { logger.log("/dropped") }
+            assertEquals(dropped + 3, TraceLogMetrics.droppedCount)
+            assertEquals(2, TraceLogMetrics.queueDepth)
+
+            sink.release()
+            sink.awaitWritten(3)
+            assertEquals(listOf("/0", "/1", "/2"), sink.paths())
+        }
+        assertEquals(0, TraceLogMetrics.queueDepth)
+    }
+
+    @Test
+    @DisplayName("BLOCK: 缓冲区满时请求线程等待空位, 不丢日志")
+    fun testBlock() {
+        val sink = BlockingSink()
+        AsyncTraceLogger(sink, 2, 1, TraceLogOverflowPolicy.BLOCK).use { logger ->
+            val dropped = TraceLogMetrics.droppedCount
+            val blocked = TraceLogMetrics.blockedCount
+            logger.fill(sink)
+
+            val producer = Thread.ofPlatform().start { logger.log("/3") }
+            producer.join(200)
+            assertTrue(producer.isAlive)
+            assertEquals(blocked + 1, TraceLogMetrics.blockedCount)
+
+            sink.release()
+            producer.join(TimeUnit.SECONDS.toMillis(5))
+            assertFalse(producer.isAlive)
+            sink.awaitWritten(4)
+            assertEquals(listOf("/0", "/1", "/2", "/3"), sink.paths())
+            assertEquals(dropped, TraceLogMetrics.droppedCount)
+        }
+    }
+
+    @Test
+    @DisplayName("输出异常时计数, 后台线程继续输出")
+    fun testFailed() {
+        val written = Collections.synchronizedList(mutableListOf<String>())
+        val latch = CountDownLatch(1)
+        val sink =
+            TraceLogSink { record ->
+                if (record.path == "/error") {
+                    throw IllegalStateException("sink error")
+                }
+                written += record.path
+                latch.countDown()
+            }
+        val failed = TraceLogMetrics.failedCount
+        AsyncTraceLogger(sink, 4, 1, TraceLogOverflowPolicy.DROP).use { logger ->
+            logger.log("/error")
+            logger.log("/ok")
+            assertTrue(latch.await(5, TimeUnit.SECONDS))
+        }
+        assertEquals(failed + 1, TraceLogMetrics.failedCount)
+        assertEquals(listOf("/ok"), written)
+    }
+
+    @Test
+    @DisplayName("关闭后在调用线程直接输出")
+    fun testClosed() {
+        val written = mutableListOf<String>()
+        val logger = AsyncTraceLogger({ written += it.path }, 2, 1, TraceLogOverflowPolicy.DROP)
+        logger.close()
+        logger.log("/closed")
+        assertEquals(listOf("/closed"), written)
+    }
+
+    /**
+     * 第一条日志进入后阻塞, 直到 [release].
+     */
+    private class BlockingSink : TraceLogSink {
+        private val entered = CountDownLatch(1)
+
+        private val released = CountDownLatch(1)
+
+        private val written = Collections.synchronizedList(mutableListOf<String>())
+
+        override fun write(record: TraceLogRecord) {
+            entered.countDown()
+            released.await(5, TimeUnit.SECONDS)
+            written += record.path
+        }
+
+        fun awaitEntered() {
+            assertTrue(entered.await(5, TimeUnit.SECONDS))
+        }
+
+        fun release() {
+            released.countDown()
+        }
+
+        fun awaitWritten(count: Int) {
+            val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5)
+            while (written.size < count && System.nanoTime() < deadline) {
+                Thread.sleep(10)
+            }
+        }
+
+        fun paths(): List<String> =
+            synchronized(written) { written.toList() }
+    }
+
+    /**
+     * 后台线程取走第一条日志后, 再放入两条填满缓冲区.
+     */
+    private fun AsyncTraceLogger.fill(sink: BlockingSink) {
+        log("/0")
+        sink.awaitEntered()
+        log("/1")
+        log("/2")
+    }
+
+    private fun AsyncTraceLogger.log(path: String) {
+        traceLog(
+            MockHttpServletRequest("GET", path).toRepeatRead(),
+            ContentCachingResponseWrapper(MockHttpServletResponse()),
+            1,
+            1024,
+            1024
+        )
+    }
+
+    companion object {
+        @JvmStatic
+        @BeforeAll
+        fun startContext() {
+            TestSpringContexts.start()
+        }
+    }
+}
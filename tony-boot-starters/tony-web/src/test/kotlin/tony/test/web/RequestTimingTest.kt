@@ -0,0 +1,161 @@
+package tony.test.web
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertNotNull
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertSame
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Nested
+import org.junit.jupiter.api.Test
+import org.springframework.boot.context.properties.bind.Binder
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource
+import org.springframework.core.MethodParameter
+import org.springframework.core.OrderComparator
+import org.springframework.core.PriorityOrdered
+import org.springframework.http.MediaType
+import org.springframework.http.converter.HttpMessageConverter
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter
+import org.springframework.http.server.ServerHttpRequest
+import org.springframework.http.server.ServerHttpResponse
+import org.springframework.http.server.ServletServerHttpRequest
+import org.springframework.http.server.ServletServerHttpResponse
+import org.springframework.mock.web.MockHttpServletRequest
+import org.springframework.mock.web.MockHttpServletResponse
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice
+import tony.web.advice.RequestTimingInterceptor
+import tony.web.advice.RequestTimingResponseBodyAdvice
+import tony.web.config.RequestTimingProperties
+import tony.web.filter.RequestTimingFilter
+import tony.web.filter.TraceIdFilter
+import tony.web.log.RequestTiming
+import tony.web.log.RequestTimingListener
+
+/**
+ * 请求阶段耗时测试
+ *
+ * @author tony
+ * @date 2025/08/02 10:00
+ */
+@DisplayName("请求阶段耗时测试")
+class RequestTimingTest {
+
+    @Nested
+    @DisplayName("顺序")
+    inner class Ordering {
+        @Test
+        @DisplayName("耗时 advice 在 PriorityOrdered 的加密 advice 之前")
+        fun testAdviceBeforeEncrypt() {
+            val timingAdvice = RequestTimingResponseBodyAdvice(false)
+            val encryptAdvice = LowestPriorityAdvice()
+            val advices = mutableListOf<Any>(encryptAdvice, timingAdvice)
+            OrderComparator.sort(advices)
+            assertTrue(timingAdvice is PriorityOrdered)
+            assertSame(timingAdvice, advices.first())
+        }
+
+        @Test
+        @DisplayName("耗时过滤器与 traceId 过滤器顺序不同, traceId 在外层")
+        fun testFilterOrder() {
+            val traceIdFilter = TraceIdFilter()
+            val timingFilter = RequestTimingFilter(emptyList())
+            assertTrue(traceIdFilter.order < timingFilter.order)
+        }
+    }
+
+    @Nested
+    @DisplayName("配置")
+    inner class Properties {
+        @Test
+        @DisplayName("默认关闭")
+        fun testDisabledByDefault() {
+            val properties =
+                Binder(MapConfigurationPropertySource(emptyMap<String, String>()))
+                    .bindOrCreate("web.timing", RequestTimingProperties::class.java)
+            assertFalse(properties.enabled)
+            assertFalse(properties.serverTimingEnabled)
+        }
+    }
+
+    @Nested
+    @DisplayName("阶段记录")
+    inner class Spans {
+        @Test
+        @DisplayName("记录 pre 与 handler 阶段并交给监听器")
+        fun testSpans() {
+            val (timing, response) = execute(false)
+            assertNotNull(timing)
+            assertEquals(listOf("pre", "handler"), timing!!.spans.map { it.name })
+            assertNull(response.getHeader(SERVER_TIMING))
+        }
+
+        @Test
+        @DisplayName("开启后输出 Server-Timing 响应头")
+        fun testServerTiming() {
+            val (_, response) = execute(true)
+            val serverTiming = response.getHeader(SERVER_TIMING)
+            assertNotNull(serverTiming)
+            assertTrue(serverTiming!!.startsWith("pre;dur="))
+            assertTrue(serverTiming.contains("handler;dur="))
+            assertTrue(serverTiming.contains("total;dur="))
+        }
+
+        private fun execute(serverTimingEnabled: Boolean): Pair<RequestTiming?, MockHttpServletResponse> {
+            var completed: RequestTiming? = null
+            val filter = RequestTimingFilter(listOf(RequestTimingListener { _, timing -> completed = timing }))
+            val interceptor = RequestTimingInterceptor()
+            val advice = RequestTimingResponseBodyAdvice(serverTimingEnabled)
+            val request = MockHttpServletRequest("GET", "/timing")
+            val response = MockHttpServletResponse()
+            filter.doFilter(request, response) { req, res ->
+                req as MockHttpServletRequest
+                res as MockHttpServletResponse
+                interceptor.preHandle(req, res, this)
+                val serverResponse = ServletServerHttpResponse(res)
+                advice.beforeBodyWrite(
+                    "ok",
+                    MethodParameter(Spans::class.java.getDeclaredMethod("handle"), -1),
+                    MediaType.APPLICATION_JSON,
+                    MappingJackson2HttpMessageConverter::class.java,
+                    ServletServerHttpRequest(req),
+                    serverResponse
+                )
+                serverResponse.flush()
+                interceptor.afterCompletion(req, res, this, null)
+            }
+            return completed to response
+        }
+
+        @Suppress("unused")
+        fun handle(): String =
+            "ok"
+    }
+
+    private class LowestPriorityAdvice :
+        ResponseBodyAdvice<Any?>,
+        PriorityOrdered {
+        override fun supports(
+            returnType: MethodParameter,
+            converterType: Class<out HttpMessageConverter<*>>,
+        ): Boolean =
+            true
+
+        override fun beforeBodyWrite(
+            body: Any?,
+            returnType: MethodParameter,
+            selectedContentType: MediaType,
+            selectedConverterType: Class<out HttpMessageConverter<*>>,
+            request: ServerHttpRequest,
+            response: ServerHttpResponse,
+        ): Any? =
+            body
+
+        override fun getOrder(): Int =
+            PriorityOrdered.LOWEST_PRECEDENCE
+    }
+
+    private companion object {
+        private const val SERVER_TIMING = "Server-Timing"
+    }
+}
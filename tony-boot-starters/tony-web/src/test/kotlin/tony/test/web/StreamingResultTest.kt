@@ -0,0 +1,77 @@
+package tony.test.web
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Nested
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.CsvSource
+import tony.core.model.ListResult
+import tony.core.model.PageResult
+import tony.web.model.StreamingListResult
+import tony.web.model.StreamingPageResult
+
+/**
+ * 流式结果序列化测试
+ *
+ * @author tony
+ * @date 2025/08/07 10:00
+ */
+@DisplayName("流式结果序列化测试")
+class StreamingResultTest {
+    private val objectMapper = ObjectMapper()
+
+    @Nested
+    @DisplayName("分页结果")
+    inner class Page {
+        @ParameterizedTest
+        @CsvSource("1, 10, 25", "3, 10, 25", "2, 10, 20", "1, 10, 0")
+        @DisplayName("与 PageResult 的 Jackson 输出一致")
+        fun testSameAsPageResult(
+            page: Long,
+            size: Long,
+            total: Long,
+        ) {
+            val rows = rows(page, size, total)
+            assertEquals(
+                objectMapper.writeValueAsString(PageResult(rows, page, size, total)),
+                objectMapper.writeValueAsString(StreamingPageResult.of(rows.asSequence(), page, size, total))
+            )
+        }
+
+        @Test
+        @DisplayName("序列化结束后关闭数据源")
+        fun testCloseSource() {
+            var closed = false
+            val stream = listOf("a", "b").stream().onClose { closed = true }
+            objectMapper.writeValueAsString(StreamingPageResult.of(stream, 1, 10, 2))
+            assertTrue(closed)
+        }
+    }
+
+    @Nested
+    @DisplayName("列表结果")
+    inner class Rows {
+        @Test
+        @DisplayName("与 ListResult 的 Jackson 输出一致")
+        fun testSameAsListResult() {
+            val rows = listOf(mapOf("id" to 1), mapOf("id" to 2))
+            assertEquals(
+                objectMapper.writeValueAsString(ListResult(rows)),
+                objectMapper.writeValueAsString(StreamingListResult.of(rows.asSequence()))
+            )
+        }
+    }
+
+    private fun rows(
+        page: Long,
+        size: Long,
+        total: Long,
+    ): List<Map<String, Long>> {
+        val from = (page - 1) * size
+        val to = minOf(total, from + size)
+        return (from until to).map { mapOf("id" to it) }
+    }
+}
@@ -0,0 +1,36 @@
+package tony.test.web
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties
+import org.springframework.context.annotation.AnnotationConfigApplicationContext
+import org.springframework.context.annotation.Configuration
+import org.springframework.core.env.MapPropertySource
+import tony.core.annotation.EnableTonyBoot
+import tony.web.config.WebProperties
+
+/**
+ * 测试用最小 Spring 容器.
+ *
+ * [tony.core.SpringContexts] 首次访问时绑定容器, 依赖它的测试在访问前调用 [start], 同一 JVM 只启动一次.
+ *
+ * @author tony
+ * @date 2025/08/05 10:00
+ */
+object TestSpringContexts {
+    private val context by lazy {
+        AnnotationConfigApplicationContext().apply {
+            environment.propertySources.addFirst(MapPropertySource("test", mapOf("knife4j.enable" to "false")))
+            register(TestConfig::class.java)
+            refresh()
+            registerShutdownHook()
+        }
+    }
+
+    fun start() {
+        context
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @EnableTonyBoot
+    @EnableConfigurationProperties(WebProperties::class)
+    internal class TestConfig
+}
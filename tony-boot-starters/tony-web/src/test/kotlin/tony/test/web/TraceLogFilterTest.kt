@@ -0,0 +1,156 @@
+package tony.test.web
+
+import java.time.Duration
+import org.junit.jupiter.api.Assertions.assertArrayEquals
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertSame
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Nested
+import org.junit.jupiter.api.Test
+import org.springframework.mock.web.MockHttpServletRequest
+import org.springframework.mock.web.MockHttpServletResponse
+import tony.web.filter.RepeatReadRequestWrapper.Companion.toRepeatRead
+import tony.web.filter.TraceLogFilter
+import tony.web.log.DefaultTraceLogger
+import tony.web.log.TraceLogRecord
+import tony.web.log.TraceLogger
+import tony.web.log.TraceSampler
+
+/**
+ * trace 日志过滤器测试
+ *
+ * @author tony
+ * @date 2025/07/31 10:00
+ */
+@DisplayName("trace 日志过滤器测试")
+class TraceLogFilterTest {
+    @Nested
+    @DisplayName("响应体截取")
+    inner class ResponseBody {
+        @Test
+        @DisplayName("旧签名的 TraceLogger 仍可用 lambda 实现")
+        fun testLegacyTraceLogger() {
+            var logged: String? = null
+            val filter =
+                filter(
+                    TraceLogger { _, response, _, _, _ ->
+                        logged = response.contentAsByteArray.decodeToString()
+                    }
+                )
+            val response = MockHttpServletResponse()
+            filter.doFilter(request(), response) { _, res ->
+                res.outputStream.write("stream".toByteArray())
+            }
+            assertEquals("stream", logged)
+            assertEquals("stream", response.contentAsString)
+        }
+
+        @Test
+        @DisplayName("getWriter 写出的响应体在记录前刷出, 记录完整")
+        fun testWriterFlushedBeforeLog() {
+            val records = mutableListOf<TraceLogRecord>()
+            val filter = filter(DefaultTraceLogger(records::add))
+            val response = MockHttpServletResponse()
+            filter.doFilter(request(), response) { _, res ->
+                res.characterEncoding = "UTF-8"
+                res.writer.write("{\"name\":\"tony\"}")
+            }
+            assertEquals("{\"name\":\"tony\"}", records.single().responseBody?.decodeToString())
+            assertEquals("{\"name\":\"tony\"}", response.contentAsString)
+        }
+    }
+
+    @Nested
+    @DisplayName("未命中采样")
+    inner class Tail {
+        @Test
+        @DisplayName("不包装请求与响应, 错误时记录登记的错误响应体")
+        fun testErrorLogged() {
+            val records = mutableListOf<TraceLogRecord>()
+            val filter = filter(DefaultTraceLogger(records::add), sampleRate = 0.0)
+            val request = request("{\"a\":1}".toByteArray())
+            val response = MockHttpServletResponse()
+            filter.doFilter(request, response) { req, res ->
+                assertSame(request, req)
+                assertSame(response, res)
+                (res as MockHttpServletResponse).status = 400
+                TraceSampler.promoteErrorBody(req as MockHttpServletRequest, mapOf("code" to 400))
+                res.writer.write("{\"code\":400}")
+            }
+            val record = records.single()
+            assertEquals("{\"code\":400}", record.responseBody?.decodeToString())
+            assertEquals(0, record.requestBody?.size ?: 0)
+        }
+
+        @Test
+        @DisplayName("成功且不慢的请求不记录")
+        fun testOkSkipped() {
+            val records = mutableListOf<TraceLogRecord>()
+            val filter = filter(DefaultTraceLogger(records::add), sampleRate = 0.0)
+            filter.doFilter(request(), MockHttpServletResponse()) { _, res ->
+                res.writer.write("ok")
+            }
+            assertTrue(records.isEmpty())
+        }
+    }
+
+    @Nested
+    @DisplayName("请求体完整读取")
+    inner class RequestBody {
+        @Test
+        @DisplayName("未读取时完整缓存, 可重复读取")
+        fun testUnread() {
+            val body = "x".repeat(100 * 1024).toByteArray()
+            val request = request(body).toRepeatRead()
+            assertArrayEquals(body, request.contentAsByteArray)
+            assertArrayEquals(body, request.inputStream.readBytes())
+        }
+
+        @Test
+        @DisplayName("已读完且完整截取时返回截取内容")
+        fun testReadAndComplete() {
+            val request = request("{\"a\":1}".toByteArray()).toRepeatRead()
+            request.inputStream.readBytes()
+            assertEquals("{\"a\":1}", request.contentAsByteArray.decodeToString())
+        }
+
+        @Test
+        @DisplayName("已读取但超过截取上限时抛出异常")
+        fun testReadAndTruncated() {
+            val request = request("x".repeat(100 * 1024).toByteArray()).toRepeatRead()
+            request.inputStream.readBytes()
+            assertThrows(IllegalStateException::class.java) { request.contentAsByteArray }
+        }
+
+        @Test
+        @DisplayName("只读取了一部分时抛出异常")
+        fun testPartiallyRead() {
+            val request = request("{\"a\":1}".toByteArray()).toRepeatRead()
+            request.inputStream.read(ByteArray(2))
+            assertThrows(IllegalStateException::class.java) { request.contentAsByteArray }
+        }
+    }
+
+    private fun filter(
+        traceLogger: TraceLogger,
+        sampleRate: Double = 1.0,
+    ): TraceLogFilter =
+        TraceLogFilter(traceLogger, TraceSampler(sampleRate, emptyMap(), true, Duration.ZERO), emptyList(), 1024, 1024)
+
+    private fun request(body: ByteArray = ByteArray(0)): MockHttpServletRequest =
+        MockHttpServletRequest("POST", "/api/orders").apply {
+            contentType = "application/json"
+            setContent(body)
+        }
+
+    companion object {
+        @JvmStatic
+        @BeforeAll
+        fun startContext() {
+            TestSpringContexts.start()
+        }
+    }
+}
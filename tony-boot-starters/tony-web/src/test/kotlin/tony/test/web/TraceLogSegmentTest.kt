@@ -0,0 +1,184 @@
+package tony.test.web
+
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.ObjectMapper
+import java.io.ByteArrayOutputStream
+import java.nio.ByteBuffer
+import java.nio.file.Files
+import java.nio.file.Path
+import org.junit.jupiter.api.Assertions.assertArrayEquals
+import org.junit.jupiter.api.Assertions.assertDoesNotThrow
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Nested
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.EnumSource
+import tony.web.log.RequestSpan
+import tony.web.log.SegmentFileTraceLogSink
+import tony.web.log.TraceLogCodec
+import tony.web.log.TraceLogFileFormat
+import tony.web.log.TraceLogOutput
+import tony.web.log.TraceLogRecord
+import tony.web.log.TraceLogSegment
+import tony.web.log.TraceLogSegmentReader
+
+/**
+ * trace 日志分段文件与编解码测试
+ *
+ * @author tony
+ * @date 2025/08/04 10:00
+ */
+@DisplayName("trace 日志分段文件测试")
+class TraceLogSegmentTest {
+    private val objectMapper = ObjectMapper()
+
+    @TempDir
+    lateinit var directory: Path
+
+    @Nested
+    @DisplayName("编解码")
+    inner class Codec {
+        @Test
+        @DisplayName("同名请求头输出为数组")
+        fun testRepeatedHeaders() {
+            val output = TraceLogOutput(1024)
+            TraceLogCodec.encode(
+                record("codec", headers = listOf("Accept" to "a", "X-Id" to "1", "Accept" to "b")),
+                TraceLogFileFormat.JSON,
+                output
+            )
+            val json = objectMapper.readTree(output.array, 0, output.size())
+            val headers = json["requestHeaders"]
+            assertEquals(listOf("Accept", "X-Id"), headers.fieldNames().asSequence().toList())
+            assertEquals(listOf("a", "b"), headers["Accept"].map(JsonNode::asText))
+            assertEquals("1", headers["X-Id"].asText())
+        }
+
+        @Test
+        @DisplayName("二进制格式往返")
+        fun testBinaryRoundTrip() {
+            val output = TraceLogOutput(1024)
+            val record = record("binary", body = "{\"a\":1}")
+            TraceLogCodec.encode(record, TraceLogFileFormat.BINARY, output)
+            val decoded = TraceLogCodec.readBinary(ByteBuffer.wrap(output.array, 0, output.size()))
+            assertEquals(record.traceId, decoded.traceId)
+            assertEquals(record.requestHeaders, decoded.requestHeaders)
+            assertArrayEquals(record.requestBody, decoded.requestBody)
+            assertEquals(record.spans.map { it.name }, decoded.spans.map { it.name })
+        }
+    }
+
+    @Nested
+    @DisplayName("写入与读取")
+    inner class SinkAndReader {
+        @ParameterizedTest
+        @EnumSource(TraceLogFileFormat::class)
+        @DisplayName("写入后导出为 JSON Lines")
+        fun testRoundTrip(format: TraceLogFileFormat) {
+            SegmentFileTraceLogSink(directory, format).use { sink ->
+                repeat(3) { sink.write(record("trace-$it", body = "{\"index\":$it}")) }
+            }
+            val lines = export()
+            assertEquals(3, lines.size)
+            lines.forEachIndexed { index, json ->
+                assertEquals("trace-$index", json["traceId"].asText())
+                assertEquals("{\"index\":$index}", json["requestBody"].asText())
+                assertEquals("handler", json["spans"][0]["name"].asText())
+            }
+        }
+
+        @Test
+        @DisplayName("写满后滚动并只保留最新分段")
+        fun testRollover() {
+            val body = "x".repeat(200 * 1024)
+            SegmentFileTraceLogSink(directory, segmentSize = TraceLogSegment.MIN_SEGMENT_SIZE, maxSegments = 2).use { sink ->
+                repeat(20) { sink.write(record("trace-$it", body = body)) }
+            }
+            val segments = TraceLogSegment.list(directory)
+            assertEquals(2, segments.size)
+            val traceIds = export().map { it["traceId"].asText().removePrefix("trace-").toInt() }
+            assertTrue(traceIds.isNotEmpty())
+            assertEquals(19, traceIds.last())
+            assertEquals((traceIds.first()..19).toList(), traceIds)
+        }
+    }
+
+    @Nested
+    @DisplayName("启动恢复")
+    inner class Startup {
+        @Test
+        @DisplayName("删除遗留的临时文件")
+        fun testOrphanTemporaryFile() {
+            val orphan = directory.resolve("${TraceLogSegment.fileName(1)}${TraceLogSegment.TEMP_SUFFIX}")
+            Files.write(orphan, ByteArray(16))
+            assertDoesNotThrow {
+                SegmentFileTraceLogSink(directory).use { it.write(record("orphan")) }
+            }
+            assertFalse(Files.exists(orphan))
+            assertEquals(1, export().size)
+        }
+
+        @Test
+        @DisplayName("启动时清理超出保留数量的分段")
+        fun testTrimOnStartup() {
+            repeat(4) {
+                SegmentFileTraceLogSink(directory, segmentSize = TraceLogSegment.MIN_SEGMENT_SIZE).close()
+            }
+            assertEquals(4, TraceLogSegment.list(directory).size)
+            SegmentFileTraceLogSink(directory, segmentSize = TraceLogSegment.MIN_SEGMENT_SIZE, maxSegments = 2).close()
+            val segments = TraceLogSegment.list(directory)
+            assertEquals(listOf(4L, 5L), segments.map(TraceLogSegment::sequence))
+        }
+    }
+
+    private fun export(): List<JsonNode> {
+        val output = ByteArrayOutputStream()
+        TraceLogSegmentReader(directory).export(output)
+        return output
+            .toString(Charsets.UTF_8)
+            .lineSequence()
+            .filter { it.isNotEmpty() }
+            .map(objectMapper::readTree)
+            .toList()
+    }
+
+    private fun record(
+        traceId: String,
+        headers: List<Pair<String, String>> = listOf("Accept" to "application/json"),
+        body: String? = null,
+    ): TraceLogRecord =
+        TraceLogRecord(
+            traceId = traceId,
+            startTime = System.currentTimeMillis(),
+            elapsedTime = 1,
+            scheme = "http",
+            method = "POST",
+            requestUrl = "http://localhost/test",
+            path = "/test",
+            query = null,
+            requestHeaders = headers,
+            responseHeaders = emptyList(),
+            requestContentType = "application/json",
+            requestBodySize = body?.length?.toLong() ?: 0,
+            requestBody = body?.toByteArray(),
+            responseContentType = "application/json",
+            responseBodySize = 0,
+            responseBody = null,
+            status = 200,
+            remoteIp = "127.0.0.1",
+            spans = listOf(RequestSpan("handler", 0, 1000))
+        )
+
+    companion object {
+        @JvmStatic
+        @BeforeAll
+        fun startContext() {
+            TestSpringContexts.start()
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package tony.test.web
+
+import java.time.Duration
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertSame
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Nested
+import org.junit.jupiter.api.Test
+import org.springframework.mock.web.MockHttpServletRequest
+import org.springframework.mock.web.MockHttpServletResponse
+import tony.core.ERROR_CODE_HEADER_NAME
+import tony.web.filter.RequestReplaceToRepeatReadFilter
+import tony.web.log.TraceSampleDecision
+import tony.web.log.TraceSampler
+
+/**
+ * trace 日志采样测试
+ *
+ * @author tony
+ * @date 2025/08/05 10:00
+ */
+@DisplayName("trace 日志采样测试")
+class TraceSamplerTest {
+
+    @Nested
+    @DisplayName("路径采样率")
+    inner class PathRates {
+        @Test
+        @DisplayName("多个模式匹配时取最具体的模式, 与声明顺序无关")
+        fun testMostSpecific() {
+            listOf(
+                linkedMapOf("/api/**" to 0.0, "/api/orders/*" to 1.0),
+                linkedMapOf("/api/orders/*" to 1.0, "/api/**" to 0.0)
+            ).forEach { pathRates ->
+                val sampler = TraceSampler(1.0, pathRates, false, Duration.ZERO)
+                assertEquals(TraceSampleDecision.FULL, sampler.decide(request("/api/orders/1")))
+                assertEquals(TraceSampleDecision.SKIP, sampler.decide(request("/api/users/1")))
+                assertEquals(TraceSampleDecision.FULL, sampler.decide(request("/other")))
+            }
+        }
+
+        @Test
+        @DisplayName("同一请求只决定一次")
+        fun testDecideOnce() {
+            val sampler = TraceSampler(0.5, emptyMap(), false, Duration.ZERO)
+            val request = request("/api/orders/1")
+            val decision = sampler.decide(request)
+            repeat(10) { assertEquals(decision, sampler.decide(request)) }
+        }
+    }
+
+    @Nested
+    @DisplayName("未命中采样")
+    inner class Tail {
+        @Test
+        @DisplayName("错误与慢请求规则")
+        fun testTailRules() {
+            val sampler = TraceSampler(0.0, emptyMap(), true, Duration.ofMillis(100))
+            assertEquals(TraceSampleDecision.TAIL, sampler.decide(request("/api/orders/1")))
+            assertFalse(sampler.shouldTraceTail(MockHttpServletResponse(), 10))
+            assertTrue(sampler.shouldTraceTail(MockHttpServletResponse(), 100))
+            assertTrue(sampler.shouldTraceTail(MockHttpServletResponse().apply { status = 500 }, 10))
+            assertTrue(
+                sampler.shouldTraceTail(MockHttpServletResponse().apply { addHeader(ERROR_CODE_HEADER_NAME, "1") }, 10)
+            )
+            assertEquals(
+                TraceSampleDecision.SKIP,
+                TraceSampler(0.0, emptyMap(), false, Duration.ZERO).decide(request("/api/orders/1"))
+            )
+        }
+
+        @Test
+        @DisplayName("未命中采样的请求不包装")
+        fun testTailNotWrapped() {
+            val sampler = TraceSampler(0.0, emptyMap(), true, Duration.ZERO)
+            val filter = RequestReplaceToRepeatReadFilter(sampler, emptyList(), 1024)
+            val request = request("/api/orders")
+            val response = MockHttpServletResponse()
+            filter.doFilter(request, response) { req, res ->
+                assertSame(request, req)
+                assertSame(response, res)
+            }
+        }
+
+        @Test
+        @DisplayName("只登记未命中采样请求的错误响应体")
+        fun testPromoteErrorBody() {
+            val tail = request("/api/orders")
+            TraceSampler(0.0, emptyMap(), true, Duration.ZERO).decide(tail)
+            TraceSampler.promoteErrorBody(tail, "error")
+            assertEquals("error", TraceSampler.errorBody(tail))
+
+            val full = request("/api/orders")
+            TraceSampler(1.0, emptyMap(), true, Duration.ZERO).decide(full)
+            TraceSampler.promoteErrorBody(full, "error")
+            assertNull(TraceSampler.errorBody(full))
+        }
+    }
+
+    private fun request(uri: String): MockHttpServletRequest =
+        MockHttpServletRequest("GET", uri)
+
+    companion object {
+        @JvmStatic
+        @BeforeAll
+        fun startContext() {
+            TestSpringContexts.start()
+        }
+    }
+}
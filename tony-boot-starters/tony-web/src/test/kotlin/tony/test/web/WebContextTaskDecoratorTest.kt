@@ -0,0 +1,69 @@
+package tony.test.web
+
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertSame
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.slf4j.MDC
+import org.springframework.mock.web.MockHttpServletRequest
+import org.springframework.web.context.request.RequestAttributes
+import org.springframework.web.context.request.RequestContextHolder
+import org.springframework.web.context.request.ServletRequestAttributes
+import tony.web.thread.WebContextTaskDecorator
+
+/**
+ * 异步任务上下文传递测试
+ *
+ * @author tony
+ * @date 2025/08/08 10:00
+ */
+@DisplayName("异步任务上下文传递测试")
+class WebContextTaskDecoratorTest {
+    private val decorator = WebContextTaskDecorator()
+
+    @AfterEach
+    fun clear() {
+        MDC.clear()
+        RequestContextHolder.resetRequestAttributes()
+    }
+
+    @Test
+    @DisplayName("请求存活时传递 MDC 与请求属性")
+    fun testActiveRequest() {
+        val attributes = ServletRequestAttributes(MockHttpServletRequest())
+        RequestContextHolder.setRequestAttributes(attributes)
+        MDC.put("traceId", "trace-1")
+        val task = decorator.decorate(capture())
+        clear()
+        task.run()
+        assertSame(attributes, captured)
+        assertEquals("trace-1", capturedTraceId)
+        assertNull(RequestContextHolder.getRequestAttributes())
+    }
+
+    @Test
+    @DisplayName("请求结束后执行的任务不带请求属性")
+    fun testCompletedRequest() {
+        val attributes = ServletRequestAttributes(MockHttpServletRequest())
+        RequestContextHolder.setRequestAttributes(attributes)
+        MDC.put("traceId", "trace-2")
+        val task = decorator.decorate(capture())
+        attributes.requestCompleted()
+        clear()
+        task.run()
+        assertNull(captured)
+        assertEquals("trace-2", capturedTraceId)
+    }
+
+    private var captured: RequestAttributes? = null
+
+    private var capturedTraceId: String? = null
+
+    private fun capture(): Runnable =
+        Runnable {
+            captured = RequestContextHolder.getRequestAttributes()
+            capturedTraceId = MDC.get("traceId")
+        }
+}
@@ -0,0 +1,153 @@
+package tony.test.web
+
+import java.util.stream.Stream
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNotSame
+import org.junit.jupiter.api.Assertions.assertSame
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Nested
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.CsvSource
+import org.springframework.core.MethodParameter
+import org.springframework.http.MediaType
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter
+import org.springframework.http.server.ServletServerHttpRequest
+import org.springframework.http.server.ServletServerHttpResponse
+import org.springframework.mock.web.MockHttpServletRequest
+import org.springframework.mock.web.MockHttpServletResponse
+import tony.core.model.ListResult
+import tony.web.advice.WrapResponseBodyAdvice
+import tony.web.model.StreamingListResult
+
+/**
+ * 响应包装测试
+ *
+ * @author tony
+ * @date 2025/08/05 10:00
+ */
+@DisplayName("响应包装测试")
+class WrapResponseBodyAdviceTest {
+    private val advice = WrapResponseBodyAdvice()
+
+    @Nested
+    @DisplayName("包装方式缓存")
+    inner class Plan {
+        @ParameterizedTest
+        @CsvSource(
+            "array, ARRAY",
+            "list, COLLECTION",
+            "stream, STREAM",
+            "sequence, STREAM",
+            "text, OBJECT",
+            "any, RUNTIME"
+        )
+        @DisplayName("同一方法按声明类型计算一次, 之后命中缓存")
+        fun testHit(
+            methodName: String,
+            bodyKind: String,
+        ) {
+            val plan = advice.wrapPlan(returnType(methodName))
+            assertEquals(bodyKind, plan.bodyKind.name)
+            assertSame(plan, advice.wrapPlan(returnType(methodName)))
+        }
+
+        @Test
+        @DisplayName("实际返回类型与缓存不一致时重新计算, 不覆盖缓存")
+        fun testMiss() {
+            val plan = advice.wrapPlan(returnType("any"))
+            val actual = advice.wrapPlan(returnType("any", ArrayList::class.java))
+            assertNotSame(plan, actual)
+            assertEquals(WrapResponseBodyAdvice.BodyKind.COLLECTION, actual.bodyKind)
+            assertSame(plan, advice.wrapPlan(returnType("any")))
+        }
+    }
+
+    @Nested
+    @DisplayName("包装结果")
+    inner class Body {
+        @Test
+        @DisplayName("数组与集合包装为 ListResult")
+        fun testRows() {
+            assertEquals(ListResult(listOf("a", "b")), wrap("list", listOf("a", "b")))
+            assertEquals(ListResult(listOf("a", "b")), wrap("array", arrayOf("a", "b")))
+        }
+
+        @Test
+        @DisplayName("流式返回值包装为 StreamingListResult")
+        fun testStream() {
+            assertTrue(wrap("stream", Stream.of("a")) is StreamingListResult<*>)
+            assertTrue(wrap("sequence", sequenceOf("a")) is StreamingListResult<*>)
+        }
+
+        @Test
+        @DisplayName("声明类型无法确定时按运行时类型包装")
+        fun testRuntime() {
+            assertEquals(ListResult(listOf("a")), wrap("any", listOf("a")))
+            assertEquals(mapOf("id" to 1), wrap("any", mapOf("id" to 1)))
+        }
+    }
+
+    private fun wrap(
+        methodName: String,
+        body: Any,
+    ): Any? =
+        advice
+            .beforeBodyWrite(
+                body,
+                returnType(methodName),
+                MediaType.APPLICATION_JSON,
+                MappingJackson2HttpMessageConverter::class.java,
+                ServletServerHttpRequest(MockHttpServletRequest()),
+                ServletServerHttpResponse(MockHttpServletResponse())
+            ).getData()
+
+    /**
+     * @param [parameterType] 实际返回类型, 模拟异步返回值等场景
+     */
+    private fun returnType(
+        methodName: String,
+        parameterType: Class<*>? = null,
+    ): MethodParameter {
+        val method = Controller::class.java.getMethod(methodName)
+        return if (parameterType == null) {
+            MethodParameter(method, -1)
+        } else {
+            object : MethodParameter(method, -1) {
+                override fun getParameterType(): Class<*> =
+                    parameterType
+            }
+        }
+    }
+
+    @Suppress("unused")
+    class Controller {
+        fun array(): Array<String> =
+            arrayOf()
+
+        fun list(): List<String> =
+            listOf()
+
+        fun stream(): Stream<String> =
+            Stream.empty()
+
+        fun sequence(): Sequence<String> =
+            emptySequence()
+
+        fun text(): String =
+            ""
+
+        fun any(): Any =
+            ""
+    }
+
+    companion object {
+        @JvmStatic
+        @BeforeAll
+        fun startContext() {
+            TestSpringContexts.start()
+        }
+    }
+}
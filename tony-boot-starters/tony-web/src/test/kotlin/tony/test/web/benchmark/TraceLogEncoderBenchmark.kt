@@ -0,0 +1,152 @@
+package tony.test.web.benchmark
+
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import org.openjdk.jmh.profile.GCProfiler
+import org.openjdk.jmh.runner.Runner
+import org.openjdk.jmh.runner.options.OptionsBuilder
+import org.springframework.util.unit.DataSize
+import tony.core.ApiProperty
+import tony.core.utils.getFromRootAsString
+import tony.core.utils.removeLineBreak
+import tony.web.log.TraceLogLineEncoder
+import tony.web.log.TraceLogRecord
+import tony.web.utils.isTextMediaTypes
+import tony.web.utils.parseMediaType
+import java.net.URI
+import java.util.concurrent.TimeUnit
+
+/**
+ * trace 日志行编码基准测试
+ *
+ * 对比原实现(字符串插值 + 排序转 Map + 正则去换行 + 每次解析 MediaType)与 TraceLogLineEncoder.
+ * 执行 main 方法运行, 关注 gc.alloc.rate.norm(每次操作分配字节数).
+ *
+ * @author tony
+ * @date 2025/08/03 10:00
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class TraceLogEncoderBenchmark {
+    private val requestBody =
+        """
+        {
+          "userId": 10086,
+          "keyword": "tony-boot",
+          "page": 1,
+          "size": 20
+        }
+        """.trimIndent().toByteArray()
+
+    private val responseBody =
+        """{"code":20000,"message":"ok","data":{"rows":[{"id":1,"name":"a"},{"id":2,"name":"b"}],"total":2}}"""
+            .toByteArray()
+
+    private val record =
+        TraceLogRecord(
+            traceId = "6f1c2a7e9b0d4e3f",
+            startTime = System.currentTimeMillis(),
+            elapsedTime = 12,
+            scheme = "http",
+            method = "POST",
+            requestUrl = "http://localhost:8080/api/user/page",
+            path = "/api/user/page",
+            query = "lang=zh",
+            requestHeaders =
+                listOf(
+                    "Host" to "localhost:8080",
+                    "Content-Type" to "application/json;charset=UTF-8",
+                    "Accept" to "application/json",
+                    "X-Token" to "eyJhbGciOiJIUzI1NiJ9.eyJzdWIiOiIxIn0.signature",
+                    "User-Agent" to "Mozilla/5.0"
+                ),
+            responseHeaders =
+                listOf(
+                    "Content-Type" to "application/json",
+                    "X-Trace-Id" to "6f1c2a7e9b0d4e3f"
+                ),
+            requestContentType = "application/json;charset=UTF-8",
+            requestBodySize = requestBody.size.toLong(),
+            requestBody = requestBody,
+            responseContentType = "application/json",
+            responseBodySize = responseBody.size.toLong(),
+            responseBody = responseBody,
+            status = 200,
+            remoteIp = "127.0.0.1",
+            spans = emptyList()
+        )
+
+    @Benchmark
+    fun legacy(): String {
+        val requestBody = legacyBody(record.requestBody, record.requestBodySize, record.requestContentType)
+        val responseBody = legacyBody(record.responseBody, record.responseBodySize, record.responseContentType)
+        val resultCode =
+            responseBody.getFromRootAsString("code")?.toInt()
+                ?: if (record.status in 100..399) ApiProperty.okCode else record.status * 100
+        val resultStatus = TraceLogLineEncoder.resultStatus(resultCode)
+        val url = URI(record.requestUrl).toURL()
+        val port = url.port
+        val origin = "${url.protocol}://${url.host}${if (port == 80 || port == 443 || port < 0) "" else ":$port"}"
+        return buildString {
+            append("${record.elapsedTime}|")
+            append("$resultCode|")
+            append("$resultStatus|")
+            append("${record.scheme}|")
+            append("${record.method}|")
+            append("$origin|")
+            append("${record.path}|")
+            append("${record.query}|")
+            append("${legacyHeaders(record.requestHeaders)}|")
+            append("${legacyHeaders(record.responseHeaders)}|")
+            append("$requestBody|")
+            append("$responseBody|")
+            append(record.remoteIp)
+        }
+    }
+
+    @Benchmark
+    fun encoder(): String =
+        TraceLogLineEncoder.encode(record)
+
+    private fun legacyHeaders(headers: List<Pair<String, String>>): String =
+        headers
+            .sortedBy { it.first }
+            .toMap()
+            .entries
+            .joinToString(";;") { "${it.key}:${it.value}" }
+
+    private fun legacyBody(
+        bytes: ByteArray?,
+        size: Long,
+        contentType: String?,
+    ) =
+        if (!isTextMediaTypes(parseMediaType(contentType))) {
+            "[$contentType]"
+        } else {
+            when {
+                bytes != null -> String(bytes).removeLineBreak()
+                size > 0 -> "[too long content, length = ${DataSize.ofBytes(size)}]"
+                else -> "[null]"
+            }
+        }
+}
+
+fun main() {
+    Runner(
+        OptionsBuilder()
+            .include(TraceLogEncoderBenchmark::class.java.simpleName)
+            .addProfiler(GCProfiler::class.java)
+            .build()
+    ).run()
+}
@@ -0,0 +1,161 @@
+package tony.test.web.benchmark
+
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration
+import org.springframework.boot.builder.SpringApplicationBuilder
+import org.springframework.boot.web.context.WebServerApplicationContext
+import org.springframework.context.annotation.Bean
+import org.springframework.web.servlet.function.RouterFunction
+import org.springframework.web.servlet.function.ServerResponse
+import org.springframework.web.servlet.function.router
+import tony.core.annotation.EnableTonyBoot
+import java.net.URI
+import java.net.http.HttpClient
+import java.net.http.HttpRequest
+import java.net.http.HttpResponse
+import java.time.Duration
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.LongAdder
+
+/**
+ * 虚拟线程压测
+ *
+ * 分别以平台线程池(spring.threads.virtual.enabled=false)与虚拟线程模式启动同一应用,
+ * 接口模拟阻塞 IO(默认 20ms), 以固定并发压测, 输出吞吐量与延迟分位.
+ * 执行 main 方法运行, 可通过参数指定并发数, 每轮秒数与阻塞毫秒数: `concurrency seconds blockMillis`.
+ * 每轮单独启动 JVM, 压测端与应用同机运行, CPU 核数较少时结果受压测端影响.
+ * 压测应用为嵌套类且不带组件注解, 其它测试的组件扫描不会加载.
+ *
+ * @author tony
+ * @date 2025/08/08 10:00
+ */
+object VirtualThreadLoadTest {
+    @JvmStatic
+    fun main(args: Array<String>) {
+        if (args.firstOrNull() == "round") {
+            val result =
+                runRound(args[1].toBoolean(), args[2].toInt(), Duration.ofSeconds(args[3].toLong()), args[4])
+            println(
+                "virtual=${args[1]} concurrency=${args[2]} " +
+                    "throughput=${"%.1f".format(result.throughput)} req/s " +
+                    "p50=${result.p50}ms p99=${result.p99}ms errors=${result.errors}"
+            )
+            return
+        }
+        val concurrency = args.getOrNull(0) ?: "1000"
+        val seconds = args.getOrNull(1) ?: "15"
+        val blockMillis = args.getOrNull(2) ?: "20"
+        // SpringContexts 为静态持有, 每轮单独启动 JVM
+        listOf(false, true).forEach { virtual ->
+            ProcessBuilder(
+                ProcessHandle.current().info().command().orElse("java"),
+                "-cp",
+                System.getProperty("java.class.path"),
+                VirtualThreadLoadTest::class.java.name,
+                "round",
+                virtual.toString(),
+                concurrency,
+                seconds,
+                blockMillis
+            ).inheritIO()
+                .start()
+                .waitFor()
+        }
+    }
+
+    private class LoadTestResult(
+        val throughput: Double,
+        val p50: Long,
+        val p99: Long,
+        val errors: Long,
+    )
+
+    private fun runRound(
+        virtual: Boolean,
+        concurrency: Int,
+        duration: Duration,
+        blockMillis: String,
+    ): LoadTestResult {
+        val context =
+            SpringApplicationBuilder(LoadTestApp::class.java)
+                .properties(
+                    "server.port=0",
+                    "spring.application.name=virtual-thread-load-test",
+                    "spring.threads.virtual.enabled=$virtual",
+                    "logging.level.root=warn"
+                ).run()
+        context.use {
+            val port = (context as WebServerApplicationContext).webServer.port
+            val uri = URI.create("http://localhost:$port/blocking?millis=$blockMillis")
+            val client =
+                HttpClient
+                    .newBuilder()
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build()
+            val request = HttpRequest.newBuilder(uri).GET().build()
+            // 预热
+            repeat(200) { client.send(request, HttpResponse.BodyHandlers.discarding()) }
+
+            val completed = LongAdder()
+            val errors = LongAdder()
+            val latencies = ConcurrentLinkedQueue<LongArray>()
+            val deadline = System.nanoTime() + duration.toNanos()
+            val start = System.nanoTime()
+            Executors.newVirtualThreadPerTaskExecutor().use { executor ->
+                repeat(concurrency) {
+                    executor.submit {
+                        val samples = LongArray(1 shl 16)
+                        var count = 0
+                        while (System.nanoTime() < deadline) {
+                            val begin = System.nanoTime()
+                            try {
+                                val response = client.send(request, HttpResponse.BodyHandlers.discarding())
+                                if (response.statusCode() != 200) {
+                                    errors.increment()
+                                    continue
+                                }
+                            } catch (_: Exception) {
+                                errors.increment()
+                                continue
+                            }
+                            if (count < samples.size) {
+                                samples[count++] = (System.nanoTime() - begin) / 1_000_000
+                            }
+                            completed.increment()
+                        }
+                        latencies.add(samples.copyOf(count))
+                    }
+                }
+            }
+            val elapsedSeconds = (System.nanoTime() - start) / 1_000_000_000.0
+            val sorted = latencies.flatMap { it.asIterable() }.sorted()
+            fun percentile(p: Double) =
+                if (sorted.isEmpty()) 0 else sorted[((sorted.size - 1) * p).toInt()]
+            return LoadTestResult(
+                completed.sum() / elapsedSeconds,
+                percentile(0.50),
+                percentile(0.99),
+                errors.sum()
+            )
+        }
+    }
+
+    /**
+     * 压测应用, 只由 [runRound] 启动.
+     */
+    @EnableTonyBoot
+    @EnableAutoConfiguration
+    internal class LoadTestApp {
+        /**
+         * 模拟阻塞 IO(Redis/JDBC/Feign)
+         */
+        @Bean
+        fun blockingRoute(): RouterFunction<ServerResponse> =
+            router {
+                GET("/blocking") { request ->
+                    Thread.sleep(request.param("millis").orElse("0").toLong())
+                    ServerResponse.ok().body("ok")
+                }
+            }
+    }
+}
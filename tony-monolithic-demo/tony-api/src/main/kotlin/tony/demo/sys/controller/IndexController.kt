@@ -43,7 +43,12 @@ class IndexController(
         @RequestBody
         req: LoginReq,
     ): LoginResp {
-        val token = JwtToken.gen("userId" to indexService.login(req))
+        // 网关按 tenantId 声明校验权限, 与 X-Tenant-ID 请求头一致
+        val token =
+            JwtToken.gen(
+                "userId" to indexService.login(req),
+                "tenantId" to WebContext.tenantId
+            )
         return LoginResp(token, LocalDateTime.now().minusMinutes(jwtProperties.expiredMinutes))
     }
 
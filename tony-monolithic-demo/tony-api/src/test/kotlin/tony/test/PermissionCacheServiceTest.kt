@@ -0,0 +1,89 @@
+package tony.test
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.mockito.Mockito
+import org.springframework.data.redis.core.RedisOperations
+import org.springframework.data.redis.core.SessionCallback
+import org.springframework.data.redis.core.SetOperations
+import org.springframework.data.redis.core.StringRedisTemplate
+import tony.core.PermissionKeys
+import tony.demo.sys.dao.ModuleDao
+import tony.demo.sys.dao.RoleDao
+import tony.demo.sys.dto.enums.ModuleType
+import tony.demo.sys.service.PermissionCacheService
+
+/**
+ * 权限缓存同步测试
+ *
+ * @author tony
+ * @date 2025/08/12 10:00
+ */
+@DisplayName("权限缓存同步测试")
+class PermissionCacheServiceTest {
+    @Suppress("UNCHECKED_CAST")
+    private val operations = Mockito.mock(RedisOperations::class.java) as RedisOperations<String, String>
+
+    @Suppress("UNCHECKED_CAST")
+    private val setOperations = Mockito.mock(SetOperations::class.java) as SetOperations<String, String>
+
+    private val messages = mutableListOf<Pair<String, String>>()
+
+    private val redisTemplate =
+        object : StringRedisTemplate() {
+            override fun <T> execute(session: SessionCallback<T>): T & Any =
+                session.execute(operations)!!
+
+            override fun convertAndSend(
+                channel: String,
+                message: Any,
+            ): Long {
+                messages += channel to message.toString()
+                return 1
+            }
+        }
+
+    private val roleDao = Mockito.mock(RoleDao::class.java)
+
+    private val service = PermissionCacheService(Mockito.mock(ModuleDao::class.java), roleDao, redisTemplate)
+
+    @Test
+    @DisplayName("禁用的角色同步为空集合并通知网关")
+    fun testDisabledRole() {
+        Mockito
+            .`when`(roleDao.selectEnabledRoleModuleIds("role-1", listOf(ModuleType.API), "tenant-1"))
+            .thenReturn(emptyList())
+
+        service.syncRole("tenant-1", "role-1")
+
+        val key = PermissionKeys.roleModules("tenant-1", "role-1")
+        val inOrder = Mockito.inOrder(operations)
+        inOrder.verify(operations).multi()
+        inOrder.verify(operations).delete(key)
+        inOrder.verify(operations).exec()
+        Mockito.verify(operations, Mockito.never()).opsForSet()
+        assertEquals(
+            listOf(PermissionKeys.CHANGED_CHANNEL to PermissionKeys.roleChanged("tenant-1", "role-1")),
+            messages
+        )
+    }
+
+    @Test
+    @DisplayName("启用的角色在同一事务中重写模块集合")
+    fun testEnabledRole() {
+        Mockito
+            .`when`(roleDao.selectEnabledRoleModuleIds("role-1", listOf(ModuleType.API), "tenant-1"))
+            .thenReturn(listOf("GET /sys/role", "POST /sys/role"))
+        Mockito.`when`(operations.opsForSet()).thenReturn(setOperations)
+
+        service.syncRole("tenant-1", "role-1")
+
+        val key = PermissionKeys.roleModules("tenant-1", "role-1")
+        val inOrder = Mockito.inOrder(operations, setOperations)
+        inOrder.verify(operations).multi()
+        inOrder.verify(operations).delete(key)
+        inOrder.verify(setOperations).add(key, "GET /sys/role", "POST /sys/role")
+        inOrder.verify(operations).exec()
+    }
+}
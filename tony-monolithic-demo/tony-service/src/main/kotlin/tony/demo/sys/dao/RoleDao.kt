@@ -158,4 +158,42 @@ interface RoleDao : BaseDao<Role> {
         @Param("tenantId")
         tenantId: String,
     ): List<ModuleResp>
+
+    /**
+     * 列出启用角色的模块id, 角色已禁用或删除时为空
+     * @param [roleId] 角色id
+     * @param [moduleTypes] 模块类型
+     * @param [tenantId] 租户id
+     * @return [List]<[String]>
+     * @author tangli
+     * @date 2025/08/12 10:00
+     */
+    fun selectEnabledRoleModuleIds(
+        @Param("roleId")
+        roleId: String,
+        @Param("moduleTypes")
+        moduleTypes: Collection<ModuleType>,
+        @Param("tenantId")
+        tenantId: String,
+    ): List<String>
+
+    /**
+     * 列出全部启用角色的模块
+     * @param [moduleTypes] 模块类型
+     * @return 每行含 tenantId, roleId, moduleId
+     * @author tangli
+     * @date 2025/08/12 10:00
+     */
+    fun selectAllRoleModules(
+        @Param("moduleTypes")
+        moduleTypes: Collection<ModuleType>,
+    ): List<Map<String, String>>
+
+    /**
+     * 列出全部员工角色, 不含内置角色
+     * @return 每行含 tenantId, employeeId, roleId
+     * @author tangli
+     * @date 2025/08/12 10:00
+     */
+    fun selectAllEmployeeRoles(): List<Map<String, String>>
 }
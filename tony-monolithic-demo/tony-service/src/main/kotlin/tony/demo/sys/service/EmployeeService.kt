@@ -34,6 +34,7 @@ class EmployeeService(
     private val employeeDao: EmployeeDao,
     private val roleDao: RoleDao,
     private val deptDao: DeptDao,
+    private val permissionCacheService: PermissionCacheService,
 ) {
     /**
      * 新增
@@ -157,6 +158,7 @@ class EmployeeService(
         req.roleIds.alsoIfNotEmpty {
             roleDao.insertEmployeeRoles(employeeId, it, tenantId)
         }
+        permissionCacheService.syncEmployee(tenantId, employeeId)
     }
 
     /**
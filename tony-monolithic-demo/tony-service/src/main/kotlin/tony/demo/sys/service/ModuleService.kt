@@ -22,6 +22,7 @@ import tony.demo.sys.po.Module
 @Service
 class ModuleService(
     private val moduleDao: ModuleDao,
+    private val permissionCacheService: PermissionCacheService,
 ) {
     /**
      * 提交全部
@@ -39,6 +40,7 @@ class ModuleService(
             }.physicalRemove()
         val moduleList = rows.treeToList().map<ModuleSubmitReq, Module> { it.copyTo() }
         moduleDao.insert(moduleList)
+        permissionCacheService.syncRoutes()
     }
 
     /**
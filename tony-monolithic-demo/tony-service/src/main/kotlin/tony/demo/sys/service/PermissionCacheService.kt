@@ -0,0 +1,172 @@
+package tony.demo.sys.service
+
+import org.springframework.boot.context.event.ApplicationReadyEvent
+import org.springframework.context.event.EventListener
+import org.springframework.data.redis.core.RedisOperations
+import org.springframework.data.redis.core.ScanOptions
+import org.springframework.data.redis.core.SessionCallback
+import org.springframework.data.redis.core.StringRedisTemplate
+import org.springframework.stereotype.Service
+import org.springframework.transaction.support.TransactionSynchronization
+import org.springframework.transaction.support.TransactionSynchronizationManager
+import tony.core.PermissionKeys
+import tony.core.utils.getLogger
+import tony.demo.sys.dao.ModuleDao
+import tony.demo.sys.dao.RoleDao
+import tony.demo.sys.dto.enums.ModuleType
+import tony.demo.sys.po.Module
+
+/**
+ * 权限缓存Service
+ *
+ * 把接口模块, 角色模块, 员工角色按 [PermissionKeys] 同步到 Redis, 并发布变更通知, 供网关权限引擎使用.
+ * 启动时全量同步一次, 之后在事务提交后增量同步.
+ * @author tangli
+ * @date 2025/08/12 10:00
+ */
+@Service
+class PermissionCacheService(
+    private val moduleDao: ModuleDao,
+    private val roleDao: RoleDao,
+    private val redisTemplate: StringRedisTemplate,
+) {
+    private val logger = getLogger()
+
+    /**
+     * 全量同步, 并清理已不存在的角色与员工
+     * @author tangli
+     * @date 2025/08/12 10:00
+     */
+    @EventListener(ApplicationReadyEvent::class)
+    fun syncAll() {
+        // 先列出已有的 key, 同步期间新写入的 key 不会被误删
+        val existing =
+            keys(PermissionKeys.roleModules("*", "*")) + keys(PermissionKeys.userRoles("*", "*"))
+        writeRoutes()
+
+        val roleModules =
+            roleDao
+                .selectAllRoleModules(listOf(ModuleType.API))
+                .groupBy({ PermissionKeys.roleModules(it.getValue("tenantId"), it.getValue("roleId")) }) {
+                    it.getValue("moduleId")
+                }
+        val employeeRoles =
+            roleDao
+                .selectAllEmployeeRoles()
+                .groupBy({ PermissionKeys.userRoles(it.getValue("tenantId"), it.getValue("employeeId")) }) {
+                    it.getValue("roleId")
+                }
+        roleModules.forEach { (key, moduleIds) -> replace(key, moduleIds) }
+        employeeRoles.forEach { (key, roleIds) -> replace(key, roleIds) }
+        val stale = existing - roleModules.keys - employeeRoles.keys
+        if (stale.isNotEmpty()) {
+            redisTemplate.delete(stale)
+        }
+
+        redisTemplate.convertAndSend(PermissionKeys.CHANGED_CHANNEL, PermissionKeys.ALL_CHANGED)
+        logger.info("Permission cache synced, ${roleModules.size} roles, ${employeeRoles.size} employees.")
+    }
+
+    /**
+     * 同步全部接口模块
+     * @author tangli
+     * @date 2025/08/12 10:00
+     */
+    fun syncRoutes() =
+        afterCommit {
+            writeRoutes()
+            redisTemplate.convertAndSend(PermissionKeys.CHANGED_CHANNEL, PermissionKeys.ROUTES_CHANGED)
+        }
+
+    /**
+     * 同步角色接口模块, 角色已禁用或删除时写入空集合
+     * @param [tenantId] 租户id
+     * @param [roleId] 角色id
+     * @author tangli
+     * @date 2025/08/12 10:00
+     */
+    fun syncRole(
+        tenantId: String,
+        roleId: String,
+    ) =
+        afterCommit {
+            val moduleIds = roleDao.selectEnabledRoleModuleIds(roleId, listOf(ModuleType.API), tenantId)
+            replace(PermissionKeys.roleModules(tenantId, roleId), moduleIds)
+            redisTemplate.convertAndSend(PermissionKeys.CHANGED_CHANNEL, PermissionKeys.roleChanged(tenantId, roleId))
+        }
+
+    /**
+     * 同步员工角色
+     * @param [tenantId] 租户id
+     * @param [employeeId] 员工id
+     * @author tangli
+     * @date 2025/08/12 10:00
+     */
+    fun syncEmployee(
+        tenantId: String,
+        employeeId: String,
+    ) =
+        afterCommit {
+            val roleIds =
+                roleDao
+                    .selectEmployeeRoles(employeeId, tenantId)
+                    .map { it.roleId }
+            replace(PermissionKeys.userRoles(tenantId, employeeId), roleIds)
+            redisTemplate.convertAndSend(
+                PermissionKeys.CHANGED_CHANNEL,
+                PermissionKeys.userChanged(tenantId, employeeId)
+            )
+        }
+
+    private fun writeRoutes() {
+        val moduleIds =
+            moduleDao
+                .ktQuery()
+                .eq(Module::moduleType, ModuleType.API)
+                .eq(Module::enabled, true)
+                .list()
+                .map { it.moduleId }
+        replace(PermissionKeys.ROUTES, moduleIds)
+    }
+
+    /**
+     * 在同一事务中删除并重写集合, 网关不会读到空集合或半写入的集合.
+     */
+    private fun replace(
+        key: String,
+        members: Collection<String>,
+    ) {
+        redisTemplate.execute(
+            object : SessionCallback<List<Any>> {
+                override fun <K, V> execute(operations: RedisOperations<K, V>): List<Any> {
+                    @Suppress("UNCHECKED_CAST")
+                    val stringOperations = operations as RedisOperations<String, String>
+                    stringOperations.multi()
+                    stringOperations.delete(key)
+                    if (members.isNotEmpty()) {
+                        stringOperations.opsForSet().add(key, *members.toTypedArray())
+                    }
+                    return stringOperations.exec()
+                }
+            }
+        )
+    }
+
+    private fun keys(pattern: String): Set<String> =
+        redisTemplate
+            .scan(ScanOptions.scanOptions().match(pattern).build())
+            .use { it.asSequence().toSet() }
+
+    private fun afterCommit(block: () -> Unit) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            block()
+            return
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+            object : TransactionSynchronization {
+                override fun afterCommit() =
+                    block()
+            }
+        )
+    }
+}
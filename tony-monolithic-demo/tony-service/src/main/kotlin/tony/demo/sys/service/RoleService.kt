@@ -28,6 +28,7 @@ import tony.demo.sys.po.Role
 @Service
 class RoleService(
     private val dao: RoleDao,
+    private val permissionCacheService: PermissionCacheService,
 ) {
     /**
      * 列表
@@ -77,6 +78,7 @@ class RoleService(
      * @author tangli
      * @date 2024/07/04 14:36
      */
+    @Transactional(rollbackFor = [Throwable::class])
     fun update(req: RoleUpdateReq) {
         val id = req.roleId
         val tenantId = req.tenantId
@@ -89,10 +91,21 @@ class RoleService(
             .eq(Role::tenantId, tenantId)
             .throwIfExists("已有同名数据")
 
+        val po =
+            dao
+                .ktQuery()
+                .eq(Role::roleId, id)
+                .eq(Role::tenantId, tenantId)
+                .oneNotNull()
+
         val updatedPo =
             req.copyTo<Role>()
 
         dao.updateById(updatedPo)
+        // 启用/禁用后角色权限随之变化
+        if (req.enabled != null && req.enabled != po.enabled) {
+            permissionCacheService.syncRole(tenantId, id)
+        }
     }
 
     /**
@@ -114,6 +127,7 @@ class RoleService(
         dao.deleteById(po)
         dao.deleteRoleModules(id, req.tenantId)
         dao.deleteEmployeesRole(id, tenantId)
+        permissionCacheService.syncRole(tenantId, id)
     }
 
     /**
@@ -129,6 +143,7 @@ class RoleService(
             .alsoIfNotEmpty {
                 dao.insertRoleModules(req.roleId, it, req.tenantId)
             }
+        permissionCacheService.syncRole(req.tenantId, req.roleId)
     }
 
     /**